@@ -0,0 +1,45 @@
+package io.metamorphic.analysisservices;
+
+import io.metamorphic.analysiscommons.models.DatasetMetrics;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end profiling of file input, from the rows of the file to the
+ * metrics of its columns.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class AnalyzeFileBenchmark {
+
+    @Param({"NARROW_TALL", "WIDE_SHORT", "HIGH_CARDINALITY"})
+    SyntheticData.Shape shape;
+
+    private AnalysisServiceImpl service;
+
+    private List<String[]> rows;
+
+    private List<String> columnNames;
+
+    private List<String> columnTypeNames;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new AnalysisServiceImpl();
+        SyntheticData data = SyntheticData.generate(shape);
+        rows = data.getRows();
+        columnNames = data.getColumnNames();
+        columnTypeNames = data.getColumnTypeNames();
+    }
+
+    @Benchmark
+    public DatasetMetrics analyze() {
+        return service.analyze("benchmark.csv", rows.iterator(), columnNames, columnTypeNames, false);
+    }
+}
@@ -0,0 +1,69 @@
+package io.metamorphic.analysisservices;
+
+import io.metamorphic.analysiscommons.models.DatasetMetrics;
+import io.metamorphic.commons.Pair;
+import io.metamorphic.analysisservices.datastores.StreamingTableDataProvider;
+import io.metamorphic.analysisservices.storage.AnnotationStorageProvider;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.util.SimpleTableDef;
+import org.eobjects.analyzer.connection.PojoDatastore;
+import org.eobjects.analyzer.job.runner.AnalysisResultFuture;
+import org.eobjects.analyzer.result.AnalyzerResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading the measures of every column out of the results of an analysis
+ * job, which is done once the rows have been analyzed. Its time should grow
+ * linearly with the number of columns.
+ *
+ * The analysis job of the widest tables nests a consumer per column, which
+ * needs a deeper stack than the default.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xss64m")
+@State(Scope.Benchmark)
+public class ResultExtractionBenchmark {
+
+    @Param({"10", "250", "1000", "5000"})
+    int columns;
+
+    private AnalysisServiceImpl service;
+
+    private Collection<AnalyzerResult> results;
+
+    private List<String> columnNames;
+
+    private List<Pair<String, ColumnType>> columnsByType;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new AnalysisServiceImpl();
+        SyntheticData data = SyntheticData.generate(columns, 100, false, 42L);
+        columnNames = data.getColumnNames();
+        List<ColumnType> columnTypes = service.getColumnTypes(data.getColumnTypeNames());
+        SimpleTableDef tableDef = new SimpleTableDef(AnalysisServiceImpl.FILE_TABLE_NAME,
+                columnNames.toArray(new String[columnNames.size()]),
+                columnTypes.toArray(new ColumnType[columnTypes.size()]));
+        PojoDatastore datastore = new PojoDatastore("file", "benchmark.csv",
+                StreamingTableDataProvider.forIterator(tableDef, data.getRows().iterator()));
+        AnalysisResultFuture future = service.runAnalysisJob(AnalysisServiceImpl.FILE_TABLE_NAME, datastore,
+                columnNames, columnTypes, true, 0, null, null, new AnnotationStorageProvider(service.getAnnotationPolicy()));
+        results = new ArrayList<>(future.getResultMap().values());
+        columnsByType = AnalysisServiceImpl.getColumnsByType(columnNames, columnTypes);
+    }
+
+    @Benchmark
+    public DatasetMetrics extract() {
+        DatasetMetrics datasetMetrics = new DatasetMetrics("benchmark.csv", "FILE");
+        service.addAnalyzerMetrics(datasetMetrics, results, columnNames, columnsByType, true);
+        return datasetMetrics;
+    }
+}
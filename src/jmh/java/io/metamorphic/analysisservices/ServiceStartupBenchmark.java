@@ -0,0 +1,49 @@
+package io.metamorphic.analysisservices;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starting the service in a new JVM, each fork a cold start, and the heap in
+ * use once it has started: with the classifier left unloaded until long text
+ * is analyzed, and with it loaded as the service starts, as it was before it
+ * was loaded on demand. Loads the model from classifiers/ of the working
+ * directory.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 5, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class ServiceStartupBenchmark {
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Heap {
+
+        public long usedHeapMegabytes;
+
+        void measure() {
+            Runtime runtime = Runtime.getRuntime();
+            System.gc();
+            usedHeapMegabytes = (runtime.totalMemory() - runtime.freeMemory()) >> 20;
+        }
+    }
+
+    @Benchmark
+    public AnalysisServiceImpl start(Heap heap) {
+        AnalysisServiceImpl analysisService = new AnalysisServiceImpl();
+        heap.measure();
+        return analysisService;
+    }
+
+    @Benchmark
+    public AnalysisServiceImpl startAndLoadClassifier(Heap heap) throws Exception {
+        AnalysisServiceImpl analysisService = new AnalysisServiceImpl();
+        analysisService.getClassifierHolder().warmUp().get();
+        heap.measure();
+        return analysisService;
+    }
+}
@@ -0,0 +1,136 @@
+package io.metamorphic.analysisservices;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates the datasets of the benchmarks, so that they run offline and
+ * repeatably. Values are strings, as read from a file.
+ */
+public final class SyntheticData {
+
+    private static final String[] WORDS = {
+            "alpha", "Bravo", "charlie", "DELTA", "echo", "Foxtrot", "golf", "hotel", "India", "juliet",
+            "kilo", "Lima", "mike", "November", "oscar", "papa", "Quebec", "romeo", "sierra", "tango"
+    };
+
+    private static final String[] TYPE_CYCLE = {"NVARCHAR", "INTEGER", "DECIMAL", "DATE", "BOOLEAN"};
+
+    /**
+     * The shapes of the end-to-end benchmarks.
+     */
+    public enum Shape {
+
+        /**
+         * A few columns of each type, many rows.
+         */
+        NARROW_TALL(10, 50000, false),
+
+        /**
+         * Many columns, few rows.
+         */
+        WIDE_SHORT(250, 1000, false),
+
+        /**
+         * Strings that are almost all distinct, as in identifiers or free text.
+         */
+        HIGH_CARDINALITY(10, 20000, true);
+
+        final int columns;
+        final int rows;
+        final boolean highCardinality;
+
+        Shape(int columns, int rows, boolean highCardinality) {
+            this.columns = columns;
+            this.rows = rows;
+            this.highCardinality = highCardinality;
+        }
+    }
+
+    private final List<String> columnNames;
+
+    private final List<String> columnTypeNames;
+
+    private final List<String[]> rows;
+
+    private SyntheticData(List<String> columnNames, List<String> columnTypeNames, List<String[]> rows) {
+        this.columnNames = columnNames;
+        this.columnTypeNames = columnTypeNames;
+        this.rows = rows;
+    }
+
+    public static SyntheticData generate(Shape shape) {
+        return generate(shape.columns, shape.rows, shape.highCardinality, 42L);
+    }
+
+    /**
+     * @param highCardinality whether string columns hold mostly distinct values
+     * @param seed the seed of the values, so that runs compare
+     */
+    public static SyntheticData generate(int columnCount, int rowCount, boolean highCardinality, long seed) {
+        Random random = new Random(seed);
+        List<String> columnNames = new ArrayList<>(columnCount);
+        List<String> columnTypeNames = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            String typeName = highCardinality && i % 2 == 0 ? "NVARCHAR" : TYPE_CYCLE[i % TYPE_CYCLE.length];
+            columnNames.add("c" + i + "_" + typeName.toLowerCase());
+            columnTypeNames.add(typeName);
+        }
+        List<String[]> rows = new ArrayList<>(rowCount);
+        for (int r = 0; r < rowCount; r++) {
+            String[] row = new String[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                row[i] = value(random, columnTypeNames.get(i), highCardinality);
+            }
+            rows.add(row);
+        }
+        return new SyntheticData(columnNames, columnTypeNames, rows);
+    }
+
+    private static String value(Random random, String typeName, boolean highCardinality) {
+        if (random.nextInt(50) == 0) {
+            return "";
+        }
+        switch (typeName) {
+            case "INTEGER":
+                return Integer.toString(random.nextInt(1000000) - 1000);
+            case "DECIMAL":
+                return Integer.toString(random.nextInt(100000)) + '.' + random.nextInt(100);
+            case "DATE":
+                return String.format("%04d-%02d-%02d", 1990 + random.nextInt(30), 1 + random.nextInt(12), 1 + random.nextInt(28));
+            case "BOOLEAN":
+                return random.nextBoolean() ? "true" : "false";
+            default:
+                return highCardinality ? uniqueString(random) : words(random);
+        }
+    }
+
+    private static String words(Random random) {
+        int n = 1 + random.nextInt(3);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static String uniqueString(Random random) {
+        return "ID-" + Long.toString(random.nextLong() & Long.MAX_VALUE, 36) + '-' + WORDS[random.nextInt(WORDS.length)];
+    }
+
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    public List<String> getColumnTypeNames() {
+        return columnTypeNames;
+    }
+
+    public List<String[]> getRows() {
+        return rows;
+    }
+}
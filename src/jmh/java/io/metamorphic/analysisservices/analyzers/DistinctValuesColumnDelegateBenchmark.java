@@ -0,0 +1,106 @@
+package io.metamorphic.analysisservices.analyzers;
+
+import org.eobjects.analyzer.data.InputColumn;
+import org.eobjects.analyzer.data.MockInputColumn;
+import org.eobjects.analyzer.data.MockInputRow;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counting the distinct values of a wide table of string columns, with the
+ * rows split between 1 to 8 threads, to show how counting scales with the
+ * threads of the analysis job. Throughput is in rows per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DistinctValuesColumnDelegateBenchmark {
+
+    private static final int COLUMNS = 64;
+
+    private static final int ROWS = 4096;
+
+    @Param({"1", "2", "4", "8"})
+    int threads;
+
+    @Param({"EXACT", "APPROXIMATE"})
+    DistinctCountMode mode;
+
+    @Param({"100", "1000000"})
+    int cardinality;
+
+    private InputColumn<String>[] columns;
+
+    private MockInputRow[] rows;
+
+    private ExecutorService executor;
+
+    private List<Callable<Void>> slices;
+
+    private DistinctValuesAnalyzer analyzer;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUpRows() {
+        Random random = new Random(42L);
+        columns = new InputColumn[COLUMNS];
+        for (int i = 0; i < COLUMNS; i++) {
+            columns[i] = new MockInputColumn<>("column" + i, String.class);
+        }
+        rows = new MockInputRow[ROWS];
+        for (int r = 0; r < ROWS; r++) {
+            rows[r] = new MockInputRow();
+            for (InputColumn<String> column : columns) {
+                rows[r].put(column, "value-" + random.nextInt(cardinality));
+            }
+        }
+        executor = Executors.newFixedThreadPool(threads);
+        slices = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int from = t * ROWS / threads;
+            final int to = (t + 1) * ROWS / threads;
+            slices.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (int r = from; r < to; r++) {
+                        analyzer.run(rows[r], 1);
+                    }
+                    return null;
+                }
+            });
+        }
+    }
+
+    // a new analyzer each iteration, so that exact counts do not grow without bound
+    @Setup(Level.Iteration)
+    public void setUpAnalyzer() {
+        analyzer = new DistinctValuesAnalyzer(columns);
+        analyzer._distinctCountMode = mode;
+        analyzer._exactThreshold = Integer.MAX_VALUE;
+        analyzer.init();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void run() throws Exception {
+        for (Future<Void> future : executor.invokeAll(slices)) {
+            future.get();
+        }
+    }
+}
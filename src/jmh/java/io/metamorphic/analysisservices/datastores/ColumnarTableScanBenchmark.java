@@ -0,0 +1,106 @@
+package io.metamorphic.analysisservices.datastores;
+
+import org.apache.metamodel.pojo.TableDataProvider;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.util.SimpleTableDef;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading every value of a table, as the datastore of an analysis job does,
+ * from a columnar table and, as a baseline, from string rows held in memory,
+ * for columns of each encoding. Throughput is in rows per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ColumnarTableScanBenchmark {
+
+    private static final int ROWS = 100000;
+
+    private static final int COLUMNS = 8;
+
+    // small enough that the columns of distinct values are encoded as numbers or text
+    private static final int MAX_DICTIONARY_SIZE = 1024;
+
+    private static final String[] WORDS = {"alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf", "hotel"};
+
+    @Param({"DICTIONARY", "LONG", "STRING"})
+    ColumnarTable.Encoding encoding;
+
+    private String[] columnNames;
+
+    private TableDataProvider<Integer> columnar;
+
+    private TableDataProvider<Object[]> rows;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42L);
+        columnNames = new String[COLUMNS];
+        ColumnType[] columnTypes = new ColumnType[COLUMNS];
+        for (int i = 0; i < COLUMNS; i++) {
+            columnNames[i] = "c" + i;
+            columnTypes[i] = ColumnType.NVARCHAR;
+        }
+        List<Object[]> values = new ArrayList<>(ROWS);
+        ColumnarTable.Builder builder = new ColumnarTable.Builder(Arrays.asList(columnNames), MAX_DICTIONARY_SIZE);
+        for (int r = 0; r < ROWS; r++) {
+            String[] row = new String[COLUMNS];
+            for (int i = 0; i < COLUMNS; i++) {
+                row[i] = value(random);
+            }
+            values.add(row);
+            builder.add(row);
+        }
+        ColumnarTable table = builder.build();
+        for (int i = 0; i < COLUMNS; i++) {
+            if (table.getEncoding(i) != encoding) {
+                throw new IllegalStateException("Column " + i + " is encoded as " + table.getEncoding(i));
+            }
+        }
+        SimpleTableDef tableDef = new SimpleTableDef("scan", columnNames, columnTypes);
+        columnar = new ColumnarTableDataProvider(tableDef, table);
+        rows = new StreamingTableDataProvider(tableDef, values);
+    }
+
+    private String value(Random random) {
+        switch (encoding) {
+            case DICTIONARY:
+                return WORDS[random.nextInt(WORDS.length)] + ' ' + random.nextInt(100);
+            case LONG:
+                return Long.toString(random.nextLong() >> random.nextInt(48));
+            default:
+                return "ID-" + Long.toString(random.nextLong() & Long.MAX_VALUE, 36);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void columnarTable(Blackhole blackhole) {
+        scan(columnar, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void stringRows(Blackhole blackhole) {
+        scan(rows, blackhole);
+    }
+
+    private <E> void scan(TableDataProvider<E> provider, Blackhole blackhole) {
+        for (E record : provider) {
+            for (String column : columnNames) {
+                blackhole.consume(provider.getValue(column, record));
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package io.metamorphic.analysisservices.transformers;
+
+import org.eobjects.analyzer.data.InputColumn;
+import org.eobjects.analyzer.data.InputRow;
+import org.eobjects.analyzer.data.MockInputColumn;
+import org.eobjects.analyzer.data.MockInputRow;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converting the strings of date columns, each written in one format as in
+ * most files, with and without learning the format of each column.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DateTransformerBenchmark {
+
+    private static final int ROWS = 1024;
+
+    private static final String[] FORMATS = {
+            "%1$04d-%2$02d-%3$02d",
+            "%3$02d/%2$02d/%1$04d",
+            "%1$04d-%2$02d-%3$02d %4$02d:%5$02d:%6$02d"
+    };
+
+    // 0 leaves every value to the general parser
+    @Param({"0", "100"})
+    int formatLearningSample;
+
+    private DateTransformer transformer;
+
+    private InputRow[] rows;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        Random random = new Random(42L);
+        InputColumn<String>[] columns = new InputColumn[FORMATS.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new MockInputColumn<>("c" + i, String.class);
+        }
+        rows = new InputRow[ROWS];
+        for (int r = 0; r < ROWS; r++) {
+            MockInputRow row = new MockInputRow(r);
+            for (int i = 0; i < columns.length; i++) {
+                String value = String.format(FORMATS[i], 1990 + random.nextInt(30), 1 + random.nextInt(12),
+                        1 + random.nextInt(28), random.nextInt(24), random.nextInt(60), random.nextInt(60));
+                row.put(columns[i], value);
+            }
+            rows[r] = row;
+        }
+        transformer = new DateTransformer();
+        transformer.columns = columns;
+        transformer.formatLearningSample = formatLearningSample;
+        transformer.init();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void transform(Blackhole blackhole) {
+        for (InputRow row : rows) {
+            blackhole.consume(transformer.transform(row));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package io.metamorphic.analysisservices.transformers;
+
+import edu.stanford.nlp.ie.AbstractSequenceClassifier;
+import edu.stanford.nlp.ie.crf.CRFClassifier;
+import edu.stanford.nlp.ling.CoreLabel;
+import io.metamorphic.analysisservices.ner.ClassifierHolder;
+import io.metamorphic.analysisservices.ner.EntityRecognizer;
+import org.eobjects.analyzer.data.InputColumn;
+import org.eobjects.analyzer.data.InputRow;
+import org.eobjects.analyzer.data.MockInputColumn;
+import org.eobjects.analyzer.data.MockInputRow;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recognizing the entities of two columns of short free text, in which some
+ * texts recur far more than others, on four threads, as rows are transformed
+ * by an analysis job. Loads the model from classifiers/ of the working
+ * directory.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Threads(4)
+@State(Scope.Benchmark)
+public class EntityRecognitionTransformerBenchmark {
+
+    private static final String SERIALIZED_CLASSIFIER = "classifiers/english.all.3class.distsim.crf.ser.gz";
+
+    private static final int ROWS = 100000;
+
+    private static final int DISTINCT_TEXTS = 50000;
+
+    private static final String[] NAMES = {
+            "John Smith", "Mary Jones", "Peter Brown", "Susan Clarke", "David Wilson",
+            "Acme Corporation", "the United Nations", "Google", "Qantas", "the Red Cross"
+    };
+
+    private static final String[] VERBS = {"visited", "called", "met the board of", "wrote to", "moved to"};
+
+    private static final String[] PLACES = {
+            "Sydney", "London", "New York", "Paris", "Melbourne", "Tokyo", "Berlin", "Toronto", "Madrid", "Rome"
+    };
+
+    @Param({"0", "10000"})
+    int cacheSize;
+
+    @Param({"1", "4"})
+    int classifiers;
+
+    private EntityRecognitionTransformer transformer;
+
+    private InputRow[] rows;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            next = ThreadLocalRandom.current().nextInt(ROWS);
+        }
+    }
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        Random random = new Random(42L);
+        InputColumn<String>[] columns = new InputColumn[]{
+                new MockInputColumn<>("notes", String.class),
+                new MockInputColumn<>("comments", String.class)
+        };
+        rows = new InputRow[ROWS];
+        for (int r = 0; r < ROWS; r++) {
+            MockInputRow row = new MockInputRow(r);
+            for (InputColumn<String> column : columns) {
+                // skewed, so that the most common texts make up most rows
+                row.put(column, text((int) (DISTINCT_TEXTS * Math.pow(random.nextDouble(), 3))));
+            }
+            rows[r] = row;
+        }
+        ClassifierHolder classifierHolder = new ClassifierHolder(new Callable<AbstractSequenceClassifier<CoreLabel>>() {
+            @Override
+            public AbstractSequenceClassifier<CoreLabel> call() throws Exception {
+                return CRFClassifier.<CoreLabel>getClassifier(SERIALIZED_CLASSIFIER);
+            }
+        }, classifiers, 0);
+        transformer = new EntityRecognitionTransformer();
+        transformer.columns = columns;
+        transformer.recognizer = new EntityRecognizer(classifierHolder, cacheSize);
+        transformer.init();
+    }
+
+    private static String text(int i) {
+        return NAMES[i % NAMES.length] + " " + VERBS[i / NAMES.length % VERBS.length] + " "
+                + PLACES[i / 50 % PLACES.length] + " about order " + i;
+    }
+
+    @Benchmark
+    public String[] transform(Cursor cursor) {
+        InputRow row = rows[cursor.next];
+        cursor.next = (cursor.next + 1) % ROWS;
+        return transformer.transform(row);
+    }
+}
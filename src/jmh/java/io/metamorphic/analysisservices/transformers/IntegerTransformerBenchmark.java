@@ -0,0 +1,94 @@
+package io.metamorphic.analysisservices.transformers;
+
+import org.eobjects.analyzer.data.InputColumn;
+import org.eobjects.analyzer.data.InputRow;
+import org.eobjects.analyzer.data.MockInputColumn;
+import org.eobjects.analyzer.data.MockInputRow;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converting the strings of integer columns, some of which are blank or not
+ * integers at all, by the transformer and, as a baseline, by trimming each
+ * value and catching the exception Integer.parseInt throws for dirty values.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IntegerTransformerBenchmark {
+
+    private static final int ROWS = 1024;
+
+    private static final int COLUMNS = 4;
+
+    // the percentage of values that are not integers
+    @Param({"0", "10", "20"})
+    int invalidPercentage;
+
+    private IntegerTransformer transformer;
+
+    private InputRow[] rows;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        Random random = new Random(42L);
+        InputColumn<String>[] columns = new InputColumn[COLUMNS];
+        for (int i = 0; i < COLUMNS; i++) {
+            columns[i] = new MockInputColumn<>("c" + i, String.class);
+        }
+        rows = new InputRow[ROWS];
+        for (int r = 0; r < ROWS; r++) {
+            MockInputRow row = new MockInputRow(r);
+            for (InputColumn<String> column : columns) {
+                String value;
+                if (random.nextInt(100) < invalidPercentage) {
+                    value = random.nextBoolean() ? "n/a" : random.nextInt(1000) + "x";
+                } else if (random.nextInt(50) == 0) {
+                    value = " ";
+                } else {
+                    value = Integer.toString(random.nextInt() / (1 + random.nextInt(1000)));
+                }
+                row.put(column, value);
+            }
+            rows[r] = row;
+        }
+        transformer = new IntegerTransformer();
+        transformer.columns = columns;
+        transformer.init();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void transform(Blackhole blackhole) {
+        for (InputRow row : rows) {
+            blackhole.consume(transformer.transform(row));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void parseIntWithExceptions(Blackhole blackhole) {
+        InputColumn<String>[] columns = transformer.columns;
+        for (InputRow row : rows) {
+            Integer[] result = new Integer[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                String value = row.getValue(columns[i]).trim();
+                if (value.length() > 0) {
+                    try {
+                        result[i] = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        // dropped, as the transformer once did
+                    }
+                }
+            }
+            blackhole.consume(result);
+        }
+    }
+}
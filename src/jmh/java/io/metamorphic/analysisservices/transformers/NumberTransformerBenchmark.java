@@ -0,0 +1,90 @@
+package io.metamorphic.analysisservices.transformers;
+
+import org.eobjects.analyzer.beans.convert.ConvertToNumberTransformer;
+import org.eobjects.analyzer.data.InputColumn;
+import org.eobjects.analyzer.data.InputRow;
+import org.eobjects.analyzer.data.MockInputColumn;
+import org.eobjects.analyzer.data.MockInputRow;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converting the strings of decimal columns, some of which are blank or not
+ * numbers at all, by the transformer and by the AnalyzerBeans transformer it
+ * replaced, which parses each value with a new DecimalFormat.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NumberTransformerBenchmark {
+
+    private static final int ROWS = 1024;
+
+    private static final int COLUMNS = 4;
+
+    // the percentage of values that are not numbers
+    @Param({"0", "20"})
+    int invalidPercentage;
+
+    private NumberTransformer transformer;
+
+    private ConvertToNumberTransformer convertToNumberTransformer;
+
+    private InputRow[] rows;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        Random random = new Random(42L);
+        InputColumn<String>[] columns = new InputColumn[COLUMNS];
+        for (int i = 0; i < COLUMNS; i++) {
+            columns[i] = new MockInputColumn<>("c" + i, String.class);
+        }
+        rows = new InputRow[ROWS];
+        for (int r = 0; r < ROWS; r++) {
+            MockInputRow row = new MockInputRow(r);
+            for (InputColumn<String> column : columns) {
+                String value;
+                if (random.nextInt(100) < invalidPercentage) {
+                    value = random.nextBoolean() ? "n/a" : "#" + random.nextInt(1000);
+                } else if (random.nextInt(50) == 0) {
+                    value = " ";
+                } else if (random.nextBoolean()) {
+                    value = Integer.toString(random.nextInt(100000));
+                } else {
+                    value = String.format(Locale.ROOT, "%.2f", random.nextGaussian() * 1000);
+                }
+                row.put(column, value);
+            }
+            rows[r] = row;
+        }
+        transformer = new NumberTransformer();
+        transformer.columns = columns;
+        transformer.init();
+        convertToNumberTransformer = new ConvertToNumberTransformer('.', ',', '-');
+        convertToNumberTransformer.setInput(columns);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void transform(Blackhole blackhole) {
+        for (InputRow row : rows) {
+            blackhole.consume(transformer.transform(row));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void convertToNumber(Blackhole blackhole) {
+        for (InputRow row : rows) {
+            blackhole.consume(convertToNumberTransformer.transform(row));
+        }
+    }
+}
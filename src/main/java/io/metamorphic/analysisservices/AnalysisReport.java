@@ -0,0 +1,93 @@
+package io.metamorphic.analysisservices;
+
+import io.metamorphic.analysiscommons.models.DatasetMetrics;
+import io.metamorphic.analysisservices.writers.EmbedHtmlAnalysisResultWriter;
+import org.eobjects.analyzer.configuration.AnalyzerBeansConfiguration;
+import org.eobjects.analyzer.result.AnalysisResult;
+
+import java.io.*;
+import java.nio.charset.Charset;
+
+/**
+ * The metrics of an analysis together with the results of its analyzers, so
+ * that the HTML report of the analysis can be rendered later, only if it is
+ * wanted, and written to its destination rather than built up as a string.
+ *
+ * A report is closed once rendered, or once it is known not to be wanted,
+ * releasing the rows kept to drill down into from it.
+ */
+public class AnalysisReport implements Closeable {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final DatasetMetrics datasetMetrics;
+
+    private final AnalysisResult analysisResult;
+
+    private final AnalyzerBeansConfiguration configuration;
+
+    private final Closeable annotatedRows;
+
+    public AnalysisReport(DatasetMetrics datasetMetrics, AnalysisResult analysisResult, AnalyzerBeansConfiguration configuration) {
+        this(datasetMetrics, analysisResult, configuration, null);
+    }
+
+    /**
+     * @param annotatedRows the rows kept for the annotations of the results, released on close, or null
+     */
+    public AnalysisReport(DatasetMetrics datasetMetrics, AnalysisResult analysisResult, AnalyzerBeansConfiguration configuration,
+                          Closeable annotatedRows) {
+        this.datasetMetrics = datasetMetrics;
+        this.analysisResult = analysisResult;
+        this.configuration = configuration;
+        this.annotatedRows = annotatedRows;
+    }
+
+    public DatasetMetrics getDatasetMetrics() {
+        return datasetMetrics;
+    }
+
+    public AnalysisResult getAnalysisResult() {
+        return analysisResult;
+    }
+
+    /**
+     * Renders the results as an HTML fragment. Every result is rendered to
+     * its fragment before any is written, so the fragments are held in memory
+     * together; only the text they are written as is not. The writer is
+     * flushed but not closed.
+     */
+    public void writeHtml(Writer writer) throws IOException {
+        new EmbedHtmlAnalysisResultWriter().write(analysisResult, configuration, writer);
+        writer.flush();
+    }
+
+    /**
+     * Renders the results as an HTML fragment encoded in UTF-8. The stream is
+     * flushed but not closed.
+     */
+    public void writeHtml(OutputStream out) throws IOException {
+        writeHtml(new BufferedWriter(new OutputStreamWriter(out, UTF_8)));
+    }
+
+    /**
+     * @return the rendered results, for when they are small enough to keep in memory
+     */
+    public String toHtml() throws IOException {
+        StringWriter writer = new StringWriter();
+        writeHtml(writer);
+        return writer.toString();
+    }
+
+    /**
+     * Releases the rows kept for the annotations of the results, such as
+     * those spilled to disk. The metrics stay, but the HTML can no longer be
+     * rendered.
+     */
+    @Override
+    public void close() throws IOException {
+        if (annotatedRows != null) {
+            annotatedRows.close();
+        }
+    }
+}
@@ -2,8 +2,15 @@ package io.metamorphic.analysisservices;
 
 import io.metamorphic.analysiscommons.models.DatabaseConnection;
 import io.metamorphic.analysiscommons.models.DatasetMetrics;
+import io.metamorphic.analysisservices.datastores.ColumnarTable;
+import io.metamorphic.analysisservices.datastores.CsvDialect;
+import io.metamorphic.analysisservices.profiles.Partitioning;
+import io.metamorphic.analysisservices.sampling.Sampling;
 
+import java.io.Reader;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Created by markmo on 6/07/2015.
@@ -16,9 +23,60 @@ public interface AnalysisService {
 
     DatasetMetrics analyze(String filename, List<List<String>> rows, List<String> columnNames, List<String> columnTypeNames, boolean includeRenderedResult);
 
+    DatasetMetrics analyze(String filename, Iterator<String[]> rows, List<String> columnNames, List<String> columnTypeNames, boolean includeRenderedResult);
+
+    DatasetMetrics analyze(String filename, Reader reader, CsvDialect dialect, List<String> columnNames, List<String> columnTypeNames, boolean includeRenderedResult);
+
+    /**
+     * Analyzes the rows and keeps the analyzer results, from which the HTML
+     * report can be streamed afterwards. The report is closed once done with,
+     * to release the rows kept for it.
+     */
+    AnalysisReport analyzeForReport(String filename, Iterator<String[]> rows, List<String> columnNames, List<String> columnTypeNames);
+
+    AnalysisReport analyzeForReport(String filename, Reader reader, CsvDialect dialect, List<String> columnNames, List<String> columnTypeNames);
+
+    /**
+     * Analyzes a file held in memory by column, which can be analyzed again.
+     */
+    DatasetMetrics analyze(String filename, ColumnarTable table, List<String> columnTypeNames, boolean includeRenderedResult);
+
+    AnalysisReport analyzeForReport(String filename, ColumnarTable table, List<String> columnTypeNames);
+
+    /**
+     * Analyzes the rows with the column types inferred from the first rows.
+     */
+    DatasetMetrics analyze(String filename, Iterator<String[]> rows, List<String> columnNames, boolean includeRenderedResult);
+
+    DatasetMetrics analyze(String filename, Reader reader, CsvDialect dialect, List<String> columnNames, boolean includeRenderedResult);
+
+    AnalysisReport analyzeForReport(String filename, Iterator<String[]> rows, List<String> columnNames);
+
+    AnalysisReport analyzeForReport(String filename, Reader reader, CsvDialect dialect, List<String> columnNames);
+
     DatasetMetrics analyze(String sourceName, DatabaseConnection conn, String tableName);
 
     List<DatasetMetrics> analyze(String sourceName, DatabaseConnection conn, List<String> tables);
 
+    List<DatasetMetrics> analyze(String sourceName, DatabaseConnection conn, List<String> tables, TableAnalysisMode mode);
+
+    void analyze(String sourceName, DatabaseConnection conn, List<String> tables, TableAnalysisCallback callback);
+
     DatasetMetrics analyze(String sourceName, DatabaseConnection conn, String tableName, boolean includeRenderedResult);
+
+    DatasetMetrics analyze(String sourceName, DatabaseConnection conn, String tableName, Sampling sampling, boolean includeRenderedResult);
+
+    /**
+     * @return the metrics and analyzer results of the table, or null if there is no such table
+     */
+    AnalysisReport analyzeForReport(String sourceName, DatabaseConnection conn, String tableName);
+
+    DatasetMetrics analyze(String sourceName, DatabaseConnection conn, String tableName, Partitioning partitioning);
+
+    DatasetMetrics analyzeIncrementally(String sourceName, DatabaseConnection conn, String tableName, String watermarkColumn);
+
+    /**
+     * Profiles the table with aggregate queries, reading its rows only for the scan measures given.
+     */
+    DatasetMetrics analyzeWithPushdown(String sourceName, DatabaseConnection conn, String tableName, Set<String> scanMeasures);
 }
@@ -7,19 +7,58 @@ import io.metamorphic.analysiscommons.models.DatabaseConnection;
 import io.metamorphic.analysiscommons.models.DatasetMetrics;
 import io.metamorphic.analysiscommons.models.Metric;
 import io.metamorphic.analysiscommons.models.RenderedResult;
+import io.metamorphic.analysisservices.analyzers.CrosstabReader;
+import io.metamorphic.analysisservices.analyzers.DistinctCountMode;
 import io.metamorphic.analysisservices.analyzers.DistinctValuesAnalyzer;
 import io.metamorphic.analysisservices.analyzers.DistinctValuesAnalyzerResult;
+import io.metamorphic.analysisservices.analyzers.DistinctValuesState;
+import io.metamorphic.analysisservices.analyzers.PatternProfilingAnalyzer;
+import io.metamorphic.analysisservices.analyzers.PatternProfilingResult;
+import io.metamorphic.analysisservices.datastores.ColumnarTable;
+import io.metamorphic.analysisservices.datastores.ColumnarTableDataProvider;
+import io.metamorphic.analysisservices.datastores.CsvDialect;
+import io.metamorphic.analysisservices.datastores.CsvRowIterator;
+import io.metamorphic.analysisservices.datastores.JdbcDatastoreRegistry;
+import io.metamorphic.analysisservices.datastores.JdbcRowIterator;
+import io.metamorphic.analysisservices.datastores.SampleBufferingIterator;
+import io.metamorphic.analysisservices.datastores.StreamingTableDataProvider;
+import io.metamorphic.analysisservices.inference.InferredType;
+import io.metamorphic.analysisservices.inference.TypeInferrer;
+import io.metamorphic.analysisservices.instrumentation.ExecutionListener;
+import io.metamorphic.analysisservices.instrumentation.ExecutionProfile;
+import io.metamorphic.analysisservices.instrumentation.ExecutionProfiler;
+import io.metamorphic.analysisservices.instrumentation.MetricsRegistry;
+import io.metamorphic.analysisservices.instrumentation.MetricsRegistryListener;
+import io.metamorphic.analysisservices.jobs.ConversionFailuresInjectionManagerFactory;
+import io.metamorphic.analysisservices.jobs.JobTemplateCache;
+import io.metamorphic.analysisservices.jobs.JobTemplateKey;
+import io.metamorphic.analysisservices.jobs.TimeLimitedTaskRunner;
+import io.metamorphic.analysisservices.jdbc.SqlDialect;
+import io.metamorphic.analysisservices.ner.ClassifierHolder;
+import io.metamorphic.analysisservices.ner.EntityRecognizer;
+import io.metamorphic.analysisservices.profiles.ColumnProfile;
+import io.metamorphic.analysisservices.profiles.FileProfileStore;
+import io.metamorphic.analysisservices.profiles.IncrementalTableProfiler;
+import io.metamorphic.analysisservices.profiles.PartitionedTableProfiler;
+import io.metamorphic.analysisservices.profiles.Partitioning;
+import io.metamorphic.analysisservices.profiles.ProfileStore;
+import io.metamorphic.analysisservices.profiles.PushdownProfiler;
+import io.metamorphic.analysisservices.profiles.TableProfile;
+import io.metamorphic.analysisservices.sampling.SampleEstimates;
+import io.metamorphic.analysisservices.sampling.Sampling;
+import io.metamorphic.analysisservices.sampling.TableSample;
+import io.metamorphic.analysisservices.sampling.TableSampler;
+import io.metamorphic.analysisservices.storage.AnnotationPolicy;
+import io.metamorphic.analysisservices.storage.AnnotationStorageProvider;
+import io.metamorphic.analysisservices.transformers.ConversionFailures;
 import io.metamorphic.analysisservices.transformers.DateTransformer;
 import io.metamorphic.analysisservices.transformers.EntityRecognitionTransformer;
 import io.metamorphic.analysisservices.transformers.IntegerTransformer;
-import io.metamorphic.analysisservices.writers.EmbedHtmlAnalysisResultWriter;
+import io.metamorphic.analysisservices.transformers.NumberTransformer;
 import io.metamorphic.commons.Pair;
 import io.metamorphic.commons.PairListBuilder;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.apache.metamodel.DataContext;
-import org.apache.metamodel.DataContextFactory;
-import org.apache.metamodel.pojo.ArrayTableDataProvider;
 import org.apache.metamodel.pojo.TableDataProvider;
 import org.apache.metamodel.schema.*;
 import org.apache.metamodel.util.SimpleTableDef;
@@ -27,11 +66,9 @@ import org.eobjects.analyzer.beans.*;
 import org.eobjects.analyzer.beans.api.Analyzer;
 import org.eobjects.analyzer.beans.api.Transformer;
 import org.eobjects.analyzer.beans.convert.ConvertToBooleanTransformer;
-import org.eobjects.analyzer.beans.convert.ConvertToNumberTransformer;
 import org.eobjects.analyzer.beans.stringpattern.PatternFinderAnalyzer;
 import org.eobjects.analyzer.beans.stringpattern.PatternFinderResult;
 import org.eobjects.analyzer.beans.stringpattern.PatternFinderResultHtmlRenderer;
-import org.eobjects.analyzer.configuration.AnalyzerBeansConfiguration;
 import org.eobjects.analyzer.configuration.AnalyzerBeansConfigurationImpl;
 import org.eobjects.analyzer.connection.Datastore;
 import org.eobjects.analyzer.connection.JdbcDatastore;
@@ -45,6 +82,7 @@ import org.eobjects.analyzer.job.ComponentJob;
 import org.eobjects.analyzer.job.builder.AnalysisJobBuilder;
 import org.eobjects.analyzer.job.builder.AnalyzerJobBuilder;
 import org.eobjects.analyzer.job.builder.TransformerJobBuilder;
+import org.eobjects.analyzer.job.concurrent.TaskRunner;
 import org.eobjects.analyzer.job.runner.AnalysisResultFuture;
 import org.eobjects.analyzer.job.runner.AnalysisRunner;
 import org.eobjects.analyzer.job.runner.AnalysisRunnerImpl;
@@ -52,12 +90,13 @@ import org.eobjects.analyzer.result.*;
 import org.eobjects.analyzer.result.renderer.AnnotatedRowsHtmlRenderer;
 import org.eobjects.analyzer.result.renderer.CrosstabHtmlRenderer;
 
+import java.io.File;
 import java.io.IOException;
-import java.io.StringWriter;
-import java.io.Writer;
+import java.io.Reader;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.*;
 
 import static org.apache.metamodel.schema.ColumnType.*;
 import static org.eobjects.analyzer.beans.BooleanAnalyzer.*;
@@ -73,6 +112,15 @@ public class AnalysisServiceImpl implements AnalysisService {
 
     private static final Log log = LogFactory.getLog(AnalysisServiceImpl.class);
 
+    private static final ThreadFactory DAEMON_THREADS = new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "table-timeout");
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
     private static final String[] STRING_ANALYZER_MEASURES = new String[] {
             MEASURE_AVG_CHARS, MEASURE_AVG_WHITE_SPACES, MEASURE_BLANK_COUNT, MEASURE_DIACRITIC_CHARS,
             MEASURE_DIGIT_CHARS, MEASURE_ENTIRELY_LOWERCASE_COUNT, MEASURE_ENTIRELY_UPPERCASE_COUNT, MEASURE_LOWERCASE_CHARS,
@@ -102,22 +150,39 @@ public class AnalysisServiceImpl implements AnalysisService {
     };
 
     private static final String[] DISTINCT_VALUES_ANALYZER_MEASURES = new String[] {
-            DistinctValuesAnalyzer.MEASURE_TOP_5, DistinctValuesAnalyzer.MEASURE_DISTINCT_VALUES,
-            DistinctValuesAnalyzer.MEASURE_DISTINCT_VALUES_COUNT
+            DistinctValuesAnalyzer.MEASURE_TOP_5, DistinctValuesAnalyzer.MEASURE_TOP_5_ERRORS, DistinctValuesAnalyzer.MEASURE_DISTINCT_VALUES,
+            DistinctValuesAnalyzer.MEASURE_DISTINCT_VALUES_COUNT, DistinctValuesAnalyzer.MEASURE_DISTINCT_VALUES_COUNT_ERROR
     };
 
+    // every file is read as a table of this name, so that files of the same shape share a job template
+    static final String FILE_TABLE_NAME = "rows";
+
+    private static final String MEASURE_SAMPLING_METHOD = "Sampling method";
+    private static final String MEASURE_SAMPLE_SIZE = "Sample size";
+    private static final String MEASURE_POPULATION_SIZE = "Population size";
+
+    private static final String MEASURE_PATTERNS_ESTIMATED = "Patterns estimated";
+    private static final String MEASURE_PATTERN_SAMPLE_SIZE = "Pattern sample size";
+
+    static final String MEASURE_PARSE_FAILURES = "Parse failures";
+
+    private static final String MEASURE_INFERRED_TYPE = "Inferred type";
+    private static final String MEASURE_TYPE_CONFIDENCE = "Type confidence";
+
+    // the types of the columns whose transformers count the values they cannot convert
+    private static final Set<ColumnType> parseFailureTypes = new HashSet<>(Arrays.asList(INTEGER, BIGINT, DECIMAL, DATE));
+
     private static Map<ColumnType, String> typeSuffixMap;
 
-    private static AbstractSequenceClassifier<CoreLabel> classifier;
+    private static final String SERIALIZED_CLASSIFIER = "classifiers/english.all.3class.distsim.crf.ser.gz";
 
     static {
         typeSuffixMap = new HashMap<>();
         typeSuffixMap.put(INTEGER, " (as int)");
+        typeSuffixMap.put(BIGINT, " (as number)");
         typeSuffixMap.put(DECIMAL, " (as number)");
         typeSuffixMap.put(DATE, " (as date)");
         typeSuffixMap.put(BOOLEAN, " (as boolean)");
-        String serializedClassifier = "classifiers/english.all.3class.distsim.crf.ser.gz";
-        classifier = CRFClassifier.getClassifierNoExceptions(serializedClassifier);
     }
 
     private static final Set<ColumnType> descriptiveStatisticTypes = new HashSet<ColumnType>() {{
@@ -126,9 +191,88 @@ public class AnalysisServiceImpl implements AnalysisService {
         add(DATE);
     }};
 
+    private DistinctCountMode distinctCountMode = DistinctCountMode.AUTO;
+
+    private int exactDistinctValuesThreshold = 100000;
+
+    private int sketchPrecision = 14;
+
+    private int topValuesCount = 5;
+
+    private int topValuesCapacity = 1000;
+
+    private int distinctValuesLimit = 1000;
+
+    private int typeInferenceSampleSize = 1000;
+
+    private double typeInferenceMinConformance = 0.95;
+
+    private int entityRecognitionThreads = 1;
+
+    private int entityCacheSize = 10000;
+
+    private int entityMaxTextLength = 0;
+
+    private int entitySampleRows = 0;
+
+    private long classifierIdleTimeoutMillis = 10 * 60 * 1000;
+
+    private boolean classifierWarmUp = true;
+
+    private boolean adaptivePatterns;
+
+    private int maxPatterns = 100;
+
+    private int maxPatternDistinctValues = 10000;
+
+    private int patternSampleRows = 0;
+
+    private volatile ClassifierHolder classifierHolder = createClassifierHolder();
+
+    private volatile EntityRecognizer entityRecognizer = new EntityRecognizer(classifierHolder, entityCacheSize);
+
+    private final AnalyzerBeansConfigurationImpl configuration = createConfiguration();
+
+    private volatile AnnotationPolicy annotationPolicy = AnnotationPolicy.reservoir();
+
+    private volatile JobTemplateCache jobTemplateCache = new JobTemplateCache(256);
+
+    private JdbcDatastoreRegistry datastoreRegistry = new JdbcDatastoreRegistry();
+
+    private Sampling sampling;
+
+    private int maxConcurrentTables = 4;
+
+    private long tableTimeoutMillis = 0;
+
+    private ProfileStore profileStore = new FileProfileStore(new File(System.getProperty("java.io.tmpdir"), "analysisservices-profiles"));
+
+    private int quantileSketchSize = 200;
+
+    private int maxConcurrentPartitions = 4;
+
+    private boolean pushdown;
+
+    private Set<String> scanMeasures = PushdownProfiler.SCAN_MEASURES;
+
+    private int pushdownColumnsPerQuery = 100;
+
+    private boolean streaming;
+
+    private int fetchSize = 1000;
+
+    private boolean prefetch;
+
+    private ExecutionListener executionListener;
+
+    private MetricsRegistry metricsRegistry;
+
+    private boolean executionProfileIncluded;
+
+    private long profilerSamplingIntervalMillis = 10;
+
     public String[] getTableNames(DatabaseConnection conn) {
-        JdbcDatastore datastore = createJdbcDatastore(conn.getDbName(), conn.getJdbcUrl(), conn.getUsername(), conn.getPassword());
-        Table[] tables = getJdbcTables(datastore, conn.getSchema());
+        Table[] tables = getJdbcTables(conn);
         if (tables == null) return null;
         List<String> tableNames = new ArrayList<>();
         for (Table table : tables) {
@@ -141,12 +285,105 @@ public class AnalysisServiceImpl implements AnalysisService {
         return analyze(filename, rows, columnNames, columnTypeNames, false);
     }
 
+    /**
+     * Analyzes the tables one after another, stopping at the first that fails.
+     */
     public List<DatasetMetrics> analyze(String sourceName, DatabaseConnection conn, List<String> tables) {
-        List<DatasetMetrics> analyses = new ArrayList<>();
-        for (String tableName : tables) {
-            analyses.add(analyze(sourceName, conn, tableName, false));
+        return analyze(sourceName, conn, tables, TableAnalysisMode.SEQUENTIAL);
+    }
+
+    /**
+     * @return the metrics of each table, null for a table that is not found
+     *         or, when analyzed in parallel, that fails or times out
+     */
+    public List<DatasetMetrics> analyze(String sourceName, DatabaseConnection conn, final List<String> tables, TableAnalysisMode mode) {
+        if (mode == TableAnalysisMode.SEQUENTIAL) {
+            List<DatasetMetrics> analyses = new ArrayList<>();
+            for (String tableName : tables) {
+                analyses.add(analyzeTable(sourceName, conn, tableName, sampling, false, tableTimeoutMillis));
+            }
+            return analyses;
+        }
+        final DatasetMetrics[] analyses = new DatasetMetrics[tables.size()];
+        analyzeTables(sourceName, conn, tables, new IndexedTableAnalysisCallback() {
+            @Override
+            public void onSuccess(int index, String tableName, DatasetMetrics metrics) {
+                analyses[index] = metrics;
+            }
+
+            @Override
+            public void onFailure(int index, String tableName, Throwable error) {
+                log.error("Analysis of " + tableName + " failed: " + error.getMessage(), error);
+            }
+        });
+        return Arrays.asList(analyses);
+    }
+
+    /**
+     * Analyzes the tables in parallel, reporting each to the callback as it completes.
+     */
+    public void analyze(String sourceName, DatabaseConnection conn, List<String> tables, final TableAnalysisCallback callback) {
+        analyzeTables(sourceName, conn, tables, new IndexedTableAnalysisCallback() {
+            @Override
+            public void onSuccess(int index, String tableName, DatasetMetrics metrics) {
+                callback.onSuccess(tableName, metrics);
+            }
+
+            @Override
+            public void onFailure(int index, String tableName, Throwable error) {
+                callback.onFailure(tableName, error);
+            }
+        });
+    }
+
+    /**
+     * Receives the result of each table with its position in the list of
+     * tables, so that a table listed twice is told apart.
+     */
+    private interface IndexedTableAnalysisCallback {
+
+        void onSuccess(int index, String tableName, DatasetMetrics metrics);
+
+        void onFailure(int index, String tableName, Throwable error);
+    }
+
+    private void analyzeTables(final String sourceName, final DatabaseConnection conn, List<String> tables, IndexedTableAnalysisCallback callback) {
+        if (tables.isEmpty()) return;
+        int threads = Math.max(1, Math.min(maxConcurrentTables, tables.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CompletionService<DatasetMetrics> completionService = new ExecutorCompletionService<>(executor);
+            Map<Future<DatasetMetrics>, Integer> pending = new HashMap<>();
+            for (int i = 0; i < tables.size(); i++) {
+                final String tableName = tables.get(i);
+                pending.put(completionService.submit(new Callable<DatasetMetrics>() {
+                    @Override
+                    public DatasetMetrics call() throws Exception {
+                        return analyzeTable(sourceName, conn, tableName, sampling, false, tableTimeoutMillis);
+                    }
+                }), i);
+            }
+            while (!pending.isEmpty()) {
+                Future<DatasetMetrics> future = completionService.take();
+                int index = pending.remove(future);
+                String tableName = tables.get(index);
+                try {
+                    DatasetMetrics metrics = future.get();
+                    if (metrics == null) {
+                        callback.onFailure(index, tableName, new IllegalArgumentException("No such table: " + tableName));
+                    } else {
+                        callback.onSuccess(index, tableName, metrics);
+                    }
+                } catch (ExecutionException e) {
+                    callback.onFailure(index, tableName, e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while analyzing tables", e);
+        } finally {
+            executor.shutdownNow();
         }
-        return analyses;
     }
 
     public DatasetMetrics analyze(String sourceName, DatabaseConnection conn, String tableName) {
@@ -154,12 +391,34 @@ public class AnalysisServiceImpl implements AnalysisService {
     }
 
     public DatasetMetrics analyze(String sourceName, DatabaseConnection conn, String tableName, boolean includeRenderedResult) {
+        return analyzeTable(sourceName, conn, tableName, sampling, includeRenderedResult, 0);
+    }
+
+    public DatasetMetrics analyze(String sourceName, DatabaseConnection conn, String tableName, Sampling sampling, boolean includeRenderedResult) {
+        return analyzeTable(sourceName, conn, tableName, sampling, includeRenderedResult, 0);
+    }
+
+    public AnalysisReport analyzeForReport(String sourceName, DatabaseConnection conn, String tableName) {
+        return analyzeTableForReport(sourceName, conn, tableName, sampling, 0);
+    }
+
+    private DatasetMetrics analyzeTable(String sourceName, DatabaseConnection conn, String tableName, Sampling sampling, boolean includeRenderedResult, long timeoutMillis) {
+        // a pushed down profile has no analyzer results to render
+        if (pushdown && sampling == null && !includeRenderedResult) {
+            return analyzeWithPushdown(conn, tableName, scanMeasures, timeoutMillis);
+        }
+        AnalysisReport report = analyzeTableForReport(sourceName, conn, tableName, sampling, timeoutMillis);
+        if (report == null) return null;
+        return getDatasetMetrics(report, includeRenderedResult);
+    }
+
+    private AnalysisReport analyzeTableForReport(String sourceName, DatabaseConnection conn, String tableName, Sampling sampling, long timeoutMillis) {
         if (log.isDebugEnabled()) {
             log.debug("Running analysis on " + tableName);
             log.debug("Using connection " + conn);
         }
-        JdbcDatastore datastore = createJdbcDatastore(sourceName, conn.getJdbcUrl(), conn.getUsername(), conn.getPassword());
-        Column[] columns = getJdbcColumns(datastore, conn.getSchema(), tableName);
+        JdbcDatastore datastore = datastoreRegistry.getDatastore(conn);
+        Column[] columns = getJdbcColumns(conn, tableName);
         if (columns == null) return null;
         List<String> columnNames = new ArrayList<>();
         List<String> columnTypeNames = new ArrayList<>();
@@ -174,351 +433,824 @@ public class AnalysisServiceImpl implements AnalysisService {
             log.debug("Types: " + columnTypes);
         }
         DatasetMetrics datasetMetrics = new DatasetMetrics(tableName, "TABLE");
-        return analyze(columns[0].getTable().getQualifiedLabel(), datasetMetrics, datastore, columnNames, columnTypes, false, includeRenderedResult);
+        if (sampling != null) {
+            return analyzeSample(sourceName, conn, columns, datasetMetrics, columnNames, columnTypes, sampling, timeoutMillis);
+        }
+        // the data context's query cannot be cancelled, so a table with a time limit is read through a cursor
+        if (streaming || timeoutMillis > 0) {
+            return analyzeStreaming(sourceName, conn, columns, datasetMetrics, columnNames, columnTypes, timeoutMillis);
+        }
+        return analyzeDatastore(columns[0].getTable().getQualifiedLabel(), tableName, datasetMetrics, datastore, columnNames, columnTypes, false, timeoutMillis);
         //return analyze(tableName, datastore, columnNames, columnTypes, includeRenderedResult);
     }
 
+    /**
+     * Profiles a sample of the table, then adds the sample size and, for each
+     * column of a random sample, the null count and distinct values count
+     * scaled up to the whole table with 95% bounds. The first rows of a row
+     * limit are not random, so their profile is left unscaled.
+     */
+    private AnalysisReport analyzeSample(String sourceName, DatabaseConnection conn, Column[] columns, DatasetMetrics datasetMetrics,
+                                         List<String> columnNames, List<ColumnType> columnTypes, Sampling sampling,
+                                         long timeoutMillis) {
+        Table table = columns[0].getTable();
+        String schemaName = table.getSchema() == null ? null : table.getSchema().getName();
+        List<String> unqualifiedNames = new ArrayList<>();
+        for (String columnName : columnNames) {
+            unqualifiedNames.add(getUnqualifiedName(columnName));
+        }
+        TableSample sample;
+        TableSampler sampler = new TableSampler(SqlDialect.forJdbcUrl(conn.getJdbcUrl()));
+        try (Connection connection = datastoreRegistry.getDataSource(conn).getConnection()) {
+            int queryTimeoutSeconds = timeoutMillis > 0 ? (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(timeoutMillis)) : 0;
+            sample = sampler.sample(connection, schemaName, table.getName(), unqualifiedNames, getTypeNames(columnTypes), sampling, queryTimeoutSeconds);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not sample " + table.getQualifiedLabel() + ": " + e.getMessage(), e);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Sampled " + sample.getSize() + " of " + sample.getPopulationSize() + " rows by " + sample.getDescription());
+        }
+        TableDataProvider tableDataProvider = new StreamingTableDataProvider(createTableDef(table.getName(), unqualifiedNames, columnTypes), sample.getRows());
+        Datastore datastore = new PojoDatastore(sourceName, schemaName, tableDataProvider);
+        AnalysisReport report = analyzeDatastore(table.getName(), table.getName(), datasetMetrics, datastore, columnNames, columnTypes, false, timeoutMillis);
+        for (int i = 0; i < columnNames.size(); i++) {
+            String columnName = unqualifiedNames.get(i);
+            int columnIndex = i + 1;
+            io.metamorphic.analysiscommons.models.ColumnType columnType = io.metamorphic.analysiscommons.models.ColumnType.valueOf(columnTypes.get(i).getName());
+            datasetMetrics.addColumnMetric(columnName, columnIndex, columnType, MEASURE_SAMPLING_METHOD, sample.getDescription());
+            datasetMetrics.addColumnMetric(columnName, columnIndex, columnType, MEASURE_SAMPLE_SIZE, sample.getSize());
+            datasetMetrics.addColumnMetric(columnName, columnIndex, columnType, MEASURE_POPULATION_SIZE, sample.getPopulationSize());
+            if (sample.isRandom()) {
+                addEstimateMetrics(datasetMetrics, columnName, columnIndex, columnType, "null count",
+                        sample.estimateNullCount(i, SampleEstimates.Z_95));
+                addEstimateMetrics(datasetMetrics, columnName, columnIndex, columnType, "distinct values count",
+                        sample.estimateDistinctCount(i));
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Profiles the table read through a server-side cursor, fetchSize rows at a
+     * time, instead of through the data context, whose driver may hold the
+     * whole result in memory. With a time limit, the query is cancelled once
+     * it passes, and the analysis fails as timed out.
+     */
+    private AnalysisReport analyzeStreaming(String sourceName, DatabaseConnection conn, Column[] columns, DatasetMetrics datasetMetrics,
+                                            List<String> columnNames, List<ColumnType> columnTypes, long timeoutMillis) {
+        Table table = columns[0].getTable();
+        String schemaName = table.getSchema() == null ? null : table.getSchema().getName();
+        SqlDialect dialect = SqlDialect.forJdbcUrl(conn.getJdbcUrl());
+        List<String> unqualifiedNames = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (int i = 0; i < columnNames.size(); i++) {
+            String columnName = getUnqualifiedName(columnNames.get(i));
+            unqualifiedNames.add(columnName);
+            sql.append(i > 0 ? ", " : "").append(dialect.quoteIdentifier(columnName));
+        }
+        sql.append(" FROM ").append(dialect.getQualifiedTableName(schemaName, table.getName()));
+        int queryTimeoutSeconds = timeoutMillis > 0 ? (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(timeoutMillis)) : 0;
+        JdbcRowIterator rows;
+        try {
+            rows = new JdbcRowIterator(datastoreRegistry.getDataSource(conn), sql.toString(), getTypeNames(columnTypes),
+                    fetchSize, prefetch, queryTimeoutSeconds);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not read " + table.getQualifiedLabel() + ": " + e.getMessage(), e);
+        }
+        ScheduledExecutorService watchdog = null;
+        if (timeoutMillis > 0) {
+            final JdbcRowIterator cancellableRows = rows;
+            watchdog = Executors.newSingleThreadScheduledExecutor(DAEMON_THREADS);
+            watchdog.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    cancellableRows.cancel();
+                }
+            }, timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        try {
+            TableDataProvider tableDataProvider = StreamingTableDataProvider.forIterator(createTableDef(table.getName(), unqualifiedNames, columnTypes), rows);
+            Datastore datastore = new PojoDatastore(sourceName, schemaName, tableDataProvider);
+            AnalysisReport report = analyzeDatastore(table.getName(), table.getName(), datasetMetrics, datastore, columnNames, columnTypes, false, timeoutMillis);
+            if (rows.isCancelled()) {
+                // the rows read before the query was cancelled are not the table
+                closeReport(report);
+                throw new IllegalStateException("Analysis of " + table.getQualifiedLabel() + " timed out",
+                        new TimeoutException("Query cancelled after " + timeoutMillis + " ms"));
+            }
+            return report;
+        } finally {
+            if (watchdog != null) {
+                watchdog.shutdownNow();
+            }
+            rows.close();
+        }
+    }
+
+    private void addEstimateMetrics(DatasetMetrics datasetMetrics, String columnName, int columnIndex,
+                                    io.metamorphic.analysiscommons.models.ColumnType columnType,
+                                    String measure, double[] estimate) {
+        datasetMetrics.addColumnMetric(columnName, columnIndex, columnType, "Estimated " + measure, Math.round(estimate[0]));
+        datasetMetrics.addColumnMetric(columnName, columnIndex, columnType, "Estimated " + measure + " lower bound", Math.round(estimate[1]));
+        datasetMetrics.addColumnMetric(columnName, columnIndex, columnType, "Estimated " + measure + " upper bound", Math.round(estimate[2]));
+    }
+
+    /**
+     * Profiles the rows of the table added since the last incremental run,
+     * as told by the watermark column, and merges them into the profile saved
+     * by that run. Measures other than the median and quartiles equal those
+     * of a full analysis; the rank error of the median and quartiles is
+     * reported as the quantile rank error.
+     */
+    public DatasetMetrics analyzeIncrementally(String sourceName, DatabaseConnection conn, String tableName, String watermarkColumn) {
+        Column[] columns = getJdbcColumns(conn, tableName);
+        if (columns == null) return null;
+        Table table = columns[0].getTable();
+        String schemaName = table.getSchema() == null ? null : table.getSchema().getName();
+        TableProfile emptyProfile = createTableProfile(columns, watermarkColumn);
+        IncrementalTableProfiler profiler = new IncrementalTableProfiler(SqlDialect.forJdbcUrl(conn.getJdbcUrl()), profileStore, fetchSize);
+        String profileKey = conn.getJdbcUrl() + '\u0000' + table.getQualifiedLabel();
+        TableProfile profile;
+        try (Connection connection = datastoreRegistry.getDataSource(conn).getConnection()) {
+            profile = profiler.profile(connection, profileKey, schemaName, table.getName(), emptyProfile);
+        } catch (SQLException | IOException e) {
+            throw new IllegalStateException("Could not profile " + table.getQualifiedLabel() + ": " + e.getMessage(), e);
+        }
+        return createDatasetMetrics(tableName, profile);
+    }
+
+    /**
+     * Profiles the partitions of the table concurrently, each over a pooled
+     * connection of its own, and merges their profiles. Measures other than
+     * the median and quartiles equal those of a full analysis; the rank error
+     * of the median and quartiles is reported as the quantile rank error.
+     */
+    public DatasetMetrics analyze(String sourceName, DatabaseConnection conn, String tableName, Partitioning partitioning) {
+        Column[] columns = getJdbcColumns(conn, tableName);
+        if (columns == null) return null;
+        Table table = columns[0].getTable();
+        String schemaName = table.getSchema() == null ? null : table.getSchema().getName();
+        TableProfile emptyProfile = createTableProfile(columns, null);
+        PartitionedTableProfiler profiler = new PartitionedTableProfiler(SqlDialect.forJdbcUrl(conn.getJdbcUrl()), maxConcurrentPartitions, fetchSize);
+        TableProfile profile;
+        try {
+            profile = profiler.profile(datastoreRegistry.getDataSource(conn), schemaName, table.getName(), emptyProfile, partitioning);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not profile " + table.getQualifiedLabel() + ": " + e.getMessage(), e);
+        }
+        return createDatasetMetrics(tableName, profile);
+    }
+
+    /**
+     * Profiles the table with aggregate queries run by the database, scanning
+     * it only for the scan measures given, of {@link PushdownProfiler#SCAN_MEASURES}.
+     * With none, the rows of the table are not read at all.
+     */
+    public DatasetMetrics analyzeWithPushdown(String sourceName, DatabaseConnection conn, String tableName, Set<String> scanMeasures) {
+        return analyzeWithPushdown(conn, tableName, scanMeasures, 0);
+    }
+
+    private DatasetMetrics analyzeWithPushdown(DatabaseConnection conn, String tableName, Set<String> scanMeasures, long timeoutMillis) {
+        Column[] columns = getJdbcColumns(conn, tableName);
+        if (columns == null) return null;
+        Table table = columns[0].getTable();
+        String schemaName = table.getSchema() == null ? null : table.getSchema().getName();
+        TableProfile emptyProfile = createTableProfile(columns, null);
+        int queryTimeoutSeconds = timeoutMillis > 0 ? (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(timeoutMillis)) : 0;
+        PushdownProfiler profiler = new PushdownProfiler(SqlDialect.forJdbcUrl(conn.getJdbcUrl()), pushdownColumnsPerQuery, queryTimeoutSeconds, fetchSize);
+        List<Map<String, Object>> measures;
+        try (Connection connection = datastoreRegistry.getDataSource(conn).getConnection()) {
+            measures = profiler.profile(connection, schemaName, table.getName(), emptyProfile, scanMeasures, distinctValuesLimit);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not profile " + table.getQualifiedLabel() + ": " + e.getMessage(), e);
+        }
+        return createDatasetMetrics(tableName, emptyProfile.getColumnNames(), emptyProfile.getColumnTypeNames(), measures);
+    }
+
+    private TableProfile createTableProfile(Column[] columns, String watermarkColumn) {
+        List<String> columnNames = new ArrayList<>();
+        List<String> columnTypeNames = new ArrayList<>();
+        for (Column column : columns) {
+            columnNames.add(column.getName());
+            columnTypeNames.add(column.getType().getName());
+        }
+        DistinctValuesState distinctValuesPrototype = new DistinctValuesState(distinctCountMode, exactDistinctValuesThreshold,
+                sketchPrecision, topValuesCount, topValuesCapacity);
+        List<String> profiledTypeNames = new ArrayList<>();
+        List<ColumnProfile> columnProfiles = new ArrayList<>();
+        for (ColumnType columnType : getColumnTypes(columnTypeNames)) {
+            profiledTypeNames.add(columnType.getName());
+            columnProfiles.add(ColumnProfile.create(columnType, distinctValuesPrototype, quantileSketchSize));
+        }
+        return new TableProfile(columnNames, profiledTypeNames, columnProfiles, watermarkColumn);
+    }
+
+    private DatasetMetrics createDatasetMetrics(String tableName, TableProfile profile) {
+        List<Map<String, Object>> measuresByColumn = new ArrayList<>();
+        for (int i = 0; i < profile.getColumnNames().size(); i++) {
+            ColumnProfile columnProfile = profile.getColumnProfile(i);
+            measuresByColumn.add(columnProfile == null ? null : columnProfile.getMeasures(distinctValuesLimit));
+        }
+        return createDatasetMetrics(tableName, profile.getColumnNames(), profile.getColumnTypeNames(), measuresByColumn);
+    }
+
+    /**
+     * @param measuresByColumn the measures of each column, or null for a column not profiled
+     */
+    private DatasetMetrics createDatasetMetrics(String tableName, List<String> columnNames, List<String> columnTypeNames,
+                                                List<Map<String, Object>> measuresByColumn) {
+        DatasetMetrics datasetMetrics = new DatasetMetrics(tableName, "TABLE");
+        List<ColumnType> columnTypes = getColumnTypes(columnTypeNames);
+        List<Pair<String, ColumnType>> columnsByType = new ArrayList<>();
+        for (int i = 0; i < columnNames.size(); i++) {
+            String columnName = columnNames.get(i);
+            ColumnType columnType = columnTypes.get(i);
+            columnsByType.add(new Pair<>(columnName, columnType));
+            Map<String, Object> measures = measuresByColumn.get(i);
+            if (measures != null) {
+                for (Map.Entry<String, Object> measure : measures.entrySet()) {
+                    datasetMetrics.addColumnMetric(columnName, i + 1, io.metamorphic.analysiscommons.models.ColumnType.valueOf(columnType.getName()),
+                            measure.getKey(), measure.getValue());
+                }
+            }
+        }
+        addQualityMetrics(datasetMetrics, columnNames, columnsByType);
+        return datasetMetrics;
+    }
+
     public DatasetMetrics analyze(String filename, List<List<String>> rows, List<String> columnNames, List<String> columnTypeNames, boolean includeRenderedResult) {
         List<ColumnType> columnTypes = getColumnTypes(columnTypeNames);
-        Datastore datastore = createPojoDatastore(filename, rows, columnNames, columnTypes);
+        TableDataProvider tableDataProvider = StreamingTableDataProvider.forRows(createTableDef(FILE_TABLE_NAME, columnNames, columnTypes), rows);
+        Datastore datastore = createPojoDatastore(filename, tableDataProvider);
         DatasetMetrics datasetMetrics = new DatasetMetrics(filename, "FILE");
-        return analyze(filename, datasetMetrics, datastore, columnNames, columnTypes, true, includeRenderedResult);
+        AnalysisReport report = analyzeDatastore(FILE_TABLE_NAME, filename, datasetMetrics, datastore, columnNames, columnTypes, true, 0);
+        return getDatasetMetrics(report, includeRenderedResult);
     }
 
-    private DatasetMetrics analyze(String sourceName, DatasetMetrics datasetMetrics, Datastore datastore, List<String> columnNames, List<ColumnType> columnTypes, boolean isFile, boolean includeRenderedResult) {
-        SimpleDescriptorProvider descriptorProvider = new SimpleDescriptorProvider();
-        descriptorProvider.addRendererBeanDescriptor(Descriptors.ofRenderer(CrosstabHtmlRenderer.class));
-        descriptorProvider.addRendererBeanDescriptor(Descriptors.ofRenderer(PatternFinderResultHtmlRenderer.class));
-        descriptorProvider.addRendererBeanDescriptor(Descriptors.ofRenderer(AnnotatedRowsHtmlRenderer.class));
-        AnalyzerBeansConfiguration conf = (new AnalyzerBeansConfigurationImpl()).replace(descriptorProvider);
-        AnalysisJobBuilder analysisJobBuilder = new AnalysisJobBuilder(conf);
-        analysisJobBuilder.setDatastore(datastore);
-        analysisJobBuilder.addSourceColumns(columnNames.toArray(new String[columnNames.size()]));
-        Set<ColumnType> distinctColumnTypes = new HashSet<>(columnTypes);
-        Map<ColumnType, List<AnalyzerJobBuilder>> analyzerJobBuilderMap = createAnalyzerJobBuilderMap(analysisJobBuilder, distinctColumnTypes,
-                new PairListBuilder<ColumnType, Class<? extends Analyzer>>()
-                        .add(NVARCHAR, StringAnalyzer.class)
-                        .add(NVARCHAR, DistinctValuesAnalyzer.class)
-                        .add(INTEGER, NumberAnalyzer.class)
-                        .add(BIGINT, NumberAnalyzer.class)
-                        .add(DECIMAL, NumberAnalyzer.class)
-                        .add(DATE, DateAndTimeAnalyzer.class)
-                        .add(BOOLEAN, BooleanAnalyzer.class)
-                        .asList());
-        Map<ColumnType, TransformerJobBuilder> transformerJobBuilderMap = null;
-        Pair<ColumnType, TransformerJobBuilder> addTransformerJobBuilder = null;
+    public DatasetMetrics analyze(String filename, Iterator<String[]> rows, List<String> columnNames, List<String> columnTypeNames, boolean includeRenderedResult) {
+        return getDatasetMetrics(analyzeForReport(filename, rows, columnNames, columnTypeNames), includeRenderedResult);
+    }
 
-        // Database tables are already typed
-        if (isFile) {
-            transformerJobBuilderMap = createTransformerJobBuilderMap(analysisJobBuilder, distinctColumnTypes,
-                    new PairListBuilder<ColumnType, Class<? extends Transformer>>()
-                            .add(INTEGER, IntegerTransformer.class)
-                            .add(BIGINT, ConvertToNumberTransformer.class)
-                            .add(DECIMAL, ConvertToNumberTransformer.class)
-                            .add(DATE, DateTransformer.class)
-                            .add(BOOLEAN, ConvertToBooleanTransformer.class)
-                            .asList());
+    public DatasetMetrics analyze(String filename, Reader reader, CsvDialect dialect, List<String> columnNames, List<String> columnTypeNames, boolean includeRenderedResult) {
+        return analyze(filename, new CsvRowIterator(reader, dialect), columnNames, columnTypeNames, includeRenderedResult);
+    }
 
-            if (columnTypes.contains(LONGNVARCHAR)) {
-                TransformerJobBuilder entityTransformerJobBuilder = analysisJobBuilder.addTransformer(EntityRecognitionTransformer.class);
-                entityTransformerJobBuilder.setConfiguredProperty("Classifier", classifier);
-                addTransformerJobBuilder = new Pair<>(LONGNVARCHAR, entityTransformerJobBuilder);
+    public AnalysisReport analyzeForReport(String filename, Iterator<String[]> rows, List<String> columnNames, List<String> columnTypeNames) {
+        List<ColumnType> columnTypes = getColumnTypes(columnTypeNames);
+        TableDataProvider tableDataProvider = StreamingTableDataProvider.forIterator(createTableDef(FILE_TABLE_NAME, columnNames, columnTypes), rows);
+        Datastore datastore = createPojoDatastore(filename, tableDataProvider);
+        DatasetMetrics datasetMetrics = new DatasetMetrics(filename, "FILE");
+        return analyzeDatastore(FILE_TABLE_NAME, filename, datasetMetrics, datastore, columnNames, columnTypes, true, 0);
+    }
+
+    public AnalysisReport analyzeForReport(String filename, Reader reader, CsvDialect dialect, List<String> columnNames, List<String> columnTypeNames) {
+        return analyzeForReport(filename, new CsvRowIterator(reader, dialect), columnNames, columnTypeNames);
+    }
+
+    public DatasetMetrics analyze(String filename, ColumnarTable table, List<String> columnTypeNames, boolean includeRenderedResult) {
+        return getDatasetMetrics(analyzeForReport(filename, table, columnTypeNames), includeRenderedResult);
+    }
+
+    public AnalysisReport analyzeForReport(String filename, ColumnarTable table, List<String> columnTypeNames) {
+        List<String> columnNames = table.getColumnNames();
+        List<ColumnType> columnTypes = getColumnTypes(columnTypeNames);
+        TableDataProvider tableDataProvider = new ColumnarTableDataProvider(createTableDef(FILE_TABLE_NAME, columnNames, columnTypes), table);
+        Datastore datastore = createPojoDatastore(filename, tableDataProvider);
+        DatasetMetrics datasetMetrics = new DatasetMetrics(filename, "FILE");
+        return analyzeDatastore(FILE_TABLE_NAME, filename, datasetMetrics, datastore, columnNames, columnTypes, true, 0);
+    }
+
+    public DatasetMetrics analyze(String filename, Iterator<String[]> rows, List<String> columnNames, boolean includeRenderedResult) {
+        return getDatasetMetrics(analyzeForReport(filename, rows, columnNames), includeRenderedResult);
+    }
+
+    public DatasetMetrics analyze(String filename, Reader reader, CsvDialect dialect, List<String> columnNames, boolean includeRenderedResult) {
+        return analyze(filename, new CsvRowIterator(reader, dialect), columnNames, includeRenderedResult);
+    }
+
+    /**
+     * Infers the type of each column from the first rows, which are then
+     * analyzed with the rest, and reports the type inferred and its confidence
+     * as measures of the column.
+     */
+    public AnalysisReport analyzeForReport(String filename, Iterator<String[]> rows, List<String> columnNames) {
+        SampleBufferingIterator bufferingRows = new SampleBufferingIterator(rows, typeInferenceSampleSize);
+        TypeInferrer typeInferrer = new TypeInferrer(typeInferenceMinConformance, Runtime.getRuntime().availableProcessors());
+        List<InferredType> inferredTypes = typeInferrer.infer(bufferingRows.getSample(), columnNames.size());
+        if (log.isDebugEnabled()) {
+            log.debug("Inferred column types " + inferredTypes + " of " + filename);
+        }
+        List<ColumnType> columnTypes = new ArrayList<>();
+        for (InferredType inferredType : inferredTypes) {
+            // a file column named BIGINT is otherwise taken for INTEGER
+            columnTypes.add("BIGINT".equals(inferredType.getTypeName()) ? BIGINT
+                    : getColumnTypes(Collections.singletonList(inferredType.getTypeName())).get(0));
+        }
+        TableDataProvider tableDataProvider = StreamingTableDataProvider.forIterator(createTableDef(FILE_TABLE_NAME, columnNames, columnTypes), bufferingRows);
+        Datastore datastore = createPojoDatastore(filename, tableDataProvider);
+        DatasetMetrics datasetMetrics = new DatasetMetrics(filename, "FILE");
+        addInferredTypeMetrics(datasetMetrics, columnNames, getColumnsByType(columnNames, columnTypes), inferredTypes);
+        return analyzeDatastore(FILE_TABLE_NAME, filename, datasetMetrics, datastore, columnNames, columnTypes, true, 0);
+    }
+
+    public AnalysisReport analyzeForReport(String filename, Reader reader, CsvDialect dialect, List<String> columnNames) {
+        return analyzeForReport(filename, new CsvRowIterator(reader, dialect), columnNames);
+    }
+
+    private void addInferredTypeMetrics(DatasetMetrics datasetMetrics, List<String> columnNames, List<Pair<String, ColumnType>> columnsByType,
+                                        List<InferredType> inferredTypes) {
+        Map<String, Integer> columnIndexes = getColumnIndexes(columnNames);
+        for (int i = 0; i < columnsByType.size(); i++) {
+            Pair<String, ColumnType> column = columnsByType.get(i);
+            addColumnMetric(datasetMetrics, columnIndexes, column, MEASURE_INFERRED_TYPE, inferredTypes.get(i).getTypeName());
+            addColumnMetric(datasetMetrics, columnIndexes, column, MEASURE_TYPE_CONFIDENCE, inferredTypes.get(i).getConfidence());
+        }
+    }
+
+    /**
+     * Adds the rendered HTML of the report to its metrics if asked to, as a
+     * string held in memory.
+     */
+    private DatasetMetrics getDatasetMetrics(AnalysisReport report, boolean includeRenderedResult) {
+        DatasetMetrics datasetMetrics = report.getDatasetMetrics();
+        try {
+            if (includeRenderedResult) {
+                try {
+                    datasetMetrics.addRenderedResult(new RenderedResult("HTML", report.toHtml()));
+                } catch (IOException e) {
+                    log.error(e.getMessage(), e);
+                }
             }
-            List<ColumnType> originalColumnTypes = new ArrayList<>();
-            for (int i = 0; i < columnNames.size(); i++) {
-                originalColumnTypes.add(NVARCHAR);
+        } finally {
+            closeReport(report);
+        }
+        return datasetMetrics;
+    }
+
+    private static void closeReport(AnalysisReport report) {
+        try {
+            report.close();
+        } catch (IOException e) {
+            log.warn("Could not release the annotated rows of the report: " + e.getMessage(), e);
+        }
+    }
+
+    private AnalysisReport analyzeDatastore(String sourceName, String datasetName, DatasetMetrics datasetMetrics, Datastore datastore, List<String> columnNames, List<ColumnType> columnTypes, boolean isFile, long timeoutMillis) {
+        ConversionFailures conversionFailures = new ConversionFailures();
+        ExecutionProfiler profiler = createExecutionProfiler(datasetName, conversionFailures);
+        AnnotationStorageProvider storageProvider = new AnnotationStorageProvider(annotationPolicy);
+        try {
+            return analyzeDatastore(sourceName, datasetMetrics, datastore, columnNames, columnTypes, isFile, timeoutMillis,
+                    profiler, conversionFailures, storageProvider);
+        } catch (RuntimeException e) {
+            try {
+                storageProvider.close();
+            } catch (IOException closeFailure) {
+                log.warn("Could not release annotated rows: " + closeFailure.getMessage(), closeFailure);
             }
-            addAnalyzers(analysisJobBuilder, sourceName, columnNames, originalColumnTypes, analyzerJobBuilderMap);
-            AnalyzerJobBuilder patternAnalyzerBuilder = analysisJobBuilder.addAnalyzer(PatternFinderAnalyzer.class);
-            MutableTable table = new MutableTable(sourceName);
-            for (int i = 0; i < columnNames.size(); i++) {
-                patternAnalyzerBuilder.addInputColumn(
-                        new MetaModelInputColumn(
-                                new MutableColumn(getUnqualifiedName(columnNames.get(i)), NVARCHAR, table, i, true)));
-                                //new MutableColumn(columnNames.get(i), NVARCHAR, table, i, true)));
+            throw e;
+        }
+    }
+
+    private AnalysisReport analyzeDatastore(String sourceName, DatasetMetrics datasetMetrics, Datastore datastore, List<String> columnNames,
+                                            List<ColumnType> columnTypes, boolean isFile, long timeoutMillis, ExecutionProfiler profiler,
+                                            ConversionFailures conversionFailures, AnnotationStorageProvider storageProvider) {
+        AnalysisResultFuture future;
+        ExecutionProfile profile = null;
+        if (profiler == null) {
+            future = runAnalysisJob(sourceName, datastore, columnNames, columnTypes, isFile, timeoutMillis, null, conversionFailures, storageProvider);
+        } else {
+            profiler.start();
+            try {
+                future = runAnalysisJob(sourceName, datastore, columnNames, columnTypes, isFile, timeoutMillis, profiler, conversionFailures, storageProvider);
+            } finally {
+                profile = profiler.stop();
             }
-            if (addTransformerJobBuilder == null) {
-                addTransformers(analysisJobBuilder, sourceName, columnNames, columnTypes, analyzerJobBuilderMap, transformerJobBuilderMap);
-            } else {
-                transformerJobBuilderMap.put(addTransformerJobBuilder.l, addTransformerJobBuilder.r);
-                addTransformers(analysisJobBuilder, sourceName, columnNames, columnTypes, analyzerJobBuilderMap, transformerJobBuilderMap);
+        }
+        Map<ComponentJob, AnalyzerResult> resultMap = future.getResultMap();
+        AnalysisResult results = new SimpleAnalysisResult(resultMap, new Date());
+
+        List<Pair<String, ColumnType>> columnsByType = getColumnsByType(columnNames, columnTypes);
+        addAnalyzerMetrics(datasetMetrics, resultMap.values(), columnNames, columnsByType, isFile);
+        addQualityMetrics(datasetMetrics, columnNames, columnsByType);
+        if (isFile) {
+            addParseFailureMetrics(datasetMetrics, columnNames, columnsByType, conversionFailures);
+        }
+        if (profile != null && executionProfileIncluded) {
+            datasetMetrics.addRenderedResult(new RenderedResult(ExecutionProfile.RENDERED_RESULT_TYPE, profile.toJson()));
+        }
+        if (!future.isSuccessful()) {
+            for (Throwable e : future.getErrors()) {
+                log.error(e.getMessage(), e);
             }
-        } else {
-            addAnalyzers(analysisJobBuilder, sourceName, columnNames, columnTypes, analyzerJobBuilderMap);
         }
-        AnalysisJob job = analysisJobBuilder.toAnalysisJob();
-        AnalysisRunner runner = new AnalysisRunnerImpl(conf);
+        return new AnalysisReport(datasetMetrics, results, configuration, storageProvider);
+    }
+
+    /**
+     * Runs the analysis job of the columns, built or taken from the job
+     * template cache, and waits for it to complete.
+     *
+     * Package-private for the benchmarks.
+     *
+     * @param profiler the profiler of the run, already started, or null
+     * @param conversionFailures counts the values the transformers could not convert, or null
+     * @param storageProvider keeps the rows of the annotations of the job, to be closed once its results are released
+     */
+    AnalysisResultFuture runAnalysisJob(String sourceName, Datastore datastore, List<String> columnNames, List<ColumnType> columnTypes, boolean isFile, long timeoutMillis,
+                                        ExecutionProfiler profiler, ConversionFailures conversionFailures,
+                                        AnnotationStorageProvider storageProvider) {
+        AnalyzerBeansConfigurationImpl conf = configuration.replace(storageProvider);
+        if (conversionFailures != null) {
+            conf = conf.replace(new ConversionFailuresInjectionManagerFactory(conversionFailures));
+        }
+        if (profiler != null || timeoutMillis > 0) {
+            TaskRunner taskRunner = conf.getTaskRunner();
+            if (profiler != null) {
+                taskRunner = profiler.wrap(taskRunner);
+            }
+            // the time limit must see the row tasks themselves, so it wraps the profiler
+            if (timeoutMillis > 0) {
+                taskRunner = new TimeLimitedTaskRunner(taskRunner, timeoutMillis);
+            }
+            conf = conf.replace(taskRunner);
+        }
+        JobTemplateKey templateKey = new JobTemplateKey(sourceName, columnNames, columnTypes, isFile);
+        AnalysisJob job = jobTemplateCache.get(templateKey, datastore);
+        if (job == null) {
+            job = buildAnalysisJob(sourceName, datastore, columnNames, columnTypes, isFile);
+            jobTemplateCache.put(templateKey, job);
+        } else if (log.isDebugEnabled()) {
+            log.debug("Reusing job template " + templateKey);
+        }
+        AnalysisRunner runner = profiler == null ? new AnalysisRunnerImpl(conf) : new AnalysisRunnerImpl(conf, profiler);
         AnalysisResultFuture future = runner.run(job);
-        Writer stringWriter = new StringWriter();
-        EmbedHtmlAnalysisResultWriter htmlResultWriter = new EmbedHtmlAnalysisResultWriter();
         future.await();
-        Map<ComponentJob, AnalyzerResult> resultMap = future.getResultMap();
-        AnalysisResult results = new SimpleAnalysisResult(resultMap, new Date());
+        if (!future.isSuccessful()) {
+            for (Throwable e : future.getErrors()) {
+                if (e instanceof TimeoutException) {
+                    throw new IllegalStateException("Analysis of " + sourceName + " timed out", e);
+                }
+            }
+        }
+        return future;
+    }
+
+    private ExecutionProfiler createExecutionProfiler(String sourceName, ConversionFailures conversionFailures) {
+        List<ExecutionListener> listeners = new ArrayList<>();
+        if (executionListener != null) {
+            listeners.add(executionListener);
+        }
+        if (metricsRegistry != null) {
+            listeners.add(new MetricsRegistryListener(metricsRegistry));
+        }
+        if (listeners.isEmpty() && !executionProfileIncluded) {
+            return null;
+        }
+        return new ExecutionProfiler(sourceName, listeners, profilerSamplingIntervalMillis, conversionFailures);
+    }
 
+    static List<Pair<String, ColumnType>> getColumnsByType(List<String> columnNames, List<ColumnType> columnTypes) {
         List<Pair<String, ColumnType>> columnsByType = new ArrayList<>();
         for (int i = 0; i < columnNames.size(); i++) {
             String columnName = getUnqualifiedName(columnNames.get(i));
             ColumnType columnType = columnTypes.get(i);
             columnsByType.add(new Pair<>(columnName, columnType));
         }
+        return columnsByType;
+    }
 
-        //Map<String, Map<String, Object>> metrics = new HashMap<>();
-
-        for (AnalyzerResult result : resultMap.values()) {
+    /**
+     * Adds the measures of the analyzer results to the metrics of each column.
+     * Each crosstab is read once per column and measure, in constant time, so
+     * this takes time linear in the number of columns.
+     *
+     * Package-private for the benchmarks.
+     */
+    void addAnalyzerMetrics(DatasetMetrics datasetMetrics, Collection<AnalyzerResult> analyzerResults, List<String> columnNames, List<Pair<String, ColumnType>> columnsByType, boolean isFile) {
+        Map<String, Integer> columnIndexes = getColumnIndexes(columnNames);
+        Map<String, Pair<String, ColumnType>> columnsByName = new HashMap<>();
+        for (Pair<String, ColumnType> column : columnsByType) {
+            if (!columnsByName.containsKey(column.l)) {
+                columnsByName.put(column.l, column);
+            }
+        }
+        for (AnalyzerResult result : analyzerResults) {
             if (result instanceof StringAnalyzerResult) {
+                CrosstabReader<?> crosstab = new CrosstabReader<>(((StringAnalyzerResult) result).getCrosstab(),
+                        StringAnalyzer.DIMENSION_COLUMN, StringAnalyzer.DIMENSION_MEASURES);
                 for (Pair<String, ColumnType> column : columnsByType) {
-                    if (column.r == NVARCHAR) {
-//                        Map<String, Object> columnMetrics;
-//                        if (metrics.containsKey(column.l)) {
-//                            columnMetrics = metrics.get(column.l);
-//                        } else {
-//                            columnMetrics = new HashMap<>();
-//                            metrics.put(column.l, columnMetrics);
-//                        }
+                    if (column.r == NVARCHAR || isFile && column.r == LONGNVARCHAR) {
                         for (String measure : STRING_ANALYZER_MEASURES) {
-                            Object value = ((StringAnalyzerResult) result).getCrosstab()
-                                    .where(StringAnalyzer.DIMENSION_COLUMN, column.l)
-                                    .where(StringAnalyzer.DIMENSION_MEASURES, measure)
-                                    .get();
-//                            columnMetrics.put(measure, value);
-                            datasetMetrics.addColumnMetric(column.l, getColumnIndex(columnNames, column.l), io.metamorphic.analysiscommons.models.ColumnType.valueOf(column.r.getName()), measure, value);
+                            Object value = crosstab.get(column.l, measure);
+                            addColumnMetric(datasetMetrics, columnIndexes, column, measure, value);
                         }
                     }
                 }
             } else if (result instanceof DistinctValuesAnalyzerResult) {
+                CrosstabReader<?> crosstab = new CrosstabReader<>(((DistinctValuesAnalyzerResult) result).getCrosstab(),
+                        StringAnalyzer.DIMENSION_COLUMN, StringAnalyzer.DIMENSION_MEASURES);
                 for (Pair<String, ColumnType> column : columnsByType) {
-                    if (column.r == NVARCHAR) {
-//                        Map<String, Object> columnMetrics;
-//                        if (metrics.containsKey(column.l)) {
-//                            columnMetrics = metrics.get(column.l);
-//                        } else {
-//                            columnMetrics = new HashMap<>();
-//                            metrics.put(column.l, columnMetrics);
-//                        }
+                    if (column.r == NVARCHAR || isFile && column.r == LONGNVARCHAR) {
                         for (String measure : DISTINCT_VALUES_ANALYZER_MEASURES) {
-                            Object value = ((DistinctValuesAnalyzerResult) result).getCrosstab()
-                                    .where(StringAnalyzer.DIMENSION_COLUMN, column.l)
-                                    .where(StringAnalyzer.DIMENSION_MEASURES, measure)
-                                    .get();
-//                            columnMetrics.put(measure, value);
-                            datasetMetrics.addColumnMetric(column.l, getColumnIndex(columnNames, column.l), io.metamorphic.analysiscommons.models.ColumnType.valueOf(column.r.getName()), measure, value);
+                            Object value = crosstab.get(column.l, measure);
+                            addColumnMetric(datasetMetrics, columnIndexes, column, measure, value);
                         }
                     }
                 }
             } else if (result instanceof NumberAnalyzerResult) {
+                CrosstabReader<?> crosstab = new CrosstabReader<>(((NumberAnalyzerResult) result).getCrosstab(),
+                        NumberAnalyzer.DIMENSION_COLUMN, NumberAnalyzer.DIMENSION_MEASURE);
                 for (Pair<String, ColumnType> column : columnsByType) {
-                    if (column.r == INTEGER || column.r == DECIMAL) {
-//                        Map<String, Object> columnMetrics;
-//                        if (metrics.containsKey(column.l)) {
-//                            columnMetrics = metrics.get(column.l);
-//                        } else {
-//                            columnMetrics = new HashMap<>();
-//                            metrics.put(column.l, columnMetrics);
-//                        }
+                    if (column.r == INTEGER || column.r == BIGINT || column.r == DECIMAL) {
+                        String columnName = isFile ? getTransformedName(column) : column.l;
                         for (String measure : NUMBER_ANALYZER_MEASURES) {
-                            Object value = ((NumberAnalyzerResult) result).getCrosstab()
-                                    .where(NumberAnalyzer.DIMENSION_COLUMN, isFile ? getTransformedName(column) : column.l)
-                                    .where(NumberAnalyzer.DIMENSION_MEASURE, measure)
-                                    .get();
-//                            columnMetrics.put(measure, value);
-                            datasetMetrics.addColumnMetric(column.l, getColumnIndex(columnNames, column.l), io.metamorphic.analysiscommons.models.ColumnType.valueOf(column.r.getName()), measure, value);
+                            Object value = crosstab.get(columnName, measure);
+                            addColumnMetric(datasetMetrics, columnIndexes, column, measure, value);
                         }
                     }
                 }
             } else if (result instanceof DateAndTimeAnalyzerResult) {
+                CrosstabReader<?> crosstab = new CrosstabReader<>(((DateAndTimeAnalyzerResult) result).getCrosstab(),
+                        DateAndTimeAnalyzer.DIMENSION_COLUMN, DateAndTimeAnalyzer.DIMENSION_MEASURE);
                 for (Pair<String, ColumnType> column : columnsByType) {
                     if (column.r == DATE) {
-//                        Map<String, Object> columnMetrics;
-//                        if (metrics.containsKey(column.l)) {
-//                            columnMetrics = metrics.get(column.l);
-//                        } else {
-//                            columnMetrics = new HashMap<>();
-//                            metrics.put(column.l, columnMetrics);
-//                        }
+                        String columnName = isFile ? getTransformedName(column) : column.l;
                         for (String measure : DATE_AND_TIME_ANALYZER_MEASURES) {
                             try {
-                                Object value = ((DateAndTimeAnalyzerResult) result).getCrosstab()
-                                        .where(DateAndTimeAnalyzer.DIMENSION_COLUMN, isFile ? getTransformedName(column) : column.l)
-                                        .where(DateAndTimeAnalyzer.DIMENSION_MEASURE, measure)
-                                        .get();
-//                                columnMetrics.put(measure, value);
-                                datasetMetrics.addColumnMetric(column.l, getColumnIndex(columnNames, column.l), io.metamorphic.analysiscommons.models.ColumnType.valueOf(column.r.getName()), measure, value);
+                                Object value = crosstab.get(columnName, measure);
+                                addColumnMetric(datasetMetrics, columnIndexes, column, measure, value);
                             } catch (IllegalArgumentException|NullPointerException e) {
                                 // skip it
                                 log.warn(e.getMessage(), e);
-//                                e.printStackTrace();
                             }
                         }
                     }
                 }
             } else if (result instanceof BooleanAnalyzerResult) {
+                CrosstabReader<?> crosstab = new CrosstabReader<>(((BooleanAnalyzerResult) result).getColumnStatisticsCrosstab(),
+                        BooleanAnalyzer.DIMENSION_COLUMN, BooleanAnalyzer.DIMENSION_MEASURE);
                 for (Pair<String, ColumnType> column : columnsByType) {
                     if (column.r == BOOLEAN) {
-//                        Map<String, Object> columnMetrics;
-//                        if (metrics.containsKey(column.l)) {
-//                            columnMetrics = metrics.get(column.l);
-//                        } else {
-//                            columnMetrics = new HashMap<>();
-//                            metrics.put(column.l, columnMetrics);
-//                        }
+                        String columnName = isFile ? getTransformedName(column) : column.l;
                         for (String measure : BOOLEAN_ANALYZER_MEASURES) {
                             try {
-                                Object value = ((BooleanAnalyzerResult) result).getColumnStatisticsCrosstab()
-                                        .where(BooleanAnalyzer.DIMENSION_COLUMN, isFile ? getTransformedName(column) : column.l)
-                                        .where(BooleanAnalyzer.DIMENSION_MEASURE, measure)
-                                        .get();
-//                                columnMetrics.put(measure, value);
-                                datasetMetrics.addColumnMetric(column.l, getColumnIndex(columnNames, column.l), io.metamorphic.analysiscommons.models.ColumnType.valueOf(column.r.getName()), measure, value);
+                                Object value = crosstab.get(columnName, measure);
+                                addColumnMetric(datasetMetrics, columnIndexes, column, measure, value);
                             } catch (IllegalArgumentException|NullPointerException e) {
                                 // skip it
                                 log.warn(e.getMessage(), e);
-//                                e.printStackTrace();
                             }
                         }
                     }
                 }
             } else if (result instanceof PatternFinderResult) {
-                for (Pair<String, ColumnType> column : columnsByType) {
-                    if (column.l.equals(((PatternFinderResult) result).getColumn().getName())) {
-//                        Map<String, Object> columnMetrics;
-//                        if (metrics.containsKey(column.l)) {
-//                            columnMetrics = metrics.get(column.l);
-//                        } else {
-//                            columnMetrics = new HashMap<>();
-//                            metrics.put(column.l, columnMetrics);
-//                        }
-                        Crosstab crosstab = ((PatternFinderResult) result).getSingleCrosstab();
-                        CrosstabDimension patternDimension = crosstab.getDimension(PatternFinderAnalyzer.DIMENSION_NAME_PATTERN);
-                        for (String pattern : patternDimension.getCategories()) {
-                            Integer matchCount = (Integer) crosstab
-                                    .where(patternDimension, pattern)
-                                    .where(PatternFinderAnalyzer.DIMENSION_NAME_MEASURES, PatternFinderAnalyzer.MEASURE_MATCH_COUNT)
-                                    .get();
-                            String sample = (String) crosstab
-                                    .where(patternDimension, pattern)
-                                    .where(PatternFinderAnalyzer.DIMENSION_NAME_MEASURES, PatternFinderAnalyzer.MEASURE_SAMPLE)
-                                    .get();
-//                            columnMetrics.put("matchCount", matchCount);
-//                            columnMetrics.put("sample", sample);
-                            datasetMetrics.addColumnMetric(column.l, getColumnIndex(columnNames, column.l), io.metamorphic.analysiscommons.models.ColumnType.valueOf(column.r.getName()), "matchCount", matchCount);
-                            datasetMetrics.addColumnMetric(column.l, getColumnIndex(columnNames, column.l), io.metamorphic.analysiscommons.models.ColumnType.valueOf(column.r.getName()), "sample", sample);
-                        }
+                Pair<String, ColumnType> column = columnsByName.get(((PatternFinderResult) result).getColumn().getName());
+                if (column != null) {
+                    Crosstab crosstab = ((PatternFinderResult) result).getSingleCrosstab();
+                    CrosstabDimension patternDimension = crosstab.getDimension(PatternFinderAnalyzer.DIMENSION_NAME_PATTERN);
+                    for (String pattern : patternDimension.getCategories()) {
+                        Integer matchCount = (Integer) crosstab
+                                .where(patternDimension, pattern)
+                                .where(PatternFinderAnalyzer.DIMENSION_NAME_MEASURES, PatternFinderAnalyzer.MEASURE_MATCH_COUNT)
+                                .get();
+                        String sample = (String) crosstab
+                                .where(patternDimension, pattern)
+                                .where(PatternFinderAnalyzer.DIMENSION_NAME_MEASURES, PatternFinderAnalyzer.MEASURE_SAMPLE)
+                                .get();
+                        addColumnMetric(datasetMetrics, columnIndexes, column, "matchCount", matchCount);
+                        addColumnMetric(datasetMetrics, columnIndexes, column, "sample", sample);
+                    }
+                    // match counts of a sample, or of the rows before discovery stopped
+                    if (result instanceof PatternProfilingResult && ((PatternProfilingResult) result).isEstimated()) {
+                        addColumnMetric(datasetMetrics, columnIndexes, column, MEASURE_PATTERNS_ESTIMATED, true);
+                        addColumnMetric(datasetMetrics, columnIndexes, column, MEASURE_PATTERN_SAMPLE_SIZE,
+                                ((PatternProfilingResult) result).getRowsProfiled());
                     }
                 }
             }
         }
+    }
+
+    /**
+     * Adds the uniqueness and completeness of each column, derived from its
+     * row, null and distinct values counts.
+     */
+    private void addQualityMetrics(DatasetMetrics datasetMetrics, List<String> columnNames, List<Pair<String, ColumnType>> columnsByType) {
+        Map<String, Integer> columnIndexes = getColumnIndexes(columnNames);
         for (Pair<String, ColumnType> column : columnsByType) {
             Map<String, Metric> metricsMap = datasetMetrics.getMetricsMap(column.l);
             Metric rowCountMetric = metricsMap.get(StringAnalyzer.MEASURE_ROW_COUNT);
             if (rowCountMetric != null) {
                 Object rowCount = rowCountMetric.getValue();
-                if (rowCount != null && (Integer)rowCount != 0) {
+                if (rowCount != null && ((Number)rowCount).longValue() != 0) {
                     Metric distinctCountMetric = metricsMap.get(DistinctValuesAnalyzer.MEASURE_DISTINCT_VALUES_COUNT);
                     if (distinctCountMetric != null) {
                         Object distinctCount = distinctCountMetric.getValue();
                         if (distinctCount != null) {
-                            double uniqueness = (Integer)distinctCount / ((Integer)rowCount).doubleValue();
-                            datasetMetrics.addColumnMetric(column.l, getColumnIndex(columnNames, column.l), io.metamorphic.analysiscommons.models.ColumnType.valueOf(column.r.getName()), "Uniqueness", uniqueness);
+                            // an approximate distinct count can overshoot the row count
+                            double uniqueness = Math.min(1.0, ((Number)distinctCount).doubleValue() / ((Number)rowCount).doubleValue());
+                            addColumnMetric(datasetMetrics, columnIndexes, column, "Uniqueness", uniqueness);
                         }
                     }
                     Metric nullCountMetric = metricsMap.get(StringAnalyzer.MEASURE_NULL_COUNT);
                     if (nullCountMetric != null) {
                         Object nullCount = nullCountMetric.getValue();
                         if (nullCount != null) {
-                            double completeness = 1 - ((Integer)nullCount / ((Integer)rowCount).doubleValue());
-                            datasetMetrics.addColumnMetric(column.l, getColumnIndex(columnNames, column.l), io.metamorphic.analysiscommons.models.ColumnType.valueOf(column.r.getName()), "Completeness", completeness);
+                            double completeness = 1 - (((Number)nullCount).doubleValue() / ((Number)rowCount).doubleValue());
+                            addColumnMetric(datasetMetrics, columnIndexes, column, "Completeness", completeness);
                         }
                     }
                 }
             }
         }
-        if (includeRenderedResult) {
-            try {
-                htmlResultWriter.write(results, conf, stringWriter);
-//                Map<String, Object> renderedResult = new HashMap<>();
-//                renderedResult.put("html", stringWriter.toString());
-//                metrics.put("renderedResult", renderedResult);
-                datasetMetrics.addRenderedResult(new RenderedResult("HTML", stringWriter.toString()));
-            } catch (IOException e) {
-                log.error(e.getMessage(), e);
-                e.printStackTrace();
-            }
-            if (!future.isSuccessful()) {
-                for (Throwable e : future.getErrors()) {
-                    log.error(e.getMessage(), e);
-                }
+    }
+
+    private void addParseFailureMetrics(DatasetMetrics datasetMetrics, List<String> columnNames, List<Pair<String, ColumnType>> columnsByType,
+                                        ConversionFailures conversionFailures) {
+        Map<String, Integer> columnIndexes = getColumnIndexes(columnNames);
+        for (Pair<String, ColumnType> column : columnsByType) {
+            if (parseFailureTypes.contains(column.r)) {
+                addColumnMetric(datasetMetrics, columnIndexes, column, MEASURE_PARSE_FAILURES,
+                        conversionFailures.get(getTransformedName(column)));
             }
         }
-        return datasetMetrics;
     }
 
-    private int getColumnIndex(List<String> qualifiedColumnNames, String unqualifiedColumnName) {
-        for (int i = 0; i < qualifiedColumnNames.size(); i++) {
-            if (getUnqualifiedName(qualifiedColumnNames.get(i)).equals(unqualifiedColumnName)) {
-                return i + 1;
+    private AnalysisJob buildAnalysisJob(String sourceName, Datastore datastore, List<String> columnNames, List<ColumnType> columnTypes, boolean isFile) {
+        AnalysisJobBuilder analysisJobBuilder = new AnalysisJobBuilder(configuration);
+        analysisJobBuilder.setDatastore(datastore);
+        analysisJobBuilder.addSourceColumns(columnNames.toArray(new String[columnNames.size()]));
+        Set<ColumnType> distinctColumnTypes = new HashSet<>(columnTypes);
+        if (isFile) {
+            // every column of a file is also analyzed as text
+            distinctColumnTypes.add(NVARCHAR);
+        }
+        Map<ColumnType, List<AnalyzerJobBuilder>> analyzerJobBuilderMap = createAnalyzerJobBuilderMap(analysisJobBuilder, distinctColumnTypes,
+                new PairListBuilder<ColumnType, Class<? extends Analyzer>>()
+                        .add(NVARCHAR, StringAnalyzer.class)
+                        .add(NVARCHAR, DistinctValuesAnalyzer.class)
+                        .add(INTEGER, NumberAnalyzer.class)
+                        .add(BIGINT, NumberAnalyzer.class)
+                        .add(DECIMAL, NumberAnalyzer.class)
+                        .add(DATE, DateAndTimeAnalyzer.class)
+                        .add(BOOLEAN, BooleanAnalyzer.class)
+                        .asList());
+        configureDistinctValuesAnalyzers(analysisJobBuilder);
+        Map<ColumnType, TransformerJobBuilder> transformerJobBuilderMap = null;
+        Pair<ColumnType, TransformerJobBuilder> addTransformerJobBuilder = null;
+
+        // Database tables are already typed
+        if (isFile) {
+            transformerJobBuilderMap = createTransformerJobBuilderMap(analysisJobBuilder, distinctColumnTypes,
+                    new PairListBuilder<ColumnType, Class<? extends Transformer>>()
+                            .add(INTEGER, IntegerTransformer.class)
+                            .add(BIGINT, NumberTransformer.class)
+                            .add(DECIMAL, NumberTransformer.class)
+                            .add(DATE, DateTransformer.class)
+                            .add(BOOLEAN, ConvertToBooleanTransformer.class)
+                            .asList());
+
+            if (columnTypes.contains(LONGNVARCHAR)) {
+                TransformerJobBuilder entityTransformerJobBuilder = analysisJobBuilder.addTransformer(EntityRecognitionTransformer.class);
+                entityTransformerJobBuilder.setConfiguredProperty(EntityRecognitionTransformer.PROPERTY_ENTITY_RECOGNIZER, entityRecognizer);
+                entityTransformerJobBuilder.setConfiguredProperty(EntityRecognitionTransformer.PROPERTY_MAX_TEXT_LENGTH, entityMaxTextLength);
+                entityTransformerJobBuilder.setConfiguredProperty(EntityRecognitionTransformer.PROPERTY_SAMPLE_ROWS, entitySampleRows);
+                entityTransformerJobBuilder.setConfiguredProperty(EntityRecognitionTransformer.PROPERTY_WARM_UP, classifierWarmUp);
+                addTransformerJobBuilder = new Pair<>(LONGNVARCHAR, entityTransformerJobBuilder);
+            }
+            List<ColumnType> originalColumnTypes = new ArrayList<>();
+            for (int i = 0; i < columnNames.size(); i++) {
+                originalColumnTypes.add(NVARCHAR);
+            }
+            addAnalyzers(analysisJobBuilder, sourceName, columnNames, originalColumnTypes, analyzerJobBuilderMap);
+            AnalyzerJobBuilder patternAnalyzerBuilder;
+            if (adaptivePatterns) {
+                patternAnalyzerBuilder = analysisJobBuilder.addAnalyzer(PatternProfilingAnalyzer.class);
+                patternAnalyzerBuilder.setConfiguredProperty(PatternProfilingAnalyzer.PROPERTY_MAX_PATTERNS, maxPatterns);
+                patternAnalyzerBuilder.setConfiguredProperty(PatternProfilingAnalyzer.PROPERTY_MAX_DISTINCT_VALUES, maxPatternDistinctValues);
+                patternAnalyzerBuilder.setConfiguredProperty(PatternProfilingAnalyzer.PROPERTY_SAMPLE_ROWS, patternSampleRows);
+            } else {
+                patternAnalyzerBuilder = analysisJobBuilder.addAnalyzer(PatternFinderAnalyzer.class);
+            }
+            MutableTable table = new MutableTable(sourceName);
+            for (int i = 0; i < columnNames.size(); i++) {
+                patternAnalyzerBuilder.addInputColumn(
+                        new MetaModelInputColumn(
+                                new MutableColumn(getUnqualifiedName(columnNames.get(i)), NVARCHAR, table, i, true)));
+                                //new MutableColumn(columnNames.get(i), NVARCHAR, table, i, true)));
             }
+            if (addTransformerJobBuilder == null) {
+                addTransformers(analysisJobBuilder, sourceName, columnNames, columnTypes, analyzerJobBuilderMap, transformerJobBuilderMap);
+            } else {
+                transformerJobBuilderMap.put(addTransformerJobBuilder.l, addTransformerJobBuilder.r);
+                addTransformers(analysisJobBuilder, sourceName, columnNames, columnTypes, analyzerJobBuilderMap, transformerJobBuilderMap);
+            }
+        } else {
+            addAnalyzers(analysisJobBuilder, sourceName, columnNames, columnTypes, analyzerJobBuilderMap);
         }
-        return 0;
+        return analysisJobBuilder.toAnalysisJob();
     }
 
-    private Table[] getJdbcTables(JdbcDatastore datastore, String schemaName) {
-        try (Connection conn = datastore.createConnection()) {
-            DataContext ctx = DataContextFactory.createJdbcDataContext(conn);
-            Schema schema = ctx.getSchemaByName(schemaName);
-            return schema.getTables();
-        } catch (SQLException e) {
-            log.error(e.getMessage(), e);
-            e.printStackTrace();
+    /**
+     * Registers the descriptors of all components up front. A descriptor provider
+     * left to auto-discover introspects a component class on every lookup.
+     */
+    private static AnalyzerBeansConfigurationImpl createConfiguration() {
+        SimpleDescriptorProvider descriptorProvider = new SimpleDescriptorProvider(false);
+        descriptorProvider.addRendererBeanDescriptor(Descriptors.ofRenderer(CrosstabHtmlRenderer.class));
+        descriptorProvider.addRendererBeanDescriptor(Descriptors.ofRenderer(PatternFinderResultHtmlRenderer.class));
+        descriptorProvider.addRendererBeanDescriptor(Descriptors.ofRenderer(AnnotatedRowsHtmlRenderer.class));
+        descriptorProvider.addRendererBeanDescriptor(Descriptors.ofRenderer(BooleanAnalyzerResultHtmlRenderer.class));
+        descriptorProvider.addRendererBeanDescriptor(Descriptors.ofRenderer(DefaultAnalyzerResultHtmlRenderer.class));
+        for (Class<? extends Analyzer<?>> analyzerClass : Arrays.<Class<? extends Analyzer<?>>>asList(
+                StringAnalyzer.class, DistinctValuesAnalyzer.class, NumberAnalyzer.class,
+                DateAndTimeAnalyzer.class, BooleanAnalyzer.class, PatternFinderAnalyzer.class, PatternProfilingAnalyzer.class)) {
+            descriptorProvider.addAnalyzerBeanDescriptor(Descriptors.ofAnalyzer(analyzerClass));
         }
-        return null;
+        for (Class<? extends Transformer<?>> transformerClass : Arrays.<Class<? extends Transformer<?>>>asList(
+                IntegerTransformer.class, NumberTransformer.class, DateTransformer.class,
+                ConvertToBooleanTransformer.class, EntityRecognitionTransformer.class)) {
+            descriptorProvider.addTransformerBeanDescriptor(Descriptors.ofTransformer(transformerClass));
+        }
+        return new AnalyzerBeansConfigurationImpl().replace(descriptorProvider);
     }
 
-    private Column[] getJdbcColumns(JdbcDatastore datastore, String schemaName, String tableName) {
-        if (log.isDebugEnabled()) {
-            log.debug("Fetching columns for " + schemaName + "." + tableName);
+    /**
+     * Creates the holder of the classifiers of the entities of long text
+     * columns, which loads them only when a job with long text runs.
+     */
+    private ClassifierHolder createClassifierHolder() {
+        return new ClassifierHolder(new Callable<AbstractSequenceClassifier<CoreLabel>>() {
+            @Override
+            public AbstractSequenceClassifier<CoreLabel> call() throws Exception {
+                return CRFClassifier.<CoreLabel>getClassifier(SERIALIZED_CLASSIFIER);
+            }
+        }, entityRecognitionThreads, classifierIdleTimeoutMillis);
+    }
+
+    private void configureDistinctValuesAnalyzers(AnalysisJobBuilder analysisJobBuilder) {
+        for (AnalyzerJobBuilder<?> analyzerJobBuilder : analysisJobBuilder.getAnalyzerJobBuilders()) {
+            if (analyzerJobBuilder.getDescriptor().getComponentClass() == DistinctValuesAnalyzer.class) {
+                analyzerJobBuilder.setConfiguredProperty(DistinctValuesAnalyzer.PROPERTY_DISTINCT_COUNT_MODE, distinctCountMode);
+                analyzerJobBuilder.setConfiguredProperty(DistinctValuesAnalyzer.PROPERTY_EXACT_THRESHOLD, exactDistinctValuesThreshold);
+                analyzerJobBuilder.setConfiguredProperty(DistinctValuesAnalyzer.PROPERTY_SKETCH_PRECISION, sketchPrecision);
+                analyzerJobBuilder.setConfiguredProperty(DistinctValuesAnalyzer.PROPERTY_TOP_VALUES_COUNT, topValuesCount);
+                analyzerJobBuilder.setConfiguredProperty(DistinctValuesAnalyzer.PROPERTY_TOP_VALUES_CAPACITY, topValuesCapacity);
+                analyzerJobBuilder.setConfiguredProperty(DistinctValuesAnalyzer.PROPERTY_DISTINCT_VALUES_LIMIT, distinctValuesLimit);
+            }
         }
-        try (Connection conn = datastore.createConnection()) {
-            DataContext ctx = DataContextFactory.createJdbcDataContext(conn);
-            Schema schema = ctx.getSchemaByName(schemaName);
-            Table table = schema.getTableByName(tableName);
-            return table.getColumns();
-        } catch (SQLException e) {
-            log.error(e.getMessage(), e);
-            e.printStackTrace();
+    }
+
+    /**
+     * @return the 1-based index of each column by its unqualified name, the first where names repeat
+     */
+    private static Map<String, Integer> getColumnIndexes(List<String> qualifiedColumnNames) {
+        Map<String, Integer> columnIndexes = new HashMap<>();
+        for (int i = 0; i < qualifiedColumnNames.size(); i++) {
+            String columnName = getUnqualifiedName(qualifiedColumnNames.get(i));
+            if (!columnIndexes.containsKey(columnName)) {
+                columnIndexes.put(columnName, i + 1);
+            }
         }
-        return null;
+        return columnIndexes;
+    }
+
+    private static void addColumnMetric(DatasetMetrics datasetMetrics, Map<String, Integer> columnIndexes,
+                                        Pair<String, ColumnType> column, String measure, Object value) {
+        Integer columnIndex = columnIndexes.get(column.l);
+        datasetMetrics.addColumnMetric(column.l, columnIndex == null ? 0 : columnIndex,
+                io.metamorphic.analysiscommons.models.ColumnType.valueOf(column.r.getName()), measure, value);
+    }
+
+    private Table[] getJdbcTables(DatabaseConnection conn) {
+        Schema schema = datastoreRegistry.getSchema(conn, conn.getSchema());
+        if (schema == null) return null;
+        return schema.getTables();
     }
 
-    private JdbcDatastore createJdbcDatastore(String name, String jdbcUrl, String username, String password) {
+    private Column[] getJdbcColumns(DatabaseConnection conn, String tableName) {
         if (log.isDebugEnabled()) {
-            log.debug("Creating JdbcDatastore");
+            log.debug("Fetching columns for " + conn.getSchema() + "." + tableName);
         }
-        return new JdbcDatastore(name, jdbcUrl, "org.postgresql.Driver", username, password, true);
+        Table table = datastoreRegistry.getTable(conn, conn.getSchema(), tableName);
+        if (table == null) return null;
+        return table.getColumns();
     }
 
-    private Datastore createPojoDatastore(String filename,
-                                          List<List<String>> rows,
-                                          List<String> columnNames,
-                                          List<ColumnType> columnTypes) {
+    private Datastore createPojoDatastore(String filename, TableDataProvider tableDataProvider) {
         if (log.isDebugEnabled()) {
             log.debug("Creating PojoDatastore");
         }
-        final TableDataProvider tableDataProvider = createDataProvider(filename, rows, columnNames, columnTypes);
         return new PojoDatastore("file", filename, tableDataProvider);
     }
 
-    private TableDataProvider createDataProvider(String filename,
-                                                 List<List<String>> rows,
-                                                 List<String> columnNames,
-                                                 List<ColumnType> columnTypes) {
-        final Collection<Object[]> rowArrays = new ArrayList<>(rows.size());
-        for (List<String> row : rows) {
-            rowArrays.add(row.toArray(new String[row.size()]));
-        }
-        final SimpleTableDef tableDef = new SimpleTableDef(filename,
+    private SimpleTableDef createTableDef(String filename,
+                                          List<String> columnNames,
+                                          List<ColumnType> columnTypes) {
+        return new SimpleTableDef(filename,
                 columnNames.toArray(new String[columnNames.size()]),
                 columnTypes.toArray(new ColumnType[columnTypes.size()]));
-        return new ArrayTableDataProvider(tableDef, rowArrays);
     }
 
     private Map<ColumnType, List<AnalyzerJobBuilder>>
@@ -632,24 +1364,26 @@ public class AnalysisServiceImpl implements AnalysisService {
                 transformerJobBuilder.addInputColumn(
                         new MetaModelInputColumn(
                                 new MutableColumn(columnName, NVARCHAR, table, i, true)));
+                // the entities recognized in long text are not analyzed further
+                if (columnType == LONGNVARCHAR) {
+                    continue;
+                }
                 for (AnalyzerJobBuilder analyzerJobBuilder : analyzerJobBuilderMap.get(columnType)) {
-                    if (columnType != LONGNVARCHAR) {
-                        String transformedColumnName = columnName + typeSuffixMap.get(columnType);
-                        MutableInputColumn inputColumn = transformerJobBuilder.getOutputColumnByName(transformedColumnName);
-                        if (log.isDebugEnabled()) {
-                            log.debug(inputColumn);
-                        }
-                        analyzerJobBuilder.addInputColumn(inputColumn);
-                        if (log.isDebugEnabled()) {
-                            log.debug("added to " + analyzerJobBuilder.getDescriptor().getDisplayName());
-                        }
+                    String transformedColumnName = columnName + typeSuffixMap.get(columnType);
+                    MutableInputColumn inputColumn = transformerJobBuilder.getOutputColumnByName(transformedColumnName);
+                    if (log.isDebugEnabled()) {
+                        log.debug(inputColumn);
+                    }
+                    analyzerJobBuilder.addInputColumn(inputColumn);
+                    if (log.isDebugEnabled()) {
+                        log.debug("added to " + analyzerJobBuilder.getDescriptor().getDisplayName());
                     }
                 }
             }
         }
     }
 
-    private List<ColumnType> getColumnTypes(List<String> columnTypeNames) {
+    List<ColumnType> getColumnTypes(List<String> columnTypeNames) {
         if (log.isDebugEnabled()) {
             log.debug("Getting column types for " + columnTypeNames);
         }
@@ -697,8 +1431,470 @@ public class AnalysisServiceImpl implements AnalysisService {
         return column.l + typeSuffixMap.get(column.r);
     }
 
+    private static List<String> getTypeNames(List<ColumnType> columnTypes) {
+        List<String> typeNames = new ArrayList<>(columnTypes.size());
+        for (ColumnType columnType : columnTypes) {
+            typeNames.add(columnType.getName());
+        }
+        return typeNames;
+    }
+
     private static String getUnqualifiedName(String qualifiedName) {
         if (qualifiedName.indexOf('.') == -1) return qualifiedName;
         return qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1);
     }
+
+    public DistinctCountMode getDistinctCountMode() {
+        return distinctCountMode;
+    }
+
+    public void setDistinctCountMode(DistinctCountMode distinctCountMode) {
+        this.distinctCountMode = distinctCountMode;
+        jobTemplateCache.clear();
+    }
+
+    public int getExactDistinctValuesThreshold() {
+        return exactDistinctValuesThreshold;
+    }
+
+    public void setExactDistinctValuesThreshold(int exactDistinctValuesThreshold) {
+        this.exactDistinctValuesThreshold = exactDistinctValuesThreshold;
+        jobTemplateCache.clear();
+    }
+
+    public int getSketchPrecision() {
+        return sketchPrecision;
+    }
+
+    public void setSketchPrecision(int sketchPrecision) {
+        this.sketchPrecision = sketchPrecision;
+        jobTemplateCache.clear();
+    }
+
+    public int getTopValuesCount() {
+        return topValuesCount;
+    }
+
+    public void setTopValuesCount(int topValuesCount) {
+        this.topValuesCount = topValuesCount;
+        jobTemplateCache.clear();
+    }
+
+    public int getTopValuesCapacity() {
+        return topValuesCapacity;
+    }
+
+    public void setTopValuesCapacity(int topValuesCapacity) {
+        this.topValuesCapacity = topValuesCapacity;
+        jobTemplateCache.clear();
+    }
+
+    public int getDistinctValuesLimit() {
+        return distinctValuesLimit;
+    }
+
+    /**
+     * @param distinctValuesLimit the number of most frequent values of each column reported in the distinct
+     *                            values measure; the rest can be paged through with {@link #analyzeForReport}
+     */
+    public void setDistinctValuesLimit(int distinctValuesLimit) {
+        this.distinctValuesLimit = distinctValuesLimit;
+        jobTemplateCache.clear();
+    }
+
+    public int getTypeInferenceSampleSize() {
+        return typeInferenceSampleSize;
+    }
+
+    /**
+     * @param typeInferenceSampleSize the number of rows of a file to infer the column types from, where no
+     *                                types are given; the rows are held in memory until analyzed
+     */
+    public void setTypeInferenceSampleSize(int typeInferenceSampleSize) {
+        this.typeInferenceSampleSize = typeInferenceSampleSize;
+    }
+
+    public double getTypeInferenceMinConformance() {
+        return typeInferenceMinConformance;
+    }
+
+    /**
+     * @param typeInferenceMinConformance the share of the sampled values of a column, not counting blanks,
+     *                                    that must be of a type for the column to be inferred of that type
+     */
+    public void setTypeInferenceMinConformance(double typeInferenceMinConformance) {
+        this.typeInferenceMinConformance = typeInferenceMinConformance;
+    }
+
+    public int getEntityRecognitionThreads() {
+        return entityRecognitionThreads;
+    }
+
+    /**
+     * @param entityRecognitionThreads the number of threads recognizing the entities of long text at the same
+     *                                 time, each with its own copy of the classifier, of a few hundred MB
+     */
+    public void setEntityRecognitionThreads(int entityRecognitionThreads) {
+        this.entityRecognitionThreads = entityRecognitionThreads;
+        replaceClassifierHolder();
+    }
+
+    public int getEntityCacheSize() {
+        return entityCacheSize;
+    }
+
+    /**
+     * @param entityCacheSize the number of distinct texts, across analyses, whose entities are kept to be
+     *                        reused when the text is seen again
+     */
+    public void setEntityCacheSize(int entityCacheSize) {
+        this.entityCacheSize = entityCacheSize;
+        this.entityRecognizer = new EntityRecognizer(classifierHolder, entityCacheSize);
+        jobTemplateCache.clear();
+    }
+
+    public long getClassifierIdleTimeoutMillis() {
+        return classifierIdleTimeoutMillis;
+    }
+
+    /**
+     * @param classifierIdleTimeoutMillis the time after entities were last recognized that the classifiers
+     *                                    are unloaded, freeing their heap, or 0 to keep them once loaded
+     */
+    public void setClassifierIdleTimeoutMillis(long classifierIdleTimeoutMillis) {
+        this.classifierIdleTimeoutMillis = classifierIdleTimeoutMillis;
+        replaceClassifierHolder();
+    }
+
+    public boolean isClassifierWarmUp() {
+        return classifierWarmUp;
+    }
+
+    /**
+     * @param classifierWarmUp whether a job with long text starts loading the classifier in the background
+     *                         as it starts, rather than when its first text is recognized
+     */
+    public void setClassifierWarmUp(boolean classifierWarmUp) {
+        this.classifierWarmUp = classifierWarmUp;
+        jobTemplateCache.clear();
+    }
+
+    /**
+     * @return the holder of the classifiers of entity recognition, to warm up or unload them
+     */
+    public ClassifierHolder getClassifierHolder() {
+        return classifierHolder;
+    }
+
+    private void replaceClassifierHolder() {
+        ClassifierHolder previous = classifierHolder;
+        classifierHolder = createClassifierHolder();
+        entityRecognizer = new EntityRecognizer(classifierHolder, entityCacheSize);
+        jobTemplateCache.clear();
+        previous.unload();
+    }
+
+    public int getEntityMaxTextLength() {
+        return entityMaxTextLength;
+    }
+
+    /**
+     * @param entityMaxTextLength the number of characters of each text to recognize entities in, or 0 for all
+     */
+    public void setEntityMaxTextLength(int entityMaxTextLength) {
+        this.entityMaxTextLength = entityMaxTextLength;
+        jobTemplateCache.clear();
+    }
+
+    public int getEntitySampleRows() {
+        return entitySampleRows;
+    }
+
+    /**
+     * @param entitySampleRows the number of texts of each long text column, from the first, to recognize
+     *                         entities in, or 0 for all
+     */
+    public void setEntitySampleRows(int entitySampleRows) {
+        this.entitySampleRows = entitySampleRows;
+        jobTemplateCache.clear();
+    }
+
+    public boolean isAdaptivePatterns() {
+        return adaptivePatterns;
+    }
+
+    /**
+     * @param adaptivePatterns whether the patterns of file columns are found by caching the pattern of each
+     *                         distinct value and stopping on a column past the pattern or distinct values limit,
+     *                         instead of tokenizing every value
+     */
+    public void setAdaptivePatterns(boolean adaptivePatterns) {
+        this.adaptivePatterns = adaptivePatterns;
+        jobTemplateCache.clear();
+    }
+
+    public int getMaxPatterns() {
+        return maxPatterns;
+    }
+
+    /**
+     * @param maxPatterns the number of patterns past which adaptive pattern discovery stops on a column, or 0
+     *                    for no limit
+     */
+    public void setMaxPatterns(int maxPatterns) {
+        this.maxPatterns = maxPatterns;
+        jobTemplateCache.clear();
+    }
+
+    public int getMaxPatternDistinctValues() {
+        return maxPatternDistinctValues;
+    }
+
+    /**
+     * @param maxPatternDistinctValues the number of distinct values past which adaptive pattern discovery stops
+     *                                 on a column, or 0 for no limit
+     */
+    public void setMaxPatternDistinctValues(int maxPatternDistinctValues) {
+        this.maxPatternDistinctValues = maxPatternDistinctValues;
+        jobTemplateCache.clear();
+    }
+
+    public int getPatternSampleRows() {
+        return patternSampleRows;
+    }
+
+    /**
+     * @param patternSampleRows the number of rows of a file, sampled at random, to find patterns from with
+     *                          adaptive pattern discovery, or 0 for all
+     */
+    public void setPatternSampleRows(int patternSampleRows) {
+        this.patternSampleRows = patternSampleRows;
+        jobTemplateCache.clear();
+    }
+
+    public AnnotationPolicy getAnnotationPolicy() {
+        return annotationPolicy;
+    }
+
+    /**
+     * @param annotationPolicy which rows the analyzers keep to drill down into from the report, by default
+     *                         a sample of {@value AnnotationPolicy#DEFAULT_ROWS} rows per annotation
+     */
+    public void setAnnotationPolicy(AnnotationPolicy annotationPolicy) {
+        if (annotationPolicy == null) {
+            throw new IllegalArgumentException("annotationPolicy cannot be null");
+        }
+        this.annotationPolicy = annotationPolicy;
+    }
+
+    public int getJobTemplateCacheSize() {
+        return jobTemplateCache.getMaxSize();
+    }
+
+    /**
+     * @param jobTemplateCacheSize the number of data shapes to keep compiled jobs for, or 0 to build every job
+     */
+    public void setJobTemplateCacheSize(int jobTemplateCacheSize) {
+        this.jobTemplateCache = new JobTemplateCache(jobTemplateCacheSize);
+    }
+
+    public int getMaxConcurrentTables() {
+        return maxConcurrentTables;
+    }
+
+    /**
+     * @param maxConcurrentTables the number of tables of a parallel multi-table analysis, and of one with a
+     *                            callback, analyzed at the same time
+     */
+    public void setMaxConcurrentTables(int maxConcurrentTables) {
+        this.maxConcurrentTables = maxConcurrentTables;
+    }
+
+    public long getTableTimeoutMillis() {
+        return tableTimeoutMillis;
+    }
+
+    /**
+     * @param tableTimeoutMillis the time allowed for each table of a multi-table analysis, or 0 for no limit;
+     *                           with a limit, a table not sampled nor pushed down is read through a cursor,
+     *                           whose query is cancelled once the time is up
+     */
+    public void setTableTimeoutMillis(long tableTimeoutMillis) {
+        this.tableTimeoutMillis = tableTimeoutMillis;
+    }
+
+    public JdbcDatastoreRegistry getDatastoreRegistry() {
+        return datastoreRegistry;
+    }
+
+    public void setDatastoreRegistry(JdbcDatastoreRegistry datastoreRegistry) {
+        this.datastoreRegistry = datastoreRegistry;
+    }
+
+    public Sampling getSampling() {
+        return sampling;
+    }
+
+    /**
+     * @param sampling how database tables are sampled before they are profiled, or null to profile every row
+     */
+    public void setSampling(Sampling sampling) {
+        this.sampling = sampling;
+    }
+
+    public ProfileStore getProfileStore() {
+        return profileStore;
+    }
+
+    /**
+     * @param profileStore where incremental analysis keeps the profiles of tables between runs
+     */
+    public void setProfileStore(ProfileStore profileStore) {
+        this.profileStore = profileStore;
+    }
+
+    public int getQuantileSketchSize() {
+        return quantileSketchSize;
+    }
+
+    /**
+     * @param quantileSketchSize the number of values kept per column for the median and quartiles of
+     *                           incremental analysis; the rank error is about 1.7 / size once exceeded
+     */
+    public void setQuantileSketchSize(int quantileSketchSize) {
+        this.quantileSketchSize = quantileSketchSize;
+    }
+
+    public int getMaxConcurrentPartitions() {
+        return maxConcurrentPartitions;
+    }
+
+    /**
+     * @param maxConcurrentPartitions the number of partitions of a table scanned at the same time, each
+     *                                over a pooled connection, so at most the registry's maximum connections
+     */
+    public void setMaxConcurrentPartitions(int maxConcurrentPartitions) {
+        this.maxConcurrentPartitions = maxConcurrentPartitions;
+    }
+
+    public boolean isPushdown() {
+        return pushdown;
+    }
+
+    /**
+     * @param pushdown whether tables analyzed without sampling or a rendered result are profiled with aggregate
+     *                 queries run by the database, scanning them only for the scan measures, instead of by an
+     *                 analysis job
+     */
+    public void setPushdown(boolean pushdown) {
+        this.pushdown = pushdown;
+    }
+
+    public Set<String> getScanMeasures() {
+        return scanMeasures;
+    }
+
+    /**
+     * @param scanMeasures the measures, of {@link PushdownProfiler#SCAN_MEASURES}, that a table profiled with
+     *                     pushdown is scanned for; the columns of other measures are not read
+     */
+    public void setScanMeasures(Set<String> scanMeasures) {
+        this.scanMeasures = scanMeasures;
+    }
+
+    public int getPushdownColumnsPerQuery() {
+        return pushdownColumnsPerQuery;
+    }
+
+    /**
+     * @param pushdownColumnsPerQuery the number of columns aggregated by one query, or 0 for all the columns
+     *                                of a table in one query
+     */
+    public void setPushdownColumnsPerQuery(int pushdownColumnsPerQuery) {
+        this.pushdownColumnsPerQuery = pushdownColumnsPerQuery;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * @param streaming whether tables analyzed without sampling or pushdown are read through a server-side
+     *                  cursor, fetchSize rows at a time, so that memory stays flat whatever the size of the table
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * @param fetchSize the number of rows fetched from the database at a time when streaming, and by the
+     *                  scans of incremental, partitioned and pushed down profiles
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public boolean isPrefetch() {
+        return prefetch;
+    }
+
+    /**
+     * @param prefetch whether, when streaming, the next rows are fetched on a reader thread while the
+     *                 analyzers consume the current ones
+     */
+    public void setPrefetch(boolean prefetch) {
+        this.prefetch = prefetch;
+    }
+
+    public ExecutionListener getExecutionListener() {
+        return executionListener;
+    }
+
+    /**
+     * @param executionListener notified of the progress, component errors and execution profile of
+     *                          each analysis, or null
+     */
+    public void setExecutionListener(ExecutionListener executionListener) {
+        this.executionListener = executionListener;
+    }
+
+    public MetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+
+    /**
+     * @param metricsRegistry the registry to publish the throughput and per-component costs of each
+     *                        analysis to, or null
+     */
+    public void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    public boolean isExecutionProfileIncluded() {
+        return executionProfileIncluded;
+    }
+
+    /**
+     * @param executionProfileIncluded whether to attach the execution profile of each analysis to its
+     *                                 dataset metrics, as a rendered result of type EXECUTION_PROFILE
+     */
+    public void setExecutionProfileIncluded(boolean executionProfileIncluded) {
+        this.executionProfileIncluded = executionProfileIncluded;
+    }
+
+    public long getProfilerSamplingIntervalMillis() {
+        return profilerSamplingIntervalMillis;
+    }
+
+    /**
+     * @param profilerSamplingIntervalMillis how often the threads of a profiled analysis are sampled
+     *                                       to apportion CPU time to components
+     */
+    public void setProfilerSamplingIntervalMillis(long profilerSamplingIntervalMillis) {
+        this.profilerSamplingIntervalMillis = profilerSamplingIntervalMillis;
+    }
 }
@@ -0,0 +1,19 @@
+package io.metamorphic.analysisservices;
+
+import io.metamorphic.analysiscommons.models.DatasetMetrics;
+
+/**
+ * Receives the outcome of each table of a multi-table analysis as soon as the
+ * table completes. Calls are made one at a time from the thread that started
+ * the analysis.
+ */
+public interface TableAnalysisCallback {
+
+    void onSuccess(String tableName, DatasetMetrics metrics);
+
+    /**
+     * Called when the analysis of a table fails or times out. The remaining
+     * tables are still analyzed.
+     */
+    void onFailure(String tableName, Throwable error);
+}
@@ -0,0 +1,19 @@
+package io.metamorphic.analysisservices;
+
+/**
+ * How the tables of a multi-table analysis are analyzed.
+ */
+public enum TableAnalysisMode {
+
+    /**
+     * One table after another. The first table that fails stops the analysis
+     * with its exception.
+     */
+    SEQUENTIAL,
+
+    /**
+     * Up to maxConcurrentTables at the same time. A table that fails or times
+     * out is logged and its metrics are null, and the rest are still analyzed.
+     */
+    PARALLEL
+}
@@ -0,0 +1,134 @@
+package io.metamorphic.analysisservices.analyzers;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.eobjects.analyzer.result.Crosstab;
+
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads the measures of columns from a two-dimensional crosstab of column by
+ * measure, as produced by the column analyzers.
+ *
+ * A crosstab checks each category of a lookup against the list of categories
+ * of its dimension, so looking up every measure of every column of a wide
+ * table takes time quadratic in the number of columns. The reader checks
+ * categories against sets and reads values straight from the crosstab's map
+ * of values, so each lookup takes constant time.
+ *
+ * The map is private to the crosstab, so the reader checks its first lookup
+ * against the crosstab's own, and looks up through the crosstab whenever the
+ * map has no value under the key it expects, or a category holds the
+ * separator of the keys.
+ */
+public final class CrosstabReader<E extends Serializable> {
+
+    private static final Log log = LogFactory.getLog(CrosstabReader.class);
+
+    private static final Field VALUES_FIELD = getValuesField();
+
+    private static final char KEY_SEPARATOR = '^';
+
+    private final Crosstab<E> crosstab;
+
+    private final String columnDimension;
+
+    private final String measureDimension;
+
+    private final boolean columnFirst;
+
+    private final Set<String> columns;
+
+    private final Set<String> measures;
+
+    private Map<String, E> values;
+
+    private boolean verified;
+
+    public CrosstabReader(Crosstab<E> crosstab, String columnDimension, String measureDimension) {
+        if (crosstab.getDimensionCount() != 2) {
+            throw new IllegalArgumentException("Expected a crosstab of 2 dimensions, but it has " + crosstab.getDimensionCount());
+        }
+        this.crosstab = crosstab;
+        this.columnDimension = columnDimension;
+        this.measureDimension = measureDimension;
+        this.columnFirst = crosstab.getDimensionIndex(columnDimension) == 0;
+        this.columns = new HashSet<>(crosstab.getDimension(columnDimension).getCategories());
+        this.measures = new HashSet<>(crosstab.getDimension(measureDimension).getCategories());
+        this.values = getValues(crosstab);
+    }
+
+    public boolean containsColumn(String column) {
+        return columns.contains(column);
+    }
+
+    public boolean containsMeasure(String measure) {
+        return measures.contains(measure);
+    }
+
+    /**
+     * @return the value of the measure of the column, which may be null
+     * @throws IllegalArgumentException if the crosstab has no such column or measure
+     */
+    public E get(String column, String measure) {
+        if (!columns.contains(column)) {
+            throw new IllegalArgumentException("Unknown category [" + column + "] for dimension [" + columnDimension + "]");
+        }
+        if (!measures.contains(measure)) {
+            throw new IllegalArgumentException("Unknown category [" + measure + "] for dimension [" + measureDimension + "]");
+        }
+        if (values == null || column.indexOf(KEY_SEPARATOR) >= 0 || measure.indexOf(KEY_SEPARATOR) >= 0) {
+            return navigate(column, measure);
+        }
+        // the key under which the crosstab keeps a value joins its categories in the order of the dimensions
+        String key = columnFirst ? column + KEY_SEPARATOR + measure : measure + KEY_SEPARATOR + column;
+        if (!values.containsKey(key)) {
+            // not a value of this crosstab, or not its key: either way the crosstab knows
+            return navigate(column, measure);
+        }
+        E value = values.get(key);
+        if (!verified) {
+            verified = true;
+            E expected = navigate(column, measure);
+            if (expected == null ? value != null : !expected.equals(value)) {
+                log.warn("Crosstab values are not kept as expected, falling back to navigating crosstabs");
+                values = null;
+                return expected;
+            }
+        }
+        return value;
+    }
+
+    private E navigate(String column, String measure) {
+        return crosstab.where(columnDimension, column).where(measureDimension, measure).get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends Serializable> Map<String, E> getValues(Crosstab<E> crosstab) {
+        if (VALUES_FIELD == null) {
+            return null;
+        }
+        try {
+            return (Map<String, E>) VALUES_FIELD.get(crosstab);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static Field getValuesField() {
+        try {
+            Field field = Crosstab.class.getDeclaredField("values");
+            field.setAccessible(true);
+            if (Map.class.isAssignableFrom(field.getType())) {
+                return field;
+            }
+        } catch (NoSuchFieldException | SecurityException e) {
+            log.warn("Crosstab values not accessible, falling back to navigating crosstabs: " + e.getMessage());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,24 @@
+package io.metamorphic.analysisservices.analyzers;
+
+/**
+ * How the {@link DistinctValuesAnalyzer} counts distinct values.
+ */
+public enum DistinctCountMode {
+
+    /**
+     * Keep every distinct value and its frequency.
+     */
+    EXACT,
+
+    /**
+     * Estimate the distinct count with a HyperLogLog sketch. Distinct values
+     * and their frequencies are not kept.
+     */
+    APPROXIMATE,
+
+    /**
+     * Count exactly until the number of distinct values crosses a threshold,
+     * then switch to the sketch.
+     */
+    AUTO
+}
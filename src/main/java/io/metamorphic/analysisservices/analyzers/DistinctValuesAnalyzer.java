@@ -1,12 +1,12 @@
 package io.metamorphic.analysisservices.analyzers;
 
+import io.metamorphic.analysisservices.storage.AnnotationPolicy;
 import org.eobjects.analyzer.beans.api.*;
 import org.eobjects.analyzer.data.InputColumn;
 import org.eobjects.analyzer.data.InputRow;
 import org.eobjects.analyzer.result.Crosstab;
 import org.eobjects.analyzer.result.CrosstabDimension;
 import org.eobjects.analyzer.result.CrosstabNavigator;
-import org.eobjects.analyzer.storage.InMemoryRowAnnotationFactory;
 import org.eobjects.analyzer.storage.RowAnnotationFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,6 +29,15 @@ public class DistinctValuesAnalyzer implements Analyzer<DistinctValuesAnalyzerRe
     public static final String MEASURE_TOP_5 = "Top 5";
     public static final String MEASURE_DISTINCT_VALUES = "Distinct values";
     public static final String MEASURE_DISTINCT_VALUES_COUNT = "Distinct values count";
+    public static final String MEASURE_DISTINCT_VALUES_COUNT_ERROR = "Distinct values count error";
+    public static final String MEASURE_TOP_5_ERRORS = "Top 5 errors";
+
+    public static final String PROPERTY_DISTINCT_COUNT_MODE = "Distinct count mode";
+    public static final String PROPERTY_EXACT_THRESHOLD = "Exact distinct values threshold";
+    public static final String PROPERTY_SKETCH_PRECISION = "Sketch precision";
+    public static final String PROPERTY_TOP_VALUES_COUNT = "Top values count";
+    public static final String PROPERTY_TOP_VALUES_CAPACITY = "Top values capacity";
+    public static final String PROPERTY_DISTINCT_VALUES_LIMIT = "Distinct values limit";
 
     private static final Logger logger = LoggerFactory.getLogger(DistinctValuesAnalyzer.class);
 
@@ -38,6 +47,30 @@ public class DistinctValuesAnalyzer implements Analyzer<DistinctValuesAnalyzerRe
     @ColumnProperty(escalateToMultipleJobs=true)
     InputColumn<String>[] _columns;
 
+    @Configured(value = PROPERTY_DISTINCT_COUNT_MODE, required = false)
+    @Description("Exact keeps every value; approximate estimates the count with a HyperLogLog sketch; auto switches once the threshold is crossed.")
+    DistinctCountMode _distinctCountMode = DistinctCountMode.AUTO;
+
+    @Configured(value = PROPERTY_EXACT_THRESHOLD, required = false)
+    @Description("Number of distinct values kept exactly before auto mode switches to the sketch.")
+    int _exactThreshold = 100000;
+
+    @Configured(value = PROPERTY_SKETCH_PRECISION, required = false)
+    @Description("HyperLogLog precision; the relative standard error is 1.04 / sqrt(2^precision).")
+    int _sketchPrecision = 14;
+
+    @Configured(value = PROPERTY_TOP_VALUES_COUNT, required = false)
+    @Description("Number of most frequent values reported in the top values measure.")
+    int _topValuesCount = 5;
+
+    @Configured(value = PROPERTY_TOP_VALUES_CAPACITY, required = false)
+    @Description("Number of counters kept to find the most frequent values. Counts are exact while a column has no more distinct values than this.")
+    int _topValuesCapacity = 1000;
+
+    @Configured(value = PROPERTY_DISTINCT_VALUES_LIMIT, required = false)
+    @Description("Number of most frequent values reported in the distinct values measure. The rest can be paged through from the result.")
+    int _distinctValuesLimit = 1000;
+
     @Provided
     RowAnnotationFactory _annotationFactory;
 
@@ -46,14 +79,15 @@ public class DistinctValuesAnalyzer implements Analyzer<DistinctValuesAnalyzerRe
     @SafeVarargs
     public DistinctValuesAnalyzer(InputColumn<String>... columns) {
         _columns = columns;
-        _annotationFactory = new InMemoryRowAnnotationFactory();
+        _annotationFactory = AnnotationPolicy.reservoir().createRowAnnotationFactory();
         init();
     }
 
     @Initialize
     public void init() {
         for (InputColumn<String> column : _columns) {
-            _columnDelegates.put(column, new DistinctValuesColumnDelegate(_annotationFactory));
+            _columnDelegates.put(column, new DistinctValuesColumnDelegate(_annotationFactory,
+                    _distinctCountMode, _exactThreshold, _sketchPrecision, _topValuesCount, _topValuesCapacity));
         }
     }
 
@@ -72,10 +106,14 @@ public class DistinctValuesAnalyzer implements Analyzer<DistinctValuesAnalyzerRe
         logger.info("getResult()");
         CrosstabDimension measureDimension = new CrosstabDimension(DIMENSION_MEASURES);
         measureDimension.addCategory(MEASURE_TOP_5);
+        measureDimension.addCategory(MEASURE_TOP_5_ERRORS);
         measureDimension.addCategory(MEASURE_DISTINCT_VALUES);
         measureDimension.addCategory(MEASURE_DISTINCT_VALUES_COUNT);
+        measureDimension.addCategory(MEASURE_DISTINCT_VALUES_COUNT_ERROR);
         CrosstabDimension columnDimension = new CrosstabDimension(DIMENSION_COLUMN);
         Crosstab<Serializable> crosstab = new Crosstab<>(Serializable.class, columnDimension, measureDimension);
+        long peakStateSize = 0;
+        Map<String, DistinctValuesState> states = new HashMap<>();
         for (InputColumn<String> column : _columns) {
             String columnName = column.getName();
 
@@ -85,9 +123,13 @@ public class DistinctValuesAnalyzer implements Analyzer<DistinctValuesAnalyzerRe
 
             CrosstabNavigator<Serializable> nav = crosstab.where(columnDimension, columnName);
             nav.where(measureDimension, MEASURE_TOP_5).put(delegate.getTop5());
-            nav.where(measureDimension, MEASURE_DISTINCT_VALUES).put(delegate.getDistinctValues());
+            nav.where(measureDimension, MEASURE_TOP_5_ERRORS).put(delegate.getTop5Errors());
+            nav.where(measureDimension, MEASURE_DISTINCT_VALUES).put(delegate.getDistinctValues(_distinctValuesLimit));
             nav.where(measureDimension, MEASURE_DISTINCT_VALUES_COUNT).put(delegate.getDistinctValuesCount());
+            nav.where(measureDimension, MEASURE_DISTINCT_VALUES_COUNT_ERROR).put(delegate.getDistinctValuesCountError());
+            peakStateSize += delegate.estimatePeakStateSize();
+            states.put(columnName, delegate.getState());
         }
-        return new DistinctValuesAnalyzerResult(_columns, crosstab);
+        return new DistinctValuesAnalyzerResult(_columns, crosstab, peakStateSize, states);
     }
 }
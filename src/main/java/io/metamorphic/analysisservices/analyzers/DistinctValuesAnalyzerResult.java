@@ -1,44 +1,98 @@
 package io.metamorphic.analysisservices.analyzers;
 
 import io.metamorphic.analysiscommons.models.TermFrequency;
+import io.metamorphic.analysisservices.instrumentation.StateSizeAware;
 import org.eobjects.analyzer.data.InputColumn;
 import org.eobjects.analyzer.result.Crosstab;
 import org.eobjects.analyzer.result.CrosstabResult;
 import org.eobjects.analyzer.result.Metric;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
 /**
  * Created by markmo on 31/07/2015.
  */
-public class DistinctValuesAnalyzerResult extends CrosstabResult {
+public class DistinctValuesAnalyzerResult extends CrosstabResult implements StateSizeAware {
 
     private static final long serialVersionUID = 1L;
 
     private final InputColumn<String>[] _columns;
 
+    private final long _peakStateSize;
+
+    // the state of each column by name, from which values beyond those in the crosstab are read
+    private final Map<String, DistinctValuesState> _states;
+
     public DistinctValuesAnalyzerResult(InputColumn<String>[] columns, Crosstab<?> crosstab) {
+        this(columns, crosstab, 0, Collections.<String, DistinctValuesState>emptyMap());
+    }
+
+    public DistinctValuesAnalyzerResult(InputColumn<String>[] columns, Crosstab<?> crosstab, long peakStateSize,
+                                        Map<String, DistinctValuesState> states) {
         super(crosstab);
         _columns = columns;
+        _peakStateSize = peakStateSize;
+        _states = states;
     }
 
     public InputColumn<String>[] getColumns() {
         return _columns;
     }
 
+    @Override
+    public long getPeakStateSize() {
+        return _peakStateSize;
+    }
+
     @Metric(DistinctValuesAnalyzer.MEASURE_TOP_5)
     public TermFrequency[] getTop5(InputColumn<?> col) {
         return (TermFrequency[]) getCrosstab().where(DistinctValuesAnalyzer.DIMENSION_COLUMN, col.getName())
                 .where(DistinctValuesAnalyzer.DIMENSION_MEASURES, DistinctValuesAnalyzer.MEASURE_TOP_5).get();
     }
 
+    @Metric(DistinctValuesAnalyzer.MEASURE_TOP_5_ERRORS)
+    public Integer[] getTop5Errors(InputColumn<?> col) {
+        return (Integer[]) getCrosstab().where(DistinctValuesAnalyzer.DIMENSION_COLUMN, col.getName())
+                .where(DistinctValuesAnalyzer.DIMENSION_MEASURES, DistinctValuesAnalyzer.MEASURE_TOP_5_ERRORS).get();
+    }
+
     @Metric(DistinctValuesAnalyzer.MEASURE_DISTINCT_VALUES)
     public TermFrequency[] getDistinctValues(InputColumn<?> col) {
         return (TermFrequency[]) getCrosstab().where(DistinctValuesAnalyzer.DIMENSION_COLUMN, col.getName())
                 .where(DistinctValuesAnalyzer.DIMENSION_MEASURES, DistinctValuesAnalyzer.MEASURE_DISTINCT_VALUES).get();
     }
 
+    /**
+     * Pages through all the distinct values of the column, including those
+     * beyond the limit of the distinct values measure.
+     *
+     * @return up to limit distinct values from the offset by descending frequency,
+     *         or null if the column was counted approximately
+     */
+    public TermFrequency[] getDistinctValues(InputColumn<?> col, int offset, int limit) {
+        DistinctValuesState state = _states.get(col.getName());
+        if (state != null) {
+            return state.getDistinctValues(offset, limit);
+        }
+        TermFrequency[] values = getDistinctValues(col);
+        if (values == null) {
+            return null;
+        }
+        int from = Math.min(offset, values.length);
+        return Arrays.copyOfRange(values, from, (int) Math.max(from, Math.min(values.length, (long) from + limit)));
+    }
+
     @Metric(DistinctValuesAnalyzer.MEASURE_DISTINCT_VALUES_COUNT)
     public int getDistinctValuesCount(InputColumn<?> col) {
         return (Integer) getCrosstab().where(DistinctValuesAnalyzer.DIMENSION_COLUMN, col.getName())
                 .where(DistinctValuesAnalyzer.DIMENSION_MEASURES, DistinctValuesAnalyzer.MEASURE_DISTINCT_VALUES_COUNT).get();
     }
+
+    @Metric(DistinctValuesAnalyzer.MEASURE_DISTINCT_VALUES_COUNT_ERROR)
+    public double getDistinctValuesCountError(InputColumn<?> col) {
+        return (Double) getCrosstab().where(DistinctValuesAnalyzer.DIMENSION_COLUMN, col.getName())
+                .where(DistinctValuesAnalyzer.DIMENSION_MEASURES, DistinctValuesAnalyzer.MEASURE_DISTINCT_VALUES_COUNT_ERROR).get();
+    }
 }
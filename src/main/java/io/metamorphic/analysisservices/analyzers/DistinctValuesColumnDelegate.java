@@ -5,7 +5,8 @@ import org.eobjects.analyzer.data.InputRow;
 import org.eobjects.analyzer.storage.RowAnnotation;
 import org.eobjects.analyzer.storage.RowAnnotationFactory;
 
-import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Created by markmo on 31/07/2015.
@@ -15,51 +16,118 @@ final class DistinctValuesColumnDelegate {
     private final RowAnnotationFactory _annotationFactory;
     private final RowAnnotation _distinctValuesAnnotation;
 
-    private volatile Map<String, Integer> _distinctValues = new HashMap<>();
+    private final DistinctValuesState _initialState;
+
+    // threads count into striped partial states, merged when the result is requested
+    private final AtomicReferenceArray<DistinctValuesState> _stripes;
+    private final int _stripeMask;
+
+    // thread ids are sparse, so each thread is given the next stripe when it first arrives
+    private final AtomicInteger _threadsArrived = new AtomicInteger();
+    private final ThreadLocal<Integer> _threadStripe = new ThreadLocal<Integer>() {
+        @Override
+        protected Integer initialValue() {
+            return _threadsArrived.getAndIncrement() & _stripeMask;
+        }
+    };
+
+    private volatile DistinctValuesState _mergedState;
 
     public DistinctValuesColumnDelegate(RowAnnotationFactory annotationFactory) {
+        this(annotationFactory, DistinctCountMode.EXACT, Integer.MAX_VALUE, 14, 5, 1000);
+    }
+
+    public DistinctValuesColumnDelegate(RowAnnotationFactory annotationFactory, DistinctCountMode mode,
+                                        int exactThreshold, int sketchPrecision,
+                                        int topValuesCount, int topValuesCapacity) {
         _annotationFactory = annotationFactory;
         _distinctValuesAnnotation = annotationFactory.createAnnotation();
+        _initialState = new DistinctValuesState(mode, exactThreshold, sketchPrecision, topValuesCount, topValuesCapacity);
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1) << 1;
+        _stripes = new AtomicReferenceArray<>(stripes);
+        _stripeMask = stripes - 1;
     }
 
-    public synchronized void run(InputRow row, final String value, int distinctCount) {
-        String val = (value == null ? "NULL" : value);
-        if (_distinctValues.containsKey(val)) {
-            _distinctValues.put(val, _distinctValues.get(val) + 1);
-        } else {
-            _distinctValues.put(val, 1);
+    public void run(InputRow row, final String value, int distinctCount) {
+        DistinctValuesState stripe = getStripe(_threadStripe.get());
+        synchronized (stripe) {
+            stripe.add(value, distinctCount);
         }
         _annotationFactory.annotate(row, distinctCount, _distinctValuesAnnotation);
     }
 
+    private DistinctValuesState getStripe(int i) {
+        DistinctValuesState stripe = _stripes.get(i);
+        if (stripe == null) {
+            _stripes.compareAndSet(i, null, _initialState.newEmptyState());
+            stripe = _stripes.get(i);
+        }
+        return stripe;
+    }
+
+    /**
+     * Merges the partial states of all stripes. Called once row processing has
+     * completed.
+     */
+    protected DistinctValuesState getState() {
+        DistinctValuesState merged = _mergedState;
+        if (merged == null) {
+            synchronized (this) {
+                merged = _mergedState;
+                if (merged == null) {
+                    merged = _initialState.newEmptyState();
+                    for (int i = 0; i < _stripes.length(); i++) {
+                        DistinctValuesState stripe = _stripes.get(i);
+                        if (stripe != null) {
+                            synchronized (stripe) {
+                                merged.merge(stripe);
+                            }
+                        }
+                    }
+                    _mergedState = merged;
+                }
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * @return an estimate of the most bytes held at once by the partial states
+     *         of the stripes and their merge, which are all kept to the end
+     */
+    protected long estimatePeakStateSize() {
+        long size = getState().estimatePeakSize();
+        for (int i = 0; i < _stripes.length(); i++) {
+            DistinctValuesState stripe = _stripes.get(i);
+            if (stripe != null) {
+                synchronized (stripe) {
+                    size += stripe.estimatePeakSize();
+                }
+            }
+        }
+        return size;
+    }
+
     protected int getDistinctValuesCount() {
-        return _distinctValues.values().size();
+        return getState().getDistinctValuesCount();
+    }
+
+    protected double getDistinctValuesCountError() {
+        return getState().getDistinctValuesCountError();
     }
 
-    protected TermFrequency[] getDistinctValues() {
-        List<TermFrequency> sorted = sortMapByValue(_distinctValues);
-        int n = Math.min(sorted.size(), 1000);
-        return sorted.toArray(new TermFrequency[sorted.size()]);
+    /**
+     * @return the most frequent distinct values, up to the limit
+     */
+    protected TermFrequency[] getDistinctValues(int limit) {
+        return getState().getDistinctValues(0, limit);
     }
 
     protected TermFrequency[] getTop5() {
-        List<TermFrequency> top5List = sortMapByValue(_distinctValues);
-        int n = Math.min(top5List.size(), 5);
-        return top5List.subList(0, n).toArray(new TermFrequency[n]);
+        return getState().getTopValues();
     }
 
-    private static List<TermFrequency> sortMapByValue(Map<String, Integer> map) {
-        List<Map.Entry<String, Integer>> list = new LinkedList<>(map.entrySet());
-        Collections.sort(list, new Comparator<Map.Entry<String, Integer>>() {
-            @Override
-            public int compare(Map.Entry<String, Integer> a, Map.Entry<String, Integer> b) {
-                return a.getValue().compareTo(b.getValue()) * -1;
-            }
-        });
-        List<TermFrequency> terms = new LinkedList<>();
-        for (Map.Entry<String, Integer> entry : list) {
-            terms.add(new TermFrequency(entry.getKey(), entry.getValue()));
-        }
-        return terms;
+    protected Integer[] getTop5Errors() {
+        return getState().getTopValuesErrors();
     }
 }
@@ -0,0 +1,303 @@
+package io.metamorphic.analysisservices.analyzers;
+
+import io.metamorphic.analysiscommons.models.TermFrequency;
+import io.metamorphic.analysisservices.sketches.HyperLogLog;
+import io.metamorphic.analysisservices.sketches.SpaceSaving;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Distinct values, top values and distinct count of one column.
+ *
+ * A state is not thread-safe, but states built independently (per thread,
+ * per partition or per run) can be merged into one.
+ */
+public final class DistinctValuesState implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final DistinctCountMode _mode;
+    private final int _exactThreshold;
+    private final int _sketchPrecision;
+    private final int _topValuesCount;
+
+    // null once the column is counted approximately
+    private ValueCounts _distinctValues;
+
+    private HyperLogLog _sketch;
+
+    // empty while the values are counted exactly, which give the top values themselves
+    private final SpaceSaving _topValues;
+
+    // the estimated size of the exact values when they were dropped for the sketch
+    private long _peakSize;
+
+    public DistinctValuesState(DistinctCountMode mode, int exactThreshold, int sketchPrecision,
+                               int topValuesCount, int topValuesCapacity) {
+        _mode = mode;
+        _exactThreshold = exactThreshold;
+        _sketchPrecision = sketchPrecision;
+        _topValuesCount = topValuesCount;
+        _topValues = new SpaceSaving(Math.max(topValuesCount, topValuesCapacity));
+        if (mode == DistinctCountMode.APPROXIMATE) {
+            _sketch = new HyperLogLog(sketchPrecision);
+        } else {
+            _distinctValues = new ValueCounts();
+        }
+    }
+
+    /**
+     * @return an empty state with the same configuration
+     */
+    public DistinctValuesState newEmptyState() {
+        return new DistinctValuesState(_mode, _exactThreshold, _sketchPrecision, _topValuesCount, _topValues.getCapacity());
+    }
+
+    /**
+     * @return whether the other state was created with the same configuration
+     */
+    public boolean hasSameConfiguration(DistinctValuesState other) {
+        return _mode == other._mode && _exactThreshold == other._exactThreshold
+                && _sketchPrecision == other._sketchPrecision && _topValuesCount == other._topValuesCount
+                && _topValues.getCapacity() == other._topValues.getCapacity();
+    }
+
+    public void add(String value, int count) {
+        String val = (value == null ? "NULL" : value);
+        if (_distinctValues == null) {
+            _topValues.offer(val, count);
+            _sketch.add(val);
+        } else {
+            _distinctValues.add(val, count);
+            checkThreshold();
+        }
+    }
+
+    public void merge(DistinctValuesState other) {
+        if (other._distinctValues == null) {
+            if (_distinctValues != null) {
+                switchToSketch();
+            }
+            _topValues.merge(other._topValues);
+            _sketch.merge(other._sketch);
+        } else if (_distinctValues == null) {
+            SpaceSaving otherTopValues = new SpaceSaving(_topValues.getCapacity());
+            offerTopValues(other._distinctValues, otherTopValues);
+            _topValues.merge(otherTopValues);
+            addKeysToSketch(other._distinctValues);
+        } else {
+            _distinctValues.addAll(other._distinctValues);
+            checkThreshold();
+        }
+    }
+
+    private void checkThreshold() {
+        if (_mode == DistinctCountMode.AUTO && _distinctValues.size() > _exactThreshold) {
+            switchToSketch();
+        }
+    }
+
+    private void switchToSketch() {
+        _peakSize = Math.max(_peakSize, estimateSize());
+        _sketch = new HyperLogLog(_sketchPrecision);
+        addKeysToSketch(_distinctValues);
+        offerTopValues(_distinctValues, _topValues);
+        _distinctValues = null;
+    }
+
+    /**
+     * Offers the most frequent of the values, as many as the empty summary
+     * holds, with their exact counts. The values left out are no more frequent
+     * than the least of those offered, so the summary keeps its error bounds.
+     */
+    private static void offerTopValues(ValueCounts values, SpaceSaving topValues) {
+        for (ValueCount valueCount : selectTop(values, Math.min(values.size(), topValues.getCapacity()))) {
+            topValues.offer(valueCount.value, valueCount.count);
+        }
+    }
+
+    private void addKeysToSketch(ValueCounts values) {
+        values.forEach(new ValueCounts.Visitor() {
+            @Override
+            public void visit(String value, int count) {
+                _sketch.add(value);
+            }
+        });
+    }
+
+    public boolean isApproximate() {
+        return _distinctValues == null;
+    }
+
+    /**
+     * @return an estimate of the bytes held by the state
+     */
+    public long estimateSize() {
+        // a counter of the top values costs about as much as its map entry and heap slot
+        long size = 88L * _topValues.size();
+        if (_distinctValues != null) {
+            size += _distinctValues.estimateSize();
+        }
+        if (_sketch != null) {
+            size += 1L << _sketchPrecision;
+        }
+        return size;
+    }
+
+    /**
+     * @return an estimate of the most bytes the state has held, which is
+     *         before it drops its exact values for the sketch, if it has
+     */
+    public long estimatePeakSize() {
+        return Math.max(_peakSize, estimateSize());
+    }
+
+    /**
+     * @return the number of distinct values kept exactly, 0 once approximate
+     */
+    public int getRetainedValuesCount() {
+        return _distinctValues == null ? 0 : _distinctValues.size();
+    }
+
+    public int getDistinctValuesCount() {
+        if (isApproximate()) {
+            return (int) Math.min(_sketch.cardinality(), Integer.MAX_VALUE);
+        }
+        return _distinctValues.size();
+    }
+
+    /**
+     * @return the relative standard error of the distinct values count, 0 when counted exactly
+     */
+    public double getDistinctValuesCountError() {
+        return isApproximate() ? _sketch.getRelativeStandardError() : 0.0;
+    }
+
+    /**
+     * @return every distinct value by descending frequency, or null once approximate
+     */
+    public TermFrequency[] getDistinctValues() {
+        return getDistinctValues(0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Pages through the distinct values by descending frequency, ties in
+     * value order, so that pages do not overlap. A page near the top only
+     * keeps the values up to its end while reading them, rather than sorting
+     * them all.
+     *
+     * @return up to limit distinct values from the offset, or null once approximate
+     */
+    public TermFrequency[] getDistinctValues(int offset, int limit) {
+        if (isApproximate()) {
+            return null;
+        }
+        final int n = _distinctValues.size();
+        if (offset >= n || limit <= 0) {
+            return new TermFrequency[0];
+        }
+        int end = (int) Math.min(n, (long) offset + limit);
+        List<ValueCount> selected = selectTop(_distinctValues, end);
+        TermFrequency[] page = new TermFrequency[end - offset];
+        for (int i = offset; i < end; i++) {
+            ValueCount valueCount = selected.get(i);
+            page[i - offset] = new TermFrequency(valueCount.value, valueCount.count);
+        }
+        return page;
+    }
+
+    /**
+     * @return the end most frequent of the values, by descending frequency
+     */
+    private static List<ValueCount> selectTop(ValueCounts values, final int end) {
+        List<ValueCount> selected;
+        if (end == values.size()) {
+            final List<ValueCount> all = new ArrayList<>(end);
+            values.forEach(new ValueCounts.Visitor() {
+                @Override
+                public void visit(String value, int count) {
+                    all.add(new ValueCount(value, count));
+                }
+            });
+            selected = all;
+        } else {
+            // the most frequent values up to the end of the page, the least frequent of them at the head
+            final PriorityQueue<ValueCount> top = new PriorityQueue<>(Math.max(1, end), Collections.reverseOrder(BY_DESCENDING_FREQUENCY));
+            values.forEach(new ValueCounts.Visitor() {
+                @Override
+                public void visit(String value, int count) {
+                    if (top.size() < end) {
+                        top.add(new ValueCount(value, count));
+                    } else if (precedes(value, count, top.peek())) {
+                        top.poll();
+                        top.add(new ValueCount(value, count));
+                    }
+                }
+            });
+            selected = new ArrayList<>(top);
+        }
+        Collections.sort(selected, BY_DESCENDING_FREQUENCY);
+        return selected;
+    }
+
+    private static boolean precedes(String value, int count, ValueCount other) {
+        return count > other.count || (count == other.count && value.compareTo(other.value) < 0);
+    }
+
+    // ties in value order, so that the order does not depend on how the state was built
+    private static final Comparator<ValueCount> BY_DESCENDING_FREQUENCY = new Comparator<ValueCount>() {
+        @Override
+        public int compare(ValueCount a, ValueCount b) {
+            int c = Integer.compare(b.count, a.count);
+            return c != 0 ? c : a.value.compareTo(b.value);
+        }
+    };
+
+    private static final class ValueCount {
+
+        final String value;
+        final int count;
+
+        ValueCount(String value, int count) {
+            this.value = value;
+            this.count = count;
+        }
+    }
+
+    /**
+     * @return the most frequent values, read from the exact counts while they
+     * are kept, and otherwise from the top values summary, which starts from
+     * the most frequent of the exact counts once they are dropped, and whose
+     * counts are exact unless the column has more distinct values than its capacity
+     */
+    public TermFrequency[] getTopValues() {
+        if (!isApproximate()) {
+            return getDistinctValues(0, _topValuesCount);
+        }
+        List<SpaceSaving.Counter> top = _topValues.top(_topValuesCount);
+        TermFrequency[] terms = new TermFrequency[top.size()];
+        for (int i = 0; i < terms.length; i++) {
+            SpaceSaving.Counter counter = top.get(i);
+            terms[i] = new TermFrequency(counter.getItem(), (int) counter.getCount());
+        }
+        return terms;
+    }
+
+    /**
+     * @return for each of the top values, the maximum overestimate of its count, 0 while counted exactly
+     */
+    public Integer[] getTopValuesErrors() {
+        if (!isApproximate()) {
+            Integer[] errors = new Integer[Math.min(_topValuesCount, _distinctValues.size())];
+            Arrays.fill(errors, 0);
+            return errors;
+        }
+        List<SpaceSaving.Counter> top = _topValues.top(_topValuesCount);
+        Integer[] errors = new Integer[top.size()];
+        for (int i = 0; i < errors.length; i++) {
+            errors[i] = (int) top.get(i).getError();
+        }
+        return errors;
+    }
+}
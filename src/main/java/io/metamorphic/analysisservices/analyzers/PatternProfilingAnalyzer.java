@@ -0,0 +1,224 @@
+package io.metamorphic.analysisservices.analyzers;
+
+import io.metamorphic.analysisservices.sampling.Reservoir;
+import io.metamorphic.commons.Pair;
+import org.eobjects.analyzer.beans.api.*;
+import org.eobjects.analyzer.beans.stringpattern.PatternFinder;
+import org.eobjects.analyzer.beans.stringpattern.PatternFinderAnalyzer;
+import org.eobjects.analyzer.beans.stringpattern.TokenPattern;
+import org.eobjects.analyzer.beans.stringpattern.TokenizerConfiguration;
+import org.eobjects.analyzer.data.InputColumn;
+import org.eobjects.analyzer.data.InputRow;
+import org.eobjects.analyzer.result.AnnotatedRowsResult;
+import org.eobjects.analyzer.result.Crosstab;
+import org.eobjects.analyzer.result.CrosstabNavigator;
+import org.eobjects.analyzer.storage.RowAnnotation;
+import org.eobjects.analyzer.storage.RowAnnotationFactory;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Finds the patterns of the values of a column as the pattern finder does,
+ * with its default tokenizer settings, but adapting to the column.
+ *
+ * The pattern of each distinct value is cached, so repeated values are not
+ * tokenized again. Free text and identifiers, where almost every value has a
+ * pattern of its own, stop discovery once the column passes the pattern or
+ * distinct values limit. Rows of the values cached until then are still
+ * counted against their patterns, and only the rows of values not seen before
+ * are left out. With a sample size, patterns are found from a uniform random
+ * sample of the rows. Either way the result tells how many rows the match
+ * counts are of.
+ *
+ * The cache and the pattern finder are not thread-safe, so the job gives the
+ * analyzer its rows one at a time.
+ */
+@AnalyzerBean("Adaptive pattern finder")
+@Description("Finds the patterns of string values, stopping on columns with too many patterns or distinct values.")
+@Concurrent(false)
+public class PatternProfilingAnalyzer implements Analyzer<PatternProfilingResult> {
+
+    public static final String PROPERTY_MAX_PATTERNS = "Max patterns";
+    public static final String PROPERTY_MAX_DISTINCT_VALUES = "Max distinct values";
+    public static final String PROPERTY_SAMPLE_ROWS = "Sample rows";
+
+    // the number of values whose patterns are cached when distinct values are not limited
+    private static final int VALUE_CACHE_CAPACITY = 10000;
+
+    @Configured
+    @ColumnProperty(escalateToMultipleJobs=true)
+    InputColumn<String> _column;
+
+    @Configured(value = PROPERTY_MAX_PATTERNS, required = false)
+    @Description("Number of patterns past which discovery stops on the column, or 0 for no limit.")
+    int _maxPatterns = 100;
+
+    @Configured(value = PROPERTY_MAX_DISTINCT_VALUES, required = false)
+    @Description("Number of distinct values past which discovery stops on the column, or 0 for no limit.")
+    int _maxDistinctValues = 10000;
+
+    @Configured(value = PROPERTY_SAMPLE_ROWS, required = false)
+    @Description("Number of rows, sampled at random, to find patterns from, or 0 for all.")
+    int _sampleRows = 0;
+
+    @Provided
+    RowAnnotationFactory _annotationFactory;
+
+    private TokenizerConfiguration _configuration;
+
+    private AnnotatingPatternFinder _patternFinder;
+
+    private Map<String, TokenPattern> _patternsByValue;
+
+    private Reservoir<Pair<InputRow, Integer>> _sample;
+
+    private long _rowCount;
+
+    private long _rowsProfiled;
+
+    private boolean _stopped;
+
+    @Initialize
+    public void init() {
+        _configuration = new TokenizerConfiguration(true);
+        _patternFinder = new AnnotatingPatternFinder(_configuration, _annotationFactory);
+        _patternsByValue = new HashMap<>();
+        _sample = _sampleRows > 0 ? new Reservoir<Pair<InputRow, Integer>>(_sampleRows, new Random()) : null;
+        _rowCount = 0;
+        _rowsProfiled = 0;
+        _stopped = false;
+    }
+
+    @Override
+    public void run(InputRow row, int distinctCount) {
+        _rowCount += distinctCount;
+        if (_sample == null) {
+            profile(row, distinctCount);
+        } else {
+            _sample.offer(new Pair<>(row, distinctCount));
+        }
+    }
+
+    private void profile(InputRow row, int distinctCount) {
+        String value = row.getValue(_column);
+        TokenPattern pattern = _patternsByValue.get(value);
+        if (pattern != null) {
+            _patternFinder.annotate(pattern, row, distinctCount);
+        } else {
+            // a value not seen before may be of a pattern not found yet
+            if (_stopped) {
+                return;
+            }
+            if (_maxDistinctValues > 0 && _patternsByValue.size() >= _maxDistinctValues) {
+                _stopped = true;
+                return;
+            }
+            pattern = _patternFinder.find(row, value, distinctCount);
+            if (_maxDistinctValues > 0 || _patternsByValue.size() < VALUE_CACHE_CAPACITY) {
+                _patternsByValue.put(value, pattern);
+            }
+            if (_maxPatterns > 0 && _patternFinder.getPatternCount() > _maxPatterns) {
+                _stopped = true;
+            }
+        }
+        _rowsProfiled += distinctCount;
+    }
+
+    @Override
+    public PatternProfilingResult getResult() {
+        if (_sample != null) {
+            for (Pair<InputRow, Integer> item : _sample.getItems()) {
+                profile(item.l, item.r);
+            }
+        }
+        List<Map.Entry<TokenPattern, RowAnnotation>> entries = new ArrayList<>(_patternFinder.getAnnotations().entrySet());
+        // most matched first, as the pattern finder orders them
+        Collections.sort(entries, new Comparator<Map.Entry<TokenPattern, RowAnnotation>>() {
+            @Override
+            public int compare(Map.Entry<TokenPattern, RowAnnotation> o1, Map.Entry<TokenPattern, RowAnnotation> o2) {
+                int result = o2.getValue().getRowCount() - o1.getValue().getRowCount();
+                if (result == 0) {
+                    result = o1.getKey().toSymbolicString().compareTo(o2.getKey().toSymbolicString());
+                }
+                return result;
+            }
+        });
+        Crosstab<Serializable> crosstab = PatternFinderAnalyzer.createCrosstab();
+        for (Map.Entry<TokenPattern, RowAnnotation> entry : entries) {
+            TokenPattern pattern = entry.getKey();
+            RowAnnotation annotation = entry.getValue();
+            CrosstabNavigator<Serializable> nav = crosstab.navigate();
+            nav.where(PatternFinderAnalyzer.DIMENSION_NAME_PATTERN, pattern.toSymbolicString());
+            nav.where(PatternFinderAnalyzer.DIMENSION_NAME_MEASURES, PatternFinderAnalyzer.MEASURE_MATCH_COUNT);
+            nav.put(annotation.getRowCount(), true);
+            nav.attach(new AnnotatedRowsResult(annotation, _annotationFactory, _column));
+            nav.where(PatternFinderAnalyzer.DIMENSION_NAME_MEASURES, PatternFinderAnalyzer.MEASURE_SAMPLE);
+            nav.put(pattern.getSampleString(), true);
+        }
+        return new PatternProfilingResult(_column, crosstab, _configuration, _rowCount, _rowsProfiled, _sample != null, _stopped);
+    }
+
+    /**
+     * Annotates the rows of each pattern, telling the pattern that a value
+     * was matched to so that it can be cached.
+     */
+    private static final class AnnotatingPatternFinder extends PatternFinder<InputRow> {
+
+        private final Map<TokenPattern, RowAnnotation> _annotations = new HashMap<>();
+
+        private final RowAnnotationFactory _annotationFactory;
+
+        private TokenPattern _matched;
+
+        AnnotatingPatternFinder(TokenizerConfiguration configuration, RowAnnotationFactory annotationFactory) {
+            super(configuration);
+            _annotationFactory = annotationFactory;
+        }
+
+        /**
+         * @return the pattern the value matched, or the new pattern created for it
+         */
+        TokenPattern find(InputRow row, String value, int distinctCount) {
+            _matched = null;
+            run(row, value, distinctCount);
+            return _matched;
+        }
+
+        void annotate(TokenPattern pattern, InputRow row, int distinctCount) {
+            _annotationFactory.annotate(row, distinctCount, _annotations.get(pattern));
+        }
+
+        int getPatternCount() {
+            return _annotations.size();
+        }
+
+        Map<TokenPattern, RowAnnotation> getAnnotations() {
+            return _annotations;
+        }
+
+        @Override
+        protected void storeNewPattern(TokenPattern pattern, InputRow row, String value, int distinctCount) {
+            RowAnnotation annotation = _annotationFactory.createAnnotation();
+            _annotations.put(pattern, annotation);
+            _annotationFactory.annotate(row, distinctCount, annotation);
+            if (_matched == null) {
+                _matched = pattern;
+            }
+        }
+
+        @Override
+        protected void storeMatch(TokenPattern pattern, InputRow row, String value, int distinctCount) {
+            annotate(pattern, row, distinctCount);
+            if (_matched == null) {
+                _matched = pattern;
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package io.metamorphic.analysisservices.analyzers;
+
+import org.eobjects.analyzer.beans.stringpattern.PatternFinderResult;
+import org.eobjects.analyzer.beans.stringpattern.TokenizerConfiguration;
+import org.eobjects.analyzer.data.InputColumn;
+import org.eobjects.analyzer.result.Crosstab;
+
+/**
+ * The patterns of a column found by the {@link PatternProfilingAnalyzer}, with
+ * how many of its rows they were found from. Match counts are of the rows
+ * profiled, which leave out the rows not sampled and, once discovery stopped,
+ * those of values not seen before. They are estimates when those are fewer
+ * than the rows of the column.
+ */
+public class PatternProfilingResult extends PatternFinderResult {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long _rowCount;
+
+    private final long _rowsProfiled;
+
+    private final boolean _sampled;
+
+    private final boolean _stopped;
+
+    public PatternProfilingResult(InputColumn<String> column, Crosstab<?> crosstab, TokenizerConfiguration tokenizerConfiguration,
+                                  long rowCount, long rowsProfiled, boolean sampled, boolean stopped) {
+        super(column, crosstab, tokenizerConfiguration);
+        _rowCount = rowCount;
+        _rowsProfiled = rowsProfiled;
+        _sampled = sampled;
+        _stopped = stopped;
+    }
+
+    public long getRowCount() {
+        return _rowCount;
+    }
+
+    public long getRowsProfiled() {
+        return _rowsProfiled;
+    }
+
+    /**
+     * @return whether the patterns were found from a random sample of the rows
+     */
+    public boolean isSampled() {
+        return _sampled;
+    }
+
+    /**
+     * @return whether pattern discovery stopped at the pattern or distinct values limit
+     */
+    public boolean isStopped() {
+        return _stopped;
+    }
+
+    /**
+     * @return whether the match counts are of fewer rows than the column has
+     */
+    public boolean isEstimated() {
+        return _rowsProfiled < _rowCount;
+    }
+}
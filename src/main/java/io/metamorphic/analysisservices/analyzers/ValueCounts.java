@@ -0,0 +1,109 @@
+package io.metamorphic.analysisservices.analyzers;
+
+import java.io.Serializable;
+
+/**
+ * Open-addressing map from string values to primitive int counts.
+ *
+ * Avoids the boxed Integer and entry objects of a HashMap&lt;String, Integer&gt;,
+ * so an increment of an existing value does not allocate.
+ */
+final class ValueCounts implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private String[] keys;
+    private int[] counts;
+    private int size;
+    private int mask;
+    private int resizeThreshold;
+    private long keyChars;
+
+    ValueCounts() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    void add(String key, int count) {
+        int i = slot(key);
+        if (keys[i] == null) {
+            keys[i] = key;
+            counts[i] = count;
+            keyChars += key.length();
+            if (++size > resizeThreshold) {
+                rehash(keys.length << 1);
+            }
+        } else {
+            counts[i] += count;
+        }
+    }
+
+    int get(String key) {
+        int i = slot(key);
+        return keys[i] == null ? 0 : counts[i];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return an estimate of the bytes held by the tables and the values kept as keys
+     */
+    long estimateSize() {
+        return 8L * keys.length + 48L * size + 2L * keyChars;
+    }
+
+    void addAll(ValueCounts other) {
+        for (int i = 0; i < other.keys.length; i++) {
+            if (other.keys[i] != null) {
+                add(other.keys[i], other.counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Visits every value and its count in no particular order.
+     */
+    void forEach(Visitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                visitor.visit(keys[i], counts[i]);
+            }
+        }
+    }
+
+    interface Visitor {
+        void visit(String value, int count);
+    }
+
+    private int slot(String key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        int i = (h ^ (h >>> 16)) & mask;
+        while (keys[i] != null && !keys[i].equals(key)) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void rehash(int capacity) {
+        String[] oldKeys = keys;
+        int[] oldCounts = counts;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int j = slot(oldKeys[i]);
+                keys[j] = oldKeys[i];
+                counts[j] = oldCounts[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new String[capacity];
+        counts = new int[capacity];
+        mask = capacity - 1;
+        resizeThreshold = capacity * 3 / 4;
+    }
+}
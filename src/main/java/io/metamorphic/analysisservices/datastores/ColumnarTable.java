@@ -0,0 +1,361 @@
+package io.metamorphic.analysisservices.datastores;
+
+import io.metamorphic.analysisservices.transformers.NumberParser;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The rows of a file held in memory by column, for a dataset that is kept to
+ * be analyzed, or analyzed again, without holding a string object per value.
+ *
+ * Each column is stored as codes into a dictionary of its distinct values, so
+ * that a value repeated a million times is held once. A column with more
+ * distinct values than the dictionary size is stored as whole numbers if all
+ * of its values are written as {@link Long#toString} would write them, and
+ * otherwise as the characters of all its values in one array, as bytes
+ * while they all are Latin-1, with the offset of each row. Nulls are kept in
+ * a bitmap per column. Values are returned as the strings they were read as.
+ *
+ * The values of a dictionary encoded column are the strings of its
+ * dictionary, but those of a column of whole numbers or text are decoded into
+ * a new string on every read, so a scan of such a column allocates a string
+ * per value and is slower than reading rows held as strings. The table saves
+ * memory, not time.
+ */
+public class ColumnarTable implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int DEFAULT_MAX_DICTIONARY_SIZE = 1 << 16;
+
+    /**
+     * How the values of a column are stored.
+     */
+    public enum Encoding { DICTIONARY, LONG, STRING }
+
+    private final List<String> columnNames;
+
+    private final int rowCount;
+
+    private final Column[] columns;
+
+    private ColumnarTable(List<String> columnNames, int rowCount, Column[] columns) {
+        this.columnNames = columnNames;
+        this.rowCount = rowCount;
+        this.columns = columns;
+    }
+
+    /**
+     * Reads the rows into a table, of which a row may have fewer values than
+     * there are columns, the rest being null.
+     */
+    public static ColumnarTable read(List<String> columnNames, Iterator<String[]> rows) {
+        Builder builder = new Builder(columnNames);
+        while (rows.hasNext()) {
+            builder.add(rows.next());
+        }
+        return builder.build();
+    }
+
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public String getValue(int row, int column) {
+        return columns[column].get(row);
+    }
+
+    public Encoding getEncoding(int column) {
+        return columns[column].encoding;
+    }
+
+    /**
+     * @return the number of distinct values of a dictionary encoded column, or -1 if the column is not
+     */
+    public int getDictionarySize(int column) {
+        Column c = columns[column];
+        return c.encoding == Encoding.DICTIONARY ? c.dictionarySize : -1;
+    }
+
+    public static class Builder {
+
+        private final List<String> columnNames;
+
+        private final int maxDictionarySize;
+
+        private final Column[] columns;
+
+        private int rowCount;
+
+        public Builder(List<String> columnNames) {
+            this(columnNames, DEFAULT_MAX_DICTIONARY_SIZE);
+        }
+
+        /**
+         * @param maxDictionarySize the number of distinct values above which a column is no longer
+         *                          dictionary encoded
+         */
+        public Builder(List<String> columnNames, int maxDictionarySize) {
+            this.columnNames = Collections.unmodifiableList(new ArrayList<>(columnNames));
+            this.maxDictionarySize = maxDictionarySize;
+            this.columns = new Column[columnNames.size()];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = new Column();
+            }
+        }
+
+        public Builder add(String[] row) {
+            for (int i = 0; i < columns.length; i++) {
+                columns[i].add(i < row.length ? row[i] : null, maxDictionarySize);
+            }
+            rowCount++;
+            return this;
+        }
+
+        /**
+         * @return the table, after which the builder is not to be used
+         */
+        public ColumnarTable build() {
+            for (Column column : columns) {
+                column.trim();
+            }
+            return new ColumnarTable(columnNames, rowCount, columns);
+        }
+    }
+
+
+    private static final class Column implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        Encoding encoding = Encoding.DICTIONARY;
+
+        int size;
+
+        BitSet nulls = new BitSet();
+
+        int[] codes = new int[16];
+
+        String[] dictionary = new String[16];
+
+        int dictionarySize;
+
+        // whether every value of the dictionary is a whole number as Long.toString writes it
+        boolean longs = true;
+
+        transient Map<String, Integer> codesByValue = new HashMap<>();
+
+        long[] longValues;
+
+        // the characters of the values one after the other, as bytes while they all are Latin-1
+        byte[] latin1Text;
+
+        char[] text;
+
+        int textLength;
+
+        // where the value of each row starts in the text, and so where that of the row before ends
+        int[] textOffsets;
+
+        void add(String value, int maxDictionarySize) {
+            if (value == null) {
+                nulls.set(size);
+            }
+            if (encoding == Encoding.DICTIONARY) {
+                Integer code = value == null ? Integer.valueOf(0) : codesByValue.get(value);
+                if (code == null && dictionarySize == maxDictionarySize) {
+                    reencode();
+                } else {
+                    if (code == null) {
+                        code = addToDictionary(value);
+                    }
+                    if (size == codes.length) {
+                        codes = Arrays.copyOf(codes, grow(size));
+                    }
+                    codes[size++] = code;
+                    return;
+                }
+            }
+            if (encoding == Encoding.LONG) {
+                Long n = value == null ? Long.valueOf(0) : parseLong(value);
+                if (n == null) {
+                    longsToText();
+                } else {
+                    if (size == longValues.length) {
+                        longValues = Arrays.copyOf(longValues, grow(size));
+                    }
+                    longValues[size++] = n;
+                    return;
+                }
+            }
+            appendText(size++, value);
+        }
+
+        private int addToDictionary(String value) {
+            if (dictionarySize == dictionary.length) {
+                dictionary = Arrays.copyOf(dictionary, grow(dictionarySize));
+            }
+            int code = dictionarySize++;
+            dictionary[code] = value;
+            codesByValue.put(value, code);
+            longs = longs && parseLong(value) != null;
+            return code;
+        }
+
+        /**
+         * Stores the values as whole numbers if they all are, and otherwise as text, once there are too many
+         * distinct values to encode.
+         */
+        private void reencode() {
+            if (longs) {
+                longValues = new long[grow(size)];
+                for (int i = 0; i < size; i++) {
+                    if (!nulls.get(i)) {
+                        longValues[i] = Long.parseLong(dictionary[codes[i]]);
+                    }
+                }
+                encoding = Encoding.LONG;
+            } else {
+                startText();
+                for (int i = 0; i < size; i++) {
+                    appendText(i, nulls.get(i) ? null : dictionary[codes[i]]);
+                }
+            }
+            codes = null;
+            dictionary = null;
+            dictionarySize = 0;
+            codesByValue = null;
+        }
+
+        private void longsToText() {
+            startText();
+            for (int i = 0; i < size; i++) {
+                appendText(i, nulls.get(i) ? null : Long.toString(longValues[i]));
+            }
+            longValues = null;
+        }
+
+        private void startText() {
+            latin1Text = new byte[Math.max(16, size * 8)];
+            textOffsets = new int[grow(size + 1)];
+            encoding = Encoding.STRING;
+        }
+
+        private void appendText(int row, String value) {
+            if (row + 1 >= textOffsets.length) {
+                textOffsets = Arrays.copyOf(textOffsets, grow(row + 2));
+            }
+            int length = value == null ? 0 : value.length();
+            if (text == null && !isLatin1(value)) {
+                text = new char[latin1Text.length];
+                for (int i = 0; i < textLength; i++) {
+                    text[i] = (char) (latin1Text[i] & 0xFF);
+                }
+                latin1Text = null;
+            }
+            if (text == null) {
+                if (textLength + length > latin1Text.length) {
+                    latin1Text = Arrays.copyOf(latin1Text, Math.max(grow(latin1Text.length), textLength + length));
+                }
+                for (int i = 0; i < length; i++) {
+                    latin1Text[textLength + i] = (byte) value.charAt(i);
+                }
+            } else {
+                if (textLength + length > text.length) {
+                    text = Arrays.copyOf(text, Math.max(grow(text.length), textLength + length));
+                }
+                if (length > 0) {
+                    value.getChars(0, length, text, textLength);
+                }
+            }
+            textLength += length;
+            textOffsets[row + 1] = textLength;
+        }
+
+        String get(int row) {
+            if (row < 0 || row >= size) {
+                throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+            }
+            if (nulls.get(row)) {
+                return null;
+            }
+            switch (encoding) {
+                case DICTIONARY:
+                    return dictionary[codes[row]];
+                case LONG:
+                    return Long.toString(longValues[row]);
+                default:
+                    int start = textOffsets[row];
+                    int length = textOffsets[row + 1] - start;
+                    if (text == null) {
+                        return new String(latin1Text, start, length, StandardCharsets.ISO_8859_1);
+                    }
+                    return new String(text, start, length);
+            }
+        }
+
+        /**
+         * Drops the spare capacity once all the rows are added.
+         */
+        void trim() {
+            codesByValue = null;
+            switch (encoding) {
+                case DICTIONARY:
+                    codes = Arrays.copyOf(codes, size);
+                    dictionary = Arrays.copyOf(dictionary, dictionarySize);
+                    break;
+                case LONG:
+                    longValues = Arrays.copyOf(longValues, size);
+                    break;
+                default:
+                    textOffsets = Arrays.copyOf(textOffsets, size + 1);
+                    if (text == null) {
+                        latin1Text = Arrays.copyOf(latin1Text, textLength);
+                    } else {
+                        text = Arrays.copyOf(text, textLength);
+                    }
+            }
+        }
+
+        private static boolean isLatin1(String value) {
+            if (value != null) {
+                for (int i = 0; i < value.length(); i++) {
+                    if (value.charAt(i) > 0xFF) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return the number, or null unless the value is a whole number written as Long.toString writes it,
+         *         so that it is returned as it was read
+         */
+        private static Long parseLong(String value) {
+            Long n = NumberParser.parseLong(value);
+            return n != null && n.toString().equals(value) ? n : null;
+        }
+
+        private static int grow(int capacity) {
+            return Math.max(16, capacity + (capacity >> 1));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package io.metamorphic.analysisservices.datastores;
+
+import org.apache.metamodel.pojo.TableDataProvider;
+import org.apache.metamodel.util.SimpleTableDef;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A TableDataProvider over a columnar table. Its records are row numbers, and
+ * the values of a row are decoded only as they are read.
+ */
+public class ColumnarTableDataProvider implements TableDataProvider<Integer> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final SimpleTableDef _tableDef;
+
+    private final ColumnarTable _table;
+
+    private final Map<String, Integer> _columnIndexes;
+
+    public ColumnarTableDataProvider(SimpleTableDef tableDef, ColumnarTable table) {
+        _tableDef = tableDef;
+        _table = table;
+        _columnIndexes = new HashMap<>();
+        String[] columnNames = tableDef.getColumnNames();
+        for (int i = 0; i < columnNames.length; i++) {
+            _columnIndexes.put(columnNames[i], i);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return _tableDef.getName();
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        return new Iterator<Integer>() {
+
+            private int row;
+
+            @Override
+            public boolean hasNext() {
+                return row < _table.getRowCount();
+            }
+
+            @Override
+            public Integer next() {
+                if (row >= _table.getRowCount()) {
+                    throw new NoSuchElementException();
+                }
+                return row++;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public SimpleTableDef getTableDef() {
+        return _tableDef;
+    }
+
+    @Override
+    public Object getValue(String column, Integer row) {
+        Integer index = _columnIndexes.get(column);
+        if (index == null || index >= _table.getColumnCount()) {
+            return null;
+        }
+        return _table.getValue(row, index);
+    }
+
+    @Override
+    public void insert(Map<String, Object> recordData) {
+        throw new UnsupportedOperationException("Columnar table " + getName() + " is read-only");
+    }
+}
@@ -0,0 +1,38 @@
+package io.metamorphic.analysisservices.datastores;
+
+/**
+ * Describes how a delimited text file is laid out.
+ */
+public class CsvDialect {
+
+    public static final CsvDialect DEFAULT = new CsvDialect(',', '"', 0);
+
+    private final char separator;
+
+    private final char quoteChar;
+
+    private final int skipLines;
+
+    /**
+     * @param separator the field separator, e.g. ',' or '\t'
+     * @param quoteChar the character used to quote fields; doubled inside a quoted field to escape it
+     * @param skipLines number of leading lines to skip, e.g. 1 for a header row
+     */
+    public CsvDialect(char separator, char quoteChar, int skipLines) {
+        this.separator = separator;
+        this.quoteChar = quoteChar;
+        this.skipLines = skipLines;
+    }
+
+    public char getSeparator() {
+        return separator;
+    }
+
+    public char getQuoteChar() {
+        return quoteChar;
+    }
+
+    public int getSkipLines() {
+        return skipLines;
+    }
+}
@@ -0,0 +1,132 @@
+package io.metamorphic.analysisservices.datastores;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads delimited records from a Reader one at a time.
+ *
+ * Quoted fields may contain separators, line breaks and doubled quote characters.
+ * The reader is closed once the last record has been read.
+ */
+public class CsvRowIterator implements Iterator<String[]> {
+
+    private static final int EOF = -1;
+
+    private final Reader reader;
+
+    private final char separator;
+
+    private final char quoteChar;
+
+    private final StringBuilder field = new StringBuilder();
+
+    private final List<String> fields = new ArrayList<>();
+
+    private String[] next;
+
+    private boolean done;
+
+    public CsvRowIterator(Reader reader, CsvDialect dialect) {
+        this.reader = (reader instanceof BufferedReader) ? reader : new BufferedReader(reader);
+        this.separator = dialect.getSeparator();
+        this.quoteChar = dialect.getQuoteChar();
+        for (int i = 0; i < dialect.getSkipLines() && hasNext(); i++) {
+            next = null;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done) {
+            next = readRecord();
+        }
+        return next != null;
+    }
+
+    @Override
+    public String[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String[] record = next;
+        next = null;
+        return record;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    private String[] readRecord() {
+        try {
+            int c = reader.read();
+            if (c == EOF) {
+                close();
+                return null;
+            }
+            fields.clear();
+            field.setLength(0);
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == EOF) {
+                        throw new IllegalStateException("Unterminated quoted field");
+                    }
+                    if (c == quoteChar) {
+                        reader.mark(1);
+                        int d = reader.read();
+                        if (d == quoteChar) {
+                            field.append(quoteChar);
+                        } else {
+                            quoted = false;
+                            reader.reset();
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == quoteChar && field.length() == 0) {
+                    quoted = true;
+                } else if (c == separator) {
+                    endField();
+                } else if (c == '\n' || c == EOF) {
+                    break;
+                } else if (c == '\r') {
+                    reader.mark(1);
+                    if (reader.read() != '\n') {
+                        reader.reset();
+                    }
+                    break;
+                } else {
+                    field.append((char) c);
+                }
+                c = reader.read();
+            }
+            endField();
+            return fields.toArray(new String[fields.size()]);
+        } catch (IOException e) {
+            close();
+            throw new IllegalStateException("Error reading record: " + e.getMessage(), e);
+        }
+    }
+
+    private void endField() {
+        fields.add(field.toString());
+        field.setLength(0);
+    }
+
+    private void close() {
+        done = true;
+        try {
+            reader.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package io.metamorphic.analysisservices.datastores;
+
+import io.metamorphic.analysiscommons.models.DatabaseConnection;
+import io.metamorphic.analysisservices.jdbc.SqlDialect;
+import org.apache.commons.dbcp.BasicDataSource;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.metamodel.jdbc.JdbcDataContext;
+import org.apache.metamodel.schema.Schema;
+import org.apache.metamodel.schema.Table;
+import org.eobjects.analyzer.connection.JdbcDatastore;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps one connection pool and one schema-caching data context per database.
+ *
+ * Databases are identified by JDBC URL and credentials. Cached schema metadata
+ * is refreshed once it is older than the schema TTL, or explicitly with
+ * {@link #refreshSchemas(DatabaseConnection)}. {@link #invalidate(DatabaseConnection)}
+ * closes the pool of a database altogether.
+ *
+ * The JDBC driver of a database is that of the {@link SqlDialect} of its URL,
+ * unless the registry is given a driver class for all databases.
+ */
+public class JdbcDatastoreRegistry implements Closeable {
+
+    private static final Log log = LogFactory.getLog(JdbcDatastoreRegistry.class);
+
+    // null to take the driver of each database from the dialect of its URL
+    private final String driverClass;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private long schemaTtlMillis = 10 * 60 * 1000;
+
+    private int maxConnections = 8;
+
+    private long idleTimeoutMillis = 5 * 60 * 1000;
+
+    public JdbcDatastoreRegistry() {
+        this(null);
+    }
+
+    /**
+     * @param driverClass the JDBC driver class of every database, or null to take it from the dialect of each URL
+     */
+    public JdbcDatastoreRegistry(String driverClass) {
+        this.driverClass = driverClass;
+    }
+
+    /**
+     * @return a datastore over the pooled data context of the database; closing
+     * a connection opened from it does not close the pool
+     */
+    public JdbcDatastore getDatastore(DatabaseConnection conn) {
+        return getEntry(conn).datastore;
+    }
+
+    public JdbcDataContext getDataContext(DatabaseConnection conn) {
+        return getEntry(conn).dataContext;
+    }
+
+    /**
+     * @return the connection pool of the database, for queries made outside MetaModel
+     */
+    public DataSource getDataSource(DatabaseConnection conn) {
+        return getEntry(conn).dataSource;
+    }
+
+    /**
+     * @return the cached schema, or null if the database has no such schema
+     */
+    public Schema getSchema(DatabaseConnection conn, String schemaName) {
+        return getEntry(conn).dataContext.getSchemaByName(schemaName);
+    }
+
+    /**
+     * @return the cached table, or null if the database has no such table
+     */
+    public Table getTable(DatabaseConnection conn, String schemaName, String tableName) {
+        Schema schema = getSchema(conn, schemaName);
+        if (schema == null) return null;
+        return schema.getTableByName(tableName);
+    }
+
+    /**
+     * Discards the cached schema metadata of the database, keeping its connections.
+     */
+    public void refreshSchemas(DatabaseConnection conn) {
+        Entry entry = entries.get(getKey(conn));
+        if (entry != null) {
+            entry.refreshSchemas();
+        }
+    }
+
+    /**
+     * Closes the connection pool of the database and discards its metadata.
+     */
+    public void invalidate(DatabaseConnection conn) {
+        Entry entry = entries.remove(getKey(conn));
+        if (entry != null) {
+            entry.close();
+        }
+    }
+
+    public void invalidateAll() {
+        for (String key : entries.keySet()) {
+            Entry entry = entries.remove(key);
+            if (entry != null) {
+                entry.close();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        invalidateAll();
+    }
+
+    private Entry getEntry(DatabaseConnection conn) {
+        String key = getKey(conn);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            synchronized (entries) {
+                entry = entries.get(key);
+                if (entry == null) {
+                    entry = new Entry(conn);
+                    entries.put(key, entry);
+                }
+            }
+        } else if (schemaTtlMillis > 0 && System.currentTimeMillis() - entry.refreshedAt > schemaTtlMillis) {
+            entry.refreshSchemasOlderThan(schemaTtlMillis);
+        }
+        return entry;
+    }
+
+    private static String getKey(DatabaseConnection conn) {
+        return conn.getJdbcUrl() + '\u0000' + conn.getUsername() + '\u0000' + conn.getPassword();
+    }
+
+    public long getSchemaTtlMillis() {
+        return schemaTtlMillis;
+    }
+
+    /**
+     * @param schemaTtlMillis the age at which cached schema metadata is refreshed, or 0 to keep it until refreshed explicitly
+     */
+    public void setSchemaTtlMillis(long schemaTtlMillis) {
+        this.schemaTtlMillis = schemaTtlMillis;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * @param maxConnections the size of the connection pool of each database, applied to pools created afterwards
+     */
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    /**
+     * @param idleTimeoutMillis the time after which an idle pooled connection is closed
+     */
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    private final class Entry {
+
+        final BasicDataSource dataSource;
+        final JdbcDataContext dataContext;
+        final JdbcDatastore datastore;
+        volatile long refreshedAt;
+
+        Entry(DatabaseConnection conn) {
+            if (log.isDebugEnabled()) {
+                log.debug("Creating connection pool for " + conn.getJdbcUrl());
+            }
+            String driver = driverClass == null ? SqlDialect.forJdbcUrl(conn.getJdbcUrl()).getDriverClassName() : driverClass;
+            JdbcDatastore connectionSettings = new JdbcDatastore(conn.getDbName(), conn.getJdbcUrl(), driver,
+                    conn.getUsername(), conn.getPassword(), true);
+            dataSource = (BasicDataSource) connectionSettings.createDataSource();
+            dataSource.setMaxActive(maxConnections);
+            dataSource.setMaxIdle(maxConnections);
+            dataSource.setMinEvictableIdleTimeMillis(idleTimeoutMillis);
+            dataSource.setTimeBetweenEvictionRunsMillis(Math.max(1000, idleTimeoutMillis / 2));
+            dataContext = new JdbcDataContext(dataSource);
+            datastore = new JdbcDatastore(conn.getDbName(), dataContext);
+            refreshedAt = System.currentTimeMillis();
+        }
+
+        synchronized void refreshSchemas() {
+            dataContext.refreshSchemas();
+            refreshedAt = System.currentTimeMillis();
+        }
+
+        synchronized void refreshSchemasOlderThan(long ageMillis) {
+            // another thread may have refreshed while this one waited
+            if (System.currentTimeMillis() - refreshedAt > ageMillis) {
+                refreshSchemas();
+            }
+        }
+
+        void close() {
+            try {
+                dataSource.close();
+            } catch (SQLException e) {
+                log.warn(e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package io.metamorphic.analysisservices.datastores;
+
+import io.metamorphic.analysisservices.jdbc.JdbcValues;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads the rows of a query through a server-side cursor, a batch of fetch
+ * size rows at a time, so that client memory stays flat whatever the size of
+ * the result.
+ *
+ * Drivers such as PostgreSQL's only keep a cursor open inside a transaction,
+ * so the query runs with auto-commit off on a forward-only, read-only
+ * statement with the fetch size set. With prefetch on, a reader thread fetches
+ * the next batch while the current one is consumed, holding at most three
+ * batches at once.
+ *
+ * The connection is returned to its pool once the last row has been read, or
+ * on {@link #close()}, which also cancels a query still running. Another
+ * thread may {@link #cancel()} the query, such as when a time limit passes,
+ * after which no more rows are read.
+ */
+public class JdbcRowIterator implements Iterator<Object[]>, Closeable {
+
+    private static final Log log = LogFactory.getLog(JdbcRowIterator.class);
+
+    // how long close waits for the reader thread to see the query cancelled
+    private static final long READER_JOIN_MILLIS = 10000;
+
+    private final Connection connection;
+
+    private final boolean autoCommit;
+
+    private final Statement statement;
+
+    private final ResultSet rs;
+
+    private final List<String> columnTypeNames;
+
+    private final int fetchSize;
+
+    private final BlockingQueue<List<Object[]>> queue;
+
+    private final Thread reader;
+
+    private volatile SQLException failure;
+
+    private volatile boolean closed;
+
+    private volatile boolean cancelled;
+
+    private List<Object[]> batch;
+
+    private int position;
+
+    private boolean done;
+
+    /**
+     * @param columnTypeNames the names of the types the columns are analyzed as, which they are read as
+     * @param queryTimeoutSeconds the time limit of the query, or 0 for none
+     */
+    public JdbcRowIterator(DataSource dataSource, String sql, List<String> columnTypeNames,
+                           int fetchSize, boolean prefetch, int queryTimeoutSeconds) throws SQLException {
+        if (fetchSize < 1) {
+            throw new IllegalArgumentException("Fetch size must be positive: " + fetchSize);
+        }
+        this.columnTypeNames = new ArrayList<>(columnTypeNames);
+        this.fetchSize = fetchSize;
+        if (log.isDebugEnabled()) {
+            log.debug("Streaming with " + sql + " by " + fetchSize + " rows" + (prefetch ? ", prefetching" : ""));
+        }
+        connection = dataSource.getConnection();
+        try {
+            autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            if (queryTimeoutSeconds > 0) {
+                statement.setQueryTimeout(queryTimeoutSeconds);
+            }
+            rs = statement.executeQuery(sql);
+        } catch (SQLException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+        if (prefetch) {
+            queue = new ArrayBlockingQueue<>(1);
+            reader = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    prefetch();
+                }
+            }, "jdbc-row-reader");
+            reader.setDaemon(true);
+            reader.start();
+        } else {
+            queue = null;
+            reader = null;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (batch == null || position == batch.size()) {
+            if (done) {
+                return false;
+            }
+            batch = queue == null ? readBatchOrFail() : takeBatch();
+            position = 0;
+            if (batch.isEmpty()) {
+                done = true;
+                close();
+                if (failure != null) {
+                    throw new IllegalStateException("Could not read rows: " + failure.getMessage(), failure);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Object[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Object[] row = batch.get(position);
+        // let the batch go row by row as the analyzers take them
+        batch.set(position++, null);
+        return row;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Ends the read, cancelling the query if rows remain, and returns the
+     * connection to its pool. Rows not yet read are discarded.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (reader != null) {
+            if (reader.isAlive()) {
+                cancelQuery();
+            }
+            // a reader waiting to hand over a batch sees it taken and the iterator closed
+            queue.clear();
+            try {
+                reader.join(READER_JOIN_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else if (!done) {
+            cancelQuery();
+        }
+        try {
+            rs.close();
+            statement.close();
+            // ends the transaction of the cursor; nothing was written
+            connection.rollback();
+            connection.setAutoCommit(autoCommit);
+        } catch (SQLException e) {
+            log.warn(e.getMessage(), e);
+        } finally {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                log.warn(e.getMessage(), e);
+            }
+        }
+    }
+
+    private void prefetch() {
+        List<Object[]> next;
+        do {
+            try {
+                next = readBatch();
+            } catch (SQLException e) {
+                if (!closed) {
+                    failure = e;
+                }
+                next = new ArrayList<>(0);
+            }
+            try {
+                queue.put(next);
+            } catch (InterruptedException e) {
+                return;
+            }
+        } while (!next.isEmpty() && !closed);
+    }
+
+    private List<Object[]> takeBatch() {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new IllegalStateException("Interrupted while reading rows", e);
+        }
+    }
+
+    private List<Object[]> readBatchOrFail() {
+        try {
+            return readBatch();
+        } catch (SQLException e) {
+            failure = e;
+            return new ArrayList<>(0);
+        }
+    }
+
+    /**
+     * @return the next rows, or an empty list at the end of the result or once closed
+     */
+    private List<Object[]> readBatch() throws SQLException {
+        List<Object[]> rows = new ArrayList<>(fetchSize);
+        int columnCount = columnTypeNames.size();
+        while (rows.size() < fetchSize && !closed && !cancelled && rs.next()) {
+            Object[] row = new Object[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                row[i] = JdbcValues.getValue(rs, i + 1, columnTypeNames.get(i));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * Cancels the query from any thread. The rows already fetched may still be
+     * read, but none after them; the iterator is closed as usual.
+     */
+    public void cancel() {
+        cancelled = true;
+        cancelQuery();
+    }
+
+    /**
+     * @return whether the query was cancelled with {@link #cancel()}
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private void cancelQuery() {
+        try {
+            statement.cancel();
+        } catch (SQLException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Could not cancel query: " + e.getMessage());
+            }
+        }
+    }
+}
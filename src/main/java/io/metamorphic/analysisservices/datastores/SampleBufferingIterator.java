@@ -0,0 +1,58 @@
+package io.metamorphic.analysisservices.datastores;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the first rows of an iterator ahead into a sample, then returns every
+ * row, those of the sample first, so that rows read once can be both sampled
+ * and analyzed.
+ */
+public class SampleBufferingIterator implements Iterator<String[]> {
+
+    private final Iterator<String[]> rows;
+
+    private final List<String[]> sample;
+
+    private int position;
+
+    public SampleBufferingIterator(Iterator<String[]> rows, int sampleSize) {
+        this.rows = rows;
+        List<String[]> sample = new ArrayList<>(Math.min(sampleSize, 10000));
+        while (sample.size() < sampleSize && rows.hasNext()) {
+            sample.add(rows.next());
+        }
+        this.sample = Collections.unmodifiableList(sample);
+    }
+
+    /**
+     * @return the first rows, up to the sample size
+     */
+    public List<String[]> getSample() {
+        return sample;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return position < sample.size() || rows.hasNext();
+    }
+
+    @Override
+    public String[] next() {
+        if (position < sample.size()) {
+            return sample.get(position++);
+        }
+        if (!rows.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return rows.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,127 @@
+package io.metamorphic.analysisservices.datastores;
+
+import org.apache.metamodel.pojo.TableDataProvider;
+import org.apache.metamodel.util.SimpleTableDef;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A TableDataProvider that pulls rows from a source as the analysis job consumes
+ * them, instead of holding a materialized collection of row arrays.
+ *
+ * Rows are exposed as-is, so memory depends on what the analyzers retain and
+ * not on the size of the dataset.
+ */
+public class StreamingTableDataProvider implements TableDataProvider<Object[]> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final SimpleTableDef _tableDef;
+
+    private final Map<String, Integer> _columnIndexes;
+
+    private final transient Iterable<? extends Object[]> _rows;
+
+    public StreamingTableDataProvider(SimpleTableDef tableDef, Iterable<? extends Object[]> rows) {
+        _tableDef = tableDef;
+        _rows = rows;
+        _columnIndexes = new HashMap<>();
+        String[] columnNames = tableDef.getColumnNames();
+        for (int i = 0; i < columnNames.length; i++) {
+            _columnIndexes.put(columnNames[i], i);
+        }
+    }
+
+    /**
+     * Creates a provider over a pull-based row source. The source can only be
+     * read once.
+     */
+    public static StreamingTableDataProvider forIterator(SimpleTableDef tableDef, Iterator<? extends Object[]> rows) {
+        return new StreamingTableDataProvider(tableDef, new OneShotIterable<>(rows));
+    }
+
+    /**
+     * Creates a provider that views a list of rows without copying them.
+     */
+    public static StreamingTableDataProvider forRows(SimpleTableDef tableDef, final List<List<String>> rows) {
+        return new StreamingTableDataProvider(tableDef, new Iterable<Object[]>() {
+            @Override
+            public Iterator<Object[]> iterator() {
+                final Iterator<List<String>> it = rows.iterator();
+                return new Iterator<Object[]>() {
+                    @Override
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public Object[] next() {
+                        List<String> row = it.next();
+                        return row.toArray(new String[row.size()]);
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        });
+    }
+
+    @Override
+    public String getName() {
+        return _tableDef.getName();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Iterator<Object[]> iterator() {
+        if (_rows == null) {
+            throw new IllegalStateException("Row source of " + getName() + " is not available");
+        }
+        return (Iterator<Object[]>) _rows.iterator();
+    }
+
+    @Override
+    public SimpleTableDef getTableDef() {
+        return _tableDef;
+    }
+
+    @Override
+    public Object getValue(String column, Object[] record) {
+        Integer index = _columnIndexes.get(column);
+        if (index == null || index >= record.length) {
+            // ragged rows are padded with nulls
+            return null;
+        }
+        return record[index];
+    }
+
+    @Override
+    public void insert(Map<String, Object> recordData) {
+        throw new UnsupportedOperationException("Streaming table " + getName() + " is read-only");
+    }
+
+    private static final class OneShotIterable<T> implements Iterable<T> {
+
+        private Iterator<T> _iterator;
+
+        OneShotIterable(Iterator<T> iterator) {
+            _iterator = iterator;
+        }
+
+        @Override
+        public synchronized Iterator<T> iterator() {
+            if (_iterator == null) {
+                throw new IllegalStateException("Row source has already been consumed");
+            }
+            Iterator<T> it = _iterator;
+            _iterator = null;
+            return it;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package io.metamorphic.analysisservices.inference;
+
+import java.io.Serializable;
+
+/**
+ * The type inferred for a column from a sample of its values, and how
+ * confident the choice is.
+ */
+public final class InferredType implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String typeName;
+
+    private final double confidence;
+
+    private final int sampleSize;
+
+    public InferredType(String typeName, double confidence, int sampleSize) {
+        this.typeName = typeName;
+        this.confidence = confidence;
+        this.sampleSize = sampleSize;
+    }
+
+    /**
+     * @return the name of the type, as passed in the column type names of an analysis
+     */
+    public String getTypeName() {
+        return typeName;
+    }
+
+    /**
+     * @return the share of the values sampled that are of the type, or for a
+     *         text column the share that are not of the best other type; 0 if
+     *         no value was sampled
+     */
+    public double getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * @return the number of values sampled, not counting nulls and blanks
+     */
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    @Override
+    public String toString() {
+        return typeName + " (" + Math.round(confidence * 100) + "% of " + sampleSize + ")";
+    }
+}
@@ -0,0 +1,156 @@
+package io.metamorphic.analysisservices.inference;
+
+import io.metamorphic.analysisservices.transformers.DateFormatLearner;
+import io.metamorphic.analysisservices.transformers.NumberParser;
+import io.metamorphic.commons.utils.DateParser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Infers the type of each column from a sample of rows.
+ *
+ * Each value sampled, not counting nulls and blanks, is tried as each of the
+ * candidate types. A column is of the candidate that the largest share of its
+ * values conform to, the more specific where shares are equal (so a column of
+ * 0s and 1s is of integers rather than decimals), if that share is at least the
+ * minimum conformance. Otherwise it is text: long text, to which entity
+ * recognition is applied, if its values average {@value #LONG_TEXT_LENGTH}
+ * characters or more.
+ *
+ * The columns are inferred in parallel, each by a single thread.
+ */
+public class TypeInferrer {
+
+    public static final int LONG_TEXT_LENGTH = 255;
+
+    // in order of specificity
+    private static final String[] CANDIDATES = {"BOOLEAN", "INTEGER", "BIGINT", "DECIMAL", "DATE"};
+
+    private static final int BOOLEAN = 0;
+    private static final int INTEGER = 1;
+    private static final int BIGINT = 2;
+    private static final int DECIMAL = 3;
+    private static final int DATE = 4;
+
+    // the tokens of the boolean transformer, but for 1 and 0, which are integers, and x and -
+    private static final List<String> BOOLEAN_TOKENS = Arrays.asList("true", "false", "yes", "no");
+
+    private final double minConformance;
+
+    private final int threads;
+
+    public TypeInferrer() {
+        this(0.95, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param minConformance the share of the values of a column that must be of a type for the column to be
+     * @param threads the number of columns inferred at the same time
+     */
+    public TypeInferrer(double minConformance, int threads) {
+        if (minConformance <= 0 || minConformance > 1) {
+            throw new IllegalArgumentException("minConformance must be in (0, 1]: " + minConformance);
+        }
+        this.minConformance = minConformance;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * @param rows the sample, of which a row may have fewer values than there are columns
+     * @return the type of each column
+     */
+    public List<InferredType> infer(final List<String[]> rows, int columnCount) {
+        final InferredType[] types = new InferredType[columnCount];
+        int threads = Math.min(this.threads, columnCount);
+        if (threads <= 1) {
+            for (int i = 0; i < columnCount; i++) {
+                types[i] = inferColumn(rows, i);
+            }
+            return Arrays.asList(types);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                // contiguous ranges of columns, so each thread reads adjacent values of a row
+                final int from = (int) ((long) columnCount * t / threads);
+                final int to = (int) ((long) columnCount * (t + 1) / threads);
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int i = from; i < to; i++) {
+                            types[i] = inferColumn(rows, i);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted inferring column types", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error inferring column types", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return Arrays.asList(types);
+    }
+
+    private InferredType inferColumn(List<String[]> rows, int column) {
+        int[] conforming = new int[CANDIDATES.length];
+        int count = 0;
+        long length = 0;
+        DateFormatLearner dateParser = new DateFormatLearner(new DateParser(), 100);
+        for (String[] row : rows) {
+            if (column >= row.length || row[column] == null) {
+                continue;
+            }
+            String value = row[column].trim();
+            if (value.isEmpty()) {
+                continue;
+            }
+            count++;
+            length += value.length();
+            if (BOOLEAN_TOKENS.contains(value.toLowerCase())) {
+                conforming[BOOLEAN]++;
+                continue;
+            }
+            if (NumberParser.parseInt(value) != null) {
+                conforming[INTEGER]++;
+                conforming[BIGINT]++;
+                conforming[DECIMAL]++;
+            } else if (NumberParser.parseLong(value) != null) {
+                conforming[BIGINT]++;
+                conforming[DECIMAL]++;
+            } else if (NumberParser.parseNumber(value) != null) {
+                conforming[DECIMAL]++;
+            }
+            if (dateParser.parse(value) != null) {
+                conforming[DATE]++;
+            }
+        }
+        if (count == 0) {
+            return new InferredType("NVARCHAR", 0, 0);
+        }
+        int best = 0;
+        for (int i = 1; i < CANDIDATES.length; i++) {
+            if (conforming[i] > conforming[best]) {
+                best = i;
+            }
+        }
+        double share = (double) conforming[best] / count;
+        if (share >= minConformance) {
+            return new InferredType(CANDIDATES[best], share, count);
+        }
+        String text = length / count >= LONG_TEXT_LENGTH ? "LONGNVARCHAR" : "NVARCHAR";
+        return new InferredType(text, 1 - share, count);
+    }
+}
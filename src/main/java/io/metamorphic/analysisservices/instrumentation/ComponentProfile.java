@@ -0,0 +1,60 @@
+package io.metamorphic.analysisservices.instrumentation;
+
+import java.io.Serializable;
+
+/**
+ * What one component of a profiling job cost. The reading of rows from the
+ * file or database is reported as a component too.
+ */
+public final class ComponentProfile implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String name;
+
+    private final long cpuTimeMillis;
+
+    private final long errorCount;
+
+    private final Long peakStateSize;
+
+    public ComponentProfile(String name, long cpuTimeMillis, long errorCount, Long peakStateSize) {
+        this.name = name;
+        this.cpuTimeMillis = cpuTimeMillis;
+        this.errorCount = errorCount;
+        this.peakStateSize = peakStateSize;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the CPU time of the job's threads, apportioned to the component
+     *         by the share of stack samples taken while it was running
+     */
+    public long getCpuTimeMillis() {
+        return cpuTimeMillis;
+    }
+
+    /**
+     * @return the rows on which the component failed and, for a transformer,
+     *         the values that it could not convert
+     */
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * @return an estimate of the most state, in bytes, the analyzer held at
+     *         once, or null if not known
+     */
+    public Long getPeakStateSize() {
+        return peakStateSize;
+    }
+
+    @Override
+    public String toString() {
+        return name + " [cpu=" + cpuTimeMillis + "ms, errors=" + errorCount + ", peakStateSize=" + peakStateSize + "]";
+    }
+}
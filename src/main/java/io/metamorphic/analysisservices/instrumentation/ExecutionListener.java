@@ -0,0 +1,23 @@
+package io.metamorphic.analysisservices.instrumentation;
+
+/**
+ * Receives the progress of profiling jobs and the execution profile of each
+ * once it completes.
+ *
+ * Methods are called from the threads of the job, so implementations must be
+ * thread-safe and should return quickly.
+ */
+public interface ExecutionListener {
+
+    /**
+     * Called about once a second while rows are being processed.
+     */
+    void onProgress(String sourceName, long rowsProcessed, double rowsPerSecond);
+
+    /**
+     * Called for each row on which a component failed.
+     */
+    void onComponentError(String sourceName, String componentName, Throwable error);
+
+    void onComplete(String sourceName, ExecutionProfile profile);
+}
@@ -0,0 +1,122 @@
+package io.metamorphic.analysisservices.instrumentation;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Where the time of a profiling job went: its throughput and, per component,
+ * CPU time, errors and retained state.
+ */
+public final class ExecutionProfile implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The type of the rendered result that holds the profile, as JSON, when
+     * it is attached to the dataset metrics.
+     */
+    public static final String RENDERED_RESULT_TYPE = "EXECUTION_PROFILE";
+
+    private final String sourceName;
+
+    private final long rowCount;
+
+    private final long elapsedMillis;
+
+    private final long cpuTimeMillis;
+
+    private final List<ComponentProfile> components;
+
+    public ExecutionProfile(String sourceName, long rowCount, long elapsedMillis, long cpuTimeMillis,
+                            List<ComponentProfile> components) {
+        this.sourceName = sourceName;
+        this.rowCount = rowCount;
+        this.elapsedMillis = elapsedMillis;
+        this.cpuTimeMillis = cpuTimeMillis;
+        this.components = Collections.unmodifiableList(new ArrayList<>(components));
+    }
+
+    public String getSourceName() {
+        return sourceName;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return the wall-clock time from the first row read to the last row processed
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedMillis == 0 ? 0 : rowCount * 1000.0 / elapsedMillis;
+    }
+
+    /**
+     * @return the CPU time of the threads of the job while running its tasks
+     */
+    public long getCpuTimeMillis() {
+        return cpuTimeMillis;
+    }
+
+    /**
+     * @return the components, most costly first
+     */
+    public List<ComponentProfile> getComponents() {
+        return components;
+    }
+
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"sourceName\":");
+        appendString(sb, sourceName);
+        sb.append(",\"rowCount\":").append(rowCount);
+        sb.append(",\"elapsedMillis\":").append(elapsedMillis);
+        sb.append(",\"rowsPerSecond\":").append(Math.round(getRowsPerSecond()));
+        sb.append(",\"cpuTimeMillis\":").append(cpuTimeMillis);
+        sb.append(",\"components\":[");
+        for (int i = 0; i < components.size(); i++) {
+            ComponentProfile component = components.get(i);
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"name\":");
+            appendString(sb, component.getName());
+            sb.append(",\"cpuTimeMillis\":").append(component.getCpuTimeMillis());
+            sb.append(",\"errorCount\":").append(component.getErrorCount());
+            sb.append(",\"peakStateSize\":").append(component.getPeakStateSize());
+            sb.append('}');
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
+    private static void appendString(StringBuilder sb, String s) {
+        if (s == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+}
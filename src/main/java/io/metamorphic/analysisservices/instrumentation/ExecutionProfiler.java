@@ -0,0 +1,445 @@
+package io.metamorphic.analysisservices.instrumentation;
+
+import io.metamorphic.analysisservices.analyzers.CrosstabReader;
+import io.metamorphic.analysisservices.transformers.ConversionFailures;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.eobjects.analyzer.beans.*;
+import org.eobjects.analyzer.data.InputColumn;
+import org.eobjects.analyzer.data.InputRow;
+import org.eobjects.analyzer.descriptors.ConfiguredPropertyDescriptor;
+import org.eobjects.analyzer.job.AnalysisJob;
+import org.eobjects.analyzer.job.AnalyzerJob;
+import org.eobjects.analyzer.job.ComponentJob;
+import org.eobjects.analyzer.job.TransformerJob;
+import org.eobjects.analyzer.job.concurrent.TaskListener;
+import org.eobjects.analyzer.job.concurrent.TaskRunnable;
+import org.eobjects.analyzer.job.concurrent.TaskRunner;
+import org.eobjects.analyzer.job.runner.AnalysisJobMetrics;
+import org.eobjects.analyzer.job.runner.AnalysisListenerAdaptor;
+import org.eobjects.analyzer.job.runner.RowProcessingMetrics;
+import org.eobjects.analyzer.job.tasks.Task;
+import org.eobjects.analyzer.result.AnalyzerResult;
+import org.eobjects.analyzer.result.Crosstab;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Profiles one run of an analysis job.
+ *
+ * Passed to the runner as an analysis listener, it counts rows and component
+ * errors and estimates the state the analyzers kept, and adds to the errors of
+ * each transformer the values it counted as not converted. Its task runner
+ * wrapper measures the CPU time of the threads while they run the job's
+ * tasks, and records which threads are doing so; a sampler thread takes the
+ * stacks of those threads at an interval, and the CPU time is apportioned to
+ * components by their share of the samples.
+ */
+public class ExecutionProfiler extends AnalysisListenerAdaptor {
+
+    /**
+     * The component to which reading rows from the datastore is attributed.
+     */
+    public static final String ROW_SOURCE = "Row source";
+
+    /**
+     * The component to which the rest of the framework's work is attributed.
+     */
+    public static final String OTHER = "Other";
+
+    private static final Log log = LogFactory.getLog(ExecutionProfiler.class);
+
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final String[] ROW_SOURCE_PACKAGES = {
+            "org.apache.metamodel.", "io.metamorphic.analysisservices.datastores."
+    };
+
+    private static final String PROPERTY_DESCRIPTIVE_STATISTICS = "Descriptive statistics";
+
+    private final String sourceName;
+
+    private final List<ExecutionListener> listeners;
+
+    private final long samplingIntervalMillis;
+
+    private final ConversionFailures conversionFailures;
+
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+    private final boolean cpuTimeSupported;
+
+    // the nesting of task executions on the current thread, as tasks may run tasks in the caller's thread
+    private final ThreadLocal<int[]> taskDepth = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+
+    private final Set<Long> activeThreadIds = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+
+    private final AtomicLong taskTimeNanos = new AtomicLong();
+
+    private final AtomicLong rowCount = new AtomicLong();
+
+    private final AtomicLong lastProgressNanos = new AtomicLong();
+
+    private final ConcurrentMap<String, AtomicLong> samples = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, AtomicLong> errors = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, AtomicLong> peakStateSizes = new ConcurrentHashMap<>();
+
+    // component names by the class names of their components
+    private volatile Map<String, String> componentNames = Collections.emptyMap();
+
+    private volatile List<TransformerJob> transformerJobs = Collections.emptyList();
+
+    private volatile long startNanos;
+
+    private volatile long rowProcessingStartNanos;
+
+    private volatile long rowProcessingEndNanos;
+
+    private ScheduledExecutorService sampler;
+
+    /**
+     * @param listeners notified of progress, errors and the profile; may be empty
+     * @param conversionFailures provided to the transformers of the job, or null
+     */
+    public ExecutionProfiler(String sourceName, List<ExecutionListener> listeners, long samplingIntervalMillis,
+                             ConversionFailures conversionFailures) {
+        this.sourceName = sourceName;
+        this.listeners = listeners;
+        this.samplingIntervalMillis = samplingIntervalMillis;
+        this.conversionFailures = conversionFailures;
+        this.cpuTimeSupported = threadBean.isCurrentThreadCpuTimeSupported() && threadBean.isThreadCpuTimeEnabled();
+    }
+
+    /**
+     * @return a task runner that runs the tasks of the job with the delegate while measuring them
+     */
+    public TaskRunner wrap(final TaskRunner delegate) {
+        return new TaskRunner() {
+
+            @Override
+            public void run(Task task, TaskListener listener) {
+                delegate.run(task == null ? null : new ProfiledTask(task), listener);
+            }
+
+            @Override
+            public void run(TaskRunnable taskRunnable) {
+                Task task = taskRunnable.getTask();
+                delegate.run(new TaskRunnable(task == null ? null : new ProfiledTask(task), taskRunnable.getListener()));
+            }
+
+            @Override
+            public void shutdown() {
+                delegate.shutdown();
+            }
+
+            @Override
+            public void assistExecution() {
+                delegate.assistExecution();
+            }
+        };
+    }
+
+    public void start() {
+        startNanos = System.nanoTime();
+        sampler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "execution-profiler-" + sourceName);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        sampler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                sample();
+            }
+        }, samplingIntervalMillis, samplingIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops sampling and notifies the listeners of the profile.
+     */
+    public ExecutionProfile stop() {
+        sampler.shutdownNow();
+        ExecutionProfile profile = createProfile();
+        if (log.isDebugEnabled()) {
+            log.debug("Execution profile of " + sourceName + ": " + profile);
+        }
+        for (ExecutionListener listener : listeners) {
+            listener.onComplete(sourceName, profile);
+        }
+        return profile;
+    }
+
+    private void sample() {
+        Long[] ids = activeThreadIds.toArray(new Long[0]);
+        if (ids.length == 0) {
+            return;
+        }
+        long[] threadIds = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            threadIds[i] = ids[i];
+        }
+        for (ThreadInfo info : threadBean.getThreadInfo(threadIds, Integer.MAX_VALUE)) {
+            // a thread waiting on a queue or lock uses no CPU
+            if (info != null && info.getThreadState() == Thread.State.RUNNABLE) {
+                increment(samples, attribute(info.getStackTrace()), 1);
+            }
+        }
+    }
+
+    private String attribute(StackTraceElement[] stack) {
+        Map<String, String> names = componentNames;
+        // the innermost component frame, as transformers and analyzers do not call each other
+        for (StackTraceElement frame : stack) {
+            String name = names.get(frame.getClassName());
+            if (name != null) {
+                return name;
+            }
+        }
+        for (StackTraceElement frame : stack) {
+            for (String prefix : ROW_SOURCE_PACKAGES) {
+                if (frame.getClassName().startsWith(prefix)) {
+                    return ROW_SOURCE;
+                }
+            }
+        }
+        return OTHER;
+    }
+
+    @Override
+    public void jobBegin(AnalysisJob job, AnalysisJobMetrics metrics) {
+        Map<String, String> names = new HashMap<>();
+        List<ComponentJob> componentJobs = new ArrayList<>();
+        componentJobs.addAll(job.getTransformerJobs());
+        componentJobs.addAll(job.getAnalyzerJobs());
+        for (ComponentJob componentJob : componentJobs) {
+            names.put(componentJob.getDescriptor().getComponentClass().getName(), getName(componentJob));
+        }
+        componentNames = names;
+        transformerJobs = job.getTransformerJobs();
+    }
+
+    @Override
+    public void rowProcessingBegin(AnalysisJob job, RowProcessingMetrics metrics) {
+        if (rowProcessingStartNanos == 0) {
+            rowProcessingStartNanos = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void rowProcessingProgress(AnalysisJob job, RowProcessingMetrics metrics, InputRow row, int currentRow) {
+        long rows = rowCount.incrementAndGet();
+        if (listeners.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        long last = lastProgressNanos.get();
+        if (now - Math.max(last, rowProcessingStartNanos) >= PROGRESS_INTERVAL_NANOS && lastProgressNanos.compareAndSet(last, now)) {
+            double rowsPerSecond = rows * 1e9 / Math.max(1, now - rowProcessingStartNanos);
+            for (ExecutionListener listener : listeners) {
+                listener.onProgress(sourceName, rows, rowsPerSecond);
+            }
+        }
+    }
+
+    @Override
+    public void rowProcessingSuccess(AnalysisJob job, RowProcessingMetrics metrics) {
+        rowProcessingEndNanos = System.nanoTime();
+    }
+
+    @Override
+    public void analyzerSuccess(AnalysisJob job, AnalyzerJob analyzerJob, AnalyzerResult result) {
+        Long size = estimatePeakStateSize(analyzerJob, result);
+        if (size != null) {
+            // the states of the analyzers of a kind are all kept until the end
+            increment(peakStateSizes, getName(analyzerJob), size);
+        }
+    }
+
+    @Override
+    public void errorInComponent(AnalysisJob job, ComponentJob componentJob, InputRow row, Throwable throwable) {
+        String name = getName(componentJob);
+        increment(errors, name, 1);
+        for (ExecutionListener listener : listeners) {
+            listener.onComponentError(sourceName, name, throwable);
+        }
+    }
+
+    private Long estimatePeakStateSize(AnalyzerJob analyzerJob, AnalyzerResult result) {
+        if (result instanceof StateSizeAware) {
+            return ((StateSizeAware) result).getPeakStateSize();
+        }
+        // with descriptive statistics, these keep every value as a double until the end
+        Crosstab<?> crosstab = null;
+        String columnDimension = null;
+        String measureDimension = null;
+        String rowCountMeasure = null;
+        String nullCountMeasure = null;
+        if (result instanceof NumberAnalyzerResult) {
+            crosstab = ((NumberAnalyzerResult) result).getCrosstab();
+            columnDimension = NumberAnalyzer.DIMENSION_COLUMN;
+            measureDimension = NumberAnalyzer.DIMENSION_MEASURE;
+            rowCountMeasure = NumberAnalyzer.MEASURE_ROW_COUNT;
+            nullCountMeasure = NumberAnalyzer.MEASURE_NULL_COUNT;
+        } else if (result instanceof DateAndTimeAnalyzerResult) {
+            crosstab = ((DateAndTimeAnalyzerResult) result).getCrosstab();
+            columnDimension = DateAndTimeAnalyzer.DIMENSION_COLUMN;
+            measureDimension = DateAndTimeAnalyzer.DIMENSION_MEASURE;
+            rowCountMeasure = DateAndTimeAnalyzer.MEASURE_ROW_COUNT;
+            nullCountMeasure = DateAndTimeAnalyzer.MEASURE_NULL_COUNT;
+        }
+        if (crosstab == null || !Boolean.TRUE.equals(getProperty(analyzerJob, PROPERTY_DESCRIPTIVE_STATISTICS))) {
+            return null;
+        }
+        CrosstabReader<?> reader = new CrosstabReader<>(crosstab, columnDimension, measureDimension);
+        long values = 0;
+        for (String column : crosstab.getDimension(columnDimension).getCategories()) {
+            Long rows = getCount(reader, column, rowCountMeasure);
+            Long nulls = getCount(reader, column, nullCountMeasure);
+            if (rows != null) {
+                values += rows - (nulls == null ? 0 : nulls);
+            }
+        }
+        return 8 * values;
+    }
+
+    private static Object getProperty(AnalyzerJob analyzerJob, String propertyName) {
+        ConfiguredPropertyDescriptor property = analyzerJob.getDescriptor().getConfiguredProperty(propertyName);
+        return property == null ? null : analyzerJob.getConfiguration().getProperty(property);
+    }
+
+    /**
+     * Counts the values each transformer could not convert, from the counts
+     * it keeps by output column. Transformers that convert strings to other
+     * types return null for a value they cannot parse rather than failing the
+     * row, so these are not component errors.
+     */
+    private Map<String, Long> countConversionFailures() {
+        Map<String, Long> failures = new HashMap<>();
+        if (conversionFailures == null) {
+            return failures;
+        }
+        for (TransformerJob transformerJob : transformerJobs) {
+            long count = 0;
+            for (InputColumn<?> output : transformerJob.getOutput()) {
+                count += conversionFailures.get(output.getName());
+            }
+            Long previous = failures.get(getName(transformerJob));
+            failures.put(getName(transformerJob), previous == null ? count : previous + count);
+        }
+        return failures;
+    }
+
+    private static Long getCount(CrosstabReader<?> reader, String column, String measure) {
+        if (!reader.containsMeasure(measure)) {
+            return null;
+        }
+        Object value = reader.get(column, measure);
+        return value instanceof Number ? ((Number) value).longValue() : null;
+    }
+
+    private ExecutionProfile createProfile() {
+        long now = System.nanoTime();
+        long start = rowProcessingStartNanos == 0 ? startNanos : rowProcessingStartNanos;
+        long end = rowProcessingEndNanos == 0 ? now : rowProcessingEndNanos;
+        long cpuNanos = taskTimeNanos.get();
+        long totalSamples = 0;
+        for (AtomicLong count : samples.values()) {
+            totalSamples += count.get();
+        }
+        Map<String, Long> conversionFailures = countConversionFailures();
+        Set<String> names = new LinkedHashSet<>(componentNames.values());
+        names.addAll(samples.keySet());
+        List<ComponentProfile> components = new ArrayList<>();
+        for (String name : names) {
+            AtomicLong sampleCount = samples.get(name);
+            long cpuMillis = sampleCount == null || totalSamples == 0 ? 0
+                    : TimeUnit.NANOSECONDS.toMillis(cpuNanos * sampleCount.get() / totalSamples);
+            AtomicLong errorCount = errors.get(name);
+            Long failures = conversionFailures.get(name);
+            AtomicLong peakStateSize = peakStateSizes.get(name);
+            components.add(new ComponentProfile(name, cpuMillis,
+                    (errorCount == null ? 0 : errorCount.get()) + (failures == null ? 0 : failures),
+                    peakStateSize == null ? null : peakStateSize.get()));
+        }
+        Collections.sort(components, new Comparator<ComponentProfile>() {
+            @Override
+            public int compare(ComponentProfile a, ComponentProfile b) {
+                return Long.compare(b.getCpuTimeMillis(), a.getCpuTimeMillis());
+            }
+        });
+        return new ExecutionProfile(sourceName, rowCount.get(), TimeUnit.NANOSECONDS.toMillis(end - start),
+                TimeUnit.NANOSECONDS.toMillis(cpuNanos), components);
+    }
+
+    private static String getName(ComponentJob componentJob) {
+        return componentJob.getDescriptor().getDisplayName();
+    }
+
+    private static void increment(ConcurrentMap<String, AtomicLong> counts, String key, long delta) {
+        AtomicLong count = counts.get(key);
+        if (count == null) {
+            AtomicLong newCount = new AtomicLong();
+            count = counts.putIfAbsent(key, newCount);
+            if (count == null) {
+                count = newCount;
+            }
+        }
+        count.addAndGet(delta);
+    }
+
+    private long currentThreadTime() {
+        return cpuTimeSupported ? threadBean.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    private final class ProfiledTask implements Task {
+
+        private final Task task;
+
+        ProfiledTask(Task task) {
+            this.task = task;
+        }
+
+        @Override
+        public void execute() throws Exception {
+            int[] depth = taskDepth.get();
+            if (depth[0]++ > 0) {
+                try {
+                    task.execute();
+                } finally {
+                    depth[0]--;
+                }
+                return;
+            }
+            Long threadId = Thread.currentThread().getId();
+            activeThreadIds.add(threadId);
+            long begin = currentThreadTime();
+            try {
+                task.execute();
+            } finally {
+                taskTimeNanos.addAndGet(currentThreadTime() - begin);
+                activeThreadIds.remove(threadId);
+                depth[0]--;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return task.toString();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package io.metamorphic.analysisservices.instrumentation;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A registry of counters, timers and gauges, such as a Micrometer or
+ * Dropwizard Metrics registry behind an adapter. Tags are given as
+ * alternating keys and values.
+ *
+ * @see MetricsRegistryListener
+ */
+public interface MetricsRegistry {
+
+    void increment(String name, double amount, String... tags);
+
+    void record(String name, long amount, TimeUnit unit, String... tags);
+
+    void gauge(String name, double value, String... tags);
+}
@@ -0,0 +1,52 @@
+package io.metamorphic.analysisservices.instrumentation;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the progress and execution profiles of profiling jobs to a
+ * metrics registry, tagged by source and component.
+ */
+public class MetricsRegistryListener implements ExecutionListener {
+
+    public static final String ROWS_PER_SECOND = "analysis.rows.per.second";
+    public static final String ROWS = "analysis.rows";
+    public static final String CPU_TIME = "analysis.cpu.time";
+    public static final String COMPONENT_CPU_TIME = "analysis.component.cpu.time";
+    public static final String COMPONENT_ERRORS = "analysis.component.errors";
+    public static final String COMPONENT_PEAK_STATE_SIZE = "analysis.component.peak.state.size";
+
+    private final MetricsRegistry registry;
+
+    public MetricsRegistryListener(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void onProgress(String sourceName, long rowsProcessed, double rowsPerSecond) {
+        registry.gauge(ROWS_PER_SECOND, rowsPerSecond, "source", sourceName);
+    }
+
+    @Override
+    public void onComponentError(String sourceName, String componentName, Throwable error) {
+        // counted from the profile once the job completes
+    }
+
+    @Override
+    public void onComplete(String sourceName, ExecutionProfile profile) {
+        registry.increment(ROWS, profile.getRowCount(), "source", sourceName);
+        registry.gauge(ROWS_PER_SECOND, profile.getRowsPerSecond(), "source", sourceName);
+        registry.record(CPU_TIME, profile.getCpuTimeMillis(), TimeUnit.MILLISECONDS, "source", sourceName);
+        for (ComponentProfile component : profile.getComponents()) {
+            registry.record(COMPONENT_CPU_TIME, component.getCpuTimeMillis(), TimeUnit.MILLISECONDS,
+                    "source", sourceName, "component", component.getName());
+            if (component.getErrorCount() > 0) {
+                registry.increment(COMPONENT_ERRORS, component.getErrorCount(),
+                        "source", sourceName, "component", component.getName());
+            }
+            if (component.getPeakStateSize() != null) {
+                registry.gauge(COMPONENT_PEAK_STATE_SIZE, component.getPeakStateSize(),
+                        "source", sourceName, "component", component.getName());
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package io.metamorphic.analysisservices.instrumentation;
+
+/**
+ * Implemented by analyzer results that can tell how much state their
+ * analyzer retained while consuming rows.
+ */
+public interface StateSizeAware {
+
+    /**
+     * @return an estimate, in bytes, of the most state the analyzer held at once
+     */
+    long getPeakStateSize();
+}
@@ -0,0 +1,12 @@
+package io.metamorphic.analysisservices.jdbc;
+
+/**
+ * Standard SQL only.
+ */
+public class GenericSqlDialect extends SqlDialect {
+
+    @Override
+    public String getName() {
+        return "Generic";
+    }
+}
@@ -0,0 +1,17 @@
+package io.metamorphic.analysisservices.jdbc;
+
+/**
+ * H2, as embedded for testing.
+ */
+public class H2SqlDialect extends SqlDialect {
+
+    @Override
+    public String getName() {
+        return "H2";
+    }
+
+    @Override
+    public String getDriverClassName() {
+        return "org.h2.Driver";
+    }
+}
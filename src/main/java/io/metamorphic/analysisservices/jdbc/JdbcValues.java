@@ -0,0 +1,38 @@
+package io.metamorphic.analysisservices.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Reads the values of a result set as the datastore of an analysis job reads
+ * columns of the type they are analyzed as, so that the measures of a table
+ * do not depend on whether it is read by the job, streamed, sampled, scanned
+ * into a profile or partly pushed down.
+ *
+ * The job declares its columns with the analyzed type, so a TIMESTAMP column,
+ * analyzed as a DATE, is read as its date and its time of day is dropped.
+ */
+public final class JdbcValues {
+
+    private JdbcValues() {}
+
+    /**
+     * @param analyzedTypeName the name of the type the column is analyzed as, such as DATE or NVARCHAR
+     */
+    public static Object getValue(ResultSet rs, int columnIndex, String analyzedTypeName) throws SQLException {
+        switch (analyzedTypeName) {
+            case "DATE":
+                return rs.getDate(columnIndex);
+            case "BOOLEAN": {
+                boolean value = rs.getBoolean(columnIndex);
+                return rs.wasNull() ? null : value;
+            }
+            case "NVARCHAR":
+            case "LONGNVARCHAR":
+                // the analyzers of string columns expect strings, whatever the driver returns
+                return rs.getString(columnIndex);
+            default:
+                return rs.getObject(columnIndex);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package io.metamorphic.analysisservices.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * PostgreSQL 9.5 or later.
+ */
+public class PostgreSqlDialect extends SqlDialect {
+
+    @Override
+    public String getName() {
+        return "PostgreSQL";
+    }
+
+    @Override
+    public String getDriverClassName() {
+        return "org.postgresql.Driver";
+    }
+
+    @Override
+    public boolean supportsTableSample() {
+        return true;
+    }
+
+    /**
+     * Row-level Bernoulli sampling. SYSTEM sampling would be cheaper, but picks
+     * whole pages and so skews the sample of clustered tables.
+     */
+    @Override
+    public String getTableSampleClause(double percentage) {
+        return String.format(Locale.ROOT, "TABLESAMPLE BERNOULLI (%.6f)", percentage);
+    }
+
+    @Override
+    public long estimateRowCount(Connection connection, String schemaName, String tableName) throws SQLException {
+        String sql = "SELECT c.reltuples::bigint FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace " +
+                "WHERE n.nspname = ? AND c.relname = ?";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, schemaName);
+            statement.setString(2, tableName);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (rs.next()) {
+                    long estimate = rs.getLong(1);
+                    // a table that has never been analyzed reports 0 or -1
+                    return estimate > 0 ? estimate : -1;
+                }
+            }
+        }
+        return -1;
+    }
+}
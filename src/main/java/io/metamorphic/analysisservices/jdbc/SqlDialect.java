@@ -0,0 +1,94 @@
+package io.metamorphic.analysisservices.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * The SQL features of a database that the profilers make use of where available.
+ */
+public abstract class SqlDialect {
+
+    public static SqlDialect forJdbcUrl(String jdbcUrl) {
+        if (jdbcUrl != null && jdbcUrl.startsWith("jdbc:postgresql:")) {
+            return new PostgreSqlDialect();
+        }
+        if (jdbcUrl != null && jdbcUrl.startsWith("jdbc:h2:")) {
+            return new H2SqlDialect();
+        }
+        return new GenericSqlDialect();
+    }
+
+    public abstract String getName();
+
+    /**
+     * @return the class of the JDBC driver, or null to leave it to the drivers registered with the
+     *         DriverManager to accept the URL
+     */
+    public String getDriverClassName() {
+        return null;
+    }
+
+    /**
+     * @return whether {@link #getTableSampleClause(double)} is supported
+     */
+    public boolean supportsTableSample() {
+        return false;
+    }
+
+    /**
+     * @param percentage the percentage of rows to sample, between 0 and 100
+     * @return the clause that follows the table name to sample its rows on the database side
+     */
+    public String getTableSampleClause(double percentage) {
+        throw new UnsupportedOperationException(getName() + " does not support table sampling");
+    }
+
+    /**
+     * Estimates the number of rows of a table from the database's statistics,
+     * without scanning it.
+     *
+     * @return the estimate, or -1 if the database keeps no such statistics
+     */
+    public long estimateRowCount(Connection connection, String schemaName, String tableName) throws SQLException {
+        return -1;
+    }
+
+    /**
+     * @return an expression of the remainder of the expression divided by the divisor
+     */
+    public String getModuloExpression(String expression, int divisor) {
+        return "MOD(" + expression + ", " + divisor + ")";
+    }
+
+    /**
+     * @return an expression of the sample variance of the expression over the rows, as an aggregate function
+     */
+    public String getVarianceExpression(String expression) {
+        return "VAR_SAMP(" + expression + ")";
+    }
+
+    /**
+     * @return an expression of the number of characters of the string expression
+     */
+    public String getCharLengthExpression(String expression) {
+        return "CHAR_LENGTH(" + expression + ")";
+    }
+
+    /**
+     * @return an expression of the expression as a double precision number
+     */
+    public String getDoubleExpression(String expression) {
+        return "CAST(" + expression + " AS DOUBLE PRECISION)";
+    }
+
+    public String quoteIdentifier(String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+
+    public String getQualifiedTableName(String schemaName, String tableName) {
+        if (schemaName == null || schemaName.isEmpty()) {
+            return quoteIdentifier(tableName);
+        }
+        return quoteIdentifier(schemaName) + '.' + quoteIdentifier(tableName);
+    }
+}
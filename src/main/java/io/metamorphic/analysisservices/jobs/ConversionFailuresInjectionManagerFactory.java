@@ -0,0 +1,36 @@
+package io.metamorphic.analysisservices.jobs;
+
+import io.metamorphic.analysisservices.transformers.ConversionFailures;
+import org.eobjects.analyzer.configuration.AnalyzerBeansConfiguration;
+import org.eobjects.analyzer.configuration.InjectionManager;
+import org.eobjects.analyzer.configuration.InjectionManagerFactory;
+import org.eobjects.analyzer.configuration.InjectionManagerImpl;
+import org.eobjects.analyzer.configuration.InjectionPoint;
+import org.eobjects.analyzer.job.AnalysisJob;
+
+/**
+ * Provides the transformers of a job with the counts of the values they could
+ * not convert, for the service to report once the job completes. Everything
+ * else is provided as usual.
+ */
+public class ConversionFailuresInjectionManagerFactory implements InjectionManagerFactory {
+
+    private final ConversionFailures conversionFailures;
+
+    public ConversionFailuresInjectionManagerFactory(ConversionFailures conversionFailures) {
+        this.conversionFailures = conversionFailures;
+    }
+
+    @Override
+    public InjectionManager getInjectionManager(AnalyzerBeansConfiguration configuration, AnalysisJob job) {
+        return new InjectionManagerImpl(configuration, job) {
+            @Override
+            protected Object getInstanceInternal(InjectionPoint<?> injectionPoint) {
+                if (injectionPoint.getBaseType() == ConversionFailures.class) {
+                    return conversionFailures;
+                }
+                return super.getInstanceInternal(injectionPoint);
+            }
+        };
+    }
+}
@@ -0,0 +1,69 @@
+package io.metamorphic.analysisservices.jobs;
+
+import org.eobjects.analyzer.connection.Datastore;
+import org.eobjects.analyzer.job.AnalysisJob;
+import org.eobjects.analyzer.job.ImmutableAnalysisJob;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used cache of compiled analysis jobs.
+ *
+ * A cached job is only a template: its components and column bindings are
+ * immutable, so it is re-bound to the datastore of each new dataset with the
+ * same {@link JobTemplateKey} instead of being built again.
+ */
+public class JobTemplateCache {
+
+    private final int maxSize;
+
+    private final Map<JobTemplateKey, AnalysisJob> templates;
+
+    public JobTemplateCache(final int maxSize) {
+        this.maxSize = maxSize;
+        this.templates = new LinkedHashMap<JobTemplateKey, AnalysisJob>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<JobTemplateKey, AnalysisJob> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return the cached template re-bound to the datastore, or null if there is none
+     */
+    public synchronized AnalysisJob get(JobTemplateKey key, Datastore datastore) {
+        AnalysisJob template = templates.get(key);
+        if (template == null) {
+            return null;
+        }
+        return rebind(template, datastore);
+    }
+
+    public synchronized void put(JobTemplateKey key, AnalysisJob job) {
+        if (maxSize > 0) {
+            templates.put(key, job);
+        }
+    }
+
+    public synchronized void clear() {
+        templates.clear();
+    }
+
+    public synchronized int size() {
+        return templates.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public static AnalysisJob rebind(AnalysisJob job, Datastore datastore) {
+        if (job.getDatastore() == datastore) {
+            return job;
+        }
+        return new ImmutableAnalysisJob(job.getMetadata(), datastore,
+                job.getSourceColumns(), job.getFilterJobs(), job.getTransformerJobs(), job.getAnalyzerJobs());
+    }
+}
@@ -0,0 +1,57 @@
+package io.metamorphic.analysisservices.jobs;
+
+import org.apache.metamodel.schema.ColumnType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Identifies the shape of the data an analysis job is built for.
+ *
+ * Two datasets with the same table name, column names and column types, read
+ * from a file or from a typed database table alike, are analyzed by the same job.
+ * Column names are part of the key because the job binds its input columns,
+ * and the metrics are read back from the results, by name.
+ */
+public final class JobTemplateKey {
+
+    private final String tableName;
+    private final List<String> columnNames;
+    private final List<ColumnType> columnTypes;
+    private final boolean isFile;
+    private final int hashCode;
+
+    public JobTemplateKey(String tableName, List<String> columnNames, List<ColumnType> columnTypes, boolean isFile) {
+        this.tableName = tableName;
+        this.columnNames = new ArrayList<>(columnNames);
+        this.columnTypes = new ArrayList<>(columnTypes);
+        this.isFile = isFile;
+        int h = tableName == null ? 0 : tableName.hashCode();
+        h = 31 * h + this.columnNames.hashCode();
+        h = 31 * h + this.columnTypes.hashCode();
+        h = 31 * h + (isFile ? 1 : 0);
+        this.hashCode = h;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof JobTemplateKey)) return false;
+        JobTemplateKey other = (JobTemplateKey) o;
+        return hashCode == other.hashCode &&
+                isFile == other.isFile &&
+                (tableName == null ? other.tableName == null : tableName.equals(other.tableName)) &&
+                columnNames.equals(other.columnNames) &&
+                columnTypes.equals(other.columnTypes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return "JobTemplateKey[" + tableName + ", " + columnNames + ", " + columnTypes + ", isFile=" + isFile + "]";
+    }
+}
@@ -0,0 +1,60 @@
+package io.metamorphic.analysisservices.jobs;
+
+import org.eobjects.analyzer.job.concurrent.TaskListener;
+import org.eobjects.analyzer.job.concurrent.TaskRunnable;
+import org.eobjects.analyzer.job.concurrent.TaskRunner;
+import org.eobjects.analyzer.job.tasks.ConsumeRowTask;
+import org.eobjects.analyzer.job.tasks.Task;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Task runner that stops row processing once a deadline has passed.
+ *
+ * Every row consumed after the deadline fails with a {@link TimeoutException},
+ * which makes the row processing loop break so the job ends as failed. Other
+ * tasks still run, so that the job closes its connections and components.
+ */
+public class TimeLimitedTaskRunner implements TaskRunner {
+
+    private final TaskRunner delegate;
+
+    private final long deadline;
+
+    private final long timeoutMillis;
+
+    public TimeLimitedTaskRunner(TaskRunner delegate, long timeoutMillis) {
+        this.delegate = delegate;
+        this.timeoutMillis = timeoutMillis;
+        this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    @Override
+    public void run(Task task, TaskListener listener) {
+        if (task instanceof ConsumeRowTask && isExpired()) {
+            listener.onError(task, new TimeoutException("Analysis timed out after " + timeoutMillis + " ms"));
+        } else {
+            delegate.run(task, listener);
+        }
+    }
+
+    @Override
+    public void run(TaskRunnable taskRunnable) {
+        delegate.run(taskRunnable);
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public void assistExecution() {
+        delegate.assistExecution();
+    }
+
+    public boolean isExpired() {
+        return System.nanoTime() - deadline > 0;
+    }
+}
@@ -0,0 +1,147 @@
+package io.metamorphic.analysisservices.ner;
+
+import edu.stanford.nlp.ie.AbstractSequenceClassifier;
+import edu.stanford.nlp.ling.CoreLabel;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the pool of classifiers of a model, loaded on demand and unloaded
+ * once unused for the idle timeout.
+ *
+ * A model takes seconds to load and a few hundred MB of heap, so nothing is
+ * loaded until entities are first recognized, or the pool is warmed up ahead
+ * of time, and the pool is let go of once idle, so that the heap is freed
+ * between analyses with long text.
+ */
+public class ClassifierHolder {
+
+    private static final Log log = LogFactory.getLog(ClassifierHolder.class);
+
+    private static final ThreadFactory DAEMON_THREADS = new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "classifier-holder");
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+    private final Callable<AbstractSequenceClassifier<CoreLabel>> loader;
+
+    private final int poolSize;
+
+    private final long idleTimeoutMillis;
+
+    private volatile ClassifierPool pool;
+
+    private volatile long lastUsedMillis;
+
+    private ScheduledExecutorService unloader;
+
+    /**
+     * @param loader loads a new copy of the classifier
+     * @param poolSize the number of classifiers, and so of threads classifying at the same time
+     * @param idleTimeoutMillis the time after the pool was last used that it is unloaded, or 0 to keep it
+     */
+    public ClassifierHolder(Callable<AbstractSequenceClassifier<CoreLabel>> loader, int poolSize, long idleTimeoutMillis) {
+        this.loader = loader;
+        this.poolSize = poolSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * @return the pool, created if it was not, or was unloaded; its classifiers are loaded as borrowed
+     */
+    public ClassifierPool getPool() {
+        lastUsedMillis = System.currentTimeMillis();
+        ClassifierPool pool = this.pool;
+        if (pool != null) {
+            return pool;
+        }
+        synchronized (this) {
+            if (this.pool == null) {
+                this.pool = new ClassifierPool(loader, poolSize);
+                if (idleTimeoutMillis > 0) {
+                    scheduleUnload();
+                }
+            }
+            return this.pool;
+        }
+    }
+
+    /**
+     * Loads a classifier of the pool in the background, if none is loaded.
+     *
+     * @return the loading, done when a classifier is loaded
+     */
+    public Future<?> warmUp() {
+        final ClassifierPool pool = getPool();
+        ExecutorService executor = Executors.newSingleThreadExecutor(DAEMON_THREADS);
+        try {
+            return executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws InterruptedException {
+                    if (pool.size() == 0) {
+                        pool.release(pool.borrow());
+                    }
+                    return null;
+                }
+            });
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @return whether any classifier is loaded
+     */
+    public boolean isLoaded() {
+        ClassifierPool pool = this.pool;
+        return pool != null && pool.size() > 0;
+    }
+
+    /**
+     * Lets go of the pool, so that its classifiers are freed once the threads
+     * using them are done. The next use loads them again.
+     */
+    public synchronized void unload() {
+        if (pool != null) {
+            log.info("Unloading " + pool.size() + " classifiers");
+            pool = null;
+        }
+        if (unloader != null) {
+            unloader.shutdown();
+            unloader = null;
+        }
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    private void scheduleUnload() {
+        unloader = Executors.newSingleThreadScheduledExecutor(DAEMON_THREADS);
+        long checkMillis = Math.max(idleTimeoutMillis / 4, 1);
+        unloader.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                unloadIfIdle();
+            }
+        }, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void unloadIfIdle() {
+        if (pool != null && pool.isIdle() && System.currentTimeMillis() - lastUsedMillis >= idleTimeoutMillis) {
+            unload();
+        }
+    }
+}
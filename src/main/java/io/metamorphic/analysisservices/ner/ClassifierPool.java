@@ -0,0 +1,85 @@
+package io.metamorphic.analysisservices.ner;
+
+import edu.stanford.nlp.ie.AbstractSequenceClassifier;
+import edu.stanford.nlp.ling.CoreLabel;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Classifiers, each used by one thread at a time, so that texts can be
+ * classified in parallel. Classifiers are loaded as threads need them, up to
+ * the maximum size; each holds its own copy of the model.
+ */
+public class ClassifierPool {
+
+    private final Callable<AbstractSequenceClassifier<CoreLabel>> loader;
+
+    private final int maxSize;
+
+    private final BlockingQueue<AbstractSequenceClassifier<CoreLabel>> idle = new LinkedBlockingQueue<>();
+
+    private int size;
+
+    /**
+     * @param loader loads a new copy of the classifier
+     * @param maxSize the number of classifiers, and so of threads classifying at the same time
+     */
+    public ClassifierPool(Callable<AbstractSequenceClassifier<CoreLabel>> loader, int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1: " + maxSize);
+        }
+        this.loader = loader;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return an idle classifier, which is loaded if there is none and the pool is not full, or else
+     *         waited for; to be released when done
+     */
+    public AbstractSequenceClassifier<CoreLabel> borrow() throws InterruptedException {
+        AbstractSequenceClassifier<CoreLabel> classifier = idle.poll();
+        if (classifier != null) {
+            return classifier;
+        }
+        synchronized (this) {
+            if (size >= maxSize) {
+                classifier = null;
+            } else {
+                size++;
+                classifier = load();
+            }
+        }
+        return classifier == null ? idle.take() : classifier;
+    }
+
+    public void release(AbstractSequenceClassifier<CoreLabel> classifier) {
+        idle.add(classifier);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return whether no classifier is borrowed
+     */
+    public synchronized boolean isIdle() {
+        return idle.size() == size;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    // called holding the lock, which keeps other threads from loading more copies at the same time
+    private AbstractSequenceClassifier<CoreLabel> load() {
+        try {
+            return loader.call();
+        } catch (Exception e) {
+            size--;
+            throw new IllegalStateException("Error loading classifier", e);
+        }
+    }
+}
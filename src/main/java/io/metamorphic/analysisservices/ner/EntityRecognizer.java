@@ -0,0 +1,185 @@
+package io.metamorphic.analysisservices.ner;
+
+import edu.stanford.nlp.ie.AbstractSequenceClassifier;
+import edu.stanford.nlp.ling.CoreAnnotations.AnswerAnnotation;
+import edu.stanford.nlp.ling.CoreLabel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recognizes the named entities of texts, by entity type.
+ *
+ * Free text columns repeat the same values a lot, so the entities of the most
+ * recently seen texts are cached, by the text with its white space normalized.
+ * The texts of a call are recognized as a batch: they are looked up in the
+ * cache together, and the distinct texts not cached are classified in turn on
+ * one classifier borrowed from the pool of the holder, while other threads
+ * classify theirs on the other classifiers.
+ */
+public class EntityRecognizer {
+
+    private static final String ANSWER_OTHER = "O";
+
+    private final ClassifierHolder classifierHolder;
+
+    private final int cacheSize;
+
+    private final Map<String, Map<String, String>> cache;
+
+    /**
+     * @param cacheSize the number of texts to cache the entities of, or 0 to cache none
+     */
+    public EntityRecognizer(ClassifierHolder classifierHolder, final int cacheSize) {
+        this.classifierHolder = classifierHolder;
+        this.cacheSize = cacheSize;
+        this.cache = new LinkedHashMap<String, Map<String, String>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Map<String, String>> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Loads a classifier in the background, if none is loaded, so that it may
+     * be ready by the time the first text is recognized.
+     */
+    public void warmUp() {
+        classifierHolder.warmUp();
+    }
+
+    /**
+     * @return the entities of the text, joined by commas, by entity type
+     */
+    public Map<String, String> recognize(String text) {
+        return recognize(Collections.singletonList(text)).get(0);
+    }
+
+    /**
+     * @return the entities of each text, joined by commas, by entity type
+     */
+    public List<Map<String, String>> recognize(List<String> texts) {
+        List<String> normalizedTexts = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            normalizedTexts.add(normalize(text));
+        }
+        Map<String, Map<String, String>> entities = new HashMap<>();
+        List<String> uncached = new ArrayList<>();
+        synchronized (cache) {
+            for (String normalizedText : normalizedTexts) {
+                if (entities.containsKey(normalizedText)) {
+                    continue;
+                }
+                if (normalizedText.isEmpty()) {
+                    entities.put(normalizedText, Collections.<String, String>emptyMap());
+                    continue;
+                }
+                Map<String, String> cached = cache.get(normalizedText);
+                entities.put(normalizedText, cached);
+                if (cached == null) {
+                    uncached.add(normalizedText);
+                }
+            }
+        }
+        if (!uncached.isEmpty()) {
+            Map<String, Map<String, String>> classified = classify(uncached);
+            entities.putAll(classified);
+            if (cacheSize > 0) {
+                synchronized (cache) {
+                    cache.putAll(classified);
+                }
+            }
+        }
+        List<Map<String, String>> result = new ArrayList<>(texts.size());
+        for (String normalizedText : normalizedTexts) {
+            result.add(entities.get(normalizedText));
+        }
+        return result;
+    }
+
+    private Map<String, Map<String, String>> classify(List<String> texts) {
+        Map<String, Map<String, String>> entities = new HashMap<>();
+        ClassifierPool classifierPool = classifierHolder.getPool();
+        AbstractSequenceClassifier<CoreLabel> classifier;
+        try {
+            classifier = classifierPool.borrow();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a classifier", e);
+        }
+        try {
+            for (String text : texts) {
+                entities.put(text, classify(classifier, text));
+            }
+        } finally {
+            classifierPool.release(classifier);
+        }
+        return entities;
+    }
+
+    private static Map<String, String> classify(AbstractSequenceClassifier<CoreLabel> classifier, String text) {
+        Map<String, List<String>> entities = new HashMap<>();
+        for (List<CoreLabel> sentence : classifier.classify(text)) {
+            String lastAnswer = ANSWER_OTHER;
+            for (CoreLabel word : sentence) {
+                String answer = word.get(AnswerAnnotation.class);
+                if (!ANSWER_OTHER.equals(answer)) {
+                    List<String> words = entities.get(answer);
+                    if (words == null) {
+                        words = new ArrayList<>();
+                        entities.put(answer, words);
+                    }
+                    if (lastAnswer.equals(answer)) {
+                        int j = words.size() - 1;
+                        words.set(j, words.get(j) + " " + word.word());
+                    } else {
+                        words.add(word.word());
+                    }
+                }
+                lastAnswer = answer;
+            }
+        }
+        Map<String, String> joined = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : entities.entrySet()) {
+            joined.put(entry.getKey(), join(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(joined);
+    }
+
+    private static String join(List<String> words) {
+        StringBuilder sb = new StringBuilder();
+        for (String word : words) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(word);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the text trimmed, with each run of white space replaced by a space
+     */
+    static String normalize(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = sb.length() > 0;
+            } else {
+                if (space) {
+                    sb.append(' ');
+                    space = false;
+                }
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,49 @@
+package io.metamorphic.analysisservices.profiles;
+
+import org.eobjects.analyzer.beans.BooleanAnalyzer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Mergeable counterpart of the {@link BooleanAnalyzer} column statistics.
+ */
+public class BooleanColumnProfile extends ColumnProfile {
+
+    private static final long serialVersionUID = 1L;
+
+    private int trueCount;
+
+    private int falseCount;
+
+    @Override
+    protected void addValue(Object value) {
+        if (Boolean.TRUE.equals(value)) {
+            trueCount++;
+        } else {
+            falseCount++;
+        }
+    }
+
+    @Override
+    protected void mergeValues(ColumnProfile other) {
+        BooleanColumnProfile profile = (BooleanColumnProfile) other;
+        trueCount += profile.trueCount;
+        falseCount += profile.falseCount;
+    }
+
+    @Override
+    public ColumnProfile newEmptyProfile() {
+        return new BooleanColumnProfile();
+    }
+
+    @Override
+    public Map<String, Object> getMeasures() {
+        Map<String, Object> measures = new LinkedHashMap<>();
+        measures.put(BooleanAnalyzer.MEASURE_ROW_COUNT, getRowCount());
+        measures.put(BooleanAnalyzer.MEASURE_NULL_COUNT, getNullCount());
+        measures.put(BooleanAnalyzer.MEASURE_TRUE_COUNT, trueCount);
+        measures.put(BooleanAnalyzer.MEASURE_FALSE_COUNT, falseCount);
+        return measures;
+    }
+}
@@ -0,0 +1,93 @@
+package io.metamorphic.analysisservices.profiles;
+
+import io.metamorphic.analysisservices.analyzers.DistinctValuesState;
+import org.apache.metamodel.schema.ColumnType;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * Mergeable state of the measures of one column.
+ *
+ * A profile computes the same measures as the analyzer of its column type,
+ * under the same names, but keeps only state that can be saved and combined
+ * with the state of other rows: counts, extremes, moments and sketches.
+ */
+public abstract class ColumnProfile implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private int rowCount;
+
+    private int nullCount;
+
+    /**
+     * @return an empty profile for the type, or null if columns of the type are not profiled
+     */
+    public static ColumnProfile create(ColumnType columnType, DistinctValuesState distinctValuesPrototype, int quantileSketchSize) {
+        if (columnType == ColumnType.NVARCHAR) {
+            return new StringColumnProfile(distinctValuesPrototype.newEmptyState());
+        } else if (columnType == ColumnType.INTEGER || columnType == ColumnType.BIGINT || columnType == ColumnType.DECIMAL) {
+            return new NumberColumnProfile(quantileSketchSize);
+        } else if (columnType == ColumnType.DATE) {
+            return new DateColumnProfile(quantileSketchSize);
+        } else if (columnType == ColumnType.BOOLEAN) {
+            return new BooleanColumnProfile();
+        }
+        return null;
+    }
+
+    public void add(Object value) {
+        rowCount++;
+        if (value == null) {
+            nullCount++;
+        } else {
+            addValue(value);
+        }
+    }
+
+    protected abstract void addValue(Object value);
+
+    public void merge(ColumnProfile other) {
+        if (!isCompatible(other)) {
+            throw new IllegalArgumentException("Cannot merge " + other.getClass().getSimpleName() + " into " + getClass().getSimpleName());
+        }
+        rowCount += other.rowCount;
+        nullCount += other.nullCount;
+        mergeValues(other);
+    }
+
+    protected abstract void mergeValues(ColumnProfile other);
+
+    /**
+     * @return an empty profile with the same configuration
+     */
+    public abstract ColumnProfile newEmptyProfile();
+
+    /**
+     * @return whether the other profile is of the same kind and configuration, so that it can be merged
+     */
+    public boolean isCompatible(ColumnProfile other) {
+        return other != null && other.getClass() == getClass();
+    }
+
+    /**
+     * @return the measures by analyzer measure name; a measure without a value maps to null
+     */
+    public abstract Map<String, Object> getMeasures();
+
+    /**
+     * @return the measures, with at most the given number of the most frequent distinct values
+     */
+    public Map<String, Object> getMeasures(int distinctValuesLimit) {
+        return getMeasures();
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getNullCount() {
+        return nullCount;
+    }
+}
@@ -0,0 +1,111 @@
+package io.metamorphic.analysisservices.profiles;
+
+import io.metamorphic.analysisservices.sketches.QuantileSketch;
+import org.eobjects.analyzer.beans.DateAndTimeAnalyzer;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalTime;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Mergeable counterpart of the {@link DateAndTimeAnalyzer} with descriptive
+ * statistics, computed over timestamps in milliseconds. The median and
+ * quartiles come from a quantile sketch; all other measures are exact.
+ */
+public class DateColumnProfile extends ColumnProfile {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Moments moments = new Moments();
+
+    private final QuantileSketch quantiles;
+
+    private LocalDate minDate;
+    private LocalDate maxDate;
+    private LocalTime minTime;
+    private LocalTime maxTime;
+
+    public DateColumnProfile(int quantileSketchSize) {
+        this.quantiles = new QuantileSketch(quantileSketchSize);
+    }
+
+    @Override
+    protected void addValue(Object value) {
+        Date date = (Date) value;
+        moments.add(date.getTime());
+        quantiles.add(date.getTime());
+        addExtremes(new LocalDate(date), new LocalDate(date), new LocalTime(date), new LocalTime(date));
+    }
+
+    @Override
+    protected void mergeValues(ColumnProfile other) {
+        DateColumnProfile profile = (DateColumnProfile) other;
+        moments.merge(profile.moments);
+        quantiles.merge(profile.quantiles);
+        if (profile.minDate != null) {
+            addExtremes(profile.minDate, profile.maxDate, profile.minTime, profile.maxTime);
+        }
+    }
+
+    private void addExtremes(LocalDate lowDate, LocalDate highDate, LocalTime lowTime, LocalTime highTime) {
+        if (minDate == null) {
+            minDate = lowDate;
+            maxDate = highDate;
+            minTime = lowTime;
+            maxTime = highTime;
+            return;
+        }
+        if (lowDate.isBefore(minDate)) minDate = lowDate;
+        if (highDate.isAfter(maxDate)) maxDate = highDate;
+        if (lowTime.isBefore(minTime)) minTime = lowTime;
+        if (highTime.isAfter(maxTime)) maxTime = highTime;
+    }
+
+    @Override
+    public ColumnProfile newEmptyProfile() {
+        return new DateColumnProfile(quantiles.getK());
+    }
+
+    @Override
+    public boolean isCompatible(ColumnProfile other) {
+        return super.isCompatible(other) && ((DateColumnProfile) other).quantiles.getK() == quantiles.getK();
+    }
+
+    @Override
+    public Map<String, Object> getMeasures() {
+        Map<String, Object> measures = new LinkedHashMap<>();
+        measures.put(DateAndTimeAnalyzer.MEASURE_ROW_COUNT, getRowCount());
+        measures.put(DateAndTimeAnalyzer.MEASURE_NULL_COUNT, getNullCount());
+        measures.put(DateAndTimeAnalyzer.MEASURE_HIGHEST_DATE, toString(maxDate));
+        measures.put(DateAndTimeAnalyzer.MEASURE_LOWEST_DATE, toString(minDate));
+        measures.put(DateAndTimeAnalyzer.MEASURE_HIGHEST_TIME, toString(maxTime));
+        measures.put(DateAndTimeAnalyzer.MEASURE_LOWEST_TIME, toString(minTime));
+        measures.put(DateAndTimeAnalyzer.MEASURE_MEAN, toDateString(moments.getMean()));
+        measures.put(DateAndTimeAnalyzer.MEASURE_MEDIAN, toDateString(quantiles.getQuantile(0.5)));
+        measures.put(DateAndTimeAnalyzer.MEASURE_PERCENTILE25, toDateString(quantiles.getQuantile(0.25)));
+        measures.put(DateAndTimeAnalyzer.MEASURE_PERCENTILE75, toDateString(quantiles.getQuantile(0.75)));
+        measures.put(DateAndTimeAnalyzer.MEASURE_KURTOSIS, toNumber(moments.getKurtosis()));
+        measures.put(DateAndTimeAnalyzer.MEASURE_SKEWNESS, toNumber(moments.getSkewness()));
+        measures.put(NumberColumnProfile.MEASURE_QUANTILE_RANK_ERROR, moments.getN() > 0 ? quantiles.getNormalizedRankError() : null);
+        return measures;
+    }
+
+    private static String toString(Object obj) {
+        return obj == null ? null : obj.toString();
+    }
+
+    // formatted as by the analyzer
+    private static String toDateString(double timestamp) {
+        if (Double.isNaN(timestamp)) {
+            return null;
+        }
+        return new SimpleDateFormat("yyyy-MM-dd HH:mm").format(new Date((long) timestamp));
+    }
+
+    private static Number toNumber(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+}
@@ -0,0 +1,83 @@
+package io.metamorphic.analysisservices.profiles;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Saves each profile as a serialized file in a local directory, named by a
+ * hash of its key. A profile is written to a temporary file first and then
+ * moved into place, so a failed run never leaves a partly written profile.
+ */
+public class FileProfileStore implements ProfileStore {
+
+    private static final Log log = LogFactory.getLog(FileProfileStore.class);
+
+    private static final String SUFFIX = ".profile";
+
+    private final File directory;
+
+    public FileProfileStore(File directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public TableProfile load(String key) throws IOException {
+        File file = getFile(key);
+        if (!file.exists()) {
+            return null;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return (TableProfile) in.readObject();
+        } catch (ClassNotFoundException | ObjectStreamException | ClassCastException e) {
+            // saved by an incompatible version; the table is profiled from scratch
+            log.warn("Discarding unreadable profile " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void save(String key, TableProfile profile) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create directory " + directory);
+        }
+        File file = getFile(key);
+        File tempFile = File.createTempFile("profile", ".tmp", directory);
+        try {
+            try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeObject(profile);
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(getFile(key).toPath());
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    private File getFile(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b));
+            }
+            return new File(directory, sb.append(SUFFIX).toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package io.metamorphic.analysisservices.profiles;
+
+import io.metamorphic.analysisservices.jdbc.SqlDialect;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Profiles a database table by scanning only the rows added since the last
+ * run, and merging them into the profile saved by that run.
+ *
+ * Rows are recognized as new by a watermark column, such as an identity or
+ * load timestamp, whose value must be set and must increase for every row
+ * appended. Updates and deletes of rows already profiled are not seen. A
+ * table is profiled from scratch when it has no saved profile, when its
+ * columns or the profile configuration have changed since, or when the saved
+ * profile has no watermark, as no row profiled then had one.
+ */
+public class IncrementalTableProfiler {
+
+    private static final Log log = LogFactory.getLog(IncrementalTableProfiler.class);
+
+    private final SqlDialect dialect;
+
+    private final ProfileStore profileStore;
+
+    private final int fetchSize;
+
+    /**
+     * @param fetchSize the number of rows fetched from the database at a time
+     */
+    public IncrementalTableProfiler(SqlDialect dialect, ProfileStore profileStore, int fetchSize) {
+        this.dialect = dialect;
+        this.profileStore = profileStore;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * @param key identifies the table in the profile store
+     * @param emptyProfile an empty profile of the columns to profile, which determines their configuration
+     * @return the profile of all rows of the table, which has also been saved
+     */
+    public TableProfile profile(Connection connection, String key, String schemaName, String tableName,
+                                TableProfile emptyProfile) throws SQLException, IOException {
+        TableProfile saved = profileStore.load(key);
+        if (saved != null && !saved.isCompatible(emptyProfile)) {
+            log.info("Columns or configuration of " + tableName + " have changed; profiling from scratch");
+            saved = null;
+        } else if (saved != null && saved.getWatermark() == null) {
+            // the new rows cannot be told apart, and merging all of them would count the saved rows twice
+            log.info("Saved profile of " + tableName + " has no watermark; profiling from scratch");
+            saved = null;
+        }
+        TableProfile delta = emptyProfile.newEmptyProfile();
+        Object watermark = saved == null ? null : saved.getWatermark();
+        TableScan scan = new TableScan(dialect, schemaName, tableName, fetchSize, 0);
+        long rowsRead;
+        if (watermark == null) {
+            rowsRead = scan.read(connection, delta, null);
+        } else {
+            rowsRead = scan.read(connection, delta, dialect.quoteIdentifier(emptyProfile.getWatermarkColumn()) + " > ?", watermark);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Read " + rowsRead + " rows of " + tableName + " past watermark " + watermark);
+        }
+        TableProfile profile;
+        if (saved == null) {
+            profile = delta;
+        } else {
+            saved.merge(delta);
+            profile = saved;
+        }
+        profileStore.save(key, profile);
+        return profile;
+    }
+}
@@ -0,0 +1,147 @@
+package io.metamorphic.analysisservices.profiles;
+
+import java.io.Serializable;
+
+/**
+ * Count, extremes, sums and central moments of a stream of numbers.
+ *
+ * Moments of two streams are combined with the pairwise update of Pebay, so
+ * the statistics of merged states equal those of one pass over all values up
+ * to floating point rounding. Results follow the commons-math descriptive
+ * statistics used by the analyzers.
+ */
+final class Moments implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private long n;
+    private double mean;
+    private double m2;
+    private double m3;
+    private double m4;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    private double sum;
+    private double sumOfSquares;
+    private double sumOfLogs;
+
+    void add(double value) {
+        long n0 = n;
+        n++;
+        double delta = value - mean;
+        double deltaN = delta / n;
+        double deltaN2 = deltaN * deltaN;
+        double term1 = delta * deltaN * n0;
+        mean += deltaN;
+        m4 += term1 * deltaN2 * (n * n - 3 * n + 3) + 6 * deltaN2 * m2 - 4 * deltaN * m3;
+        m3 += term1 * deltaN * (n - 2) - 3 * deltaN * m2;
+        m2 += term1;
+        if (n0 == 0 || value < min) min = value;
+        if (n0 == 0 || value > max) max = value;
+        sum += value;
+        sumOfSquares += value * value;
+        sumOfLogs += Math.log(value);
+    }
+
+    void merge(Moments other) {
+        if (other.n == 0) {
+            return;
+        }
+        if (n == 0) {
+            n = other.n;
+            mean = other.mean;
+            m2 = other.m2;
+            m3 = other.m3;
+            m4 = other.m4;
+            min = other.min;
+            max = other.max;
+            sum = other.sum;
+            sumOfSquares = other.sumOfSquares;
+            sumOfLogs = other.sumOfLogs;
+            return;
+        }
+        double na = n;
+        double nb = other.n;
+        double total = na + nb;
+        double delta = other.mean - mean;
+        double delta2 = delta * delta;
+        double combinedM2 = m2 + other.m2 + delta2 * na * nb / total;
+        double combinedM3 = m3 + other.m3
+                + delta2 * delta * na * nb * (na - nb) / (total * total)
+                + 3 * delta * (na * other.m2 - nb * m2) / total;
+        double combinedM4 = m4 + other.m4
+                + delta2 * delta2 * na * nb * (na * na - na * nb + nb * nb) / (total * total * total)
+                + 6 * delta2 * (na * na * other.m2 + nb * nb * m2) / (total * total)
+                + 4 * delta * (na * other.m3 - nb * m3) / total;
+        n += other.n;
+        mean += delta * nb / total;
+        m2 = combinedM2;
+        m3 = combinedM3;
+        m4 = combinedM4;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        sum += other.sum;
+        sumOfSquares += other.sumOfSquares;
+        sumOfLogs += other.sumOfLogs;
+    }
+
+    long getN() {
+        return n;
+    }
+
+    double getMean() {
+        return n == 0 ? Double.NaN : mean;
+    }
+
+    double getMin() {
+        return min;
+    }
+
+    double getMax() {
+        return max;
+    }
+
+    double getSum() {
+        return sum;
+    }
+
+    double getSumOfSquares() {
+        return sumOfSquares;
+    }
+
+    double getSecondMoment() {
+        return n == 0 ? Double.NaN : m2;
+    }
+
+    double getGeometricMean() {
+        return n == 0 ? Double.NaN : Math.exp(sumOfLogs / n);
+    }
+
+    double getVariance() {
+        if (n == 0) return Double.NaN;
+        if (n == 1) return 0.0;
+        return m2 / (n - 1);
+    }
+
+    double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    double getSkewness() {
+        if (n < 3) {
+            return Double.NaN;
+        }
+        double variance = getVariance();
+        return n / ((n - 1.0) * (n - 2.0)) * (m3 / (variance * Math.sqrt(variance)));
+    }
+
+    double getKurtosis() {
+        if (n < 4) {
+            return Double.NaN;
+        }
+        double variance = getVariance();
+        double coefficientOne = n * (n + 1.0) / ((n - 1.0) * (n - 2.0) * (n - 3.0));
+        double termTwo = 3.0 * (n - 1.0) * (n - 1.0) / ((n - 2.0) * (n - 3.0));
+        return coefficientOne * (m4 / (variance * variance)) - termTwo;
+    }
+}
@@ -0,0 +1,75 @@
+package io.metamorphic.analysisservices.profiles;
+
+import io.metamorphic.analysisservices.sketches.QuantileSketch;
+import org.eobjects.analyzer.beans.NumberAnalyzer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Mergeable counterpart of the {@link NumberAnalyzer} with descriptive
+ * statistics. The median and quartiles come from a quantile sketch; all other
+ * measures are exact.
+ */
+public class NumberColumnProfile extends ColumnProfile {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String MEASURE_QUANTILE_RANK_ERROR = "Quantile rank error";
+
+    private final Moments moments = new Moments();
+
+    private final QuantileSketch quantiles;
+
+    public NumberColumnProfile(int quantileSketchSize) {
+        this.quantiles = new QuantileSketch(quantileSketchSize);
+    }
+
+    @Override
+    protected void addValue(Object value) {
+        double doubleValue = ((Number) value).doubleValue();
+        moments.add(doubleValue);
+        quantiles.add(doubleValue);
+    }
+
+    @Override
+    protected void mergeValues(ColumnProfile other) {
+        NumberColumnProfile profile = (NumberColumnProfile) other;
+        moments.merge(profile.moments);
+        quantiles.merge(profile.quantiles);
+    }
+
+    @Override
+    public ColumnProfile newEmptyProfile() {
+        return new NumberColumnProfile(quantiles.getK());
+    }
+
+    @Override
+    public boolean isCompatible(ColumnProfile other) {
+        return super.isCompatible(other) && ((NumberColumnProfile) other).quantiles.getK() == quantiles.getK();
+    }
+
+    @Override
+    public Map<String, Object> getMeasures() {
+        Map<String, Object> measures = new LinkedHashMap<>();
+        measures.put(NumberAnalyzer.MEASURE_ROW_COUNT, getRowCount());
+        measures.put(NumberAnalyzer.MEASURE_NULL_COUNT, getNullCount());
+        boolean hasValues = moments.getN() > 0;
+        measures.put(NumberAnalyzer.MEASURE_HIGHEST_VALUE, hasValues ? moments.getMax() : null);
+        measures.put(NumberAnalyzer.MEASURE_LOWEST_VALUE, hasValues ? moments.getMin() : null);
+        measures.put(NumberAnalyzer.MEASURE_SUM, hasValues ? moments.getSum() : null);
+        measures.put(NumberAnalyzer.MEASURE_MEAN, hasValues ? moments.getMean() : null);
+        measures.put(NumberAnalyzer.MEASURE_GEOMETRIC_MEAN, hasValues ? moments.getGeometricMean() : null);
+        measures.put(NumberAnalyzer.MEASURE_STANDARD_DEVIATION, hasValues ? moments.getStandardDeviation() : null);
+        measures.put(NumberAnalyzer.MEASURE_VARIANCE, hasValues ? moments.getVariance() : null);
+        measures.put(NumberAnalyzer.MEASURE_SECOND_MOMENT, hasValues ? moments.getSecondMoment() : null);
+        measures.put(NumberAnalyzer.MEASURE_SUM_OF_SQUARES, hasValues ? moments.getSumOfSquares() : null);
+        measures.put(NumberAnalyzer.MEASURE_MEDIAN, hasValues ? quantiles.getQuantile(0.5) : null);
+        measures.put(NumberAnalyzer.MEASURE_PERCENTILE25, hasValues ? quantiles.getQuantile(0.25) : null);
+        measures.put(NumberAnalyzer.MEASURE_PERCENTILE75, hasValues ? quantiles.getQuantile(0.75) : null);
+        measures.put(NumberAnalyzer.MEASURE_SKEWNESS, hasValues ? moments.getSkewness() : null);
+        measures.put(NumberAnalyzer.MEASURE_KURTOSIS, hasValues ? moments.getKurtosis() : null);
+        measures.put(MEASURE_QUANTILE_RANK_ERROR, hasValues ? quantiles.getNormalizedRankError() : null);
+        return measures;
+    }
+}
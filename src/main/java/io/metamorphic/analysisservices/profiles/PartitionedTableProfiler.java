@@ -0,0 +1,181 @@
+package io.metamorphic.analysisservices.profiles;
+
+import io.metamorphic.analysisservices.jdbc.SqlDialect;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Profiles a database table by scanning its partitions concurrently, each
+ * over a connection of its own, and merging the profiles of the partitions.
+ *
+ * The merged profile has the same measures as the profile of one scan of the
+ * whole table; only the median and quartiles, which come from quantile
+ * sketches, may differ within the rank error of the sketch.
+ */
+public class PartitionedTableProfiler {
+
+    private static final Log log = LogFactory.getLog(PartitionedTableProfiler.class);
+
+    private final SqlDialect dialect;
+
+    private final int maxConcurrentPartitions;
+
+    private final int fetchSize;
+
+    /**
+     * @param maxConcurrentPartitions the number of partitions scanned at the same time, which should not
+     *                                exceed the connections available from the data source
+     * @param fetchSize the number of rows of each partition fetched from the database at a time
+     */
+    public PartitionedTableProfiler(SqlDialect dialect, int maxConcurrentPartitions, int fetchSize) {
+        this.dialect = dialect;
+        this.maxConcurrentPartitions = maxConcurrentPartitions;
+        this.fetchSize = fetchSize;
+    }
+
+    public TableProfile profile(final DataSource dataSource, String schemaName, String tableName,
+                                final TableProfile emptyProfile, Partitioning partitioning) throws SQLException {
+        final TableScan scan = new TableScan(dialect, schemaName, tableName, fetchSize, 0);
+        List<Partition> partitions;
+        try (Connection connection = dataSource.getConnection()) {
+            partitions = getPartitions(connection, schemaName, tableName, partitioning, isIntegerKey(emptyProfile, partitioning));
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Scanning " + tableName + " in " + partitions.size() + " partitions by " + partitioning);
+        }
+        int threads = Math.max(1, Math.min(maxConcurrentPartitions, partitions.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<TableProfile>> futures = new ArrayList<>();
+            for (final Partition partition : partitions) {
+                futures.add(executor.submit(new Callable<TableProfile>() {
+                    @Override
+                    public TableProfile call() throws SQLException {
+                        TableProfile profile = emptyProfile.newEmptyProfile();
+                        try (Connection connection = dataSource.getConnection()) {
+                            scan.read(connection, profile, partition.condition, partition.parameters);
+                        }
+                        return profile;
+                    }
+                }));
+            }
+            // merged in partition order, so that the result does not depend on which scan finishes first
+            TableProfile profile = emptyProfile.newEmptyProfile();
+            for (Future<TableProfile> future : futures) {
+                profile.merge(future.get());
+            }
+            return profile;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while profiling " + tableName, e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return whether the key is a column of the table analyzed as an integer
+     */
+    private static boolean isIntegerKey(TableProfile emptyProfile, Partitioning partitioning) {
+        List<String> columnNames = emptyProfile.getColumnNames();
+        for (int i = 0; i < columnNames.size(); i++) {
+            if (columnNames.get(i).equalsIgnoreCase(partitioning.getColumn())) {
+                return "INTEGER".equals(emptyProfile.getColumnTypeNames().get(i));
+            }
+        }
+        return false;
+    }
+
+    private List<Partition> getPartitions(Connection connection, String schemaName, String tableName,
+                                         Partitioning partitioning, boolean integerKey) throws SQLException {
+        String key = dialect.quoteIdentifier(partitioning.getColumn());
+        int n = partitioning.getPartitions();
+        List<Partition> partitions = new ArrayList<>();
+        if (partitioning.getMethod() == Partitioning.Method.MODULO && !integerKey && n > 1) {
+            // the remainders of fractional keys are not whole, so their rows would be in no partition
+            log.warn("Partitioning " + tableName + " by key range, as " + partitioning.getColumn() + " is not an integer column");
+        }
+        if (n == 1) {
+            partitions.add(new Partition(null));
+        } else if (partitioning.getMethod() == Partitioning.Method.MODULO && integerKey) {
+            String remainder = "ABS(" + dialect.getModuloExpression(key, n) + ")";
+            for (int i = 0; i < n; i++) {
+                String condition = remainder + " = " + i;
+                partitions.add(new Partition(i == 0 ? condition + " OR " + key + " IS NULL" : condition));
+            }
+        } else {
+            BigDecimal[] range = getKeyRange(connection, schemaName, tableName, key);
+            if (range == null) {
+                partitions.add(new Partition(null));
+                return partitions;
+            }
+            BigDecimal width = range[1].subtract(range[0]).divide(BigDecimal.valueOf(n), MathContext.DECIMAL64);
+            BigDecimal lower = null;
+            for (int i = 1; i <= n; i++) {
+                // the outer partitions are open-ended, so that rows added meanwhile are not missed
+                BigDecimal upper = i == n ? null : range[0].add(width.multiply(BigDecimal.valueOf(i)));
+                if (lower == null) {
+                    partitions.add(new Partition(key + " < ? OR " + key + " IS NULL", upper));
+                } else if (upper == null) {
+                    partitions.add(new Partition(key + " >= ?", lower));
+                } else {
+                    partitions.add(new Partition(key + " >= ? AND " + key + " < ?", lower, upper));
+                }
+                lower = upper;
+            }
+        }
+        return partitions;
+    }
+
+    /**
+     * @return the lowest and highest key, or null if the table has no keys
+     */
+    private BigDecimal[] getKeyRange(Connection connection, String schemaName, String tableName, String key) throws SQLException {
+        String sql = "SELECT MIN(" + key + "), MAX(" + key + ") FROM " + dialect.getQualifiedTableName(schemaName, tableName);
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            Object min = rs.getObject(1);
+            Object max = rs.getObject(2);
+            if (min == null || max == null) {
+                return null;
+            }
+            if (!(min instanceof Number) || !(max instanceof Number)) {
+                throw new IllegalArgumentException("Key range partitioning needs a numeric column, not " + min.getClass().getSimpleName());
+            }
+            return new BigDecimal[] {new BigDecimal(min.toString()), new BigDecimal(max.toString())};
+        }
+    }
+
+    private static final class Partition {
+
+        // null for the whole table
+        final String condition;
+        final Object[] parameters;
+
+        Partition(String condition, Object... parameters) {
+            this.condition = condition;
+            this.parameters = parameters;
+        }
+    }
+}
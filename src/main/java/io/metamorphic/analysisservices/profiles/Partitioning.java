@@ -0,0 +1,72 @@
+package io.metamorphic.analysisservices.profiles;
+
+import java.io.Serializable;
+
+/**
+ * How a table is split by a numeric column into partitions that are scanned
+ * concurrently. Rows with a null key are read with the first partition.
+ */
+public final class Partitioning implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Method {
+
+        /**
+         * Equal-width ranges between the lowest and highest key. Suits keys
+         * spread evenly over their range, such as identities.
+         */
+        KEY_RANGE,
+
+        /**
+         * The remainder of the key divided by the number of partitions. Suits
+         * keys with gaps or skew, but each partition may scan the whole table
+         * unless the database can use an index on the expression. Only an
+         * integer key has whole remainders; any other is split by key range.
+         */
+        MODULO
+    }
+
+    private final Method method;
+
+    private final String column;
+
+    private final int partitions;
+
+    private Partitioning(Method method, String column, int partitions) {
+        if (column == null || column.isEmpty()) {
+            throw new IllegalArgumentException("column must be given");
+        }
+        if (partitions < 1) {
+            throw new IllegalArgumentException("partitions must be positive");
+        }
+        this.method = method;
+        this.column = column;
+        this.partitions = partitions;
+    }
+
+    public static Partitioning keyRange(String column, int partitions) {
+        return new Partitioning(Method.KEY_RANGE, column, partitions);
+    }
+
+    public static Partitioning modulo(String column, int partitions) {
+        return new Partitioning(Method.MODULO, column, partitions);
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    @Override
+    public String toString() {
+        return method + "(" + column + ", " + partitions + ")";
+    }
+}
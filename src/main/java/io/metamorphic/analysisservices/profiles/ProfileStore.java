@@ -0,0 +1,18 @@
+package io.metamorphic.analysisservices.profiles;
+
+import java.io.IOException;
+
+/**
+ * Persists table profiles between runs of incremental profiling.
+ */
+public interface ProfileStore {
+
+    /**
+     * @return the saved profile, or null if there is none or it can no longer be read
+     */
+    TableProfile load(String key) throws IOException;
+
+    void save(String key, TableProfile profile) throws IOException;
+
+    void delete(String key) throws IOException;
+}
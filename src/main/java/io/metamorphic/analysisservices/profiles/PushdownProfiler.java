@@ -0,0 +1,314 @@
+package io.metamorphic.analysisservices.profiles;
+
+import io.metamorphic.analysisservices.analyzers.DistinctValuesAnalyzer;
+import io.metamorphic.analysisservices.jdbc.SqlDialect;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.eobjects.analyzer.beans.BooleanAnalyzer;
+import org.eobjects.analyzer.beans.DateAndTimeAnalyzer;
+import org.eobjects.analyzer.beans.NumberAnalyzer;
+import org.eobjects.analyzer.beans.StringAnalyzer;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalTime;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Profiles a database table with aggregate queries, so that the database
+ * computes the measures it can instead of sending every row.
+ *
+ * One query per group of columns counts the rows and the nulls of each
+ * column, and computes the extremes, sum, mean and variance of numbers, the
+ * distinct values count, blank count and lengths of strings, the extremes of
+ * the dates and times of dates, and the true and false counts of booleans.
+ * The other measures, such as the character classes of strings and the
+ * quantiles of numbers, need every value: the table is scanned for those of
+ * them that are selected, reading only the columns that have one, and not at
+ * all if none is. As the queries and the scan are separate statements, rows
+ * written in between are counted by one and not the other. Counts and sums
+ * are reported as longs, so that they hold for tables of any size.
+ */
+public class PushdownProfiler {
+
+    private static final Log log = LogFactory.getLog(PushdownProfiler.class);
+
+    /**
+     * The measures of the column profiles that cannot be pushed down, and so are computed by a scan.
+     */
+    public static final Set<String> SCAN_MEASURES = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(
+            StringAnalyzer.MEASURE_ENTIRELY_UPPERCASE_COUNT, StringAnalyzer.MEASURE_ENTIRELY_LOWERCASE_COUNT,
+            StringAnalyzer.MEASURE_MAX_WHITE_SPACES, StringAnalyzer.MEASURE_MIN_WHITE_SPACES, StringAnalyzer.MEASURE_AVG_WHITE_SPACES,
+            StringAnalyzer.MEASURE_UPPERCASE_CHARS, StringAnalyzer.MEASURE_UPPERCASE_CHARS_EXCL_FIRST_LETTERS,
+            StringAnalyzer.MEASURE_LOWERCASE_CHARS, StringAnalyzer.MEASURE_DIGIT_CHARS, StringAnalyzer.MEASURE_DIACRITIC_CHARS,
+            StringAnalyzer.MEASURE_NON_LETTER_CHARS, StringAnalyzer.MEASURE_WORD_COUNT, StringAnalyzer.MEASURE_MAX_WORDS,
+            StringAnalyzer.MEASURE_MIN_WORDS, DistinctValuesAnalyzer.MEASURE_TOP_5, DistinctValuesAnalyzer.MEASURE_TOP_5_ERRORS,
+            DistinctValuesAnalyzer.MEASURE_DISTINCT_VALUES, NumberAnalyzer.MEASURE_GEOMETRIC_MEAN, NumberAnalyzer.MEASURE_MEDIAN,
+            NumberAnalyzer.MEASURE_PERCENTILE25, NumberAnalyzer.MEASURE_PERCENTILE75, NumberAnalyzer.MEASURE_SKEWNESS,
+            NumberAnalyzer.MEASURE_KURTOSIS, NumberColumnProfile.MEASURE_QUANTILE_RANK_ERROR, DateAndTimeAnalyzer.MEASURE_MEAN)));
+
+    private static final Map<Class<? extends ColumnProfile>, Set<String>> PUSHDOWN_MEASURES = new HashMap<>();
+
+    static {
+        PUSHDOWN_MEASURES.put(NumberColumnProfile.class, new LinkedHashSet<>(Arrays.asList(
+                NumberAnalyzer.MEASURE_ROW_COUNT, NumberAnalyzer.MEASURE_NULL_COUNT, NumberAnalyzer.MEASURE_HIGHEST_VALUE,
+                NumberAnalyzer.MEASURE_LOWEST_VALUE, NumberAnalyzer.MEASURE_SUM, NumberAnalyzer.MEASURE_MEAN,
+                NumberAnalyzer.MEASURE_STANDARD_DEVIATION, NumberAnalyzer.MEASURE_VARIANCE,
+                NumberAnalyzer.MEASURE_SECOND_MOMENT, NumberAnalyzer.MEASURE_SUM_OF_SQUARES)));
+        PUSHDOWN_MEASURES.put(StringColumnProfile.class, new LinkedHashSet<>(Arrays.asList(
+                StringAnalyzer.MEASURE_ROW_COUNT, StringAnalyzer.MEASURE_NULL_COUNT, StringAnalyzer.MEASURE_BLANK_COUNT,
+                StringAnalyzer.MEASURE_TOTAL_CHAR_COUNT, StringAnalyzer.MEASURE_MAX_CHARS, StringAnalyzer.MEASURE_MIN_CHARS,
+                StringAnalyzer.MEASURE_AVG_CHARS, DistinctValuesAnalyzer.MEASURE_DISTINCT_VALUES_COUNT,
+                DistinctValuesAnalyzer.MEASURE_DISTINCT_VALUES_COUNT_ERROR)));
+        PUSHDOWN_MEASURES.put(DateColumnProfile.class, new LinkedHashSet<>(Arrays.asList(
+                DateAndTimeAnalyzer.MEASURE_ROW_COUNT, DateAndTimeAnalyzer.MEASURE_NULL_COUNT,
+                DateAndTimeAnalyzer.MEASURE_HIGHEST_DATE, DateAndTimeAnalyzer.MEASURE_LOWEST_DATE,
+                DateAndTimeAnalyzer.MEASURE_HIGHEST_TIME, DateAndTimeAnalyzer.MEASURE_LOWEST_TIME)));
+        PUSHDOWN_MEASURES.put(BooleanColumnProfile.class, new LinkedHashSet<>(Arrays.asList(
+                BooleanAnalyzer.MEASURE_ROW_COUNT, BooleanAnalyzer.MEASURE_NULL_COUNT,
+                BooleanAnalyzer.MEASURE_TRUE_COUNT, BooleanAnalyzer.MEASURE_FALSE_COUNT)));
+    }
+
+    private final SqlDialect dialect;
+
+    private final int maxColumnsPerQuery;
+
+    private final int queryTimeoutSeconds;
+
+    private final int fetchSize;
+
+    /**
+     * @param maxColumnsPerQuery the number of columns aggregated by one query, or 0 for all the columns of the table
+     * @param queryTimeoutSeconds the time limit of each query and of the scan, or 0 for none
+     * @param fetchSize the number of rows fetched from the database at a time by the scan
+     */
+    public PushdownProfiler(SqlDialect dialect, int maxColumnsPerQuery, int queryTimeoutSeconds, int fetchSize) {
+        this.dialect = dialect;
+        this.maxColumnsPerQuery = maxColumnsPerQuery;
+        this.queryTimeoutSeconds = queryTimeoutSeconds;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * @param emptyProfile the columns of the table, with an empty profile of each column to profile
+     * @param scanMeasures the measures to scan the table for, of those that cannot be pushed down
+     * @return the measures of each column, in the order of its profile, or null for a column not profiled
+     */
+    public List<Map<String, Object>> profile(Connection connection, String schemaName, String tableName,
+                                             TableProfile emptyProfile, Set<String> scanMeasures,
+                                             int distinctValuesLimit) throws SQLException {
+        List<String> columnNames = emptyProfile.getColumnNames();
+        int columnCount = columnNames.size();
+        List<Map<String, Object>> aggregates = new ArrayList<>(Collections.<Map<String, Object>>nCopies(columnCount, null));
+        List<Integer> group = new ArrayList<>();
+        for (int i = 0; i < columnCount; i++) {
+            if (emptyProfile.getColumnProfile(i) != null) {
+                group.add(i);
+                if (group.size() == maxColumnsPerQuery) {
+                    aggregate(connection, schemaName, tableName, emptyProfile, group, aggregates);
+                    group.clear();
+                }
+            }
+        }
+        if (!group.isEmpty()) {
+            aggregate(connection, schemaName, tableName, emptyProfile, group, aggregates);
+        }
+
+        // only the columns with a scan measure selected are read
+        int[] scanIndexes = new int[columnCount];
+        List<String> scanNames = new ArrayList<>();
+        List<String> scanTypeNames = new ArrayList<>();
+        List<ColumnProfile> scanProfiles = new ArrayList<>();
+        for (int i = 0; i < columnCount; i++) {
+            ColumnProfile profile = emptyProfile.getColumnProfile(i);
+            scanIndexes[i] = -1;
+            if (profile != null && hasScanMeasure(profile, scanMeasures)) {
+                scanIndexes[i] = scanNames.size();
+                scanNames.add(columnNames.get(i));
+                scanTypeNames.add(emptyProfile.getColumnTypeNames().get(i));
+                scanProfiles.add(profile.newEmptyProfile());
+            }
+        }
+        TableProfile scanned = null;
+        if (!scanNames.isEmpty()) {
+            scanned = new TableProfile(scanNames, scanTypeNames, scanProfiles, null);
+            new TableScan(dialect, schemaName, tableName, fetchSize, queryTimeoutSeconds).read(connection, scanned, null);
+        } else if (log.isDebugEnabled()) {
+            log.debug("No measures to scan " + tableName + " for");
+        }
+
+        List<Map<String, Object>> measuresByColumn = new ArrayList<>();
+        for (int i = 0; i < columnCount; i++) {
+            ColumnProfile profile = emptyProfile.getColumnProfile(i);
+            if (profile == null) {
+                measuresByColumn.add(null);
+                continue;
+            }
+            Set<String> pushdownMeasures = PUSHDOWN_MEASURES.get(profile.getClass());
+            Map<String, Object> aggregate = aggregates.get(i);
+            ColumnProfile scannedProfile = scanIndexes[i] < 0 ? null : scanned.getColumnProfile(scanIndexes[i]);
+            Map<String, Object> measures = new LinkedHashMap<>();
+            for (Map.Entry<String, Object> measure : (scannedProfile == null ? profile : scannedProfile).getMeasures(distinctValuesLimit).entrySet()) {
+                if (pushdownMeasures.contains(measure.getKey())) {
+                    measures.put(measure.getKey(), aggregate.get(measure.getKey()));
+                } else if (scannedProfile != null && scanMeasures.contains(measure.getKey())) {
+                    measures.put(measure.getKey(), measure.getValue());
+                }
+            }
+            measuresByColumn.add(measures);
+        }
+        return measuresByColumn;
+    }
+
+    private static boolean hasScanMeasure(ColumnProfile profile, Set<String> scanMeasures) {
+        Set<String> pushdownMeasures = PUSHDOWN_MEASURES.get(profile.getClass());
+        Set<String> measures = profile.getMeasures().keySet();
+        for (String measure : scanMeasures) {
+            if (!pushdownMeasures.contains(measure) && measures.contains(measure)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Computes the measures of a group of columns with one query, which has the
+     * row count, then the aggregates of each column in turn.
+     */
+    private void aggregate(Connection connection, String schemaName, String tableName, TableProfile emptyProfile,
+                           List<Integer> columns, List<Map<String, Object>> aggregates) throws SQLException {
+        StringBuilder sb = new StringBuilder("SELECT COUNT(*)");
+        for (int i : columns) {
+            String column = dialect.quoteIdentifier(emptyProfile.getColumnNames().get(i));
+            sb.append(", COUNT(").append(column).append(')');
+            ColumnProfile profile = emptyProfile.getColumnProfile(i);
+            if (profile instanceof NumberColumnProfile) {
+                String value = dialect.getDoubleExpression(column);
+                sb.append(", MIN(").append(column).append("), MAX(").append(column).append("), SUM(").append(column)
+                        .append("), ").append(dialect.getVarianceExpression(column))
+                        .append(", SUM(").append(value).append(" * ").append(value).append(')');
+            } else if (profile instanceof StringColumnProfile) {
+                String length = dialect.getCharLengthExpression(column);
+                sb.append(", COUNT(DISTINCT ").append(column).append("), MIN(").append(length).append("), MAX(").append(length)
+                        .append("), SUM(").append(length).append("), SUM(CASE WHEN ").append(length).append(" = 0 THEN 1 ELSE 0 END)");
+            } else if (profile instanceof DateColumnProfile) {
+                sb.append(", MIN(").append(column).append("), MAX(").append(column).append(')');
+            } else if (profile instanceof BooleanColumnProfile) {
+                sb.append(", SUM(CASE WHEN ").append(column).append(" = TRUE THEN 1 ELSE 0 END)");
+            }
+        }
+        sb.append(" FROM ").append(dialect.getQualifiedTableName(schemaName, tableName));
+        String sql = sb.toString();
+        if (log.isDebugEnabled()) {
+            log.debug("Profiling with " + sql);
+        }
+        try (Statement statement = connection.createStatement()) {
+            if (queryTimeoutSeconds > 0) {
+                statement.setQueryTimeout(queryTimeoutSeconds);
+            }
+            try (ResultSet rs = statement.executeQuery(sql)) {
+                rs.next();
+                long rowCount = getLong(rs, 1);
+                int k = 2;
+                for (int i : columns) {
+                    Map<String, Object> measures = new HashMap<>();
+                    long valueCount = getLong(rs, k++);
+                    long nullCount = rowCount - valueCount;
+                    boolean hasValues = valueCount > 0;
+                    ColumnProfile profile = emptyProfile.getColumnProfile(i);
+                    if (profile instanceof NumberColumnProfile) {
+                        Double min = getDouble(rs, k++);
+                        Double max = getDouble(rs, k++);
+                        Double sum = getDouble(rs, k++);
+                        Double variance = getDouble(rs, k++);
+                        Double sumOfSquares = getDouble(rs, k++);
+                        if (hasValues && variance == null) {
+                            // the sample variance of one value is undefined, but the analyzer reports 0
+                            variance = 0.0;
+                        }
+                        measures.put(NumberAnalyzer.MEASURE_ROW_COUNT, rowCount);
+                        measures.put(NumberAnalyzer.MEASURE_NULL_COUNT, nullCount);
+                        measures.put(NumberAnalyzer.MEASURE_HIGHEST_VALUE, max);
+                        measures.put(NumberAnalyzer.MEASURE_LOWEST_VALUE, min);
+                        measures.put(NumberAnalyzer.MEASURE_SUM, hasValues ? sum : null);
+                        measures.put(NumberAnalyzer.MEASURE_MEAN, hasValues ? sum / valueCount : null);
+                        measures.put(NumberAnalyzer.MEASURE_STANDARD_DEVIATION, hasValues ? Math.sqrt(variance) : null);
+                        measures.put(NumberAnalyzer.MEASURE_VARIANCE, variance);
+                        measures.put(NumberAnalyzer.MEASURE_SECOND_MOMENT, hasValues ? variance * (valueCount - 1) : null);
+                        measures.put(NumberAnalyzer.MEASURE_SUM_OF_SQUARES, hasValues ? sumOfSquares : null);
+                    } else if (profile instanceof StringColumnProfile) {
+                        long distinctCount = getLong(rs, k++);
+                        Integer minChars = getInteger(rs, k++);
+                        Integer maxChars = getInteger(rs, k++);
+                        long charCount = getLong(rs, k++);
+                        long blankCount = getLong(rs, k++);
+                        measures.put(StringAnalyzer.MEASURE_ROW_COUNT, rowCount);
+                        measures.put(StringAnalyzer.MEASURE_NULL_COUNT, nullCount);
+                        measures.put(StringAnalyzer.MEASURE_BLANK_COUNT, blankCount);
+                        measures.put(StringAnalyzer.MEASURE_TOTAL_CHAR_COUNT, charCount);
+                        measures.put(StringAnalyzer.MEASURE_MAX_CHARS, maxChars);
+                        measures.put(StringAnalyzer.MEASURE_MIN_CHARS, minChars);
+                        measures.put(StringAnalyzer.MEASURE_AVG_CHARS, hasValues ? charCount / (double) valueCount : null);
+                        // the distinct values analyzer counts null as a value
+                        measures.put(DistinctValuesAnalyzer.MEASURE_DISTINCT_VALUES_COUNT, distinctCount + (nullCount > 0 ? 1 : 0));
+                        measures.put(DistinctValuesAnalyzer.MEASURE_DISTINCT_VALUES_COUNT_ERROR, 0.0);
+                    } else if (profile instanceof DateColumnProfile) {
+                        Timestamp minDate = rs.getTimestamp(k++);
+                        Timestamp maxDate = rs.getTimestamp(k++);
+                        // dates are read as dates, as by every other path, so the time of day is midnight
+                        String time = hasValues ? LocalTime.MIDNIGHT.toString() : null;
+                        measures.put(DateAndTimeAnalyzer.MEASURE_ROW_COUNT, rowCount);
+                        measures.put(DateAndTimeAnalyzer.MEASURE_NULL_COUNT, nullCount);
+                        measures.put(DateAndTimeAnalyzer.MEASURE_HIGHEST_DATE, maxDate == null ? null : new LocalDate(maxDate).toString());
+                        measures.put(DateAndTimeAnalyzer.MEASURE_LOWEST_DATE, minDate == null ? null : new LocalDate(minDate).toString());
+                        measures.put(DateAndTimeAnalyzer.MEASURE_HIGHEST_TIME, time);
+                        measures.put(DateAndTimeAnalyzer.MEASURE_LOWEST_TIME, time);
+                    } else if (profile instanceof BooleanColumnProfile) {
+                        long trueCount = getLong(rs, k++);
+                        measures.put(BooleanAnalyzer.MEASURE_ROW_COUNT, rowCount);
+                        measures.put(BooleanAnalyzer.MEASURE_NULL_COUNT, nullCount);
+                        measures.put(BooleanAnalyzer.MEASURE_TRUE_COUNT, trueCount);
+                        measures.put(BooleanAnalyzer.MEASURE_FALSE_COUNT, valueCount - trueCount);
+                    }
+                    aggregates.set(i, measures);
+                }
+            }
+        }
+    }
+
+    // a sum over no rows is null, which counts as 0
+    private static long getLong(ResultSet rs, int columnIndex) throws SQLException {
+        Object value = rs.getObject(columnIndex);
+        return value == null ? 0 : ((Number) value).longValue();
+    }
+
+    // lengths are reported as ints, as by the string analyzer
+    private static Integer getInteger(ResultSet rs, int columnIndex) throws SQLException {
+        Object value = rs.getObject(columnIndex);
+        if (value == null) {
+            return null;
+        }
+        long longValue = ((Number) value).longValue();
+        if (longValue < Integer.MIN_VALUE || longValue > Integer.MAX_VALUE) {
+            throw new ArithmeticException("Value of column " + columnIndex + " overflows an int: " + longValue);
+        }
+        return (int) longValue;
+    }
+
+    private static Double getDouble(ResultSet rs, int columnIndex) throws SQLException {
+        Object value = rs.getObject(columnIndex);
+        return value == null ? null : ((Number) value).doubleValue();
+    }
+}
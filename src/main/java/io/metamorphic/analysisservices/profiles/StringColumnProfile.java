@@ -0,0 +1,201 @@
+package io.metamorphic.analysisservices.profiles;
+
+import io.metamorphic.analysisservices.analyzers.DistinctValuesAnalyzer;
+import io.metamorphic.analysisservices.analyzers.DistinctValuesState;
+import org.eobjects.analyzer.beans.StringAnalyzer;
+import org.eobjects.analyzer.util.CharIterator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringTokenizer;
+
+/**
+ * Mergeable counterpart of the {@link StringAnalyzer} and the
+ * {@link DistinctValuesAnalyzer}. Characters and words are counted as by the
+ * string analyzer; distinct and top values are kept in a {@link DistinctValuesState}.
+ */
+public class StringColumnProfile extends ColumnProfile {
+
+    private static final long serialVersionUID = 1L;
+
+    private final DistinctValuesState distinctValues;
+
+    private int blankCount;
+    private int entirelyUppercaseCount;
+    private int entirelyLowercaseCount;
+    private int charCount;
+    private int wordCount;
+    private int whitespaceCount;
+    private int uppercaseCount;
+    private int uppercaseExclFirstLetterCount;
+    private int lowercaseCount;
+    private int digitCount;
+    private int diacriticCount;
+    private int nonLetterCount;
+
+    // null until the first value
+    private Integer minChars;
+    private Integer maxChars;
+    private Integer minWords;
+    private Integer maxWords;
+    private Integer minWhitespace;
+    private Integer maxWhitespace;
+
+    public StringColumnProfile(DistinctValuesState distinctValues) {
+        this.distinctValues = distinctValues;
+    }
+
+    @Override
+    public void add(Object value) {
+        super.add(value);
+        distinctValues.add(value == null ? null : value.toString(), 1);
+    }
+
+    @Override
+    protected void addValue(Object obj) {
+        String value = obj.toString();
+        int numChars = value.length();
+        if (numChars == 0) {
+            blankCount++;
+        }
+        int numWords = new StringTokenizer(value).countTokens();
+        int numWhitespace = 0;
+        int numLetters = 0;
+        boolean firstLetter = true;
+        CharIterator it = new CharIterator(value);
+        while (it.hasNext()) {
+            it.next();
+            if (it.isLetter()) {
+                numLetters++;
+                if (it.isUpperCase()) {
+                    uppercaseCount++;
+                    if (!firstLetter) {
+                        uppercaseExclFirstLetterCount++;
+                    }
+                } else {
+                    lowercaseCount++;
+                }
+                if (it.isDiacritic()) {
+                    diacriticCount++;
+                }
+                firstLetter = false;
+            } else {
+                nonLetterCount++;
+                if (it.isDigit()) {
+                    digitCount++;
+                }
+                if (it.isWhitespace()) {
+                    numWhitespace++;
+                }
+                if (it.is('.')) {
+                    firstLetter = true;
+                }
+            }
+        }
+        if (numLetters > 0) {
+            if (value.equals(value.toUpperCase())) {
+                entirelyUppercaseCount++;
+            }
+            if (value.equals(value.toLowerCase())) {
+                entirelyLowercaseCount++;
+            }
+        }
+        charCount += numChars;
+        wordCount += numWords;
+        whitespaceCount += numWhitespace;
+        addExtremes(numChars, numChars, numWords, numWords, numWhitespace, numWhitespace);
+    }
+
+    @Override
+    protected void mergeValues(ColumnProfile other) {
+        StringColumnProfile profile = (StringColumnProfile) other;
+        distinctValues.merge(profile.distinctValues);
+        blankCount += profile.blankCount;
+        entirelyUppercaseCount += profile.entirelyUppercaseCount;
+        entirelyLowercaseCount += profile.entirelyLowercaseCount;
+        charCount += profile.charCount;
+        wordCount += profile.wordCount;
+        whitespaceCount += profile.whitespaceCount;
+        uppercaseCount += profile.uppercaseCount;
+        uppercaseExclFirstLetterCount += profile.uppercaseExclFirstLetterCount;
+        lowercaseCount += profile.lowercaseCount;
+        digitCount += profile.digitCount;
+        diacriticCount += profile.diacriticCount;
+        nonLetterCount += profile.nonLetterCount;
+        if (profile.minChars != null) {
+            addExtremes(profile.minChars, profile.maxChars, profile.minWords, profile.maxWords,
+                    profile.minWhitespace, profile.maxWhitespace);
+        }
+    }
+
+    private void addExtremes(int lowChars, int highChars, int lowWords, int highWords, int lowWhitespace, int highWhitespace) {
+        if (minChars == null) {
+            minChars = lowChars;
+            maxChars = highChars;
+            minWords = lowWords;
+            maxWords = highWords;
+            minWhitespace = lowWhitespace;
+            maxWhitespace = highWhitespace;
+            return;
+        }
+        minChars = Math.min(minChars, lowChars);
+        maxChars = Math.max(maxChars, highChars);
+        minWords = Math.min(minWords, lowWords);
+        maxWords = Math.max(maxWords, highWords);
+        minWhitespace = Math.min(minWhitespace, lowWhitespace);
+        maxWhitespace = Math.max(maxWhitespace, highWhitespace);
+    }
+
+    @Override
+    public ColumnProfile newEmptyProfile() {
+        return new StringColumnProfile(distinctValues.newEmptyState());
+    }
+
+    @Override
+    public boolean isCompatible(ColumnProfile other) {
+        return super.isCompatible(other)
+                && ((StringColumnProfile) other).distinctValues.hasSameConfiguration(distinctValues);
+    }
+
+    public DistinctValuesState getDistinctValues() {
+        return distinctValues;
+    }
+
+    @Override
+    public Map<String, Object> getMeasures() {
+        return getMeasures(Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Map<String, Object> getMeasures(int distinctValuesLimit) {
+        int valueCount = getRowCount() - getNullCount();
+        Map<String, Object> measures = new LinkedHashMap<>();
+        measures.put(StringAnalyzer.MEASURE_ROW_COUNT, getRowCount());
+        measures.put(StringAnalyzer.MEASURE_NULL_COUNT, getNullCount());
+        measures.put(StringAnalyzer.MEASURE_BLANK_COUNT, blankCount);
+        measures.put(StringAnalyzer.MEASURE_ENTIRELY_UPPERCASE_COUNT, entirelyUppercaseCount);
+        measures.put(StringAnalyzer.MEASURE_ENTIRELY_LOWERCASE_COUNT, entirelyLowercaseCount);
+        measures.put(StringAnalyzer.MEASURE_TOTAL_CHAR_COUNT, charCount);
+        measures.put(StringAnalyzer.MEASURE_MAX_CHARS, maxChars);
+        measures.put(StringAnalyzer.MEASURE_MIN_CHARS, minChars);
+        measures.put(StringAnalyzer.MEASURE_AVG_CHARS, valueCount > 0 ? charCount / (double) valueCount : null);
+        measures.put(StringAnalyzer.MEASURE_MAX_WHITE_SPACES, maxWhitespace);
+        measures.put(StringAnalyzer.MEASURE_MIN_WHITE_SPACES, minWhitespace);
+        measures.put(StringAnalyzer.MEASURE_AVG_WHITE_SPACES, valueCount > 0 ? whitespaceCount / (double) valueCount : null);
+        measures.put(StringAnalyzer.MEASURE_UPPERCASE_CHARS, uppercaseCount);
+        measures.put(StringAnalyzer.MEASURE_UPPERCASE_CHARS_EXCL_FIRST_LETTERS, uppercaseExclFirstLetterCount);
+        measures.put(StringAnalyzer.MEASURE_LOWERCASE_CHARS, lowercaseCount);
+        measures.put(StringAnalyzer.MEASURE_DIGIT_CHARS, digitCount);
+        measures.put(StringAnalyzer.MEASURE_DIACRITIC_CHARS, diacriticCount);
+        measures.put(StringAnalyzer.MEASURE_NON_LETTER_CHARS, nonLetterCount);
+        measures.put(StringAnalyzer.MEASURE_WORD_COUNT, wordCount);
+        measures.put(StringAnalyzer.MEASURE_MAX_WORDS, maxWords);
+        measures.put(StringAnalyzer.MEASURE_MIN_WORDS, minWords);
+        measures.put(DistinctValuesAnalyzer.MEASURE_TOP_5, distinctValues.getTopValues());
+        measures.put(DistinctValuesAnalyzer.MEASURE_TOP_5_ERRORS, distinctValues.getTopValuesErrors());
+        measures.put(DistinctValuesAnalyzer.MEASURE_DISTINCT_VALUES, distinctValues.getDistinctValues(0, distinctValuesLimit));
+        measures.put(DistinctValuesAnalyzer.MEASURE_DISTINCT_VALUES_COUNT, distinctValues.getDistinctValuesCount());
+        measures.put(DistinctValuesAnalyzer.MEASURE_DISTINCT_VALUES_COUNT_ERROR, distinctValues.getDistinctValuesCountError());
+        return measures;
+    }
+}
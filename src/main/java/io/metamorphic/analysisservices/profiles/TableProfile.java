@@ -0,0 +1,134 @@
+package io.metamorphic.analysisservices.profiles;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Mergeable profiles of the columns of one table, with the highest value of
+ * the watermark column seen so far.
+ */
+public class TableProfile implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<String> columnNames;
+
+    private final List<String> columnTypeNames;
+
+    // null for columns that are not profiled
+    private final List<ColumnProfile> columnProfiles;
+
+    private final String watermarkColumn;
+
+    private Comparable<Object> watermark;
+
+    private long rowCount;
+
+    public TableProfile(List<String> columnNames, List<String> columnTypeNames, List<ColumnProfile> columnProfiles, String watermarkColumn) {
+        this.columnNames = new ArrayList<>(columnNames);
+        this.columnTypeNames = new ArrayList<>(columnTypeNames);
+        this.columnProfiles = new ArrayList<>(columnProfiles);
+        this.watermarkColumn = watermarkColumn;
+    }
+
+    /**
+     * @return an empty profile of the same columns and configuration
+     */
+    public TableProfile newEmptyProfile() {
+        List<ColumnProfile> profiles = new ArrayList<>();
+        for (ColumnProfile profile : columnProfiles) {
+            profiles.add(profile == null ? null : profile.newEmptyProfile());
+        }
+        return new TableProfile(columnNames, columnTypeNames, profiles, watermarkColumn);
+    }
+
+    /**
+     * @param values the values of one row, in column order
+     */
+    public void add(Object[] values) {
+        for (int i = 0; i < columnProfiles.size(); i++) {
+            ColumnProfile profile = columnProfiles.get(i);
+            if (profile != null) {
+                profile.add(values[i]);
+            }
+        }
+        rowCount++;
+    }
+
+    /**
+     * Raises the watermark to the value if it is higher. Null values are ignored.
+     */
+    @SuppressWarnings("unchecked")
+    public void advanceWatermark(Object value) {
+        if (value != null && (watermark == null || watermark.compareTo(value) < 0)) {
+            watermark = (Comparable<Object>) value;
+        }
+    }
+
+    public void merge(TableProfile other) {
+        if (!isCompatible(other)) {
+            throw new IllegalArgumentException("Cannot merge profiles of different columns or configuration");
+        }
+        for (int i = 0; i < columnProfiles.size(); i++) {
+            ColumnProfile profile = columnProfiles.get(i);
+            if (profile != null) {
+                profile.merge(other.columnProfiles.get(i));
+            }
+        }
+        rowCount += other.rowCount;
+        advanceWatermark(other.watermark);
+    }
+
+    /**
+     * @return whether the other profile has the same columns, watermark column
+     * and column configurations, so that it can be merged
+     */
+    public boolean isCompatible(TableProfile other) {
+        if (!columnNames.equals(other.columnNames) || !columnTypeNames.equals(other.columnTypeNames)) {
+            return false;
+        }
+        if (watermarkColumn == null ? other.watermarkColumn != null : !watermarkColumn.equals(other.watermarkColumn)) {
+            return false;
+        }
+        for (int i = 0; i < columnProfiles.size(); i++) {
+            ColumnProfile profile = columnProfiles.get(i);
+            ColumnProfile otherProfile = other.columnProfiles.get(i);
+            if (profile == null ? otherProfile != null : !profile.isCompatible(otherProfile)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public List<String> getColumnNames() {
+        return Collections.unmodifiableList(columnNames);
+    }
+
+    public List<String> getColumnTypeNames() {
+        return Collections.unmodifiableList(columnTypeNames);
+    }
+
+    /**
+     * @return the profile of the column at the index, or null if the column is not profiled
+     */
+    public ColumnProfile getColumnProfile(int index) {
+        return columnProfiles.get(index);
+    }
+
+    public String getWatermarkColumn() {
+        return watermarkColumn;
+    }
+
+    /**
+     * @return the highest watermark value seen, or null if no rows have been added
+     */
+    public Object getWatermark() {
+        return watermark;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+}
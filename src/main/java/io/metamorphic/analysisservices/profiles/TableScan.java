@@ -0,0 +1,119 @@
+package io.metamorphic.analysisservices.profiles;
+
+import io.metamorphic.analysisservices.jdbc.JdbcValues;
+import io.metamorphic.analysisservices.jdbc.SqlDialect;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Reads the rows of a table, or of the part of it matched by a condition,
+ * into a table profile.
+ *
+ * Rows are read through a server-side cursor, fetch size rows at a time, so
+ * that client memory stays flat whatever the size of the table. Drivers such
+ * as PostgreSQL's only keep a cursor open inside a transaction, so auto-commit
+ * is turned off for the read and restored after it.
+ */
+final class TableScan {
+
+    private static final Log log = LogFactory.getLog(TableScan.class);
+
+    private final SqlDialect dialect;
+
+    private final String schemaName;
+
+    private final String tableName;
+
+    private final int fetchSize;
+
+    private final int queryTimeoutSeconds;
+
+    /**
+     * @param fetchSize the number of rows fetched from the database at a time
+     * @param queryTimeoutSeconds the time limit of each read, or 0 for none
+     */
+    TableScan(SqlDialect dialect, String schemaName, String tableName, int fetchSize, int queryTimeoutSeconds) {
+        if (fetchSize < 1) {
+            throw new IllegalArgumentException("Fetch size must be positive: " + fetchSize);
+        }
+        this.dialect = dialect;
+        this.schemaName = schemaName;
+        this.tableName = tableName;
+        this.fetchSize = fetchSize;
+        this.queryTimeoutSeconds = queryTimeoutSeconds;
+    }
+
+    /**
+     * @param condition the condition of the WHERE clause, or null to read every row
+     * @param parameters the values of the parameters of the condition
+     * @return the number of rows read
+     */
+    long read(Connection connection, TableProfile profile, String condition, Object... parameters) throws SQLException {
+        String sql = getSelect(profile, condition);
+        if (log.isDebugEnabled()) {
+            log.debug("Profiling with " + sql);
+        }
+        List<String> columnTypeNames = profile.getColumnTypeNames();
+        int columnCount = columnTypeNames.size();
+        boolean hasWatermark = profile.getWatermarkColumn() != null;
+        long rowsRead = 0;
+        boolean autoCommit = connection.getAutoCommit();
+        if (autoCommit) {
+            connection.setAutoCommit(false);
+        }
+        try (PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(fetchSize);
+            if (queryTimeoutSeconds > 0) {
+                statement.setQueryTimeout(queryTimeoutSeconds);
+            }
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    Object[] row = new Object[columnCount];
+                    for (int i = 0; i < columnCount; i++) {
+                        row[i] = JdbcValues.getValue(rs, i + 1, columnTypeNames.get(i));
+                    }
+                    profile.add(row);
+                    if (hasWatermark) {
+                        profile.advanceWatermark(rs.getObject(columnCount + 1));
+                    }
+                    rowsRead++;
+                }
+            }
+        } finally {
+            if (autoCommit) {
+                // ends the transaction of the cursor; nothing was written
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        }
+        return rowsRead;
+    }
+
+    private String getSelect(TableProfile profile, String condition) {
+        StringBuilder sb = new StringBuilder("SELECT ");
+        List<String> columnNames = profile.getColumnNames();
+        for (int i = 0; i < columnNames.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(dialect.quoteIdentifier(columnNames.get(i)));
+        }
+        if (profile.getWatermarkColumn() != null) {
+            sb.append(", ").append(dialect.quoteIdentifier(profile.getWatermarkColumn()));
+        }
+        sb.append(" FROM ").append(dialect.getQualifiedTableName(schemaName, tableName));
+        if (condition != null) {
+            sb.append(" WHERE ").append(condition);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,69 @@
+package io.metamorphic.analysisservices.sampling;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Uniform random sample of a fixed size from a stream of unknown length.
+ *
+ * Uses Li's Algorithm L, which draws random numbers only for the items that
+ * enter the sample rather than for every item offered.
+ */
+public class Reservoir<T> {
+
+    private final int capacity;
+
+    private final Random random;
+
+    private final List<T> items;
+
+    private long seen;
+
+    private long next;
+
+    private double w;
+
+    public Reservoir(int capacity, Random random) {
+        this.capacity = capacity;
+        this.random = random;
+        this.items = new ArrayList<>(Math.min(capacity, 1 << 16));
+        this.w = Math.exp(Math.log(nextOpenDouble()) / capacity);
+        this.next = capacity - 1;
+        skip();
+    }
+
+    public void offer(T item) {
+        if (seen < capacity) {
+            items.add(item);
+        } else if (seen == next) {
+            items.set(random.nextInt(capacity), item);
+            w *= Math.exp(Math.log(nextOpenDouble()) / capacity);
+            skip();
+        }
+        seen++;
+    }
+
+    private void skip() {
+        next += (long) Math.floor(Math.log(nextOpenDouble()) / Math.log(1 - w)) + 1;
+    }
+
+    private double nextOpenDouble() {
+        double d;
+        do {
+            d = random.nextDouble();
+        } while (d == 0.0);
+        return d;
+    }
+
+    /**
+     * @return the number of items offered
+     */
+    public long getSeen() {
+        return seen;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+}
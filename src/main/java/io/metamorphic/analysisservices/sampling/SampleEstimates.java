@@ -0,0 +1,59 @@
+package io.metamorphic.analysisservices.sampling;
+
+/**
+ * Scales counts observed in a random sample of n rows up to a table of N rows.
+ *
+ * Each method returns {estimate, lower bound, upper bound}.
+ */
+public final class SampleEstimates {
+
+    /**
+     * z for a two-sided 95% confidence interval
+     */
+    public static final double Z_95 = 1.959964;
+
+    private SampleEstimates() {
+    }
+
+    /**
+     * Estimates how many rows of the table have a property, e.g. a null value,
+     * with a Wilson score interval corrected for sampling without replacement.
+     *
+     * @param count the number of sampled rows that have the property
+     */
+    public static double[] estimateCount(long count, long n, long N, double z) {
+        if (n == 0) {
+            return new double[] {0, 0, N};
+        }
+        double p = (double) count / n;
+        double fpc = N > 1 ? Math.max(0.0, (double) (N - n) / (N - 1)) : 0.0;
+        double z2 = z * z * fpc;
+        double denominator = 1 + z2 / n;
+        double centre = (p + z2 / (2 * n)) / denominator;
+        double halfWidth = Math.sqrt(p * (1 - p) * z2 / n + z2 * z2 / (4.0 * n * n)) / denominator;
+        double lower = Math.max((double) count, N * Math.max(0.0, centre - halfWidth));
+        double upper = Math.min((double) N - (n - count), N * Math.min(1.0, centre + halfWidth));
+        return new double[] {p * N, lower, upper};
+    }
+
+    /**
+     * Estimates the number of distinct values in the table with the Guaranteed
+     * Error Estimator of Charikar et al. Values seen more than once in the sample
+     * are assumed to be frequent and counted once; each value seen exactly once
+     * stands for sqrt(N/n) values. The bounds assume, respectively, that the
+     * singletons are the only such values and that each stands for N/n values.
+     *
+     * @param distinct the number of distinct values in the sample
+     * @param singletons the number of values that occur exactly once in the sample
+     */
+    public static double[] estimateDistinctCount(long distinct, long singletons, long n, long N) {
+        if (n == 0) {
+            return new double[] {0, 0, N};
+        }
+        double ratio = (double) N / n;
+        double frequent = distinct - singletons;
+        double estimate = frequent + Math.sqrt(ratio) * singletons;
+        double upper = Math.min((double) N - (n - distinct), frequent + ratio * singletons);
+        return new double[] {estimate, distinct, Math.max(distinct, upper)};
+    }
+}
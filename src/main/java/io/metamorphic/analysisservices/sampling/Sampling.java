@@ -0,0 +1,90 @@
+package io.metamorphic.analysisservices.sampling;
+
+import java.io.Serializable;
+
+/**
+ * How the rows of a table are sampled before they are profiled.
+ */
+public final class Sampling implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Method {
+
+        /**
+         * The first rows the database returns. Cheapest, but not random, so
+         * the profile is of those rows, not scaled up to the table.
+         */
+        ROW_LIMIT,
+
+        /**
+         * Each row with the same probability, on the database side where the
+         * dialect supports it.
+         */
+        PERCENTAGE,
+
+        /**
+         * A uniform random sample of a fixed number of rows.
+         */
+        RESERVOIR
+    }
+
+    public static final int DEFAULT_MAX_ROWS = 1000000;
+
+    private final Method method;
+
+    private final int rows;
+
+    private final double percentage;
+
+    private Sampling(Method method, int rows, double percentage) {
+        if (rows < 1) {
+            throw new IllegalArgumentException("rows must be positive");
+        }
+        if (percentage <= 0 || percentage > 100) {
+            throw new IllegalArgumentException("percentage must be greater than 0 and at most 100");
+        }
+        this.method = method;
+        this.rows = rows;
+        this.percentage = percentage;
+    }
+
+    public static Sampling rowLimit(int rows) {
+        return new Sampling(Method.ROW_LIMIT, rows, 100);
+    }
+
+    public static Sampling percentage(double percentage) {
+        return percentage(percentage, DEFAULT_MAX_ROWS);
+    }
+
+    /**
+     * @param maxRows the sample is reduced to this many rows, uniformly, if the percentage yields more
+     */
+    public static Sampling percentage(double percentage, int maxRows) {
+        return new Sampling(Method.PERCENTAGE, maxRows, percentage);
+    }
+
+    public static Sampling reservoir(int rows) {
+        return new Sampling(Method.RESERVOIR, rows, 100);
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * @return the maximum number of rows in the sample
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    public double getPercentage() {
+        return percentage;
+    }
+
+    @Override
+    public String toString() {
+        return method == Method.PERCENTAGE ? method + "(" + percentage + "%, max " + rows + ")" : method + "(" + rows + ")";
+    }
+}
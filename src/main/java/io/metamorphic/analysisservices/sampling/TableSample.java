@@ -0,0 +1,83 @@
+package io.metamorphic.analysisservices.sampling;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The sampled rows of a table, with the size of the table they were drawn from.
+ * Only a random sample is scaled up to estimates for the whole table.
+ */
+public class TableSample {
+
+    private final List<Object[]> rows;
+
+    private final long populationSize;
+
+    private final String description;
+
+    private final boolean random;
+
+    public TableSample(List<Object[]> rows, long populationSize, String description, boolean random) {
+        this.rows = rows;
+        this.populationSize = populationSize;
+        this.description = description;
+        this.random = random;
+    }
+
+    public List<Object[]> getRows() {
+        return rows;
+    }
+
+    public int getSize() {
+        return rows.size();
+    }
+
+    /**
+     * @return the number of rows in the table, exact if the whole table was read
+     * and otherwise an estimate
+     */
+    public long getPopulationSize() {
+        return populationSize;
+    }
+
+    /**
+     * @return the sampling method and where it was applied, e.g. "RESERVOIR (database and client)"
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * @return whether the rows were drawn at random, and so stand for the
+     * table, rather than being the first rows the database returned
+     */
+    public boolean isRandom() {
+        return random;
+    }
+
+    public double[] estimateNullCount(int columnIndex, double z) {
+        long nulls = 0;
+        for (Object[] row : rows) {
+            if (row[columnIndex] == null) {
+                nulls++;
+            }
+        }
+        return SampleEstimates.estimateCount(nulls, rows.size(), populationSize, z);
+    }
+
+    public double[] estimateDistinctCount(int columnIndex) {
+        Map<Object, Integer> counts = new HashMap<>();
+        for (Object[] row : rows) {
+            Integer count = counts.get(row[columnIndex]);
+            counts.put(row[columnIndex], count == null ? 1 : count + 1);
+        }
+        long singletons = 0;
+        for (Integer count : counts.values()) {
+            if (count == 1) {
+                singletons++;
+            }
+        }
+        return SampleEstimates.estimateDistinctCount(counts.size(), singletons, rows.size(), populationSize);
+    }
+}
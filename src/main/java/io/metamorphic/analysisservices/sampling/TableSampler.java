@@ -0,0 +1,161 @@
+package io.metamorphic.analysisservices.sampling;
+
+import io.metamorphic.analysisservices.jdbc.JdbcValues;
+import io.metamorphic.analysisservices.jdbc.SqlDialect;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Reads a sample of the rows of a database table.
+ *
+ * Sampling is pushed down to the database where the dialect supports it, so
+ * that only the sampled rows are transferred. Otherwise the table is scanned
+ * and sampled on the client, which still bounds the memory and the profiling
+ * work to the sample size. The rows are read through a server-side cursor,
+ * with auto-commit off for the read so that drivers such as PostgreSQL's keep
+ * the cursor open rather than loading the whole table.
+ */
+public class TableSampler {
+
+    private static final Log log = LogFactory.getLog(TableSampler.class);
+
+    private static final int FETCH_SIZE = 1000;
+
+    // the database-side pre-sample of a reservoir sample aims at this many times the reservoir size
+    private static final double OVERSAMPLING = 2.0;
+
+    private final SqlDialect dialect;
+
+    private final Random random;
+
+    public TableSampler(SqlDialect dialect) {
+        this(dialect, new Random());
+    }
+
+    public TableSampler(SqlDialect dialect, Random random) {
+        this.dialect = dialect;
+        this.random = random;
+    }
+
+    /**
+     * @param columnTypeNames the names of the types the columns are analyzed as
+     * @param queryTimeoutSeconds the time allowed for each query, or 0 for no limit
+     */
+    public TableSample sample(Connection connection, String schemaName, String tableName, List<String> columnNames,
+                              List<String> columnTypeNames, Sampling sampling, int queryTimeoutSeconds) throws SQLException {
+        String select = getSelect(schemaName, tableName, columnNames);
+        Reservoir<Object[]> reservoir = new Reservoir<>(sampling.getRows(), random);
+        switch (sampling.getMethod()) {
+            case ROW_LIMIT: {
+                long rowsRead = read(connection, select, columnTypeNames, reservoir, 1.0, sampling.getRows(), queryTimeoutSeconds);
+                long populationSize = rowsRead < sampling.getRows() ?
+                        rowsRead :
+                        getRowCount(connection, schemaName, tableName, queryTimeoutSeconds);
+                // the first rows are not random, so they are profiled as they are, not scaled up
+                return new TableSample(reservoir.getItems(), populationSize, "ROW_LIMIT (unscaled)", false);
+            }
+            case PERCENTAGE: {
+                double fraction = sampling.getPercentage() / 100;
+                if (dialect.supportsTableSample() && fraction < 1) {
+                    long rowsRead = read(connection, select + ' ' + dialect.getTableSampleClause(sampling.getPercentage()),
+                            columnTypeNames, reservoir, 1.0, 0, queryTimeoutSeconds);
+                    long populationSize = dialect.estimateRowCount(connection, schemaName, tableName);
+                    if (populationSize < 0) {
+                        populationSize = Math.round(rowsRead / fraction);
+                    }
+                    return new TableSample(reservoir.getItems(), Math.max(populationSize, rowsRead), "PERCENTAGE (database)", true);
+                }
+                long rowsRead = read(connection, select, columnTypeNames, reservoir, fraction, 0, queryTimeoutSeconds);
+                return new TableSample(reservoir.getItems(), rowsRead, "PERCENTAGE (client)", true);
+            }
+            default: {
+                if (dialect.supportsTableSample()) {
+                    long estimate = dialect.estimateRowCount(connection, schemaName, tableName);
+                    double percentage = 100 * OVERSAMPLING * sampling.getRows() / estimate;
+                    if (estimate > 0 && percentage < 100) {
+                        long rowsRead = read(connection, select + ' ' + dialect.getTableSampleClause(percentage),
+                                columnTypeNames, reservoir, 1.0, 0, queryTimeoutSeconds);
+                        return new TableSample(reservoir.getItems(), Math.max(estimate, rowsRead), "RESERVOIR (database and client)", true);
+                    }
+                }
+                long rowsRead = read(connection, select, columnTypeNames, reservoir, 1.0, 0, queryTimeoutSeconds);
+                return new TableSample(reservoir.getItems(), rowsRead, "RESERVOIR (client)", true);
+            }
+        }
+    }
+
+    /**
+     * Offers each row read to the reservoir with the given probability.
+     *
+     * @return the number of rows read
+     */
+    private long read(Connection connection, String sql, List<String> columnTypeNames, Reservoir<Object[]> reservoir,
+                      double fraction, int maxRows, int queryTimeoutSeconds) throws SQLException {
+        if (log.isDebugEnabled()) {
+            log.debug("Sampling with " + sql);
+        }
+        int columnCount = columnTypeNames.size();
+        long rowsRead = 0;
+        boolean autoCommit = connection.getAutoCommit();
+        if (autoCommit) {
+            connection.setAutoCommit(false);
+        }
+        try (Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(FETCH_SIZE);
+            statement.setMaxRows(maxRows);
+            statement.setQueryTimeout(queryTimeoutSeconds);
+            try (ResultSet rs = statement.executeQuery(sql)) {
+                while (rs.next()) {
+                    rowsRead++;
+                    if (fraction < 1 && random.nextDouble() >= fraction) {
+                        continue;
+                    }
+                    Object[] row = new Object[columnCount];
+                    for (int i = 0; i < columnCount; i++) {
+                        row[i] = JdbcValues.getValue(rs, i + 1, columnTypeNames.get(i));
+                    }
+                    reservoir.offer(row);
+                }
+            }
+        } finally {
+            if (autoCommit) {
+                // ends the transaction of the cursor; nothing was written
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        }
+        return rowsRead;
+    }
+
+    private long getRowCount(Connection connection, String schemaName, String tableName, int queryTimeoutSeconds) throws SQLException {
+        long estimate = dialect.estimateRowCount(connection, schemaName, tableName);
+        if (estimate >= 0) {
+            return estimate;
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(queryTimeoutSeconds);
+            try (ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM " + dialect.getQualifiedTableName(schemaName, tableName))) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private String getSelect(String schemaName, String tableName, List<String> columnNames) {
+        StringBuilder sb = new StringBuilder("SELECT ");
+        for (int i = 0; i < columnNames.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(dialect.quoteIdentifier(columnNames.get(i)));
+        }
+        return sb.append(" FROM ").append(dialect.getQualifiedTableName(schemaName, tableName)).toString();
+    }
+}
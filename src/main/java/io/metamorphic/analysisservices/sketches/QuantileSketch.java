@@ -0,0 +1,213 @@
+package io.metamorphic.analysisservices.sketches;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * KLL quantile sketch (Karnin, Lang and Liberty).
+ *
+ * Keeps a hierarchy of compactors whose capacities shrink geometrically from
+ * {@code k} at the top level. While fewer values than the capacity of the
+ * first compactor have been added, quantiles are exact. Beyond that, the
+ * rank of a returned quantile is within about 1.7 / k of the requested rank
+ * (e.g. 0.85% for k = 200) with high probability. Sketches with the same k
+ * can be merged.
+ */
+public class QuantileSketch implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final double CAPACITY_RATIO = 2.0 / 3.0;
+
+    private static final int MIN_CAPACITY = 8;
+
+    private final int k;
+
+    // level h holds items of weight 2^h
+    private double[][] levels;
+    private int[] sizes;
+
+    private long count;
+
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    private final Random random;
+
+    public QuantileSketch(int k) {
+        if (k < MIN_CAPACITY) {
+            throw new IllegalArgumentException("k must be at least " + MIN_CAPACITY);
+        }
+        this.k = k;
+        this.levels = new double[][] {new double[capacity(0, 1)]};
+        this.sizes = new int[1];
+        this.random = new Random();
+    }
+
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (count == 0 || value < min) min = value;
+        if (count == 0 || value > max) max = value;
+        count++;
+        append(0, value);
+        compress();
+    }
+
+    public void merge(QuantileSketch other) {
+        if (other.k != k) {
+            throw new IllegalArgumentException("Cannot merge sketches of k " + k + " and " + other.k);
+        }
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0 || other.min < min) min = other.min;
+        if (count == 0 || other.max > max) max = other.max;
+        count += other.count;
+        while (levels.length < other.levels.length) {
+            grow();
+        }
+        for (int h = 0; h < other.levels.length; h++) {
+            for (int i = 0; i < other.sizes[h]; i++) {
+                append(h, other.levels[h][i]);
+            }
+        }
+        compress();
+    }
+
+    /**
+     * @return whether the sketch still holds every value added, so that quantiles are exact
+     */
+    public boolean isExact() {
+        return sizes.length == 1;
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the approximate rank error of {@link #getQuantile(double)}, 0 while exact
+     */
+    public double getNormalizedRankError() {
+        return isExact() ? 0.0 : normalizedRankError(k);
+    }
+
+    public static double normalizedRankError(int k) {
+        return 1.7 / k;
+    }
+
+    /**
+     * Returns the value at the given fraction of the sorted values. While the
+     * sketch is exact, positions between two values are interpolated as by
+     * the percentile of commons-math descriptive statistics, so that results
+     * agree with the analyzers.
+     *
+     * @param fraction between 0 and 1, e.g. 0.5 for the median
+     * @return the quantile, or NaN if no values were added
+     */
+    public double getQuantile(double fraction) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (isExact()) {
+            double[] sorted = Arrays.copyOf(levels[0], sizes[0]);
+            Arrays.sort(sorted);
+            int n = sorted.length;
+            double pos = fraction * (n + 1);
+            if (pos < 1) return sorted[0];
+            if (pos >= n) return sorted[n - 1];
+            int lower = (int) Math.floor(pos);
+            double d = pos - lower;
+            return sorted[lower - 1] + d * (sorted[lower] - sorted[lower - 1]);
+        }
+        int total = 0;
+        for (int size : sizes) {
+            total += size;
+        }
+        double[] values = new double[total];
+        long[] weights = new long[total];
+        Integer[] order = new Integer[total];
+        int j = 0;
+        for (int h = 0; h < levels.length; h++) {
+            for (int i = 0; i < sizes[h]; i++) {
+                values[j] = levels[h][i];
+                weights[j] = 1L << h;
+                order[j] = j;
+                j++;
+            }
+        }
+        final double[] v = values;
+        Arrays.sort(order, new java.util.Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(v[a], v[b]);
+            }
+        });
+        long totalWeight = 0;
+        for (long weight : weights) {
+            totalWeight += weight;
+        }
+        double target = fraction * totalWeight;
+        long cumulative = 0;
+        for (Integer i : order) {
+            cumulative += weights[i];
+            if (cumulative >= target) {
+                return Math.min(max, Math.max(min, values[i]));
+            }
+        }
+        return max;
+    }
+
+    private void append(int h, double value) {
+        if (sizes[h] == levels[h].length) {
+            levels[h] = Arrays.copyOf(levels[h], Math.max(MIN_CAPACITY, levels[h].length * 2));
+        }
+        levels[h][sizes[h]++] = value;
+    }
+
+    private void compress() {
+        for (int h = 0; h < levels.length; h++) {
+            if (sizes[h] >= capacity(h, levels.length)) {
+                if (h + 1 == levels.length) {
+                    grow();
+                }
+                compact(h);
+            }
+        }
+    }
+
+    /**
+     * Sorts the level and promotes every other item, starting at a random
+     * offset, to the next level with twice the weight.
+     */
+    private void compact(int h) {
+        double[] level = levels[h];
+        int size = sizes[h];
+        Arrays.sort(level, 0, size);
+        // an odd item out stays behind
+        int start = size % 2;
+        int offset = random.nextBoolean() ? 1 : 0;
+        for (int i = start + offset; i < size; i += 2) {
+            append(h + 1, level[i]);
+        }
+        sizes[h] = start;
+    }
+
+    private void grow() {
+        levels = Arrays.copyOf(levels, levels.length + 1);
+        levels[levels.length - 1] = new double[MIN_CAPACITY];
+        sizes = Arrays.copyOf(sizes, sizes.length + 1);
+    }
+
+    private int capacity(int h, int height) {
+        int depth = height - h - 1;
+        return Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_RATIO, depth)));
+    }
+}
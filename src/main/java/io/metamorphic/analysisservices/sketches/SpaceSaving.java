@@ -0,0 +1,200 @@
+package io.metamorphic.analysisservices.sketches;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Space-Saving heavy hitters summary (Metwally et al.).
+ *
+ * Tracks at most {@code capacity} counters. Each reported count is an upper
+ * bound on the true frequency and overestimates it by at most the reported
+ * error, which itself never exceeds n / capacity for a stream of n items.
+ * While fewer than {@code capacity} distinct items have been seen, counts are
+ * exact. Counters are kept in a min-heap so that each update is O(log capacity).
+ */
+public class SpaceSaving implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int capacity;
+
+    private final Map<String, Counter> counters;
+
+    private final Counter[] heap;
+
+    private int size;
+
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 4 / 3 + 1);
+        this.heap = new Counter[capacity];
+    }
+
+    public void offer(String item) {
+        offer(item, 1);
+    }
+
+    public void offer(String item, long increment) {
+        Counter counter = counters.get(item);
+        if (counter != null) {
+            counter.count += increment;
+            siftDown(counter.position);
+        } else if (size < capacity) {
+            counter = new Counter(item, increment, 0);
+            counters.put(item, counter);
+            counter.position = size;
+            heap[size++] = counter;
+            siftUp(counter.position);
+        } else {
+            // evict the item with the lowest count; the newcomer inherits it as error
+            counter = heap[0];
+            counters.remove(counter.item);
+            counter.item = item;
+            counter.error = counter.count;
+            counter.count += increment;
+            counters.put(item, counter);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Merges another summary into this one. Items missing from a full summary
+     * are assumed to have that summary's minimum count, which is added to both
+     * their count and their error.
+     */
+    public void merge(SpaceSaving other) {
+        long thisMin = isFull() ? heap[0].count : 0;
+        long otherMin = other.isFull() ? other.heap[0].count : 0;
+        Map<String, Counter> merged = new HashMap<>();
+        for (Counter counter : counters.values()) {
+            merged.put(counter.item, new Counter(counter.item, counter.count + otherMin, counter.error + otherMin));
+        }
+        for (Counter counter : other.counters.values()) {
+            Counter existing = merged.get(counter.item);
+            if (existing == null) {
+                merged.put(counter.item, new Counter(counter.item, counter.count + thisMin, counter.error + thisMin));
+            } else {
+                existing.count += counter.count - otherMin;
+                existing.error += counter.error - otherMin;
+            }
+        }
+        List<Counter> sorted = new ArrayList<>(merged.values());
+        Collections.sort(sorted, DESCENDING);
+        counters.clear();
+        Arrays.fill(heap, null);
+        size = 0;
+        for (Counter counter : sorted.subList(0, Math.min(capacity, sorted.size()))) {
+            counter.position = size;
+            heap[size++] = counter;
+            counters.put(counter.item, counter);
+            siftUp(counter.position);
+        }
+    }
+
+    /**
+     * @return up to k counters with the highest counts, in descending order of count
+     */
+    public List<Counter> top(int k) {
+        List<Counter> sorted = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            sorted.add(heap[i]);
+        }
+        Collections.sort(sorted, DESCENDING);
+        return sorted.subList(0, Math.min(k, sorted.size()));
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * @return the number of counters in use
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private void siftUp(int i) {
+        Counter counter = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent].count <= counter.count) {
+                break;
+            }
+            place(heap[parent], i);
+            i = parent;
+        }
+        place(counter, i);
+    }
+
+    private void siftDown(int i) {
+        Counter counter = heap[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && heap[right].count < heap[child].count) {
+                child = right;
+            }
+            if (counter.count <= heap[child].count) {
+                break;
+            }
+            place(heap[child], i);
+            i = child;
+        }
+        place(counter, i);
+    }
+
+    private void place(Counter counter, int i) {
+        heap[i] = counter;
+        counter.position = i;
+    }
+
+    private static final Comparator<Counter> DESCENDING = new Comparator<Counter>() {
+        @Override
+        public int compare(Counter a, Counter b) {
+            return Long.compare(b.count, a.count);
+        }
+    };
+
+    public static final class Counter implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private String item;
+        private long count;
+        private long error;
+        private int position;
+
+        Counter(String item, long count, long error) {
+            this.item = item;
+            this.count = count;
+            this.error = error;
+        }
+
+        public String getItem() {
+            return item;
+        }
+
+        /**
+         * @return an upper bound on the frequency of the item
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the maximum amount by which {@link #getCount()} overestimates the frequency
+         */
+        public long getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package io.metamorphic.analysisservices.storage;
+
+import org.eobjects.analyzer.storage.RowAnnotationFactory;
+
+import java.io.File;
+import java.io.Serializable;
+
+/**
+ * Which rows the analyzers keep for each annotation, such as the null values
+ * of a column or the rows of a distinct value, to drill down into from the
+ * report. The count of rows of each annotation is exact whatever the policy.
+ */
+public final class AnnotationPolicy implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Mode {
+
+        /**
+         * No rows are kept, only counted.
+         */
+        OFF,
+
+        /**
+         * A uniform random sample of a fixed number of rows per annotation.
+         */
+        RESERVOIR,
+
+        /**
+         * Every row, buffered in memory a fixed number of rows per annotation
+         * at a time and spilled to a temporary file beyond that.
+         */
+        DISK
+    }
+
+    /**
+     * As many rows as the HTML report shows of an annotation.
+     */
+    public static final int DEFAULT_ROWS = 100;
+
+    private final Mode mode;
+
+    private final int rows;
+
+    private final File directory;
+
+    private AnnotationPolicy(Mode mode, int rows, File directory) {
+        if (rows < 1) {
+            throw new IllegalArgumentException("rows must be positive");
+        }
+        this.mode = mode;
+        this.rows = rows;
+        this.directory = directory;
+    }
+
+    public static AnnotationPolicy off() {
+        return new AnnotationPolicy(Mode.OFF, 1, null);
+    }
+
+    public static AnnotationPolicy reservoir() {
+        return reservoir(DEFAULT_ROWS);
+    }
+
+    public static AnnotationPolicy reservoir(int rows) {
+        return new AnnotationPolicy(Mode.RESERVOIR, rows, null);
+    }
+
+    /**
+     * @param directory where the rows are spilled, or null for the default temporary directory
+     */
+    public static AnnotationPolicy disk(File directory) {
+        return disk(directory, DEFAULT_ROWS);
+    }
+
+    /**
+     * @param directory where the rows are spilled, or null for the default temporary directory
+     * @param bufferedRows the number of rows of each annotation held in memory before they are spilled
+     */
+    public static AnnotationPolicy disk(File directory, int bufferedRows) {
+        return new AnnotationPolicy(Mode.DISK, bufferedRows, directory);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return the size of the sample, or of the buffer before spilling, of each annotation
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return a factory for the annotations of one analysis job
+     */
+    public RowAnnotationFactory createRowAnnotationFactory() {
+        switch (mode) {
+            case OFF:
+                return new CountingRowAnnotationFactory();
+            case RESERVOIR:
+                return new ReservoirRowAnnotationFactory(rows);
+            default:
+                return new DiskRowAnnotationFactory(directory, rows);
+        }
+    }
+
+    @Override
+    public String toString() {
+        switch (mode) {
+            case OFF:
+                return "AnnotationPolicy[off]";
+            case RESERVOIR:
+                return "AnnotationPolicy[reservoir of " + rows + " rows]";
+            default:
+                return "AnnotationPolicy[disk" + (directory == null ? "" : " in " + directory) + ", buffering " + rows + " rows]";
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package io.metamorphic.analysisservices.storage;
+
+import org.eobjects.analyzer.storage.InMemoryStorageProvider;
+import org.eobjects.analyzer.storage.RowAnnotationFactory;
+import org.eobjects.analyzer.storage.StorageProvider;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the collections of components in memory and the rows of annotations
+ * as the annotation policy says.
+ *
+ * A provider is made for each analysis job and closed once the results of the
+ * job are no longer needed, which releases the rows its factories kept, such
+ * as those spilled to disk.
+ */
+public class AnnotationStorageProvider implements StorageProvider, Closeable {
+
+    private final StorageProvider collections = new InMemoryStorageProvider();
+
+    private final AnnotationPolicy annotationPolicy;
+
+    private final List<RowAnnotationFactory> rowAnnotationFactories = new ArrayList<>();
+
+    public AnnotationStorageProvider(AnnotationPolicy annotationPolicy) {
+        if (annotationPolicy == null) {
+            throw new IllegalArgumentException("annotationPolicy cannot be null");
+        }
+        this.annotationPolicy = annotationPolicy;
+    }
+
+    public AnnotationPolicy getAnnotationPolicy() {
+        return annotationPolicy;
+    }
+
+    @Override
+    public <E> List<E> createList(Class<E> valueType) throws IllegalStateException {
+        return collections.createList(valueType);
+    }
+
+    @Override
+    public <E> Set<E> createSet(Class<E> valueType) throws IllegalStateException {
+        return collections.createSet(valueType);
+    }
+
+    @Override
+    public <K, V> Map<K, V> createMap(Class<K> keyType, Class<V> valueType) throws IllegalStateException {
+        return collections.createMap(keyType, valueType);
+    }
+
+    @Override
+    public RowAnnotationFactory createRowAnnotationFactory() {
+        RowAnnotationFactory rowAnnotationFactory = annotationPolicy.createRowAnnotationFactory();
+        synchronized (rowAnnotationFactories) {
+            rowAnnotationFactories.add(rowAnnotationFactory);
+        }
+        return rowAnnotationFactory;
+    }
+
+    /**
+     * Closes the row annotation factories created, so that the rows they kept
+     * can no longer be read.
+     */
+    @Override
+    public void close() throws IOException {
+        List<RowAnnotationFactory> factories;
+        synchronized (rowAnnotationFactories) {
+            factories = new ArrayList<>(rowAnnotationFactories);
+            rowAnnotationFactories.clear();
+        }
+        IOException failure = null;
+        for (RowAnnotationFactory factory : factories) {
+            if (factory instanceof Closeable) {
+                try {
+                    ((Closeable) factory).close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package io.metamorphic.analysisservices.storage;
+
+import org.eobjects.analyzer.data.InputColumn;
+import org.eobjects.analyzer.data.InputRow;
+import org.eobjects.analyzer.storage.RowAnnotation;
+import org.eobjects.analyzer.storage.RowAnnotationFactory;
+import org.eobjects.analyzer.storage.RowAnnotationImpl;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts the rows of each annotation without keeping any, so annotating a row
+ * costs no more than an atomic increment. The subclasses in this package keep some of the rows.
+ *
+ * As no rows are kept, {@link #getRows} and {@link #getValueCounts} return
+ * none, and transferring an annotation moves only its count. The subclasses
+ * move the rows they keep as well.
+ */
+public class CountingRowAnnotationFactory implements RowAnnotationFactory, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final InputRow[] NO_ROWS = new InputRow[0];
+
+    @Override
+    public RowAnnotation createAnnotation() {
+        return new RowAnnotationImpl();
+    }
+
+    @Override
+    public void annotate(InputRow[] rows, RowAnnotation annotation) {
+        for (InputRow row : rows) {
+            annotate(row, 1, annotation);
+        }
+    }
+
+    @Override
+    public void annotate(InputRow row, int distinctCount, RowAnnotation annotation) {
+        ((RowAnnotationImpl) annotation).incrementRowCount(distinctCount);
+        storeRow(row, distinctCount, annotation);
+    }
+
+    @Override
+    public void reset(RowAnnotation annotation) {
+        ((RowAnnotationImpl) annotation).resetRowCount();
+        resetRows(annotation);
+    }
+
+    /**
+     * @return the rows kept for the annotation, or a first page of them where
+     *         they are too many to hold in memory at once
+     */
+    @Override
+    public InputRow[] getRows(RowAnnotation annotation) {
+        List<StoredRow> storedRows = getStoredRows(annotation);
+        if (storedRows.isEmpty()) {
+            return NO_ROWS;
+        }
+        InputRow[] rows = new InputRow[storedRows.size()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = storedRows.get(i).row;
+        }
+        return rows;
+    }
+
+    /**
+     * @return every row kept for the annotation, read as it is iterated
+     */
+    public Iterator<InputRow> iterateRows(RowAnnotation annotation) {
+        final Iterator<StoredRow> storedRows = iterateStoredRows(annotation);
+        return new Iterator<InputRow>() {
+            @Override
+            public boolean hasNext() {
+                return storedRows.hasNext();
+            }
+
+            @Override
+            public InputRow next() {
+                return storedRows.next().row;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * @return the counts of the values of the column in the rows kept for the
+     *         annotation, which are a sample of the counts of all its rows
+     *         where the rows kept are
+     */
+    @Override
+    public Map<Object, Integer> getValueCounts(RowAnnotation annotation, InputColumn<?> inputColumn) {
+        Map<Object, Integer> valueCounts = new HashMap<>();
+        Iterator<StoredRow> storedRows = iterateStoredRows(annotation);
+        while (storedRows.hasNext()) {
+            StoredRow storedRow = storedRows.next();
+            Object value = storedRow.row.getValue(inputColumn);
+            Integer count = valueCounts.get(value);
+            valueCounts.put(value, (count == null ? 0 : count) + storedRow.distinctCount);
+        }
+        return valueCounts;
+    }
+
+    @Override
+    public void transferAnnotations(RowAnnotation from, RowAnnotation to) {
+        ((RowAnnotationImpl) to).incrementRowCount(from.getRowCount());
+        transferRows(from, to);
+    }
+
+    void storeRow(InputRow row, int distinctCount, RowAnnotation annotation) {
+    }
+
+    void resetRows(RowAnnotation annotation) {
+    }
+
+    /**
+     * Keeps the rows kept for one annotation for the other as well.
+     */
+    void transferRows(RowAnnotation from, RowAnnotation to) {
+    }
+
+    /**
+     * @return the rows kept for the annotation, in the order they were annotated where possible
+     */
+    List<StoredRow> getStoredRows(RowAnnotation annotation) {
+        return Collections.emptyList();
+    }
+
+    /**
+     * @return every row kept for the annotation, where {@link #getStoredRows} may return only some
+     */
+    Iterator<StoredRow> iterateStoredRows(RowAnnotation annotation) {
+        return getStoredRows(annotation).iterator();
+    }
+}
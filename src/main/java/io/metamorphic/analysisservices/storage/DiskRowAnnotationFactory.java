@@ -0,0 +1,296 @@
+package io.metamorphic.analysisservices.storage;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.eobjects.analyzer.data.InputColumn;
+import org.eobjects.analyzer.data.InputRow;
+import org.eobjects.analyzer.data.MockInputRow;
+import org.eobjects.analyzer.storage.RowAnnotation;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps every row of each annotation, a fixed number in memory and the rest
+ * in a temporary file, so the heap does not grow with the table.
+ *
+ * The rows of an annotation are buffered and the buffer appended to the file
+ * as one segment when full. A row read back holds the values it had when it
+ * was annotated, for the same columns. {@link #getRows} returns only the first
+ * {@value #PAGE_ROWS} rows of an annotation, as many as the HTML report shows;
+ * {@link #iterateRows} reads all of them a segment at a time. The file is
+ * deleted when the factory is closed, after which its rows cannot be read.
+ */
+public class DiskRowAnnotationFactory extends CountingRowAnnotationFactory implements Closeable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Log log = LogFactory.getLog(DiskRowAnnotationFactory.class);
+
+    /**
+     * The number of rows of an annotation returned by {@link #getRows}.
+     */
+    public static final int PAGE_ROWS = AnnotationPolicy.DEFAULT_ROWS;
+
+    private final File directory;
+
+    private final int bufferSize;
+
+    private final ConcurrentMap<RowAnnotation, Spill> spills = new ConcurrentHashMap<>();
+
+    // the columns of spilled rows are written as indexes into this list, so they read back as the same instances
+    private final List<InputColumn<?>> columns = new ArrayList<>();
+
+    private final Map<InputColumn<?>, Integer> columnIndexes = new HashMap<>();
+
+    private File file;
+
+    private RandomAccessFile data;
+
+    private volatile boolean closed;
+
+    /**
+     * @param directory where the rows are spilled, or null for the default temporary directory
+     * @param bufferSize the number of rows of each annotation held in memory before they are spilled
+     */
+    public DiskRowAnnotationFactory(File directory, int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("bufferSize must be positive");
+        }
+        this.directory = directory;
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    void storeRow(InputRow row, int distinctCount, RowAnnotation annotation) {
+        checkOpen();
+        getSpill(annotation).add(new StoredRow(row, distinctCount));
+    }
+
+    @Override
+    void resetRows(RowAnnotation annotation) {
+        // the segments spilled are left in the file until it is deleted
+        spills.remove(annotation);
+    }
+
+    @Override
+    void transferRows(RowAnnotation from, RowAnnotation to) {
+        Spill spill = getSpill(to);
+        Iterator<StoredRow> storedRows = iterateStoredRows(from);
+        while (storedRows.hasNext()) {
+            spill.add(storedRows.next());
+        }
+    }
+
+    @Override
+    List<StoredRow> getStoredRows(RowAnnotation annotation) {
+        List<StoredRow> page = new ArrayList<>();
+        Iterator<StoredRow> storedRows = iterateStoredRows(annotation);
+        while (page.size() < PAGE_ROWS && storedRows.hasNext()) {
+            page.add(storedRows.next());
+        }
+        return page;
+    }
+
+    @Override
+    Iterator<StoredRow> iterateStoredRows(RowAnnotation annotation) {
+        checkOpen();
+        Spill spill = spills.get(annotation);
+        if (spill == null) {
+            return Collections.<StoredRow>emptyList().iterator();
+        }
+        return spill.iterator();
+    }
+
+    /**
+     * Deletes the file of spilled rows. The rows of the annotations can no
+     * longer be read, nor more annotated.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        spills.clear();
+        if (data != null) {
+            try {
+                data.close();
+            } finally {
+                if (!file.delete()) {
+                    log.warn("Could not delete annotated rows file " + file);
+                }
+            }
+        }
+    }
+
+    private Spill getSpill(RowAnnotation annotation) {
+        Spill spill = spills.get(annotation);
+        if (spill == null) {
+            Spill newSpill = new Spill();
+            spill = spills.putIfAbsent(annotation, newSpill);
+            if (spill == null) {
+                spill = newSpill;
+            }
+        }
+        return spill;
+    }
+
+    private byte[] serialize(List<StoredRow> storedRows) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeInt(storedRows.size());
+            for (StoredRow storedRow : storedRows) {
+                InputRow row = storedRow.row;
+                List<InputColumn<?>> rowColumns = row.getInputColumns();
+                out.writeInt(row.getId());
+                out.writeInt(storedRow.distinctCount);
+                out.writeInt(rowColumns.size());
+                for (InputColumn<?> column : rowColumns) {
+                    Object value = row.getValue(column);
+                    out.writeInt(getColumnIndex(column));
+                    out.writeObject(value == null || value instanceof Serializable ? value : value.toString());
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private List<StoredRow> deserialize(byte[] segment) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(segment))) {
+            int rowCount = in.readInt();
+            List<StoredRow> storedRows = new ArrayList<>(rowCount);
+            for (int i = 0; i < rowCount; i++) {
+                int id = in.readInt();
+                int distinctCount = in.readInt();
+                InputColumn<?>[] rowColumns = new InputColumn<?>[in.readInt()];
+                Object[] values = new Object[rowColumns.length];
+                for (int j = 0; j < rowColumns.length; j++) {
+                    rowColumns[j] = getColumn(in.readInt());
+                    values[j] = in.readObject();
+                }
+                storedRows.add(new StoredRow(new MockInputRow(id, rowColumns, values), distinctCount));
+            }
+            return storedRows;
+        }
+    }
+
+    private int getColumnIndex(InputColumn<?> column) {
+        synchronized (columns) {
+            Integer index = columnIndexes.get(column);
+            if (index == null) {
+                index = columns.size();
+                columns.add(column);
+                columnIndexes.put(column, index);
+            }
+            return index;
+        }
+    }
+
+    private InputColumn<?> getColumn(int index) {
+        synchronized (columns) {
+            return columns.get(index);
+        }
+    }
+
+    /**
+     * @return the offset of the segment in the file
+     */
+    private synchronized long append(byte[] segment) throws IOException {
+        checkOpen();
+        if (data == null) {
+            file = File.createTempFile("annotations", ".bin", directory);
+            data = new RandomAccessFile(file, "rw");
+        }
+        long offset = data.length();
+        data.seek(offset);
+        data.writeInt(segment.length);
+        data.write(segment);
+        return offset;
+    }
+
+    private synchronized byte[] read(long offset) throws IOException {
+        checkOpen();
+        data.seek(offset);
+        byte[] segment = new byte[data.readInt()];
+        data.readFully(segment);
+        return segment;
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The annotated rows have been released");
+        }
+    }
+
+    private Object writeReplace() throws ObjectStreamException {
+        throw new NotSerializableException("Rows spilled to disk cannot be serialized, use a reservoir of annotated rows instead");
+    }
+
+    private final class Spill {
+
+        private final List<Long> segments = new ArrayList<>();
+
+        private final List<StoredRow> buffer = new ArrayList<>();
+
+        synchronized void add(StoredRow storedRow) {
+            buffer.add(storedRow);
+            if (buffer.size() >= bufferSize) {
+                try {
+                    segments.add(append(serialize(buffer)));
+                } catch (IOException e) {
+                    throw new IllegalStateException("Could not spill annotated rows to disk", e);
+                }
+                buffer.clear();
+            }
+        }
+
+        /**
+         * @return the rows spilled so far, then those buffered, reading one segment at a time
+         */
+        synchronized Iterator<StoredRow> iterator() {
+            final Iterator<Long> offsets = new ArrayList<>(segments).iterator();
+            final List<StoredRow> buffered = new ArrayList<>(buffer);
+            return new Iterator<StoredRow>() {
+
+                private Iterator<StoredRow> segment = Collections.<StoredRow>emptyList().iterator();
+
+                private boolean inBuffer;
+
+                @Override
+                public boolean hasNext() {
+                    while (!segment.hasNext()) {
+                        if (offsets.hasNext()) {
+                            try {
+                                segment = deserialize(read(offsets.next())).iterator();
+                            } catch (IOException | ClassNotFoundException e) {
+                                throw new IllegalStateException("Could not read annotated rows from disk", e);
+                            }
+                        } else if (!inBuffer) {
+                            inBuffer = true;
+                            segment = buffered.iterator();
+                        } else {
+                            return false;
+                        }
+                    }
+                    return true;
+                }
+
+                @Override
+                public StoredRow next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return segment.next();
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package io.metamorphic.analysisservices.storage;
+
+import org.eobjects.analyzer.data.InputRow;
+import org.eobjects.analyzer.storage.RowAnnotation;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps a uniform random sample of a fixed number of the rows of each
+ * annotation, so the rows kept do not grow with the table.
+ *
+ * Each row annotated after the sample is full replaces a random row of it with
+ * probability size / rows seen (Vitter's algorithm R). The draw is made before
+ * any write, so most rows of a large table are counted and dropped without
+ * contending with the threads annotating the same value.
+ */
+public class ReservoirRowAnnotationFactory extends CountingRowAnnotationFactory {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int size;
+
+    private final ConcurrentMap<RowAnnotation, Reservoir> reservoirs = new ConcurrentHashMap<>();
+
+    public ReservoirRowAnnotationFactory(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        this.size = size;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    void storeRow(InputRow row, int distinctCount, RowAnnotation annotation) {
+        getReservoir(annotation).add(row, distinctCount);
+    }
+
+    @Override
+    void resetRows(RowAnnotation annotation) {
+        reservoirs.remove(annotation);
+    }
+
+    @Override
+    void transferRows(RowAnnotation from, RowAnnotation to) {
+        Reservoir reservoir = reservoirs.get(from);
+        if (reservoir != null) {
+            getReservoir(to).addAll(reservoir);
+        }
+    }
+
+    @Override
+    List<StoredRow> getStoredRows(RowAnnotation annotation) {
+        Reservoir reservoir = reservoirs.get(annotation);
+        if (reservoir == null) {
+            return Collections.emptyList();
+        }
+        return reservoir.getRows();
+    }
+
+    private Reservoir getReservoir(RowAnnotation annotation) {
+        Reservoir reservoir = reservoirs.get(annotation);
+        if (reservoir == null) {
+            Reservoir newReservoir = new Reservoir(size);
+            reservoir = reservoirs.putIfAbsent(annotation, newReservoir);
+            if (reservoir == null) {
+                reservoir = newReservoir;
+            }
+        }
+        return reservoir;
+    }
+
+    private static final class Reservoir implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final AtomicLong seen = new AtomicLong();
+
+        private final AtomicReferenceArray<StoredRow> rows;
+
+        Reservoir(int size) {
+            rows = new AtomicReferenceArray<>(size);
+        }
+
+        void add(InputRow row, int distinctCount) {
+            long i = seen.getAndIncrement();
+            if (i < rows.length()) {
+                rows.set((int) i, new StoredRow(row, distinctCount));
+            } else {
+                long j = ThreadLocalRandom.current().nextLong(i + 1);
+                if (j < rows.length()) {
+                    rows.set((int) j, new StoredRow(row, distinctCount));
+                }
+            }
+        }
+
+        /**
+         * Offers the sample of the other reservoir to this one, counting the
+         * rows it stands for as seen, so that the rows added after are drawn
+         * as if both had seen all of them.
+         */
+        void addAll(Reservoir other) {
+            List<StoredRow> sample = other.getRows();
+            for (StoredRow storedRow : sample) {
+                add(storedRow.row, storedRow.distinctCount);
+            }
+            seen.addAndGet(Math.max(0, other.seen.get() - sample.size()));
+        }
+
+        List<StoredRow> getRows() {
+            List<StoredRow> sample = new ArrayList<>(rows.length());
+            for (int i = 0; i < rows.length(); i++) {
+                StoredRow storedRow = rows.get(i);
+                if (storedRow != null) {
+                    sample.add(storedRow);
+                }
+            }
+            return sample;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package io.metamorphic.analysisservices.storage;
+
+import org.eobjects.analyzer.data.InputRow;
+
+import java.io.Serializable;
+
+/**
+ * A row kept for an annotation, with the number of rows it stands for.
+ */
+final class StoredRow implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    final InputRow row;
+
+    final int distinctCount;
+
+    StoredRow(InputRow row, int distinctCount) {
+        this.row = row;
+        this.distinctCount = distinctCount;
+    }
+}
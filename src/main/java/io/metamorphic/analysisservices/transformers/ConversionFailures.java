@@ -0,0 +1,45 @@
+package io.metamorphic.analysisservices.transformers;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The number of values of each output column of a job that the transformers
+ * could not convert, provided to the transformers of the job that declare a
+ * field of this type with {@code @Provided}.
+ */
+public class ConversionFailures {
+
+    private final ConcurrentMap<String, AtomicLong> counts = new ConcurrentHashMap<>();
+
+    public void increment(String outputColumnName) {
+        AtomicLong count = counts.get(outputColumnName);
+        if (count == null) {
+            AtomicLong newCount = new AtomicLong();
+            count = counts.putIfAbsent(outputColumnName, newCount);
+            if (count == null) {
+                count = newCount;
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    public long get(String outputColumnName) {
+        AtomicLong count = counts.get(outputColumnName);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * @return the counts by output column, of the columns with failures
+     */
+    public Map<String, Long> getCounts() {
+        Map<String, Long> snapshot = new HashMap<>();
+        for (Map.Entry<String, AtomicLong> entry : counts.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().get());
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,126 @@
+package io.metamorphic.analysisservices.transformers;
+
+import io.metamorphic.commons.utils.DateParser;
+
+import java.util.Date;
+
+/**
+ * Parses the dates of one column, learning its format from the first values.
+ *
+ * The general parser tries candidate formats until one fits, which is costly
+ * for every value when almost every column has a single format. While learning,
+ * each value is parsed by the general parser and checked against the common
+ * formats below. The format that gave the same date for every value parsed
+ * is then locked in and tried first, falling back to the general parser for
+ * the values it does not fit. While more than one did, as for dates whose day
+ * and month are the same in both dd/MM and MM/dd, learning goes on past the
+ * sample until the values tell them apart. If no format gave the dates of the
+ * general parser for every value learned, as in a column of mixed formats or
+ * two-digit years, every value is left to the general parser.
+ */
+public class DateFormatLearner {
+
+    private static final DatePattern[] CANDIDATES = {
+            DatePattern.compile("yyyy-MM-dd"),
+            DatePattern.compile("yyyy-MM-dd HH:mm:ss"),
+            DatePattern.compile("yyyy-MM-dd'T'HH:mm:ss"),
+            DatePattern.compile("yyyy-MM-dd HH:mm:ss.SSS"),
+            DatePattern.compile("yyyy-MM-dd'T'HH:mm:ss.SSS"),
+            DatePattern.compile("yyyy-MM-dd HH:mm"),
+            DatePattern.compile("yyyy/MM/dd"),
+            DatePattern.compile("yyyy/MM/dd HH:mm:ss"),
+            DatePattern.compile("yyyyMMdd"),
+            DatePattern.compile("dd/MM/yyyy"),
+            DatePattern.compile("MM/dd/yyyy"),
+            DatePattern.compile("dd/MM/yyyy HH:mm:ss"),
+            DatePattern.compile("MM/dd/yyyy HH:mm:ss"),
+            DatePattern.compile("dd/MM/yyyy HH:mm"),
+            DatePattern.compile("MM/dd/yyyy HH:mm"),
+            DatePattern.compile("dd-MM-yyyy"),
+            DatePattern.compile("MM-dd-yyyy"),
+            DatePattern.compile("dd.MM.yyyy"),
+            DatePattern.compile("dd.MM.yyyy HH:mm:ss")
+    };
+
+    private final DateParser dateParser;
+
+    private final int sampleSize;
+
+    private final boolean[] viable = new boolean[CANDIDATES.length];
+
+    private int learned;
+
+    private volatile boolean learning;
+
+    private volatile DatePattern pattern;
+
+    /**
+     * @param sampleSize the number of dates to learn the format from, or 0 to always use the general parser
+     */
+    public DateFormatLearner(DateParser dateParser, int sampleSize) {
+        this.dateParser = dateParser;
+        this.sampleSize = sampleSize;
+        this.learning = sampleSize > 0;
+        for (int i = 0; i < viable.length; i++) {
+            viable[i] = true;
+        }
+    }
+
+    /**
+     * @return the date, or null if the value is not a date
+     */
+    public Date parse(String value) {
+        DatePattern pattern = this.pattern;
+        if (pattern != null) {
+            Date date = pattern.parse(value);
+            if (date != null) {
+                return date;
+            }
+        }
+        Date date = parseGeneral(value);
+        if (date != null && learning) {
+            learn(value, date);
+        }
+        return date;
+    }
+
+    private Date parseGeneral(String value) {
+        try {
+            return dateParser.parse(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private synchronized void learn(String value, Date date) {
+        if (!learning) {
+            return;
+        }
+        for (int i = 0; i < CANDIDATES.length; i++) {
+            if (viable[i] && !date.equals(CANDIDATES[i].parse(value))) {
+                viable[i] = false;
+            }
+        }
+        if (++learned >= sampleSize) {
+            DatePattern fit = null;
+            for (int i = 0; i < CANDIDATES.length; i++) {
+                if (viable[i]) {
+                    if (fit != null) {
+                        // ambiguous, so far
+                        return;
+                    }
+                    fit = CANDIDATES[i];
+                }
+            }
+            pattern = fit;
+            learning = false;
+        }
+    }
+
+    /**
+     * @return the format locked in, or null while learning or if no common format fits the column
+     */
+    public DatePattern getPattern() {
+        return pattern;
+    }
+}
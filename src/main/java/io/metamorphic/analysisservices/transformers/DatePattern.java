@@ -0,0 +1,175 @@
+package io.metamorphic.analysisservices.transformers;
+
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * A date format of fixed-width numeric fields, such as yyyy-MM-dd HH:mm:ss,
+ * compiled once and parsed without exceptions or allocation beyond the date
+ * returned. Dates are in the default time zone, like a SimpleDateFormat's.
+ *
+ * Supports the fields yyyy, MM, dd, HH, mm, ss and SSS, and literal characters,
+ * quoted where they are letters.
+ */
+public final class DatePattern {
+
+    private static final ThreadLocal<Calendar> CALENDAR = new ThreadLocal<Calendar>() {
+        @Override
+        protected Calendar initialValue() {
+            return Calendar.getInstance();
+        }
+    };
+
+    private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    private final String pattern;
+
+    private final int length;
+
+    // the layout of a value: a field letter, or 0 for a literal character, at each position
+    private final char[] fields;
+
+    private final char[] literals;
+
+    private DatePattern(String pattern, char[] fields, char[] literals) {
+        this.pattern = pattern;
+        this.length = fields.length;
+        this.fields = fields;
+        this.literals = literals;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the pattern has a field other than yyyy, MM, dd, HH, mm, ss or SSS
+     */
+    public static DatePattern compile(String pattern) {
+        StringBuilder fields = new StringBuilder();
+        StringBuilder literals = new StringBuilder();
+        int i = 0;
+        while (i < pattern.length()) {
+            char c = pattern.charAt(i);
+            if (c == '\'') {
+                int end = pattern.indexOf('\'', i + 1);
+                if (end == -1) {
+                    throw new IllegalArgumentException("Unterminated quote in date pattern [" + pattern + "]");
+                }
+                for (int j = i + 1; j < end; j++) {
+                    fields.append((char) 0);
+                    literals.append(pattern.charAt(j));
+                }
+                i = end + 1;
+            } else if (Character.isLetter(c)) {
+                int end = i;
+                while (end < pattern.length() && pattern.charAt(end) == c) {
+                    end++;
+                }
+                if (getWidth(c) != end - i) {
+                    throw new IllegalArgumentException("Unsupported field [" + pattern.substring(i, end) + "] in date pattern [" + pattern + "]");
+                }
+                for (int j = i; j < end; j++) {
+                    fields.append(c);
+                    literals.append((char) 0);
+                }
+                i = end;
+            } else {
+                fields.append((char) 0);
+                literals.append(c);
+                i++;
+            }
+        }
+        return new DatePattern(pattern, fields.toString().toCharArray(), literals.toString().toCharArray());
+    }
+
+    private static int getWidth(char field) {
+        switch (field) {
+            case 'y':
+                return 4;
+            case 'M':
+            case 'd':
+            case 'H':
+            case 'm':
+            case 's':
+                return 2;
+            case 'S':
+                return 3;
+            default:
+                return -1;
+        }
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @return the date, or null if the value does not have the format or is not a valid date
+     */
+    public Date parse(String value) {
+        if (value.length() != length) {
+            return null;
+        }
+        int year = 1970, month = 1, day = 1, hour = 0, minute = 0, second = 0, millis = 0;
+        int i = 0;
+        while (i < length) {
+            char field = fields[i];
+            if (field == 0) {
+                if (value.charAt(i) != literals[i]) {
+                    return null;
+                }
+                i++;
+                continue;
+            }
+            int n = 0;
+            int end = i + getWidth(field);
+            for (; i < end; i++) {
+                int digit = value.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    return null;
+                }
+                n = n * 10 + digit;
+            }
+            switch (field) {
+                case 'y':
+                    year = n;
+                    break;
+                case 'M':
+                    month = n;
+                    break;
+                case 'd':
+                    day = n;
+                    break;
+                case 'H':
+                    hour = n;
+                    break;
+                case 'm':
+                    minute = n;
+                    break;
+                case 's':
+                    second = n;
+                    break;
+                default:
+                    millis = n;
+            }
+        }
+        if (month < 1 || month > 12 || day < 1 || day > getDaysInMonth(year, month)
+                || hour > 23 || minute > 59 || second > 59) {
+            return null;
+        }
+        Calendar calendar = CALENDAR.get();
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute, second);
+        calendar.set(Calendar.MILLISECOND, millis);
+        return calendar.getTime();
+    }
+
+    private static int getDaysInMonth(int year, int month) {
+        if (month == 2 && year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) {
+            return 29;
+        }
+        return DAYS_IN_MONTH[month - 1];
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+}
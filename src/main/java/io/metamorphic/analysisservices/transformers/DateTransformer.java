@@ -1,10 +1,7 @@
 package io.metamorphic.analysisservices.transformers;
 
 import io.metamorphic.commons.utils.DateParser;
-import org.eobjects.analyzer.beans.api.Configured;
-import org.eobjects.analyzer.beans.api.OutputColumns;
-import org.eobjects.analyzer.beans.api.Transformer;
-import org.eobjects.analyzer.beans.api.TransformerBean;
+import org.eobjects.analyzer.beans.api.*;
 import org.eobjects.analyzer.data.InputColumn;
 import org.eobjects.analyzer.data.InputRow;
 
@@ -18,11 +15,35 @@ import java.util.Date;
 @TransformerBean("String to Date")
 public class DateTransformer implements Transformer<Date> {
 
+    public static final String PROPERTY_FORMAT_LEARNING_SAMPLE = "Format learning sample";
+
     @Configured
     InputColumn<String>[] columns;
 
+    @Configured(value = PROPERTY_FORMAT_LEARNING_SAMPLE, required = false)
+    @Description("Number of dates of each column to learn its format from, or 0 to try every format for every value.")
+    int formatLearningSample = 100;
+
+    @Provided
+    ConversionFailures conversionFailures;
+
     private DateParser dateParser = new DateParser();
 
+    private String[] outputNames;
+
+    private DateFormatLearner[] learners;
+
+    @Initialize
+    public void init() {
+        OutputColumns outputColumns = getOutputColumns();
+        outputNames = new String[columns.length];
+        learners = new DateFormatLearner[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            outputNames[i] = outputColumns.getColumnName(i);
+            learners[i] = new DateFormatLearner(dateParser, formatLearningSample);
+        }
+    }
+
     @Override
     public OutputColumns getOutputColumns() {
         String[] names = new String[columns.length];
@@ -41,11 +62,9 @@ public class DateTransformer implements Transformer<Date> {
             InputColumn<String> column = columns[i];
             String value = inputRow.getValue(column);
             if (value != null && (value = value.trim()).length() > 0) {
-                try {
-                    result[i] = dateParser.parse(value);
-                } catch (IllegalArgumentException e) {
-                    // TODO
-                    // log exception
+                result[i] = learners[i].parse(value);
+                if (result[i] == null && conversionFailures != null) {
+                    conversionFailures.increment(outputNames[i]);
                 }
             }
         }
@@ -1,21 +1,15 @@
 package io.metamorphic.analysisservices.transformers;
 
-import com.google.common.base.Joiner;
-import edu.stanford.nlp.ie.AbstractSequenceClassifier;
-import edu.stanford.nlp.ling.CoreAnnotations.AnswerAnnotation;
-import edu.stanford.nlp.ling.CoreLabel;
+import io.metamorphic.analysisservices.ner.EntityRecognizer;
 import io.metamorphic.commons.utils.Inflector;
-import org.eobjects.analyzer.beans.api.Configured;
-import org.eobjects.analyzer.beans.api.OutputColumns;
-import org.eobjects.analyzer.beans.api.Transformer;
-import org.eobjects.analyzer.beans.api.TransformerBean;
+import org.eobjects.analyzer.beans.api.*;
 import org.eobjects.analyzer.data.InputColumn;
 import org.eobjects.analyzer.data.InputRow;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * User: markmo
@@ -25,6 +19,11 @@ import java.util.Map;
 @TransformerBean("Text to Entities")
 public class EntityRecognitionTransformer implements Transformer<String> {
 
+    public static final String PROPERTY_ENTITY_RECOGNIZER = "Entity recognizer";
+    public static final String PROPERTY_MAX_TEXT_LENGTH = "Max text length";
+    public static final String PROPERTY_SAMPLE_ROWS = "Sample rows";
+    public static final String PROPERTY_WARM_UP = "Warm up";
+
     static String[] entityTypes = new String[]{
             "LOCATION", "TIME", "PERSON", "ORGANIZATION", "MONEY", "PERCENT", "DATE"
     };
@@ -32,8 +31,33 @@ public class EntityRecognitionTransformer implements Transformer<String> {
     @Configured
     InputColumn<String>[] columns;
 
-    @Configured
-    AbstractSequenceClassifier<CoreLabel> classifier;
+    @Configured(PROPERTY_ENTITY_RECOGNIZER)
+    EntityRecognizer recognizer;
+
+    @Configured(value = PROPERTY_MAX_TEXT_LENGTH, required = false)
+    @Description("Number of characters of each text to recognize entities in, or 0 for all of them.")
+    int maxTextLength = 0;
+
+    @Configured(value = PROPERTY_SAMPLE_ROWS, required = false)
+    @Description("Number of texts of each column to recognize entities in, or 0 for all of them.")
+    int sampleRows = 0;
+
+    @Configured(value = PROPERTY_WARM_UP, required = false)
+    @Description("Whether to start loading the classifier, if it is not loaded, as the job starts.")
+    boolean warmUp = true;
+
+    private AtomicInteger[] sampled;
+
+    @Initialize
+    public void init() {
+        sampled = new AtomicInteger[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            sampled[i] = new AtomicInteger();
+        }
+        if (warmUp) {
+            recognizer.warmUp();
+        }
+    }
 
     @Override
     public OutputColumns getOutputColumns() {
@@ -42,7 +66,7 @@ public class EntityRecognitionTransformer implements Transformer<String> {
             for (int j = 0; j < entityTypes.length; j++) {
                 InputColumn<String> column = columns[i];
                 String name = column.getName() + " (" + Inflector.pluralize(entityTypes[j].toLowerCase()) + ")";
-                names[i * j] = name;
+                names[i * entityTypes.length + j] = name;
             }
         }
         return new OutputColumns(names);
@@ -51,38 +75,45 @@ public class EntityRecognitionTransformer implements Transformer<String> {
     @Override
     public String[] transform(InputRow inputRow) {
         String[] result = new String[columns.length * entityTypes.length];
+        // the texts of the row are recognized together
+        List<String> texts = new ArrayList<>(columns.length);
+        List<Integer> textColumns = new ArrayList<>(columns.length);
         for (int i = 0; i < columns.length; i++) {
             InputColumn<String> column = columns[i];
             String value = inputRow.getValue(column);
             if (value != null && (value = value.trim()).length() > 0) {
-                List<List<CoreLabel>> labels = classifier.classify(value);
-                Map<String, List<String>> entities = new HashMap<>();
-                String lastAnnotation = "O";
-                for (List<CoreLabel> sentence : labels) {
-                    for (CoreLabel word : sentence) {
-                        String annotation = word.get(AnswerAnnotation.class);
-                        if (!"O".equals(annotation)) {
-                            List<String> words = entities.get(annotation);
-                            if (words == null) {
-                                words = new ArrayList<>();
-                            }
-                            if (lastAnnotation.equals(annotation)) {
-                                int j = words.size() - 1;
-                                words.set(j, words.get(j) + " " + word.word());
-                            } else {
-                                words.add(word.word());
-                            }
-                            entities.put(annotation, words);
-                            lastAnnotation = annotation;
-                        }
-                    }
-                }
-                for (int j = 0; j < entityTypes.length; j++) {
-                    List<String> words = entities.get(entityTypes[j]);
-                    result[i * j] = Joiner.on(",").join(words);
+                if (sampleRows > 0 && sampled[i].getAndIncrement() >= sampleRows) {
+                    continue;
                 }
+                texts.add(truncate(value));
+                textColumns.add(i);
+            }
+        }
+        if (texts.isEmpty()) {
+            return result;
+        }
+        List<Map<String, String>> entities = recognizer.recognize(texts);
+        for (int k = 0; k < texts.size(); k++) {
+            int i = textColumns.get(k);
+            Map<String, String> textEntities = entities.get(k);
+            for (int j = 0; j < entityTypes.length; j++) {
+                result[i * entityTypes.length + j] = textEntities.get(entityTypes[j]);
             }
         }
         return result;
     }
+
+    /**
+     * @return the text cut to the max text length, at the last white space before it if there is any
+     */
+    private String truncate(String text) {
+        if (maxTextLength <= 0 || text.length() <= maxTextLength) {
+            return text;
+        }
+        int end = maxTextLength;
+        while (end > 0 && !Character.isWhitespace(text.charAt(end))) {
+            end--;
+        }
+        return text.substring(0, end > 0 ? end : maxTextLength);
+    }
 }
@@ -14,6 +14,20 @@ public class IntegerTransformer implements Transformer<Integer> {
     @Configured
     InputColumn<String>[] columns;
 
+    @Provided
+    ConversionFailures conversionFailures;
+
+    private String[] outputNames;
+
+    @Initialize
+    public void init() {
+        OutputColumns outputColumns = getOutputColumns();
+        outputNames = new String[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            outputNames[i] = outputColumns.getColumnName(i);
+        }
+    }
+
     @Override
     public OutputColumns getOutputColumns() {
         String[] names = new String[columns.length];
@@ -30,13 +44,11 @@ public class IntegerTransformer implements Transformer<Integer> {
         Integer[] result = new Integer[columns.length];
         for (int i = 0; i < columns.length; i++) {
             InputColumn<String> column = columns[i];
-            String value = inputRow.getValue(column).trim();
-            if (value.length() > 0) {
-                try {
-                    result[i] = Integer.parseInt(value);
-                } catch (NumberFormatException e) {
-                    // TODO
-                    // log exception
+            String value = inputRow.getValue(column);
+            if (value != null) {
+                result[i] = NumberParser.parseInt(value);
+                if (result[i] == null && conversionFailures != null && !NumberParser.isBlank(value)) {
+                    conversionFailures.increment(outputNames[i]);
                 }
             }
         }
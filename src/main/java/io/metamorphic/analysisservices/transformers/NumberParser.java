@@ -0,0 +1,294 @@
+package io.metamorphic.analysisservices.transformers;
+
+/**
+ * Parses numbers from character sequences in place, skipping the surrounding
+ * white space without copying it off, and returning null for invalid input
+ * rather than throwing. Valid numbers allocate only the box returned.
+ */
+public final class NumberParser {
+
+    // the powers of ten that a double holds exactly
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private static final long[] POWERS_OF_TEN_LONG = {
+            1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L,
+            10000000000L, 100000000000L, 1000000000000L, 10000000000000L, 100000000000000L,
+            1000000000000000L, 10000000000000000L, 100000000000000000L, 1000000000000000000L
+    };
+
+    // the largest integer below which every integer is exactly a double
+    private static final long MAX_EXACT_DOUBLE = 1L << 53;
+
+    private NumberParser() {}
+
+    public static boolean isBlank(CharSequence value) {
+        return trimEnd(value, 0, value.length()) == 0;
+    }
+
+    /**
+     * @return the integer, or null if the value is blank, not an integer, or out of range
+     */
+    public static Integer parseInt(CharSequence value) {
+        if (value == null) {
+            return null;
+        }
+        int end = trimEnd(value, 0, value.length());
+        int start = trimStart(value, end);
+        if (start == end) {
+            return null;
+        }
+        long n = parseDigits(value, start, end);
+        if (n == Long.MIN_VALUE || n < Integer.MIN_VALUE || n > Integer.MAX_VALUE) {
+            return null;
+        }
+        return (int) n;
+    }
+
+    /**
+     * @return the integer, or null if the value is blank, not an integer, or out of range
+     */
+    public static Long parseLong(CharSequence value) {
+        if (value == null) {
+            return null;
+        }
+        int end = trimEnd(value, 0, value.length());
+        int start = trimStart(value, end);
+        if (start == end) {
+            return null;
+        }
+        long n = parseDigits(value, start, end);
+        if (n == Long.MIN_VALUE && !isMinLong(value, start, end)) {
+            return null;
+        }
+        return n;
+    }
+
+    /**
+     * Parses a decimal number with an optional sign, thousands separators
+     * (commas in the integer part), fraction, exponent and percent sign,
+     * as a Long where it is a whole number in range and as a Double otherwise.
+     *
+     * @return the number, or null if the value is blank, not a number, or out of the range of a double, either
+     *         too large for it or too small to be told from zero
+     */
+    public static Number parseNumber(CharSequence value) {
+        if (value == null) {
+            return null;
+        }
+        int end = trimEnd(value, 0, value.length());
+        int start = trimStart(value, end);
+        if (start == end) {
+            return null;
+        }
+        boolean percent = value.charAt(end - 1) == '%';
+        if (percent) {
+            end = trimEnd(value, start, end - 1);
+            if (start == end) {
+                return null;
+            }
+        }
+        int i = start;
+        boolean negative = false;
+        char c = value.charAt(i);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            i++;
+        }
+        // the value is mantissa * 10^exponent, give or take the digits past those a long holds
+        long mantissa = 0;
+        int exponent = 0;
+        boolean truncated = false;
+        int digits = 0;
+        // the digits since the last thousands separator, or -1 before any
+        int groupDigits = -1;
+        for (; i < end; i++) {
+            c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (fits(mantissa, c - '0')) {
+                    mantissa = mantissa * 10 + (c - '0');
+                } else {
+                    exponent++;
+                    truncated |= c != '0';
+                }
+                digits++;
+                if (groupDigits >= 0) {
+                    groupDigits++;
+                }
+            } else if (c == ',' && digits > 0) {
+                if (groupDigits >= 0 && groupDigits != 3) {
+                    return null;
+                }
+                groupDigits = 0;
+            } else {
+                break;
+            }
+        }
+        if (groupDigits >= 0 && groupDigits != 3) {
+            return null;
+        }
+        if (i < end && value.charAt(i) == '.') {
+            for (i++; i < end; i++) {
+                c = value.charAt(i);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                if (fits(mantissa, c - '0')) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    exponent--;
+                } else {
+                    truncated |= c != '0';
+                }
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            return null;
+        }
+        if (i < end && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+                negativeExponent = value.charAt(i) == '-';
+                i++;
+            }
+            if (i == end) {
+                return null;
+            }
+            int e = 0;
+            for (; i < end; i++) {
+                c = value.charAt(i);
+                if (c < '0' || c > '9') {
+                    return null;
+                }
+                if (e < 100000) {
+                    e = e * 10 + (c - '0');
+                }
+            }
+            exponent += negativeExponent ? -e : e;
+        }
+        if (i != end) {
+            return null;
+        }
+        if (percent) {
+            exponent -= 2;
+        }
+        if (mantissa == 0) {
+            return 0L;
+        }
+        while (exponent < 0 && mantissa % 10 == 0) {
+            mantissa /= 10;
+            exponent++;
+        }
+        if (!truncated && exponent >= 0 && exponent < POWERS_OF_TEN_LONG.length
+                && mantissa <= Long.MAX_VALUE / POWERS_OF_TEN_LONG[exponent]) {
+            long n = mantissa * POWERS_OF_TEN_LONG[exponent];
+            return negative ? -n : n;
+        }
+        if (!truncated && mantissa < MAX_EXACT_DOUBLE && exponent >= -22 && exponent <= 22) {
+            // both operands are exact, so the result is correctly rounded
+            double d = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+            return negative ? -d : d;
+        }
+        return parseDoubleSlowly(value, start, end, percent);
+    }
+
+    private static boolean fits(long mantissa, int digit) {
+        return mantissa < Long.MAX_VALUE / 10 || mantissa == Long.MAX_VALUE / 10 && digit <= Long.MAX_VALUE % 10;
+    }
+
+    /**
+     * For the rare numbers with more digits or a larger exponent than can be
+     * computed exactly: copies the number off for the JDK to round.
+     *
+     * @return the number, or null if it overflows to infinity or, not being zero, underflows to zero
+     */
+    private static Double parseDoubleSlowly(CharSequence value, int start, int end, boolean percent) {
+        StringBuilder sb = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c != ',') {
+                sb.append(c);
+            }
+        }
+        double d = Double.parseDouble(sb.toString());
+        if (percent) {
+            d /= 100;
+        }
+        // the mantissa is not zero, so neither is the number
+        if (Double.isInfinite(d) || d == 0) {
+            return null;
+        }
+        return d;
+    }
+
+    /**
+     * @return the value of an optionally signed run of digits, or Long.MIN_VALUE if there is anything else or it
+     *         overflows, which the caller tells apart from -9223372036854775808 itself
+     */
+    private static long parseDigits(CharSequence value, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        char c = value.charAt(i);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            if (++i == end) {
+                return Long.MIN_VALUE;
+            }
+        }
+        // accumulate negatively, as the negative range is the larger
+        long n = 0;
+        for (; i < end; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return Long.MIN_VALUE;
+            }
+            if (n < Long.MIN_VALUE / 10 || n * 10 < Long.MIN_VALUE + digit) {
+                return Long.MIN_VALUE;
+            }
+            n = n * 10 - digit;
+        }
+        if (negative) {
+            return n;
+        }
+        return n == Long.MIN_VALUE ? Long.MIN_VALUE : -n;
+    }
+
+    private static boolean isMinLong(CharSequence value, int start, int end) {
+        if (value.charAt(start) != '-') {
+            return false;
+        }
+        // leading zeros, as Long.parseLong takes them
+        int i = start + 1;
+        while (i < end - 1 && value.charAt(i) == '0') {
+            i++;
+        }
+        String min = "9223372036854775808";
+        if (end - i != min.length()) {
+            return false;
+        }
+        for (int j = 0; j < min.length(); j++) {
+            if (value.charAt(i + j) != min.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int trimEnd(CharSequence value, int start, int end) {
+        while (end > start && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static int trimStart(CharSequence value, int end) {
+        int start = 0;
+        while (start < end && value.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+}
@@ -0,0 +1,55 @@
+package io.metamorphic.analysisservices.transformers;
+
+import org.eobjects.analyzer.beans.api.*;
+import org.eobjects.analyzer.data.InputColumn;
+import org.eobjects.analyzer.data.InputRow;
+
+/**
+ * Converts strings to numbers, as a Long where they are whole numbers and a
+ * Double otherwise. Accepts thousands separators, exponents and percentages.
+ */
+@TransformerBean("String to Number")
+public class NumberTransformer implements Transformer<Number> {
+
+    @Configured
+    InputColumn<String>[] columns;
+
+    @Provided
+    ConversionFailures conversionFailures;
+
+    private String[] outputNames;
+
+    @Initialize
+    public void init() {
+        OutputColumns outputColumns = getOutputColumns();
+        outputNames = new String[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            outputNames[i] = outputColumns.getColumnName(i);
+        }
+    }
+
+    @Override
+    public OutputColumns getOutputColumns() {
+        String[] names = new String[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            names[i] = columns[i].getName() + " (as number)";
+        }
+        return new OutputColumns(names);
+    }
+
+    @Override
+    public Number[] transform(InputRow inputRow) {
+        Number[] result = new Number[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            InputColumn<String> column = columns[i];
+            String value = inputRow.getValue(column);
+            if (value != null) {
+                result[i] = NumberParser.parseNumber(value);
+                if (result[i] == null && conversionFailures != null && !NumberParser.isBlank(value)) {
+                    conversionFailures.increment(outputNames[i]);
+                }
+            }
+        }
+        return result;
+    }
+}
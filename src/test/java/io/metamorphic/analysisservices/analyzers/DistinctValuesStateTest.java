@@ -0,0 +1,79 @@
+package io.metamorphic.analysisservices.analyzers;
+
+import io.metamorphic.analysiscommons.models.TermFrequency;
+import org.junit.Test;
+
+import static org.apache.commons.lang.builder.EqualsBuilder.reflectionEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the top values summary, not kept while the values are counted
+ * exactly, starts from the exact counts when they are dropped or merged.
+ */
+public class DistinctValuesStateTest {
+
+    private static final int TOP_VALUES = 10;
+
+    // more than the distinct values, so that the summary counts them exactly
+    private static final int CAPACITY = 1000;
+
+    @Test
+    public void topValuesAreExactAfterSwitchToSketch() {
+        DistinctValuesState exact = newState(DistinctCountMode.EXACT);
+        DistinctValuesState auto = newState(DistinctCountMode.AUTO);
+        addValues(exact, 0, 500);
+        addValues(auto, 0, 500);
+        assertFalse(exact.isApproximate());
+        assertTrue(auto.isApproximate());
+        assertSameTopValues(exact, auto);
+        for (Integer error : auto.getTopValuesErrors()) {
+            assertEquals(0, (int) error);
+        }
+    }
+
+    @Test
+    public void exactStateMergesIntoSketch() {
+        DistinctValuesState exact = newState(DistinctCountMode.EXACT);
+        addValues(exact, 0, 500);
+        DistinctValuesState approximate = newState(DistinctCountMode.AUTO);
+        addValues(approximate, 0, 300);
+        DistinctValuesState part = newState(DistinctCountMode.AUTO);
+        addValues(part, 300, 500);
+        assertTrue(approximate.isApproximate());
+        assertFalse(part.isApproximate());
+
+        // exact into approximate, and approximate into exact
+        DistinctValuesState merged = approximate.newEmptyState();
+        merged.merge(approximate);
+        merged.merge(part);
+        assertSameTopValues(exact, merged);
+        part.merge(approximate);
+        assertTrue(part.isApproximate());
+        assertSameTopValues(exact, part);
+    }
+
+    private static DistinctValuesState newState(DistinctCountMode mode) {
+        return new DistinctValuesState(mode, 250, 14, TOP_VALUES, CAPACITY);
+    }
+
+    /**
+     * Adds the values from to the end, each value i as many times as its
+     * rank among all of them, so that no two counts tie.
+     */
+    private static void addValues(DistinctValuesState state, int from, int to) {
+        for (int i = from; i < to; i++) {
+            state.add("value-" + i, i + 1);
+        }
+    }
+
+    private static void assertSameTopValues(DistinctValuesState expected, DistinctValuesState actual) {
+        TermFrequency[] expectedTop = expected.getTopValues();
+        TermFrequency[] actualTop = actual.getTopValues();
+        assertEquals(TOP_VALUES, actualTop.length);
+        for (int i = 0; i < TOP_VALUES; i++) {
+            assertTrue(expectedTop[i] + " != " + actualTop[i], reflectionEquals(expectedTop[i], actualTop[i]));
+        }
+    }
+}
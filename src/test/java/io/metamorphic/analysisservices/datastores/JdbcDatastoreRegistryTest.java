@@ -0,0 +1,126 @@
+package io.metamorphic.analysisservices.datastores;
+
+import io.metamorphic.analysiscommons.models.DatabaseConnection;
+import org.apache.commons.dbcp.BasicDataSource;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks the connection pools the registry keeps for an embedded H2 database.
+ */
+public class JdbcDatastoreRegistryTest {
+
+    private static final String JDBC_URL = "jdbc:h2:mem:registry;DB_CLOSE_DELAY=-1";
+
+    // keeps the database open between the tests
+    private static Connection connection;
+
+    private JdbcDatastoreRegistry registry;
+
+    @BeforeClass
+    public static void createUser() throws SQLException {
+        connection = DriverManager.getConnection(JDBC_URL, "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE USER ANALYST PASSWORD 'secret' ADMIN");
+        }
+    }
+
+    @AfterClass
+    public static void closeDatabase() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP USER ANALYST");
+        }
+        connection.close();
+    }
+
+    @Before
+    public void createRegistry() {
+        registry = new JdbcDatastoreRegistry();
+        registry.setMaxConnections(2);
+    }
+
+    @After
+    public void closeRegistry() {
+        registry.close();
+    }
+
+    @Test
+    public void sameDatabaseSharesPool() {
+        DataSource dataSource = registry.getDataSource(getConnection("sa", ""));
+        assertSame(dataSource, registry.getDataSource(getConnection("sa", "")));
+        assertSame(registry.getDataContext(getConnection("sa", "")), registry.getDataContext(getConnection("sa", "")));
+    }
+
+    @Test
+    public void closedConnectionsReturnToPool() throws SQLException {
+        BasicDataSource dataSource = (BasicDataSource) registry.getDataSource(getConnection("sa", ""));
+        try (Connection first = dataSource.getConnection()) {
+            assertEquals(1, dataSource.getNumActive());
+        }
+        assertEquals(0, dataSource.getNumActive());
+        assertEquals(1, dataSource.getNumIdle());
+        // more connections than the pool holds, one after the other, as each is given back
+        for (int i = 0; i < 2 * registry.getMaxConnections(); i++) {
+            try (Connection pooled = dataSource.getConnection()) {
+                assertFalse(pooled.isClosed());
+            }
+        }
+        assertEquals(0, dataSource.getNumActive());
+    }
+
+    @Test
+    public void changedCredentialsGetNewPool() throws SQLException {
+        DataSource dataSource = registry.getDataSource(getConnection("sa", ""));
+        DataSource other = registry.getDataSource(getConnection("ANALYST", "secret"));
+        assertNotSame(dataSource, other);
+        try (Connection pooled = other.getConnection()) {
+            assertEquals("ANALYST", pooled.getMetaData().getUserName());
+        }
+    }
+
+    @Test
+    public void closeClosesPools() throws SQLException {
+        BasicDataSource dataSource = (BasicDataSource) registry.getDataSource(getConnection("sa", ""));
+        BasicDataSource other = (BasicDataSource) registry.getDataSource(getConnection("ANALYST", "secret"));
+        dataSource.getConnection().close();
+        registry.close();
+        assertTrue(dataSource.isClosed());
+        assertTrue(other.isClosed());
+        try {
+            dataSource.getConnection();
+            fail("Connection from a closed pool");
+        } catch (SQLException e) {
+            // expected
+        }
+        // the database is given a new pool when it is used again
+        BasicDataSource reopened = (BasicDataSource) registry.getDataSource(getConnection("sa", ""));
+        assertNotSame(dataSource, reopened);
+        assertFalse(reopened.isClosed());
+    }
+
+    private static DatabaseConnection getConnection(String username, String password) {
+        DatabaseConnection conn = new DatabaseConnection();
+        conn.setDbName("registry");
+        conn.setJdbcUrl(JDBC_URL);
+        conn.setUsername(username);
+        conn.setPassword(password);
+        conn.setSchema("PUBLIC");
+        return conn;
+    }
+}
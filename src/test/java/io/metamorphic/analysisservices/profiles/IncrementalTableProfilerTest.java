@@ -0,0 +1,123 @@
+package io.metamorphic.analysisservices.profiles;
+
+import io.metamorphic.analysiscommons.models.DatabaseConnection;
+import io.metamorphic.analysiscommons.models.DatasetMetrics;
+import io.metamorphic.analysiscommons.models.Metric;
+import io.metamorphic.analysisservices.AnalysisServiceImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import static io.metamorphic.analysisservices.profiles.ProfileAssert.assertSameMeasures;
+import static io.metamorphic.analysisservices.profiles.ProfileAssert.getRowCount;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks on an embedded H2 table that profiling the rows appended since the
+ * last run, and merging them into its profile, gives the exact measures of
+ * profiling the whole table afresh.
+ */
+public class IncrementalTableProfilerTest {
+
+    private static final String JDBC_URL = "jdbc:h2:mem:incremental;DB_CLOSE_DELAY=-1";
+
+    private static final String[] COLUMNS = {"ID", "AMOUNT", "NAME", "CREATED", "ACTIVE"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Connection connection;
+
+    private AnalysisServiceImpl service;
+
+    @Before
+    public void createTable() throws SQLException, IOException {
+        connection = DriverManager.getConnection(JDBC_URL, "sa", "");
+        execute("CREATE TABLE CUSTOMER (ID BIGINT, AMOUNT DECIMAL(10, 3), NAME VARCHAR(40), CREATED DATE, "
+                + "ACTIVE BOOLEAN, LOADED_AT TIMESTAMP)");
+        insertRows(1, 1000);
+        service = new AnalysisServiceImpl();
+        service.setProfileStore(new FileProfileStore(folder.newFolder("profiles")));
+    }
+
+    @After
+    public void dropTable() throws SQLException {
+        execute("DROP TABLE CUSTOMER");
+        connection.close();
+    }
+
+    @Test
+    public void appendedRowsMatchFullProfile() throws IOException {
+        service.analyzeIncrementally("incremental", getConnection(), "CUSTOMER", "ID");
+        insertRows(1001, 1500);
+        DatasetMetrics incremental = service.analyzeIncrementally("incremental", getConnection(), "CUSTOMER", "ID");
+        assertSameMeasures(profileAfresh("ID"), incremental, COLUMNS);
+        assertEquals(1500L, getRowCount(incremental, "AMOUNT"));
+    }
+
+    @Test
+    public void changedColumnsAreProfiledFromScratch() throws IOException {
+        service.analyzeIncrementally("incremental", getConnection(), "CUSTOMER", "ID");
+        execute("ALTER TABLE CUSTOMER ADD COLUMN SCORE INTEGER");
+        execute("UPDATE CUSTOMER SET SCORE = MOD(ID, 10)");
+        insertRows(1001, 1500);
+        service.getDatastoreRegistry().refreshSchemas(getConnection());
+        DatasetMetrics incremental = service.analyzeIncrementally("incremental", getConnection(), "CUSTOMER", "ID");
+        String[] columns = Arrays.copyOf(COLUMNS, COLUMNS.length + 1);
+        columns[COLUMNS.length] = "SCORE";
+        assertSameMeasures(profileAfresh("ID"), incremental, columns);
+        assertEquals(1500L, getRowCount(incremental, "AMOUNT"));
+    }
+
+    @Test
+    public void nullWatermarkIsProfiledFromScratch() throws IOException {
+        service.analyzeIncrementally("incremental", getConnection(), "CUSTOMER", "LOADED_AT");
+        insertRows(1001, 1500);
+        DatasetMetrics incremental = service.analyzeIncrementally("incremental", getConnection(), "CUSTOMER", "LOADED_AT");
+        assertSameMeasures(profileAfresh("LOADED_AT"), incremental, COLUMNS);
+        assertEquals(1500L, getRowCount(incremental, "AMOUNT"));
+    }
+
+    private DatasetMetrics profileAfresh(String watermarkColumn) throws IOException {
+        AnalysisServiceImpl fresh = new AnalysisServiceImpl();
+        fresh.setProfileStore(new FileProfileStore(folder.newFolder()));
+        return fresh.analyzeIncrementally("incremental", getConnection(), "CUSTOMER", watermarkColumn);
+    }
+
+    private void insertRows(int from, int to) {
+        // nulls, blanks and repeated values in every column but the identity, and no load timestamps
+        execute("INSERT INTO CUSTOMER (ID, AMOUNT, NAME, CREATED, ACTIVE, LOADED_AT) SELECT X, "
+                + "CASE WHEN MOD(X, 13) = 0 THEN NULL ELSE MOD(X * 7919, 1000) / 8.0 END, "
+                + "CASE WHEN MOD(X, 11) = 0 THEN NULL WHEN MOD(X, 17) = 0 THEN '' ELSE 'name ' || MOD(X, 37) END, "
+                + "CASE WHEN MOD(X, 19) = 0 THEN NULL ELSE DATEADD('DAY', MOD(X, 400), DATE '1970-01-01') END, "
+                + "CASE WHEN MOD(X, 7) = 0 THEN NULL ELSE MOD(X, 3) = 0 END, NULL "
+                + "FROM SYSTEM_RANGE(" + from + ", " + to + ")");
+    }
+
+    private void execute(String sql) {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static DatabaseConnection getConnection() {
+        DatabaseConnection conn = new DatabaseConnection();
+        conn.setDbName("incremental");
+        conn.setJdbcUrl(JDBC_URL);
+        conn.setUsername("sa");
+        conn.setPassword("");
+        conn.setSchema("PUBLIC");
+        return conn;
+    }
+}
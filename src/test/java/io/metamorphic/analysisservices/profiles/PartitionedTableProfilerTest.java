@@ -0,0 +1,97 @@
+package io.metamorphic.analysisservices.profiles;
+
+import io.metamorphic.analysiscommons.models.DatabaseConnection;
+import io.metamorphic.analysiscommons.models.DatasetMetrics;
+import io.metamorphic.analysisservices.AnalysisServiceImpl;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static io.metamorphic.analysisservices.profiles.ProfileAssert.assertSameMeasures;
+import static io.metamorphic.analysisservices.profiles.ProfileAssert.getRowCount;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks on an embedded H2 table that the profiles of its partitions, scanned
+ * concurrently and merged, have the measures of a scan of the whole table,
+ * whether the table is split by an integer or a decimal key.
+ */
+public class PartitionedTableProfilerTest {
+
+    private static final String JDBC_URL = "jdbc:h2:mem:partitioned;DB_CLOSE_DELAY=-1";
+
+    private static final String[] COLUMNS = {"ID", "AMOUNT", "NAME", "CREATED", "ACTIVE"};
+
+    private static final int ROWS = 3000;
+
+    private static Connection connection;
+
+    private static DatasetMetrics wholeTable;
+
+    @BeforeClass
+    public static void createTable() throws SQLException {
+        connection = DriverManager.getConnection(JDBC_URL, "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE CUSTOMER (ID BIGINT, AMOUNT DECIMAL(10, 3), NAME VARCHAR(40), CREATED DATE, "
+                    + "ACTIVE BOOLEAN)");
+            // nulls in both keys, negative amounts and values repeated across partitions
+            statement.execute("INSERT INTO CUSTOMER SELECT "
+                    + "CASE WHEN MOD(X, 23) = 0 THEN NULL ELSE X END, "
+                    + "CASE WHEN MOD(X, 13) = 0 THEN NULL ELSE MOD(X * 7919, 1000) / 8.0 - 40 END, "
+                    + "CASE WHEN MOD(X, 11) = 0 THEN NULL WHEN MOD(X, 17) = 0 THEN '' ELSE 'name ' || MOD(X, 37) END, "
+                    + "CASE WHEN MOD(X, 19) = 0 THEN NULL ELSE DATEADD('DAY', MOD(X, 400), DATE '1970-01-01') END, "
+                    + "CASE WHEN MOD(X, 7) = 0 THEN NULL ELSE MOD(X, 3) = 0 END "
+                    + "FROM SYSTEM_RANGE(1, " + ROWS + ")");
+        }
+        wholeTable = new AnalysisServiceImpl().analyze("partitioned", getConnection(), "CUSTOMER", Partitioning.keyRange("ID", 1));
+    }
+
+    @AfterClass
+    public static void dropTable() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE CUSTOMER");
+        }
+        connection.close();
+    }
+
+    @Test
+    public void integerKeyModulo() {
+        assertSameAsWholeTable(Partitioning.modulo("ID", 4));
+    }
+
+    @Test
+    public void integerKeyRange() {
+        assertSameAsWholeTable(Partitioning.keyRange("ID", 5));
+    }
+
+    @Test
+    public void decimalKeyRange() {
+        assertSameAsWholeTable(Partitioning.keyRange("AMOUNT", 4));
+    }
+
+    @Test
+    public void decimalKeyModuloFallsBackToKeyRange() {
+        assertSameAsWholeTable(Partitioning.modulo("AMOUNT", 3));
+    }
+
+    private static void assertSameAsWholeTable(Partitioning partitioning) {
+        DatasetMetrics partitioned = new AnalysisServiceImpl().analyze("partitioned", getConnection(), "CUSTOMER", partitioning);
+        assertEquals(ROWS, getRowCount(wholeTable, "ID"));
+        assertSameMeasures(wholeTable, partitioned, COLUMNS);
+    }
+
+    private static DatabaseConnection getConnection() {
+        DatabaseConnection conn = new DatabaseConnection();
+        conn.setDbName("partitioned");
+        conn.setJdbcUrl(JDBC_URL);
+        conn.setUsername("sa");
+        conn.setPassword("");
+        conn.setSchema("PUBLIC");
+        return conn;
+    }
+}
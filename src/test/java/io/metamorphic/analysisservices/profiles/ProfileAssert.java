@@ -0,0 +1,74 @@
+package io.metamorphic.analysisservices.profiles;
+
+import io.metamorphic.analysiscommons.models.DatasetMetrics;
+import io.metamorphic.analysiscommons.models.Metric;
+import org.apache.commons.lang.builder.EqualsBuilder;
+import org.eobjects.analyzer.beans.NumberAnalyzer;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the measures of table profiles that are merged from parts with
+ * those of a profile of the whole table.
+ */
+final class ProfileAssert {
+
+    // from a quantile sketch, so they may differ within its rank error
+    private static final Set<String> SKETCHED_MEASURES = new HashSet<>(Arrays.asList(
+            NumberAnalyzer.MEASURE_MEDIAN, NumberAnalyzer.MEASURE_PERCENTILE25, NumberAnalyzer.MEASURE_PERCENTILE75,
+            NumberColumnProfile.MEASURE_QUANTILE_RANK_ERROR));
+
+    private ProfileAssert() {}
+
+    /**
+     * Asserts that the columns have the same measures, and the same values of
+     * each but those from a quantile sketch.
+     */
+    static void assertSameMeasures(DatasetMetrics expected, DatasetMetrics actual, String... columns) {
+        for (String column : columns) {
+            Map<String, Metric> expectedMetrics = expected.getMetricsMap(column);
+            Map<String, Metric> actualMetrics = actual.getMetricsMap(column);
+            assertFalse(column, expectedMetrics.isEmpty());
+            assertEquals(column, expectedMetrics.keySet(), actualMetrics.keySet());
+            for (Map.Entry<String, Metric> metric : expectedMetrics.entrySet()) {
+                if (SKETCHED_MEASURES.contains(metric.getKey())) {
+                    continue;
+                }
+                String name = column + " " + metric.getKey();
+                Metric actualMetric = actualMetrics.get(metric.getKey());
+                assertNotNull(name, actualMetric);
+                assertSameValue(name, metric.getValue().getValue(), actualMetric.getValue());
+            }
+        }
+    }
+
+    static long getRowCount(DatasetMetrics metrics, String column) {
+        return ((Number) metrics.getMetricsMap(column).get(NumberAnalyzer.MEASURE_ROW_COUNT).getValue()).longValue();
+    }
+
+    // sums of doubles may be added up in another order when profiles are merged
+    private static void assertSameValue(String name, Object expected, Object actual) {
+        if (expected instanceof Double && actual instanceof Double) {
+            double expectedValue = (Double) expected;
+            assertEquals(name, expectedValue, (Double) actual, Math.abs(expectedValue) * 1e-9);
+        } else if (expected instanceof Object[] && actual instanceof Object[]) {
+            // the top values, which are compared field by field
+            Object[] expectedValues = (Object[]) expected;
+            Object[] actualValues = (Object[]) actual;
+            assertEquals(name, expectedValues.length, actualValues.length);
+            for (int i = 0; i < expectedValues.length; i++) {
+                assertTrue(name + " " + i, EqualsBuilder.reflectionEquals(expectedValues[i], actualValues[i]));
+            }
+        } else {
+            assertEquals(name, expected, actual);
+        }
+    }
+}
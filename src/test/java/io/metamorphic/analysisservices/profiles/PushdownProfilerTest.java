@@ -0,0 +1,113 @@
+package io.metamorphic.analysisservices.profiles;
+
+import io.metamorphic.analysiscommons.models.DatabaseConnection;
+import io.metamorphic.analysiscommons.models.DatasetMetrics;
+import io.metamorphic.analysiscommons.models.Metric;
+import io.metamorphic.analysisservices.AnalysisServiceImpl;
+import org.eobjects.analyzer.beans.NumberAnalyzer;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Checks on an embedded H2 table that each measure pushed down to the
+ * database is the one the analysis job computes by reading every row.
+ */
+public class PushdownProfilerTest {
+
+    private static final String JDBC_URL = "jdbc:h2:mem:pushdown;DB_CLOSE_DELAY=-1";
+
+    private static final String[] COLUMNS = {"ID", "AMOUNT", "NAME", "CREATED", "BIRTH_DATE", "ACTIVE"};
+
+    private static Connection connection;
+
+    @BeforeClass
+    public static void createTable() throws SQLException {
+        connection = DriverManager.getConnection(JDBC_URL, "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE CUSTOMER (ID BIGINT, AMOUNT DECIMAL(10, 3), NAME VARCHAR(40), CREATED TIMESTAMP, "
+                    + "BIRTH_DATE DATE, ACTIVE BOOLEAN)");
+            // nulls, blanks, repeated values and times of day in every column
+            statement.execute("INSERT INTO CUSTOMER SELECT X, "
+                    + "CASE WHEN MOD(X, 13) = 0 THEN NULL ELSE MOD(X * 7919, 1000) / 8.0 END, "
+                    + "CASE WHEN MOD(X, 11) = 0 THEN NULL WHEN MOD(X, 17) = 0 THEN '' ELSE 'name ' || MOD(X, 37) END, "
+                    + "DATEADD('MINUTE', MOD(X * 17, 50000), TIMESTAMP '2015-01-01 00:00:00'), "
+                    + "CASE WHEN MOD(X, 19) = 0 THEN NULL ELSE DATEADD('DAY', MOD(X, 400), DATE '1970-01-01') END, "
+                    + "CASE WHEN MOD(X, 7) = 0 THEN NULL ELSE MOD(X, 3) = 0 END "
+                    + "FROM SYSTEM_RANGE(1, 2000)");
+        }
+    }
+
+    @AfterClass
+    public static void dropTable() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE CUSTOMER");
+        }
+        connection.close();
+    }
+
+    @Test
+    public void pushdownMatchesFullScan() {
+        AnalysisServiceImpl service = new AnalysisServiceImpl();
+        DatasetMetrics scanned = service.analyze("pushdown", getConnection(), "CUSTOMER");
+        DatasetMetrics pushedDown = service.analyzeWithPushdown("pushdown", getConnection(), "CUSTOMER",
+                Collections.<String>emptySet());
+        for (String column : COLUMNS) {
+            Map<String, Metric> expected = scanned.getMetricsMap(column);
+            Map<String, Metric> actual = pushedDown.getMetricsMap(column);
+            assertFalse(column, actual.isEmpty());
+            for (Map.Entry<String, Metric> metric : actual.entrySet()) {
+                String name = column + " " + metric.getKey();
+                Metric expectedMetric = expected.get(metric.getKey());
+                assertNotNull(name, expectedMetric);
+                assertSameValue(name, expectedMetric.getValue(), metric.getValue().getValue());
+            }
+        }
+    }
+
+    @Test
+    public void renderedResultIsAnalyzedByTheJob() {
+        AnalysisServiceImpl service = new AnalysisServiceImpl();
+        DatasetMetrics scanned = service.analyze("pushdown", getConnection(), "CUSTOMER", true);
+        service.setPushdown(true);
+        service.setScanMeasures(Collections.<String>emptySet());
+        DatasetMetrics pushedDown = service.analyze("pushdown", getConnection(), "CUSTOMER", false);
+        DatasetMetrics rendered = service.analyze("pushdown", getConnection(), "CUSTOMER", true);
+        // the median is a scan measure, so only the job reports it once none is selected
+        assertFalse(pushedDown.getMetricsMap("AMOUNT").containsKey(NumberAnalyzer.MEASURE_MEDIAN));
+        for (String column : COLUMNS) {
+            assertEquals(column, scanned.getMetricsMap(column).keySet(), rendered.getMetricsMap(column).keySet());
+        }
+    }
+
+    // counts are longs when pushed down, and sums of doubles may be added up in another order
+    private static void assertSameValue(String name, Object expected, Object actual) {
+        if (expected instanceof Number && actual instanceof Number) {
+            double expectedValue = ((Number) expected).doubleValue();
+            assertEquals(name, expectedValue, ((Number) actual).doubleValue(), Math.abs(expectedValue) * 1e-12);
+        } else {
+            assertEquals(name, expected, actual);
+        }
+    }
+
+    private static DatabaseConnection getConnection() {
+        DatabaseConnection conn = new DatabaseConnection();
+        conn.setDbName("pushdown");
+        conn.setJdbcUrl(JDBC_URL);
+        conn.setUsername("sa");
+        conn.setPassword("");
+        conn.setSchema("PUBLIC");
+        return conn;
+    }
+}
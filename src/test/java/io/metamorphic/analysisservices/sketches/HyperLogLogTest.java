@@ -0,0 +1,76 @@
+package io.metamorphic.analysisservices.sketches;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the cardinality estimates of the sketch and that merging sketches
+ * gives the sketch of the union of their values.
+ */
+public class HyperLogLogTest {
+
+    private static final int PRECISION = 14;
+
+    @Test
+    public void estimatesAreWithinErrorBounds() {
+        HyperLogLog sketch = new HyperLogLog(PRECISION);
+        int added = 0;
+        for (int cardinality : new int[] {1000, 10000, 100000, 1000000}) {
+            for (; added < cardinality; added++) {
+                sketch.add("value-" + added);
+            }
+            double error = Math.abs(sketch.cardinality() - cardinality) / (double) cardinality;
+            // four standard errors, which a fixed set of values passes or fails every time
+            assertTrue(cardinality + ": " + error, error < 4 * sketch.getRelativeStandardError());
+        }
+    }
+
+    @Test
+    public void repeatedValuesAreCountedOnce() {
+        HyperLogLog sketch = new HyperLogLog(PRECISION);
+        for (int i = 0; i < 100000; i++) {
+            sketch.add("value-" + i % 500);
+        }
+        assertEquals(500, sketch.cardinality(), 500 * 4 * sketch.getRelativeStandardError());
+    }
+
+    @Test
+    public void smallCardinalitiesAreNearExact() {
+        assertEquals(0, new HyperLogLog(PRECISION).cardinality());
+        for (int cardinality : new int[] {1, 2, 5, 10, 50, 100, 500}) {
+            HyperLogLog sketch = new HyperLogLog(PRECISION);
+            for (int i = 0; i < cardinality; i++) {
+                sketch.add("value-" + i);
+            }
+            // collisions in 2^14 registers are rare for so few values
+            assertEquals(Integer.toString(cardinality), cardinality, sketch.cardinality(), Math.max(1, cardinality * 0.01));
+        }
+    }
+
+    @Test
+    public void mergeEqualsSketchOfUnion() {
+        HyperLogLog first = new HyperLogLog(PRECISION);
+        HyperLogLog second = new HyperLogLog(PRECISION);
+        HyperLogLog union = new HyperLogLog(PRECISION);
+        for (int i = 0; i < 60000; i++) {
+            first.add("value-" + i);
+            union.add("value-" + i);
+        }
+        // overlapping the first
+        for (int i = 40000; i < 100000; i++) {
+            second.add("value-" + i);
+            union.add("value-" + i);
+        }
+        first.merge(second);
+        assertEquals(union.cardinality(), first.cardinality());
+        double error = Math.abs(first.cardinality() - 100000) / 100000.0;
+        assertTrue(Double.toString(error), error < 4 * first.getRelativeStandardError());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mergeOfOtherPrecisionFails() {
+        new HyperLogLog(PRECISION).merge(new HyperLogLog(PRECISION - 1));
+    }
+}
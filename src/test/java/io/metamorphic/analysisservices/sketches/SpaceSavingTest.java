@@ -0,0 +1,112 @@
+package io.metamorphic.analysisservices.sketches;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the counts of the summary bound the true frequencies within its
+ * reported errors, and that the items frequent enough to be guaranteed a
+ * counter keep theirs, whether offered or merged.
+ */
+public class SpaceSavingTest {
+
+    private static final int CAPACITY = 50;
+
+    @Test
+    public void countsAreExactWhileNotFull() {
+        SpaceSaving summary = new SpaceSaving(CAPACITY);
+        Map<String, Long> frequencies = new HashMap<>();
+        offer(summary, stream(CAPACITY - 1, 7L), frequencies);
+        assertFalse(summary.isFull());
+        assertEquals(frequencies.size(), summary.size());
+        for (SpaceSaving.Counter counter : summary.top(CAPACITY)) {
+            assertEquals(counter.getItem(), (long) frequencies.get(counter.getItem()), counter.getCount());
+            assertEquals(0, counter.getError());
+        }
+    }
+
+    @Test
+    public void errorBoundsHold() {
+        SpaceSaving summary = new SpaceSaving(CAPACITY);
+        Map<String, Long> frequencies = new HashMap<>();
+        long n = offer(summary, stream(2000, 42L), frequencies);
+        assertTrue(summary.isFull());
+        assertBounds(summary, frequencies, n);
+    }
+
+    @Test
+    public void heavyHittersSurviveMerge() {
+        SpaceSaving first = new SpaceSaving(CAPACITY);
+        SpaceSaving second = new SpaceSaving(CAPACITY);
+        Map<String, Long> frequencies = new HashMap<>();
+        List<String> items = stream(2000, 11L);
+        // a third of the stream in one summary and the rest in the other
+        long n = offer(first, items.subList(0, items.size() / 3), frequencies);
+        n += offer(second, items.subList(items.size() / 3, items.size()), frequencies);
+        first.merge(second);
+        assertTrue(first.isFull());
+        assertBounds(first, frequencies, n);
+    }
+
+    /**
+     * Checks that each counter bounds the frequency of its item, that no error
+     * is more than the items offered over the capacity, and that every item more
+     * frequent than that is among the top items.
+     */
+    private static void assertBounds(SpaceSaving summary, Map<String, Long> frequencies, long n) {
+        long maxError = n / summary.getCapacity();
+        Set<String> top = new HashSet<>();
+        for (SpaceSaving.Counter counter : summary.top(summary.getCapacity())) {
+            long frequency = frequencies.get(counter.getItem());
+            String message = counter.getItem() + ": " + counter.getCount() + " - " + counter.getError() + " for " + frequency;
+            assertTrue(message, counter.getCount() >= frequency);
+            assertTrue(message, counter.getCount() - counter.getError() <= frequency);
+            assertTrue(message, counter.getError() <= maxError);
+            top.add(counter.getItem());
+        }
+        int heavyHitters = 0;
+        for (Map.Entry<String, Long> entry : frequencies.entrySet()) {
+            if (entry.getValue() > maxError) {
+                assertTrue(entry.getKey() + ": " + entry.getValue(), top.contains(entry.getKey()));
+                heavyHitters++;
+            }
+        }
+        assertTrue(heavyHitters > 0);
+    }
+
+    private static long offer(SpaceSaving summary, List<String> items, Map<String, Long> frequencies) {
+        for (String item : items) {
+            summary.offer(item);
+            Long frequency = frequencies.get(item);
+            frequencies.put(item, frequency == null ? 1L : frequency + 1);
+        }
+        return items.size();
+    }
+
+    /**
+     * @return distinct items with Zipf frequencies, the most frequent offered
+     *         20000 times, in a shuffled order
+     */
+    private static List<String> stream(int distinct, long seed) {
+        List<String> items = new ArrayList<>();
+        for (int rank = 1; rank <= distinct; rank++) {
+            for (int i = 0; i < Math.max(1, 20000 / rank); i++) {
+                items.add("item-" + rank);
+            }
+        }
+        Collections.shuffle(items, new Random(seed));
+        return items;
+    }
+}
@@ -0,0 +1,126 @@
+package io.metamorphic.analysisservices.transformers;
+
+import io.metamorphic.commons.utils.DateParser;
+import org.junit.Test;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks the format a column learns from its first dates, against a general
+ * parser of known formats, and that the dates parsed are those of the general
+ * parser whether or not a format is locked in.
+ */
+public class DateFormatLearnerTest {
+
+    private static final int SAMPLE_SIZE = 5;
+
+    @Test
+    public void learnsTheFormatOfTheGeneralParser() {
+        DateParser dayFirst = generalParser("dd/MM/yyyy");
+        DateFormatLearner learner = learnFrom(dayFirst, "01/02/2015", "03/04/2015", "05/06/2015", "07/08/2015",
+                "09/10/2015");
+        assertEquals("dd/MM/yyyy", learner.getPattern().getPattern());
+        assertParsedAs(dayFirst, learner, "11/12/2015", "28/02/2015");
+
+        DateParser monthFirst = generalParser("MM/dd/yyyy");
+        learner = learnFrom(monthFirst, "01/02/2015", "03/04/2015", "05/06/2015", "07/08/2015", "09/10/2015");
+        assertEquals("MM/dd/yyyy", learner.getPattern().getPattern());
+        assertParsedAs(monthFirst, learner, "11/12/2015", "02/28/2015");
+    }
+
+    @Test
+    public void ambiguousDayAndMonthKeepLearning() {
+        DateParser monthFirst = generalParser("MM/dd/yyyy");
+        // the day is the month in every date sampled, so both dd/MM and MM/dd fit
+        DateFormatLearner learner = learnFrom(monthFirst, "01/01/2015", "02/02/2015", "03/03/2015", "04/04/2015",
+                "05/05/2015", "06/06/2015");
+        assertNull(learner.getPattern());
+        assertParsedAs(monthFirst, learner, "03/04/2015");
+        assertEquals("MM/dd/yyyy", learner.getPattern().getPattern());
+        assertParsedAs(monthFirst, learner, "04/03/2015", "12/25/2015");
+    }
+
+    @Test
+    public void twoDigitYearsAreLeftToTheGeneralParser() {
+        DateParser twoDigitYears = generalParser("dd/MM/yy");
+        DateFormatLearner learner = learnFrom(twoDigitYears, "01/02/15", "03/04/15", "05/06/15", "25/12/99",
+                "31/01/00");
+        assertNull(learner.getPattern());
+        assertParsedAs(twoDigitYears, learner, "11/12/15", "28/02/49", "28/02/50");
+    }
+
+    @Test
+    public void mixedFormatsAreLeftToTheGeneralParser() {
+        DateParser mixed = generalParser("yyyy-MM-dd", "dd/MM/yyyy");
+        DateFormatLearner learner = learnFrom(mixed, "2015-02-01", "03/04/2015", "2015-06-05", "07/08/2015",
+                "2015-10-09");
+        assertNull(learner.getPattern());
+        assertParsedAs(mixed, learner, "2015-12-11", "13/12/2015");
+    }
+
+    @Test
+    public void valuesNotDatesAreNotLearned() {
+        DateParser isoDates = generalParser("yyyy-MM-dd");
+        DateFormatLearner learner = new DateFormatLearner(isoDates, SAMPLE_SIZE);
+        for (String value : new String[] {"", "n/a", "2015-02-30", "2015-13-01", "20150101"}) {
+            assertNull(value, learner.parse(value));
+        }
+        assertNull(learner.getPattern());
+        learner = learnFrom(learner, "2015-01-01", "2015-01-02", "2015-01-03", "2015-01-04", "2015-01-05");
+        assertEquals("yyyy-MM-dd", learner.getPattern().getPattern());
+        assertNull(learner.parse("2015-02-30"));
+        // not of the format locked in, but a date to the general parser
+        assertParsedAs(isoDates, learner, "2015-1-5");
+    }
+
+    @Test
+    public void noSampleUsesTheGeneralParser() {
+        DateParser isoDates = generalParser("yyyy-MM-dd");
+        DateFormatLearner learner = new DateFormatLearner(isoDates, 0);
+        assertParsedAs(isoDates, learner, "2015-01-01", "2015-01-02");
+        assertNull(learner.getPattern());
+    }
+
+    private static DateFormatLearner learnFrom(DateParser dateParser, String... values) {
+        return learnFrom(new DateFormatLearner(dateParser, SAMPLE_SIZE), values);
+    }
+
+    private static DateFormatLearner learnFrom(DateFormatLearner learner, String... values) {
+        for (String value : values) {
+            learner.parse(value);
+        }
+        return learner;
+    }
+
+    private static void assertParsedAs(DateParser dateParser, DateFormatLearner learner, String... values) {
+        for (String value : values) {
+            assertEquals(value, dateParser.parse(value), learner.parse(value));
+        }
+    }
+
+    /**
+     * @return a parser of the formats, strictly and in order, that throws on other values as the general parser does
+     */
+    private static DateParser generalParser(final String... patterns) {
+        return new DateParser() {
+            @Override
+            public Date parse(String value) {
+                for (String pattern : patterns) {
+                    SimpleDateFormat format = new SimpleDateFormat(pattern);
+                    format.setLenient(false);
+                    ParsePosition position = new ParsePosition(0);
+                    Date date = format.parse(value, position);
+                    if (date != null && position.getIndex() == value.length()) {
+                        return date;
+                    }
+                }
+                throw new IllegalArgumentException("Unparseable date: " + value);
+            }
+        };
+    }
+}
@@ -0,0 +1,84 @@
+package io.metamorphic.analysisservices.transformers;
+
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks the dates parsed by a pattern against those of a strict
+ * SimpleDateFormat, and the patterns and values that are rejected.
+ */
+public class DatePatternTest {
+
+    @Test
+    public void parsesAsSimpleDateFormat() throws ParseException {
+        assertParsed("yyyy-MM-dd", "2015-03-04");
+        assertParsed("yyyy-MM-dd", "0001-01-01");
+        assertParsed("yyyy-MM-dd HH:mm:ss.SSS", "1999-12-31 23:59:59.999");
+        assertParsed("yyyy-MM-dd'T'HH:mm:ss", "2015-03-04T05:06:07");
+        assertParsed("yyyyMMdd", "20150304");
+        assertParsed("dd.MM.yyyy HH:mm:ss", "04.03.2015 00:00:00");
+        // leap days
+        assertParsed("yyyy-MM-dd", "2016-02-29");
+        assertParsed("yyyy-MM-dd", "2000-02-29");
+    }
+
+    @Test
+    public void dayAndMonthAreRead() throws ParseException {
+        // the same value is a different date in each order, and only the day may be more than 12
+        assertParsed("dd/MM/yyyy", "03/04/2015");
+        assertParsed("MM/dd/yyyy", "03/04/2015");
+        assertParsed("dd/MM/yyyy", "25/12/2015");
+        assertParsed("MM/dd/yyyy", "12/25/2015");
+        assertNull(DatePattern.compile("MM/dd/yyyy").parse("25/12/2015"));
+        assertNull(DatePattern.compile("dd/MM/yyyy").parse("12/25/2015"));
+    }
+
+    @Test
+    public void invalidDatesAreRejected() {
+        DatePattern pattern = DatePattern.compile("yyyy-MM-dd HH:mm:ss");
+        for (String value : new String[] {"2015-02-29 00:00:00", "1900-02-29 00:00:00", "2015-04-31 00:00:00",
+                "2015-13-01 00:00:00", "2015-00-10 00:00:00", "2015-01-00 00:00:00", "2015-01-01 24:00:00",
+                "2015-01-01 23:60:00", "2015-01-01 23:59:60"}) {
+            assertNull(value, pattern.parse(value));
+        }
+    }
+
+    @Test
+    public void otherLayoutsAreRejected() {
+        DatePattern pattern = DatePattern.compile("yyyy-MM-dd");
+        for (String value : new String[] {"", "2015-3-4", "2015-03-4", "2015-03-04 ", " 2015-03-04", "2015/03/04",
+                "20150304", "15-03-04", "2015-03-04T00:00", "+015-03-04", "2015-0a-04", "2015-\u0660\u0663-04"}) {
+            assertNull(value, pattern.parse(value));
+        }
+        // a two-digit year is not widened
+        assertNull(DatePattern.compile("dd/MM/yyyy").parse("04/03/15"));
+        assertNull(DatePattern.compile("yyyy-MM-dd'T'HH:mm:ss").parse("2015-03-04 05:06:07"));
+    }
+
+    @Test
+    public void unsupportedPatternsAreRejected() {
+        for (String pattern : new String[] {"dd/MM/yy", "yyyyy-MM-dd", "dd MMM yyyy", "yyyy-M-d", "EEE, dd MM yyyy",
+                "hh:mm a", "yyyy-MM-dd HH:mm:ss.SS", "yyyy-MM-dd'T", "yyyy-MM-ddTHH:mm"}) {
+            try {
+                DatePattern.compile(pattern);
+                fail(pattern);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    private static void assertParsed(String pattern, String value) throws ParseException {
+        SimpleDateFormat format = new SimpleDateFormat(pattern);
+        format.setLenient(false);
+        Date expected = format.parse(value);
+        assertEquals(pattern + " " + value, expected, DatePattern.compile(pattern).parse(value));
+    }
+}
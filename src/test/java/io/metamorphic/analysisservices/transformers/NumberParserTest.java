@@ -0,0 +1,190 @@
+package io.metamorphic.analysisservices.transformers;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks the numbers parsed in place against those of the JDK, and the input
+ * that is rejected rather than parsed.
+ */
+public class NumberParserTest {
+
+    @Test
+    public void signsAndDecimalPoints() {
+        assertLong(42L, "42");
+        assertLong(42L, "+42");
+        assertLong(-42L, "-42");
+        assertLong(0L, "-0");
+        assertLong(5L, "5.");
+        assertLong(2L, "2.000");
+        assertDouble(0.5, ".5");
+        assertDouble(-0.5, "-.5");
+        assertDouble(1.5, "+1.50");
+        assertDouble(-123.456, "-123.456");
+        assertLong(42L, "  42 \t");
+        assertNull(NumberParser.parseNumber("."));
+        assertNull(NumberParser.parseNumber("-"));
+        assertNull(NumberParser.parseNumber("+."));
+        assertNull(NumberParser.parseNumber("--1"));
+        assertNull(NumberParser.parseNumber("1.2.3"));
+        assertNull(NumberParser.parseNumber("1 2"));
+        assertNull(NumberParser.parseNumber("   "));
+        assertNull(NumberParser.parseNumber(""));
+        assertNull(NumberParser.parseNumber(null));
+    }
+
+    @Test
+    public void exponents() {
+        assertLong(1000L, "1e3");
+        assertLong(1000L, "1E+3");
+        assertLong(1200L, "1.2e3");
+        assertDouble(0.01, "1e-2");
+        assertDouble(0.012, ".12E-1");
+        assertDouble(1e22, "1e22");
+        assertDouble(1e23, "1e23");
+        assertDouble(1.7976931348623157e308, "1.7976931348623157e308");
+        assertDouble(Double.MIN_VALUE, "4.9e-324");
+        assertLong(0L, "0e999999");
+        assertNull(NumberParser.parseNumber("1e"));
+        assertNull(NumberParser.parseNumber("1e+"));
+        assertNull(NumberParser.parseNumber("e3"));
+        assertNull(NumberParser.parseNumber("1e3.5"));
+        assertNull(NumberParser.parseNumber("1e3e4"));
+    }
+
+    @Test
+    public void thousandsSeparatorsAndPercent() {
+        assertLong(1234567L, "1,234,567");
+        assertDouble(-1234.5, "-1,234.5");
+        assertDouble(0.125, "12.5%");
+        assertDouble(0.5, " 50 % ");
+        assertLong(12L, "1,200%");
+        assertNull(NumberParser.parseNumber("1,23"));
+        assertNull(NumberParser.parseNumber("1,2345"));
+        assertNull(NumberParser.parseNumber(",123"));
+        assertNull(NumberParser.parseNumber("1,234,"));
+        assertNull(NumberParser.parseNumber("1.234,5"));
+        assertNull(NumberParser.parseNumber("%"));
+        assertNull(NumberParser.parseNumber("5%%"));
+    }
+
+    @Test
+    public void manySignificantDigits() {
+        assertLong(Long.MAX_VALUE, "9223372036854775807");
+        assertLong(-Long.MAX_VALUE, "-9223372036854775807");
+        // past the range of a long, the nearest double
+        assertDouble(9223372036854775808.0, "9223372036854775808");
+        assertDouble(12345678901234567890.0, "12345678901234567890");
+        assertDouble(1.2345678901234568e29, "123456789012345678901234567890");
+        assertDouble(0.3, "0.30000000000000000000001");
+        assertDouble(0.1234567890123456789, "0.1234567890123456789012345");
+        assertDouble(3.141592653589793, "3.14159265358979323846264338327950288");
+        // trailing zeros past those a long holds do not make the number inexact
+        assertLong(1L, "1.0000000000000000000000000");
+        assertDouble(1e25, "10000000000000000000000000");
+        // above 2^53, rounded as the JDK rounds
+        assertDouble(9007199254740993.5, "9007199254740993.5");
+        assertDouble(123456789012345.678901, "123456789012345.678901");
+    }
+
+    @Test
+    public void outOfDoubleRangeFails() {
+        assertNull(NumberParser.parseNumber("1e400"));
+        assertNull(NumberParser.parseNumber("-1e400"));
+        assertNull(NumberParser.parseNumber("1.8e308"));
+        assertNull(NumberParser.parseNumber("1e-400"));
+        assertNull(NumberParser.parseNumber("-2e-324"));
+        assertNull(NumberParser.parseNumber("1" + repeat('0', 400)));
+        assertNull(NumberParser.parseNumber("0." + repeat('0', 400) + "1"));
+        assertNull(NumberParser.parseNumber("1e99999999999"));
+    }
+
+    @Test
+    public void rejectsWhatTheJdkRejects() {
+        // but for thousands separators and percent signs, which are read on purpose
+        for (String value : new String[] {"abc", "1..2", "1.2.3", "1-", "+-1", "1 000", "1e", "e5", "1e5.0", "0x",
+                "1_000", "\u0661\u0662", "12\u00a0", "$5", "(5)"}) {
+            try {
+                Double.parseDouble(value);
+                fail(value + " is parsed by the JDK");
+            } catch (NumberFormatException e) {
+                assertNull(value, NumberParser.parseNumber(value));
+            }
+        }
+    }
+
+    @Test
+    public void rejectsJavaLiteralsTheJdkParses() {
+        // Double.parseDouble accepts these, but none is a number as written in data
+        for (String value : new String[] {"NaN", "-NaN", "Infinity", "-Infinity", "0x1p3", "1d", "1f", "1D", "1.5F"}) {
+            Double.parseDouble(value);
+            assertNull(value, NumberParser.parseNumber(value));
+        }
+    }
+
+    @Test
+    public void parseLongAtLimits() {
+        assertEquals(Long.valueOf(Long.MAX_VALUE), NumberParser.parseLong("9223372036854775807"));
+        assertEquals(Long.valueOf(Long.MAX_VALUE), NumberParser.parseLong("+9223372036854775807"));
+        assertEquals(Long.valueOf(Long.MIN_VALUE), NumberParser.parseLong("-9223372036854775808"));
+        assertEquals(Long.valueOf(Long.MIN_VALUE), NumberParser.parseLong(" -9223372036854775808 "));
+        assertNull(NumberParser.parseLong("9223372036854775808"));
+        assertNull(NumberParser.parseLong("-9223372036854775809"));
+        assertEquals(Long.valueOf(Long.MIN_VALUE), NumberParser.parseLong("-0009223372036854775808"));
+        assertNull(NumberParser.parseLong("-0009223372036854775809"));
+        assertNull(NumberParser.parseLong("99999999999999999999"));
+        assertEquals(Long.valueOf(7L), NumberParser.parseLong("007"));
+        assertEquals(Long.valueOf(0L), NumberParser.parseLong("-0"));
+        assertNull(NumberParser.parseLong("-"));
+        assertNull(NumberParser.parseLong("+"));
+        assertNull(NumberParser.parseLong("1.0"));
+        assertNull(NumberParser.parseLong("1,000"));
+        assertNull(NumberParser.parseLong("1e3"));
+        assertNull(NumberParser.parseLong(""));
+        assertNull(NumberParser.parseLong(null));
+    }
+
+    @Test
+    public void parseIntAtLimits() {
+        assertEquals(Integer.valueOf(Integer.MAX_VALUE), NumberParser.parseInt("2147483647"));
+        assertEquals(Integer.valueOf(Integer.MIN_VALUE), NumberParser.parseInt("-2147483648"));
+        assertNull(NumberParser.parseInt("2147483648"));
+        assertNull(NumberParser.parseInt("-2147483649"));
+        assertNull(NumberParser.parseInt("-9223372036854775808"));
+        assertEquals(Integer.valueOf(12), NumberParser.parseInt("\t12\n"));
+        assertNull(NumberParser.parseInt("12a"));
+    }
+
+    @Test
+    public void blank() {
+        assertTrue(NumberParser.isBlank(""));
+        assertTrue(NumberParser.isBlank(" \t\r\n"));
+        assertFalse(NumberParser.isBlank(" 0 "));
+    }
+
+    private static void assertLong(long expected, String value) {
+        Number n = NumberParser.parseNumber(value);
+        assertTrue(value + " as " + n, n instanceof Long);
+        assertEquals(value, expected, n.longValue());
+    }
+
+    private static void assertDouble(double expected, String value) {
+        Number n = NumberParser.parseNumber(value);
+        assertTrue(value + " as " + n, n instanceof Double);
+        // exactly, as the JDK rounds
+        assertEquals(value, Double.valueOf(expected), n);
+    }
+
+    private static String repeat(char c, int n) {
+        StringBuilder sb = new StringBuilder(n);
+        for (int i = 0; i < n; i++) {
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+}